@@ -0,0 +1,33 @@
+package com.revolut.interview.benchmark;
+
+import com.revolut.interview.request.CreateAccount;
+import com.revolut.interview.service.AccountService;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.UUID;
+
+final class AccountBook {
+
+    static final BigDecimal INITIAL_BALANCE = new BigDecimal(1_000_000_000_000L);
+    static final Currency   CURRENCY        = Currency.getInstance("GBP");
+
+    private AccountBook() {
+    }
+
+    static UUID[] populate(final AccountService accountService, final int size) {
+        final UUID[] accountIds = new UUID[size];
+        for(int i = 0; i < size; i++) {
+            accountIds[i] = accountService.createAccount(newAccount("book-user-" + i));
+        }
+        return accountIds;
+    }
+
+    static CreateAccount newAccount(final String userId) {
+        return CreateAccount.builder()
+                            .userId(userId)
+                            .balance(INITIAL_BALANCE)
+                            .currency(CURRENCY)
+                            .build();
+    }
+}
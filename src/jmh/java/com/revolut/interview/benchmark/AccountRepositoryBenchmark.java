@@ -0,0 +1,109 @@
+package com.revolut.interview.benchmark;
+
+import com.revolut.interview.model.Account;
+import com.revolut.interview.repository.AccountRepository;
+import com.revolut.interview.repository.AccountRepositoryImpl;
+import com.revolut.interview.repository.OffHeapAccountRepository;
+import com.revolut.interview.repository.StorageMode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class AccountRepositoryBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Store {
+
+        @Param({"1000", "100000", "1000000", "10000000"})
+        public int bookSize;
+
+        @Param({"HEAP", "OFF_HEAP"})
+        public StorageMode storage;
+
+        AccountRepository accountRepository;
+        UUID[]            accountIds;
+
+        final AtomicLong  userSequence = new AtomicLong();
+        final Queue<UUID> createdAccounts = new ConcurrentLinkedQueue<>();
+
+        @Setup
+        public void setUp() {
+            accountRepository = storage == StorageMode.OFF_HEAP
+                    ? new OffHeapAccountRepository(bookSize)
+                    : new AccountRepositoryImpl();
+            accountIds = new UUID[bookSize];
+            for(int i = 0; i < bookSize; i++) {
+                accountIds[i] = UUID.randomUUID();
+                accountRepository.save(newAccount(accountIds[i], "book-user-" + i));
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void removeCreatedAccounts() {
+            UUID accountId;
+            while((accountId = createdAccounts.poll()) != null) {
+                accountRepository.deleteAccount(accountId);
+            }
+        }
+    }
+
+    @Benchmark
+    public Account getAccountById(final Store store) {
+        return store.accountRepository.getAccountById(store.accountIds[ThreadLocalRandom.current().nextInt(store.bookSize)]);
+    }
+
+    @Benchmark
+    public boolean isAccountExist(final Store store) {
+        return store.accountRepository.isAccountExist("book-user-" + ThreadLocalRandom.current().nextInt(store.bookSize));
+    }
+
+    @Benchmark
+    public int getAllAccounts(final Store store) {
+        int count = 0;
+        for(final Account ignored : store.accountRepository.getAllAccounts()) {
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public boolean saveIfUserAbsent(final Store store) {
+        final UUID accountId = UUID.randomUUID();
+        final boolean saved = store.accountRepository.saveIfUserAbsent(
+                newAccount(accountId, "bench-user-" + store.userSequence.incrementAndGet()));
+        store.createdAccounts.add(accountId);
+        return saved;
+    }
+
+    private static Account newAccount(final UUID accountId, final String userId) {
+        return Account.builder()
+                      .id(accountId)
+                      .userId(userId)
+                      .balance(AccountBook.INITIAL_BALANCE)
+                      .currencyCode(AccountBook.CURRENCY)
+                      .build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.revolut.interview.benchmark;
+
+import com.revolut.interview.response.AccountResponse;
+import com.revolut.interview.service.AccountService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class AccountServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Book {
+
+        @Param({"LOCKING_GLOBAL", "LOCKING_STRIPED", "OPTIMISTIC", "SINGLE_WRITER", "SHARDED"})
+        public BenchmarkEngine engine;
+
+        @Param({"1000", "100000", "1000000", "10000000"})
+        public int bookSize;
+
+        AccountService accountService;
+        UUID[]         accountIds;
+
+        final AtomicLong  userSequence = new AtomicLong();
+        final Queue<UUID> createdAccounts = new ConcurrentLinkedQueue<>();
+
+        @Setup
+        public void setUp() {
+            accountService = engine.create();
+            accountIds = AccountBook.populate(accountService, bookSize);
+        }
+
+        // Keeps the book at its nominal size between createAccount iterations
+        @TearDown(Level.Iteration)
+        public void removeCreatedAccounts() {
+            UUID accountId;
+            while((accountId = createdAccounts.poll()) != null) {
+                accountService.deleteAccount(accountId);
+            }
+        }
+    }
+
+    @Benchmark
+    public AccountResponse getAccount(final Book book) {
+        return book.accountService.getAccount(book.accountIds[ThreadLocalRandom.current().nextInt(book.bookSize)]);
+    }
+
+    @Benchmark
+    public List<AccountResponse> getAllAccounts(final Book book) {
+        return book.accountService.getAllAccounts();
+    }
+
+    @Benchmark
+    public UUID createAccount(final Book book) {
+        final UUID accountId = book.accountService.createAccount(
+                AccountBook.newAccount("bench-user-" + book.userSequence.incrementAndGet()));
+        book.createdAccounts.add(accountId);
+        return accountId;
+    }
+}
@@ -0,0 +1,38 @@
+package com.revolut.interview.benchmark;
+
+import com.google.inject.Guice;
+
+import com.revolut.interview.config.ServiceConfig;
+import com.revolut.interview.injector.ApplicationInjector;
+import com.revolut.interview.lock.LockMode;
+import com.revolut.interview.service.AccountService;
+import com.revolut.interview.service.ServiceEngine;
+
+public enum BenchmarkEngine {
+    LOCKING_GLOBAL(ServiceEngine.LOCKING, LockMode.GLOBAL),
+    LOCKING_STRIPED(ServiceEngine.LOCKING, LockMode.STRIPED),
+    OPTIMISTIC(ServiceEngine.OPTIMISTIC, LockMode.STRIPED),
+    SINGLE_WRITER(ServiceEngine.SINGLE_WRITER, LockMode.STRIPED),
+    SHARDED(ServiceEngine.SHARDED, LockMode.STRIPED);
+
+    private final ServiceEngine engine;
+    private final LockMode      lockMode;
+
+    BenchmarkEngine(final ServiceEngine engine, final LockMode lockMode) {
+        this.engine = engine;
+        this.lockMode = lockMode;
+    }
+
+    public ServiceConfig config() {
+        return ServiceConfig.fromSystemProperties().toBuilder()
+                            .engine(engine)
+                            .lockMode(lockMode)
+                            .admissionMaxLimit(0)
+                            .ledgerEnabled(false)
+                            .build();
+    }
+
+    public AccountService create() {
+        return Guice.createInjector(new ApplicationInjector(config())).getInstance(AccountService.class);
+    }
+}
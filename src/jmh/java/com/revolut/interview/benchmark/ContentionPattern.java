@@ -0,0 +1,10 @@
+package com.revolut.interview.benchmark;
+
+public enum ContentionPattern {
+    // every account is equally likely on both sides of a transfer
+    UNIFORM,
+    // a few hot accounts (payroll, merchant settlement) take most of the traffic
+    ZIPFIAN,
+    // source and target are the same account
+    SELF
+}
@@ -0,0 +1,92 @@
+package com.revolut.interview.benchmark;
+
+import com.revolut.interview.request.TransferBatch;
+import com.revolut.interview.request.TransferMoney;
+import com.revolut.interview.service.AccountService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class TransferBenchmark {
+
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+    private static final int        BATCH_SIZE = 100;
+
+    @State(Scope.Benchmark)
+    public static class Book {
+
+        @Param({"LOCKING_GLOBAL", "LOCKING_STRIPED", "OPTIMISTIC", "SINGLE_WRITER", "SHARDED"})
+        public BenchmarkEngine engine;
+
+        @Param({"1000", "100000", "1000000", "10000000"})
+        public int bookSize;
+
+        @Param({"UNIFORM", "ZIPFIAN", "SELF"})
+        public ContentionPattern pattern;
+
+        AccountService   accountService;
+        UUID[]           accountIds;
+        ZipfianGenerator zipfian;
+
+        @Setup
+        public void setUp() {
+            accountService = engine.create();
+            accountIds = AccountBook.populate(accountService, bookSize);
+            zipfian = new ZipfianGenerator(bookSize, ZipfianGenerator.DEFAULT_THETA);
+        }
+
+        UUID pick(final ThreadLocalRandom random) {
+            final int index = pattern == ContentionPattern.ZIPFIAN
+                    ? zipfian.next(random.nextDouble())
+                    : random.nextInt(accountIds.length);
+            return accountIds[index];
+        }
+    }
+
+    @Benchmark
+    public void transferAmount(final Book book) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final UUID fromAccount = book.pick(random);
+        final UUID toAccount = book.pattern == ContentionPattern.SELF ? fromAccount : book.pick(random);
+        book.accountService.transferAmount(TransferMoney.builder()
+                                                        .fromAccount(fromAccount)
+                                                        .toAccount(toAccount)
+                                                        .amount(AMOUNT)
+                                                        .build());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void transferAll(final Book book) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final List<TransferMoney> transfers = new ArrayList<>(BATCH_SIZE);
+        for(int i = 0; i < BATCH_SIZE; i++) {
+            final UUID fromAccount = book.pick(random);
+            final UUID toAccount = book.pattern == ContentionPattern.SELF ? fromAccount : book.pick(random);
+            transfers.add(TransferMoney.builder().fromAccount(fromAccount).toAccount(toAccount).amount(AMOUNT).build());
+        }
+        book.accountService.transferAll(TransferBatch.builder().transfers(transfers).build());
+    }
+}
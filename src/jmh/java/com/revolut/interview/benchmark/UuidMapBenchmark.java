@@ -0,0 +1,86 @@
+package com.revolut.interview.benchmark;
+
+import com.revolut.interview.uuid.UuidMap;
+import com.revolut.interview.uuid.Uuids;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup latency of the account id map against the {@link ConcurrentHashMap} it replaced, and
+ * of route parameter parsing. Run with {@code -prof gc} to compare allocation; retained size
+ * per entry is roughly 28 bytes for {@link UuidMap} and 80 for the {@link ConcurrentHashMap}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class UuidMapBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Book {
+
+        @Param({"1000", "1000000"})
+        public int bookSize;
+
+        Map<UUID, Object>  concurrentHashMap;
+        UuidMap<Object>    uuidMap;
+        UUID[]             accountIds;
+        String[]           routeParameters;
+
+        @Setup
+        public void setUp() {
+            concurrentHashMap = new ConcurrentHashMap<>();
+            uuidMap = new UuidMap<>();
+            accountIds = new UUID[bookSize];
+            routeParameters = new String[bookSize];
+            for(int i = 0; i < bookSize; i++) {
+                accountIds[i] = UUID.randomUUID();
+                routeParameters[i] = accountIds[i].toString();
+                concurrentHashMap.put(accountIds[i], routeParameters[i]);
+                uuidMap.put(accountIds[i], routeParameters[i]);
+            }
+        }
+
+        int next() {
+            return ThreadLocalRandom.current().nextInt(bookSize);
+        }
+    }
+
+    @Benchmark
+    public Object concurrentHashMapGet(final Book book) {
+        return book.concurrentHashMap.get(book.accountIds[book.next()]);
+    }
+
+    @Benchmark
+    public Object uuidMapGet(final Book book) {
+        return book.uuidMap.get(book.accountIds[book.next()]);
+    }
+
+    @Benchmark
+    public Object concurrentHashMapGetByRoute(final Book book) {
+        return book.concurrentHashMap.get(UUID.fromString(book.routeParameters[book.next()]));
+    }
+
+    @Benchmark
+    public Object uuidMapGetByRoute(final Book book) {
+        final String parameter = book.routeParameters[book.next()];
+        return book.uuidMap.get(Uuids.mostSignificantBits(parameter), Uuids.leastSignificantBits(parameter));
+    }
+}
@@ -0,0 +1,45 @@
+package com.revolut.interview.benchmark;
+
+/**
+ * Zipf distributed indexes in {@code [0, items)} using the closed form from Gray et al.,
+ * "Quickly Generating Billion-Record Synthetic Databases" (the YCSB generator).
+ * Index 0 is the hottest item.
+ */
+final class ZipfianGenerator {
+
+    static final double DEFAULT_THETA = 0.99;
+
+    private final int    items;
+    private final double theta;
+    private final double alpha;
+    private final double zetaN;
+    private final double eta;
+
+    ZipfianGenerator(final int items, final double theta) {
+        this.items = items;
+        this.theta = theta;
+        this.alpha = 1.0 / (1.0 - theta);
+        this.zetaN = zeta(items, theta);
+        this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+    }
+
+    int next(final double uniform) {
+        final double uz = uniform * zetaN;
+        if(uz < 1.0) {
+            return 0;
+        }
+        if(uz < 1.0 + Math.pow(0.5, theta)) {
+            return Math.min(1, items - 1);
+        }
+        final int index = (int) (items * Math.pow(eta * uniform - eta + 1, alpha));
+        return Math.min(index, items - 1);
+    }
+
+    private static double zeta(final long n, final double theta) {
+        double sum = 0;
+        for(long i = 1; i <= n; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+}
@@ -1,25 +1,54 @@
 package com.revolut.interview;
 
-import com.google.gson.Gson;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 
+import com.revolut.interview.cluster.ClusterMembership;
+import com.revolut.interview.config.ServerConfig;
+import com.revolut.interview.config.ServiceConfig;
 import com.revolut.interview.controller.AccountController;
+import com.revolut.interview.controller.ClusterController;
+import com.revolut.interview.controller.ReplicationController;
 import com.revolut.interview.execption.AccountAlreadyExistException;
 import com.revolut.interview.execption.AccountNotExistsException;
+import com.revolut.interview.execption.ClusterAuthenticationException;
+import com.revolut.interview.execption.HoldNotExistsException;
+import com.revolut.interview.execption.IdempotencyKeyReusedException;
 import com.revolut.interview.execption.InsufficientBalanceException;
+import com.revolut.interview.execption.InvalidAmountException;
+import com.revolut.interview.execption.InvalidRequestException;
+import com.revolut.interview.execption.MisdirectedRequestException;
+import com.revolut.interview.execption.NodeUnavailableException;
+import com.revolut.interview.execption.OperationNotSupportedException;
+import com.revolut.interview.execption.QuotaExceededException;
+import com.revolut.interview.execption.ReplicationLagException;
+import com.revolut.interview.execption.ReplicationTimeoutException;
+import com.revolut.interview.execption.ServiceOverloadedException;
+import com.revolut.interview.execption.UnsupportedCurrencyException;
 import com.revolut.interview.injector.ApplicationInjector;
+import com.revolut.interview.json.JsonSupport;
+import com.revolut.interview.replication.ReplicationRole;
 import com.revolut.interview.response.JsonResponse;
 import com.revolut.interview.response.Status;
+import com.revolut.interview.server.ServerThreadPools;
 
 import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import io.swagger.annotations.Contact;
 import io.swagger.annotations.Info;
 import io.swagger.annotations.SwaggerDefinition;
 import io.swagger.annotations.Tag;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+
 import static spark.Spark.exception;
+import static spark.Spark.port;
 
 @SwaggerDefinition(host = "localhost:4567",//
                    info = @Info(description = "Money Transfer API",//
@@ -32,13 +61,37 @@ import static spark.Spark.exception;
                    tags = { @Tag(name = "swagger") })
 public class MoneyTransferAPI {
 
+    private static final String RETRY_AFTER = "Retry-After";
+
+    private static final AtomicBoolean serverConfigured = new AtomicBoolean();
+
+    private static final Logger logger = LoggerFactory.getLogger(MoneyTransferAPI.class);
+
     public static void main(String[] args) {
+        configureServer(ServerConfig.fromSystemProperties());
         setExceptionHandlers();
         startApplication();
     }
 
+    private static void configureServer(final ServerConfig serverConfig) {
+        // Spark rejects server settings once it has started, and main may run again in the same JVM
+        if(!serverConfigured.compareAndSet(false, true)) {
+            return;
+        }
+        final ThreadPool threadPool = ServerThreadPools.create(serverConfig);
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY, new EmbeddedJettyFactory().withThreadPool(threadPool));
+        port(serverConfig.getPort());
+        logger.info("Starting server with {} on {}", serverConfig, threadPool);
+    }
+
     private static void startApplication() {
         Injector injector = Guice.createInjector(new ApplicationInjector());
+        if(injector.getInstance(ServiceConfig.class).getReplicationRole() != ReplicationRole.NONE) {
+            injector.getInstance(ReplicationController.class).registerReplicationRoutes();
+        }
+        if(injector.getInstance(ClusterMembership.class).isClustered()) {
+            injector.getInstance(ClusterController.class).registerClusterRoutes();
+        }
         AccountController accountController = injector.getInstance(AccountController.class);
         accountController.registerAccountApiRoutes();
     }
@@ -46,25 +99,107 @@ public class MoneyTransferAPI {
     private static void setExceptionHandlers() {
         exception(AccountAlreadyExistException.class, (ex, request, response) -> {
             response.status(HttpStatus.CONFLICT_409);
-            response.body(new Gson().toJson(
+            response.body(JsonSupport.write(response,
                     new JsonResponse(Status.ERROR, ex.getMessage())));
         });
 
         exception(AccountNotExistsException.class, (ex, request, response) -> {
             response.status(HttpStatus.NOT_FOUND_404);
-            response.body(new Gson().toJson(
+            response.body(JsonSupport.write(response,
+                    new JsonResponse(Status.ERROR, ex.getMessage())));
+        });
+
+        exception(HoldNotExistsException.class, (ex, request, response) -> {
+            response.status(HttpStatus.NOT_FOUND_404);
+            response.body(JsonSupport.write(response,
                     new JsonResponse(Status.ERROR, ex.getMessage())));
         });
 
         exception(InsufficientBalanceException.class, (ex, request, response) -> {
             response.status(HttpStatus.BAD_REQUEST_400);
-            response.body(new Gson().toJson(
+            response.body(JsonSupport.write(response,
+                    new JsonResponse(Status.ERROR, ex.getMessage())));
+        });
+
+        exception(InvalidAmountException.class, (ex, request, response) -> {
+            response.status(HttpStatus.BAD_REQUEST_400);
+            response.body(JsonSupport.write(response,
+                    new JsonResponse(Status.ERROR, ex.getMessage())));
+        });
+
+        exception(UnsupportedCurrencyException.class, (ex, request, response) -> {
+            response.status(HttpStatus.UNPROCESSABLE_ENTITY_422);
+            response.body(JsonSupport.write(response,
+                    new JsonResponse(Status.ERROR, ex.getMessage())));
+        });
+
+        exception(InvalidRequestException.class, (ex, request, response) -> {
+            response.status(HttpStatus.BAD_REQUEST_400);
+            response.body(JsonSupport.write(response,
+                    new JsonResponse(Status.ERROR, ex.getMessage())));
+        });
+
+        exception(OperationNotSupportedException.class, (ex, request, response) -> {
+            response.status(HttpStatus.NOT_IMPLEMENTED_501);
+            response.body(JsonSupport.write(response,
+                    new JsonResponse(Status.ERROR, ex.getMessage())));
+        });
+
+        exception(IdempotencyKeyReusedException.class, (ex, request, response) -> {
+            response.status(HttpStatus.UNPROCESSABLE_ENTITY_422);
+            response.body(JsonSupport.write(response,
+                    new JsonResponse(Status.ERROR, ex.getMessage())));
+        });
+
+        exception(QuotaExceededException.class, (ex, request, response) -> {
+            response.status(HttpStatus.TOO_MANY_REQUESTS_429);
+            response.header(RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+            response.body(JsonSupport.write(response,
+                    new JsonResponse(Status.ERROR, ex.getMessage())));
+        });
+
+        exception(ServiceOverloadedException.class, (ex, request, response) -> {
+            response.status(HttpStatus.SERVICE_UNAVAILABLE_503);
+            response.header(RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+            response.body(JsonSupport.write(response,
+                    new JsonResponse(Status.ERROR, ex.getMessage())));
+        });
+
+        exception(ClusterAuthenticationException.class, (ex, request, response) -> {
+            response.status(HttpStatus.FORBIDDEN_403);
+            response.body(JsonSupport.write(response,
+                    new JsonResponse(Status.ERROR, ex.getMessage())));
+        });
+
+        exception(MisdirectedRequestException.class, (ex, request, response) -> {
+            response.status(HttpStatus.MISDIRECTED_REQUEST_421);
+            response.body(JsonSupport.write(response,
+                    new JsonResponse(Status.ERROR, ex.getMessage())));
+        });
+
+        exception(NodeUnavailableException.class, (ex, request, response) -> {
+            response.status(HttpStatus.SERVICE_UNAVAILABLE_503);
+            response.header(RETRY_AFTER, "1");
+            response.body(JsonSupport.write(response,
+                    new JsonResponse(Status.ERROR, ex.getMessage())));
+        });
+
+        exception(ReplicationLagException.class, (ex, request, response) -> {
+            response.status(HttpStatus.SERVICE_UNAVAILABLE_503);
+            response.header(RETRY_AFTER, "1");
+            response.body(JsonSupport.write(response,
+                    new JsonResponse(Status.ERROR, ex.getMessage())));
+        });
+
+        exception(ReplicationTimeoutException.class, (ex, request, response) -> {
+            response.status(HttpStatus.GATEWAY_TIMEOUT_504);
+            response.body(JsonSupport.write(response,
                     new JsonResponse(Status.ERROR, ex.getMessage())));
         });
 
         exception(Exception.class, (ex, request, response) -> {
             response.status(HttpStatus.INTERNAL_SERVER_ERROR_500);
-            response.body(new Gson().toJson(
+            response.body(JsonSupport.write(response,
                     new JsonResponse(Status.ERROR, ex.getMessage())));
         });
     }
@@ -0,0 +1,75 @@
+package com.revolut.interview.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the operations in flight with a limit that adapts to their latency (AIMD). Each
+ * operation that completes within the target latency while the limit is at least half used
+ * raises the limit by one; one that is slower cuts it by a tenth, at most once per target
+ * latency so that a burst of slow completions counts as one signal. Callers that find the
+ * limit used up are turned away at once instead of waiting.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int           minLimit;
+    private final int           maxLimit;
+    private final long          targetLatencyNanos;
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight         = new AtomicInteger();
+    private final AtomicLong    lastBackoffNanos = new AtomicLong(System.nanoTime());
+
+    public AdaptiveConcurrencyLimit(final int minLimit, final int maxLimit, final long targetLatencyMillis) {
+        if(minLimit <= 0 || maxLimit < minLimit || targetLatencyMillis <= 0) {
+            throw new IllegalArgumentException(String.format("Concurrency limit must satisfy 0 < min <= max and a positive target latency: %s, %s, %s",
+                                                             minLimit, maxLimit, targetLatencyMillis));
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+        this.limit = new AtomicInteger(minLimit);
+    }
+
+    /**
+     * Takes a slot if one is free. Every successful call must be followed by one {@link #release}.
+     */
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if(current >= limit.get()) {
+                return false;
+            }
+        } while(!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    public void release(final long latencyNanos) {
+        final int current = inFlight.getAndDecrement();
+        if(latencyNanos > targetLatencyNanos) {
+            backOff();
+        } else if(current * 2 >= limit.get()) {
+            limit.accumulateAndGet(maxLimit, (value, max) -> Math.min(max, value + 1));
+        }
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void backOff() {
+        final long now = System.nanoTime();
+        final long last = lastBackoffNanos.get();
+        if(now - last < targetLatencyNanos || !lastBackoffNanos.compareAndSet(last, now)) {
+            return;
+        }
+        limit.accumulateAndGet(minLimit, (value, min) -> Math.max(min, (int) (value * BACKOFF_RATIO)));
+    }
+}
@@ -0,0 +1,69 @@
+package com.revolut.interview.admission;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-client token buckets. A rate of zero disables quotas. The number of tracked clients is
+ * bounded: clients are spread over independently locked LRU shards, and a shard that is full
+ * forgets its least recently seen client. Only a client that has been idle the longest gets a
+ * fresh burst, so a flood of new clients cannot reset the quota of one that is busy.
+ */
+public class ClientQuotas {
+
+    private static final int SHARDS = 16;
+
+    private final double  ratePerSecond;
+    private final int     burst;
+    private final Shard[] shards;
+
+    public ClientQuotas(final double ratePerSecond, final int burst, final int maxClients) {
+        if(ratePerSecond < 0 || (ratePerSecond > 0 && burst < 1) || maxClients <= 0) {
+            throw new IllegalArgumentException(String.format("Client quota needs a non-negative rate, a burst of at least one and a positive client bound: %s, %s, %s",
+                                                             ratePerSecond, burst, maxClients));
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.shards = new Shard[SHARDS];
+        for(int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard((maxClients + SHARDS - 1) / SHARDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return ratePerSecond > 0;
+    }
+
+    /**
+     * Takes one request from the client's quota and returns zero, or returns how many
+     * nanoseconds the client has to wait before its next request is admitted.
+     */
+    public long tryAcquire(final String clientId) {
+        if(!isEnabled()) {
+            return 0;
+        }
+        final long now = System.nanoTime();
+        final int hash = clientId.hashCode();
+        final Shard shard = shards[(hash ^ (hash >>> 16)) & (SHARDS - 1)];
+        final TokenBucket bucket;
+        synchronized (shard) {
+            bucket = shard.computeIfAbsent(clientId, id -> new TokenBucket(ratePerSecond, burst, now));
+        }
+        return bucket.tryTake(now);
+    }
+
+    private static final class Shard extends LinkedHashMap<String, TokenBucket> {
+
+        private final int capacity;
+
+        private Shard(final int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, TokenBucket> eldest) {
+            return size() > capacity;
+        }
+    }
+}
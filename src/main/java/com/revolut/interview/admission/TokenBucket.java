@@ -0,0 +1,35 @@
+package com.revolut.interview.admission;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allows {@code ratePerSecond} operations per second on average and bursts of up to
+ * {@code burst}. Tokens are refilled lazily from the time elapsed since the last call.
+ */
+class TokenBucket {
+
+    private final double ratePerNano;
+    private final double burst;
+    private double       tokens;
+    private long         refilledAt;
+
+    TokenBucket(final double ratePerSecond, final double burst, final long nowNanos) {
+        this.ratePerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.tokens = burst;
+        this.refilledAt = nowNanos;
+    }
+
+    /**
+     * Takes a token and returns zero, or returns how many nanoseconds it takes until one is available.
+     */
+    synchronized long tryTake(final long nowNanos) {
+        tokens = Math.min(burst, tokens + (nowNanos - refilledAt) * ratePerNano);
+        refilledAt = nowNanos;
+        if(tokens >= 1) {
+            tokens--;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / ratePerNano);
+    }
+}
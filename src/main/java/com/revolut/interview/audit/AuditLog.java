@@ -0,0 +1,90 @@
+package com.revolut.interview.audit;
+
+import com.revolut.interview.model.Hold;
+import com.revolut.interview.request.CreateAccount;
+import com.revolut.interview.request.DepositMoney;
+import com.revolut.interview.request.TransferMoney;
+import com.revolut.interview.request.WithDrawMoney;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Structured, optionally sampled record of completed account operations, written to its own
+ * logger so it can be routed and retained separately from diagnostic logs. A sample rate of
+ * {@code n} keeps roughly one operation in {@code n}; zero disables the channel.
+ */
+public class AuditLog {
+
+    public static final String LOGGER_NAME = "com.revolut.interview.audit";
+
+    private static final Logger audit = LoggerFactory.getLogger(LOGGER_NAME);
+
+    private final int sampleRate;
+
+    public AuditLog(final int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public void accountCreated(final UUID accountId, final CreateAccount createAccount) {
+        if(sampled()) {
+            audit.info("op=create accountId={} userId={} balance={} currency={}", accountId,
+                       createAccount.getUserId(), createAccount.getBalance(), createAccount.getCurrency());
+        }
+    }
+
+    public void accountDeleted(final UUID accountId) {
+        if(sampled()) {
+            audit.info("op=delete accountId={}", accountId);
+        }
+    }
+
+    public void moneyTransferred(final TransferMoney transferMoney) {
+        if(sampled()) {
+            audit.info("op=transfer fromAccount={} toAccount={} amount={}", transferMoney.getFromAccount(),
+                       transferMoney.getToAccount(), transferMoney.getAmount());
+        }
+    }
+
+    public void moneyWithdrawn(final WithDrawMoney withDrawMoney) {
+        if(sampled()) {
+            audit.info("op=withdraw accountId={} amount={}", withDrawMoney.getAccountId(), withDrawMoney.getAmount());
+        }
+    }
+
+    public void moneyDeposited(final DepositMoney depositMoney) {
+        if(sampled()) {
+            audit.info("op=deposit accountId={} amount={}", depositMoney.getAccountId(), depositMoney.getAmount());
+        }
+    }
+
+    public void holdPlaced(final Hold hold) {
+        if(sampled()) {
+            audit.info("op=hold accountId={} holdId={} amount={} expiresAt={}", hold.getAccountId(), hold.getHoldId(),
+                       hold.getAmount(), hold.getExpiresAt());
+        }
+    }
+
+    public void holdCaptured(final Hold hold) {
+        if(sampled()) {
+            audit.info("op=capture accountId={} holdId={} amount={}", hold.getAccountId(), hold.getHoldId(), hold.getAmount());
+        }
+    }
+
+    public void holdReleased(final Hold hold, final boolean expired) {
+        if(sampled()) {
+            audit.info("op={} accountId={} holdId={} amount={}", expired ? "expire" : "release", hold.getAccountId(),
+                       hold.getHoldId(), hold.getAmount());
+        }
+    }
+
+    private boolean sampled() {
+        if(sampleRate <= 0 || !audit.isInfoEnabled()) {
+            return false;
+        }
+        return sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+    }
+}
@@ -0,0 +1,107 @@
+package com.revolut.interview.cluster;
+
+import com.revolut.interview.execption.NodeUnavailableException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import lombok.Value;
+
+/**
+ * Plain HTTP calls from one node to another. Every call carries {@link #FORWARDED_BY}, so a node
+ * that receives a request it does not own either way can refuse it instead of forwarding again,
+ * and {@link #CLUSTER_SECRET}, which the receiving node checks before taking a credit or trusting
+ * the {@link #CLIENT_ADDRESS} of a forwarded request.
+ * Connections are reused by {@link HttpURLConnection}'s keep-alive cache.
+ */
+public class ClusterClient {
+
+    public static final String FORWARDED_BY   = "X-Forwarded-By-Node";
+    public static final String CLUSTER_SECRET = "X-Cluster-Secret";
+    public static final String CLIENT_ADDRESS = "X-Client-Address";
+
+    private final String selfId;
+    private final String secret;
+    private final int    connectTimeoutMillis;
+    private final int    readTimeoutMillis;
+
+    public ClusterClient(final String selfId, final String secret, final int connectTimeoutMillis, final int readTimeoutMillis) {
+        this.selfId = selfId;
+        this.secret = secret;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    /**
+     * Sends the request and returns whatever the node answered, error statuses included.
+     *
+     * @throws NodeUnavailableException if the node could not be reached or did not answer in time
+     */
+    public Reply send(final ClusterNode node, final String method, final String pathAndQuery,
+                      final Map<String, String> headers, final byte[] body) {
+        try {
+            final HttpURLConnection connection = (HttpURLConnection) new URL(node.getUrl() + pathAndQuery).openConnection();
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(connectTimeoutMillis);
+            connection.setReadTimeout(readTimeoutMillis);
+            headers.forEach(connection::setRequestProperty);
+            connection.setRequestProperty(FORWARDED_BY, selfId);
+            if(secret != null) {
+                connection.setRequestProperty(CLUSTER_SECRET, secret);
+            }
+            if(body != null && body.length > 0) {
+                connection.setDoOutput(true);
+                try(OutputStream output = connection.getOutputStream()) {
+                    output.write(body);
+                }
+            }
+            final int status = connection.getResponseCode();
+            return new Reply(status,
+                             connection.getContentType(),
+                             readFully(status >= HttpURLConnection.HTTP_BAD_REQUEST ? connection.getErrorStream() : connection.getInputStream()),
+                             connection.getHeaderField("Retry-After"));
+        } catch (IOException ex) {
+            throw new NodeUnavailableException(String.format("Node %s is not reachable at %s", node.getId(), node.getUrl()), ex);
+        }
+    }
+
+    private static String readFully(final InputStream input) throws IOException {
+        if(input == null) {
+            return "";
+        }
+        try(InputStream stream = input) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while((read = stream.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Value
+    public static class Reply {
+        private int    status;
+        private String contentType;
+        private String body;
+        private String retryAfter;
+
+        public boolean isSuccess() {
+            return status >= 200 && status < 300;
+        }
+
+        /**
+         * The node looked at the request and turned it down; sending it again will not help.
+         */
+        public boolean isRejected() {
+            return status >= 400 && status < 500 && status != 408 && status != 429;
+        }
+    }
+}
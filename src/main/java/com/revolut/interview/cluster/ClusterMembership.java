@@ -0,0 +1,166 @@
+package com.revolut.interview.cluster;
+
+import com.revolut.interview.execption.ClusterAuthenticationException;
+import com.revolut.interview.uuid.AccountIdGenerator;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * Static cluster membership read from a properties file shared by every node:
+ *
+ * <pre>
+ * node.a=http://127.0.0.1:4567
+ * node.b=http://127.0.0.1:4568
+ * virtual.nodes=128
+ * secret=change-me
+ * </pre>
+ *
+ * Each process names itself with one of the node ids. There is no coordinator: every node
+ * builds the same {@link HashRing} from the same file, so they all agree on who owns an account
+ * as long as they run with the same file. The secret is sent with every call between nodes and
+ * is required as soon as there is more than one node, since a credit from another node moves
+ * money without a debit on this one.
+ */
+public class ClusterMembership {
+
+    private static final String NODE_PREFIX           = "node.";
+    private static final String VIRTUAL_NODES         = "virtual.nodes";
+    private static final String SECRET                = "secret";
+    private static final int    DEFAULT_VIRTUAL_NODES = 128;
+
+    private final ClusterNode       self;
+    private final List<ClusterNode> nodes;
+    private final HashRing          ring;
+    private final byte[]            secret;
+
+    public ClusterMembership(final ClusterNode self, final List<ClusterNode> nodes, final int virtualNodes) {
+        this(self, nodes, virtualNodes, null);
+    }
+
+    public ClusterMembership(final ClusterNode self, final List<ClusterNode> nodes, final int virtualNodes, final String secret) {
+        if(!nodes.contains(self)) {
+            throw new IllegalArgumentException(String.format("Node %s is not a member of %s", self.getId(), nodes));
+        }
+        this.self = self;
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+        this.ring = new HashRing(nodes, virtualNodes);
+        this.secret = secret == null ? null : secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A cluster of one, which owns every account.
+     */
+    public static ClusterMembership standalone() {
+        final ClusterNode self = ClusterNode.builder().id("standalone").build();
+        return new ClusterMembership(self, Collections.singletonList(self), 1);
+    }
+
+    public static ClusterMembership load(final Path path, final String selfId) {
+        final Properties properties = new Properties();
+        try(Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(String.format("Could not read cluster membership from %s", path), ex);
+        }
+        final List<ClusterNode> nodes = new ArrayList<>();
+        ClusterNode self = null;
+        for(final String name : properties.stringPropertyNames()) {
+            if(name.startsWith(NODE_PREFIX)) {
+                final ClusterNode node = ClusterNode.builder()
+                                                    .id(name.substring(NODE_PREFIX.length()).trim())
+                                                    .url(properties.getProperty(name).trim())
+                                                    .build();
+                nodes.add(node);
+                if(node.getId().equals(selfId)) {
+                    self = node;
+                }
+            }
+        }
+        if(self == null) {
+            throw new IllegalArgumentException(String.format("Cluster membership %s has no node %s%s", path, NODE_PREFIX, selfId));
+        }
+        final String secret = properties.getProperty(SECRET, "").trim();
+        if(nodes.size() > 1 && secret.isEmpty()) {
+            throw new IllegalArgumentException(String.format("Cluster membership %s has no %s shared by its nodes", path, SECRET));
+        }
+        nodes.sort((first, second) -> first.getId().compareTo(second.getId()));
+        return new ClusterMembership(self, nodes,
+                                     Integer.parseInt(properties.getProperty(VIRTUAL_NODES, String.valueOf(DEFAULT_VIRTUAL_NODES)).trim()),
+                                     secret.isEmpty() ? null : secret);
+    }
+
+    public boolean isClustered() {
+        return nodes.size() > 1;
+    }
+
+    public ClusterNode getSelf() {
+        return self;
+    }
+
+    public List<ClusterNode> getNodes() {
+        return nodes;
+    }
+
+    public String getSecret() {
+        return secret == null ? null : new String(secret, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The other member that sent a request with the given node id and secret.
+     *
+     * @throws ClusterAuthenticationException if the secret does not match or the id is not another member
+     */
+    public ClusterNode authenticate(final String nodeId, final String presentedSecret) {
+        if(secret == null || presentedSecret == null
+                || !MessageDigest.isEqual(secret, presentedSecret.getBytes(StandardCharsets.UTF_8))) {
+            throw new ClusterAuthenticationException("Request does not carry the cluster secret");
+        }
+        return nodes.stream()
+                    .filter(node -> node.getId().equals(nodeId) && !node.equals(self))
+                    .findFirst()
+                    .orElseThrow(() -> new ClusterAuthenticationException(String.format("Node %s is not another member of the cluster", nodeId)));
+    }
+
+    public ClusterNode ownerOf(final UUID accountId) {
+        return ring.ownerOf(accountId);
+    }
+
+    /**
+     * Node that creates the account of a user, so that one node sees every attempt to create it.
+     */
+    public ClusterNode ownerOfUser(final String userId) {
+        return ring.ownerOf(userId);
+    }
+
+    public boolean isLocal(final UUID accountId) {
+        return self.equals(ring.ownerOf(accountId));
+    }
+
+    /**
+     * Draws random ids until one falls on this node's share of the ring; with {@code n} nodes
+     * that takes {@code n} draws on average.
+     */
+    public AccountIdGenerator localAccountIds() {
+        if(!isClustered()) {
+            return AccountIdGenerator.RANDOM;
+        }
+        return () -> {
+            UUID accountId;
+            do {
+                accountId = UUID.randomUUID();
+            } while(!isLocal(accountId));
+            return accountId;
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package com.revolut.interview.cluster;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * One process of the cluster: its id in the membership file and the base URL it serves on.
+ */
+@Builder
+@Value
+public class ClusterNode {
+    private String id;
+    private String url;
+}
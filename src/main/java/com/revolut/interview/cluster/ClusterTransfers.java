@@ -0,0 +1,435 @@
+package com.revolut.interview.cluster;
+
+import com.google.gson.JsonParseException;
+
+import com.revolut.interview.execption.AccountNotExistsException;
+import com.revolut.interview.execption.InvalidAmountException;
+import com.revolut.interview.execption.InvalidRequestException;
+import com.revolut.interview.execption.MisdirectedRequestException;
+import com.revolut.interview.execption.NodeUnavailableException;
+import com.revolut.interview.execption.ReplicationTimeoutException;
+import com.revolut.interview.execption.UnsupportedCurrencyException;
+import com.revolut.interview.fx.FxRateTable;
+import com.revolut.interview.json.JsonSupport;
+import com.revolut.interview.request.DepositMoney;
+import com.revolut.interview.request.RemoteCredit;
+import com.revolut.interview.request.TransferMoney;
+import com.revolut.interview.request.WithDrawMoney;
+import com.revolut.interview.response.AccountResponse;
+import com.revolut.interview.response.JsonResponse;
+import com.revolut.interview.service.AccountService;
+
+import org.eclipse.jetty.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Two-phase transfers between accounts owned by different nodes.
+ *
+ * <p>The node that owns the source account coordinates. It logs {@code BEGIN}, debits the
+ * source, logs {@code DEBITED} and sends the credit to the node that owns the target account,
+ * which applies it and logs {@code CREDITED} under the transfer id. When the target confirms,
+ * the coordinator logs {@code COMMITTED}; when the target turns the credit down (no such account,
+ * unsupported currency) it refunds the source and logs {@code ABORTED}. A refund that fails
+ * leaves the transfer pending, so that it is refunded when the credit is turned down again. If the target cannot be
+ * reached the transfer stays pending and the credit is resent until the target answers, also
+ * after a restart, since pending transfers are rebuilt from the {@link TransferLog}. The target
+ * logs {@code CREDITING} before it applies a credit and remembers the ids it credited, so a
+ * resent credit is applied once.
+ *
+ * <p>The log makes the protocol as durable as the balances it moves: with a journaled account
+ * store a transfer survives a crash of either node. A crash between {@code BEGIN} and
+ * {@code DEBITED} leaves it unknown whether the debit happened; such transfers are aborted at
+ * startup and reported for reconciliation. Likewise a crash between {@code CREDITING} and
+ * {@code CREDITED} leaves it unknown whether the credit happened; such credits are taken as
+ * applied, so that a resend cannot credit twice, and reported.
+ *
+ * <p>Every step runs against the engine itself: a step that throws has not been applied. The
+ * debit that starts a transfer is admitted like any other money movement, but credits and
+ * refunds, which complete or undo money already moved, are never shed. When changes wait for
+ * replicas, each step is logged before the wait, so a replica timeout, answered with
+ * {@link ReplicationTimeoutException} like any other change, cannot pass for a step not taken:
+ * a debit not confirmed in time stays pending and its credit is still sent, and a credit not
+ * confirmed in time is remembered, so its resend is not applied again.
+ *
+ * <p>Credited ids are remembered for {@code creditRetentionMillis}. The coordinator stops
+ * resending a transfer once it is that old and reports it instead, so a target never sees a
+ * credit it has forgotten; with more than that between them, the clocks of two nodes must not
+ * drift apart. The log is compacted as transfers finish and credits are forgotten.
+ */
+public class ClusterTransfers implements Closeable {
+
+    static final String CREDIT_PATH = "/cluster/credit";
+
+    private final AccountService                         accountService;
+    private final AccountService                         admittedService;
+    private final Runnable                               awaitReplication;
+    private final ClusterMembership                      membership;
+    private final ClusterClient                          clusterClient;
+    private final TransferLog                            transferLog;
+    private final FxRateTable                            fxRateTable;
+    private final long                                   creditRetentionMillis;
+    private final Clock                                  clock;
+    private final Map<UUID, TransferRecord>              pending  = new ConcurrentHashMap<>();
+    private final Map<UUID, TransferRecord>              stranded = new ConcurrentHashMap<>();
+    private final Map<UUID, Credit>                      credits  = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService               retries;
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterTransfers.class);
+
+    /**
+     * @param accountService   the engine, without admission control or replica waits
+     * @param admittedService  the engine behind admission control, which takes the debits
+     * @param awaitReplication waits until enough replicas have applied every change so far
+     */
+    public ClusterTransfers(final AccountService accountService, final AccountService admittedService, final Runnable awaitReplication,
+                            final ClusterMembership membership, final ClusterClient clusterClient,
+                            final TransferLog transferLog, final FxRateTable fxRateTable, final long retryIntervalMillis,
+                            final long creditRetentionMillis, final Clock clock) {
+        this.accountService = accountService;
+        this.admittedService = admittedService;
+        this.awaitReplication = awaitReplication;
+        this.membership = membership;
+        this.clusterClient = clusterClient;
+        this.transferLog = transferLog;
+        this.fxRateTable = fxRateTable;
+        this.creditRetentionMillis = creditRetentionMillis;
+        this.clock = clock;
+        recover();
+        this.retries = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "cluster-transfer-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.retries.scheduleWithFixedDelay(this::retryPending, retryIntervalMillis, retryIntervalMillis, TimeUnit.MILLISECONDS);
+        this.retries.scheduleWithFixedDelay(this::forgetOldCredits, retryIntervalMillis, retryIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Moves money from a local account to an account of another node. Returns once the target
+     * applied the credit, or once the credit is pending because the target could not be reached.
+     */
+    public void transfer(final TransferMoney transferMoney) {
+        final ClusterNode target = membership.ownerOf(transferMoney.getToAccount());
+        final AccountResponse source = accountService.getAccount(transferMoney.getFromAccount());
+        final TransferRecord transfer = TransferRecord.builder()
+                                                      .type(TransferRecord.Type.BEGIN)
+                                                      .transferId(UUID.randomUUID())
+                                                      .fromAccount(transferMoney.getFromAccount())
+                                                      .toAccount(transferMoney.getToAccount())
+                                                      .amount(transferMoney.getAmount())
+                                                      .currency(source.getCurrency())
+                                                      .targetNode(target.getId())
+                                                      .timestamp(clock.millis())
+                                                      .build();
+        transferLog.append(transfer);
+        try {
+            admittedService.withDrawMoney(WithDrawMoney.builder().accountId(transfer.getFromAccount()).amount(transfer.getAmount()).build());
+        } catch (RuntimeException ex) {
+            transferLog.append(transfer.next(TransferRecord.Type.ABORTED));
+            throw ex;
+        }
+        transferLog.append(transfer.next(TransferRecord.Type.DEBITED));
+        try {
+            awaitReplication.run();
+        } catch (ReplicationTimeoutException ex) {
+            logger.warn("Transfer {} is debited but not confirmed by replicas in time, its credit is sent later", transfer.getTransferId());
+            pending.put(transfer.getTransferId(), transfer);
+            throw ex;
+        }
+
+        final ClusterClient.Reply reply;
+        try {
+            reply = deliver(transfer, target);
+        } catch (NodeUnavailableException ex) {
+            logger.warn("Transfer {} is debited and waits for node {}: {}", transfer.getTransferId(), target.getId(), ex.getMessage());
+            pending.put(transfer.getTransferId(), transfer);
+            return;
+        }
+        if(reply.isSuccess()) {
+            transferLog.append(transfer.next(TransferRecord.Type.COMMITTED));
+        } else if(reply.isRejected()) {
+            if(!refund(transfer, reply)) {
+                pending.put(transfer.getTransferId(), transfer);
+            }
+            throw rejection(reply);
+        } else {
+            logger.warn("Transfer {} is debited and waits for node {}, which answered {}", transfer.getTransferId(), target.getId(), reply.getStatus());
+            pending.put(transfer.getTransferId(), transfer);
+        }
+    }
+
+    /**
+     * Applies the credit of a transfer coordinated by another node, once per transfer id. A
+     * resent credit waits for the first one and gets its outcome; returns whether this call
+     * applied it.
+     */
+    public boolean credit(final RemoteCredit remoteCredit) {
+        if(remoteCredit.getTransferId() == null || remoteCredit.getToAccount() == null) {
+            throw new InvalidRequestException("A credit needs a transfer id and a target account");
+        }
+        if(remoteCredit.getAmount() == null || remoteCredit.getAmount().signum() <= 0) {
+            throw new InvalidAmountException(String.format("Credit of transfer %s must be positive", remoteCredit.getTransferId()));
+        }
+        if(!membership.isLocal(remoteCredit.getToAccount())) {
+            throw new MisdirectedRequestException(String.format("Account %s is owned by node %s", remoteCredit.getToAccount(),
+                                                                membership.ownerOf(remoteCredit.getToAccount()).getId()));
+        }
+        final Credit credit = new Credit();
+        final Credit existing = credits.putIfAbsent(remoteCredit.getTransferId(), credit);
+        if(existing != null) {
+            join(existing.applied);
+            awaitReplication.run();
+            return false;
+        }
+        try {
+            final AccountResponse target = accountService.getAccount(remoteCredit.getToAccount());
+            final BigDecimal amount = fxRateTable.current().convert(remoteCredit.getAmount(), remoteCredit.getCurrency(), target.getCurrency());
+            final TransferRecord crediting = TransferRecord.builder()
+                                                           .type(TransferRecord.Type.CREDITING)
+                                                           .transferId(remoteCredit.getTransferId())
+                                                           .fromAccount(remoteCredit.getFromAccount())
+                                                           .toAccount(remoteCredit.getToAccount())
+                                                           .amount(amount)
+                                                           .currency(target.getCurrency())
+                                                           .timestamp(clock.millis())
+                                                           .build();
+            transferLog.append(crediting);
+            try {
+                accountService.depositMoney(DepositMoney.builder().accountId(remoteCredit.getToAccount()).amount(amount).build());
+            } catch (RuntimeException ex) {
+                transferLog.append(crediting.next(TransferRecord.Type.ABORTED));
+                throw ex;
+            }
+        } catch (RuntimeException ex) {
+            credits.remove(remoteCredit.getTransferId(), credit);
+            credit.applied.completeExceptionally(ex);
+            throw ex;
+        }
+        final long creditedAt = clock.millis();
+        try {
+            transferLog.append(TransferRecord.builder()
+                                             .type(TransferRecord.Type.CREDITED)
+                                             .transferId(remoteCredit.getTransferId())
+                                             .timestamp(creditedAt)
+                                             .build());
+        } finally {
+            // Applied either way: without CREDITED, recovery takes the logged CREDITING as applied
+            credit.complete(creditedAt);
+        }
+        awaitReplication.run();
+        return true;
+    }
+
+    /**
+     * Transfers debited and waiting for their credit, including those too old to be resent.
+     */
+    public int pendingCount() {
+        return pending.size() + stranded.size();
+    }
+
+    @Override
+    public void close() {
+        retries.shutdownNow();
+        transferLog.close();
+    }
+
+    /**
+     * Resends the credit of every pending transfer; runs on the retry thread only.
+     */
+    void retryPending() {
+        final long resendAfter = clock.millis() - creditRetentionMillis;
+        for(final TransferRecord transfer : pending.values()) {
+            if(transfer.getTimestamp() < resendAfter) {
+                pending.remove(transfer.getTransferId());
+                stranded.put(transfer.getTransferId(), transfer);
+                logger.error("Transfer {} is older than the {} ms node {} remembers credits for and is no longer resent; "
+                             + "reconcile {} of {} by hand: {}", transfer.getTransferId(), creditRetentionMillis, transfer.getTargetNode(),
+                             transfer.getAmount(), transfer.getFromAccount(), transfer);
+                continue;
+            }
+            try {
+                final ClusterClient.Reply reply = deliver(transfer, targetOf(transfer));
+                if(reply.isSuccess()) {
+                    pending.remove(transfer.getTransferId());
+                    transferLog.append(transfer.next(TransferRecord.Type.COMMITTED));
+                    logger.info("Pending transfer {} is committed", transfer.getTransferId());
+                } else if(reply.isRejected() && refund(transfer, reply)) {
+                    pending.remove(transfer.getTransferId());
+                }
+            } catch (NodeUnavailableException ex) {
+                logger.debug("Transfer {} still waits for node {}", transfer.getTransferId(), transfer.getTargetNode());
+            } catch (RuntimeException ex) {
+                logger.error("Could not retry transfer {}", transfer.getTransferId(), ex);
+            }
+        }
+    }
+
+    /**
+     * Forgets the ids of credits applied longer ago than the retention and compacts the log;
+     * runs on the retry thread only.
+     */
+    void forgetOldCredits() {
+        final long creditedBefore = clock.millis() - creditRetentionMillis;
+        try {
+            credits.values().removeIf(credit -> credit.creditedAt < creditedBefore);
+            transferLog.compact(creditedBefore);
+        } catch (RuntimeException ex) {
+            logger.error("Could not compact the transfer log", ex);
+        }
+    }
+
+    private ClusterClient.Reply deliver(final TransferRecord transfer, final ClusterNode target) {
+        final RemoteCredit remoteCredit = RemoteCredit.builder()
+                                                      .transferId(transfer.getTransferId())
+                                                      .fromAccount(transfer.getFromAccount())
+                                                      .toAccount(transfer.getToAccount())
+                                                      .amount(transfer.getAmount())
+                                                      .currency(transfer.getCurrency())
+                                                      .build();
+        return clusterClient.send(target, "POST", CREDIT_PATH, Collections.singletonMap("Content-Type", JsonSupport.CONTENT_TYPE),
+                                  JsonSupport.GSON.toJson(remoteCredit).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Gives the debit back and logs the transfer aborted. Returns false if the refund could not
+     * be made yet; the transfer must then stay pending, so that its next rejection refunds it.
+     */
+    private boolean refund(final TransferRecord transfer, final ClusterClient.Reply reply) {
+        logger.info("Node {} turned down transfer {} ({}), refunding {}", transfer.getTargetNode(), transfer.getTransferId(),
+                    reply.getStatus(), transfer.getFromAccount());
+        try {
+            accountService.depositMoney(DepositMoney.builder().accountId(transfer.getFromAccount()).amount(transfer.getAmount()).build());
+        } catch (AccountNotExistsException ex) {
+            logger.error("Could not refund {} of transfer {}, account {} was deleted", transfer.getAmount(), transfer.getTransferId(),
+                         transfer.getFromAccount());
+        } catch (RuntimeException ex) {
+            logger.warn("Could not refund transfer {} yet, retrying", transfer.getTransferId(), ex);
+            return false;
+        }
+        transferLog.append(transfer.next(TransferRecord.Type.ABORTED));
+        return true;
+    }
+
+    /**
+     * The node named in the log, or the current owner of the target account if the membership
+     * no longer has it.
+     */
+    private ClusterNode targetOf(final TransferRecord transfer) {
+        return membership.getNodes().stream()
+                         .filter(node -> node.getId().equals(transfer.getTargetNode()))
+                         .findFirst()
+                         .orElseGet(() -> membership.ownerOf(transfer.getToAccount()));
+    }
+
+    /**
+     * Rebuilds the pending transfers and the credited ids from the records the log still holds,
+     * which leaves out every transfer that was committed or aborted.
+     */
+    private void recover() {
+        final Map<UUID, TransferRecord> begun = new LinkedHashMap<>();
+        final Set<UUID> debited = new HashSet<>();
+        for(final TransferRecord record : transferLog.replay()) {
+            switch (record.getType()) {
+                case BEGIN:
+                    begun.put(record.getTransferId(), record);
+                    break;
+                case DEBITED:
+                    debited.add(record.getTransferId());
+                    break;
+                case CREDITED:
+                    credits.put(record.getTransferId(), Credit.applied(record.getTimestamp()));
+                    break;
+                case CREDITING:
+                    logger.error("Credit of transfer {} stopped before it was confirmed and is taken as applied, so that a resend cannot "
+                                 + "credit it twice; check the balance of {}: {}", record.getTransferId(), record.getToAccount(), record);
+                    transferLog.append(record.next(TransferRecord.Type.CREDITED).toBuilder().timestamp(record.getTimestamp()).build());
+                    credits.put(record.getTransferId(), Credit.applied(record.getTimestamp()));
+                    break;
+                default:
+                    throw new IllegalStateException(String.format("Unexpected transfer record: %s", record));
+            }
+        }
+        begun.forEach((transferId, transfer) -> {
+            if(debited.contains(transferId)) {
+                pending.put(transferId, transfer);
+            } else {
+                logger.error("Transfer {} stopped before its debit was logged and is aborted; check the balance of {}: {}",
+                             transferId, transfer.getFromAccount(), transfer);
+                transferLog.append(transfer.next(TransferRecord.Type.ABORTED));
+            }
+        });
+        if(!pending.isEmpty()) {
+            logger.info("{} cross-node transfers are pending after restart", pending.size());
+        }
+    }
+
+    private static RuntimeException rejection(final ClusterClient.Reply reply) {
+        String message = String.format("Transfer rejected by target node with status %s", reply.getStatus());
+        try {
+            final JsonResponse response = JsonSupport.GSON.fromJson(reply.getBody(), JsonResponse.class);
+            if(response != null && response.getMessage() != null) {
+                message = response.getMessage();
+            }
+        } catch (JsonParseException ex) {
+            // keep the generic message
+        }
+        switch (reply.getStatus()) {
+            case HttpStatus.NOT_FOUND_404:
+                return new AccountNotExistsException(message);
+            case HttpStatus.UNPROCESSABLE_ENTITY_422:
+                return new UnsupportedCurrencyException(message);
+            default:
+                return new InvalidRequestException(message);
+        }
+    }
+
+    /**
+     * A credit being applied, or applied at {@code creditedAt}.
+     */
+    private static final class Credit {
+
+        private final CompletableFuture<Boolean> applied = new CompletableFuture<>();
+
+        private volatile long creditedAt = Long.MAX_VALUE;
+
+        static Credit applied(final long creditedAt) {
+            final Credit credit = new Credit();
+            credit.complete(creditedAt);
+            return credit;
+        }
+
+        void complete(final long at) {
+            creditedAt = at;
+            applied.complete(Boolean.TRUE);
+        }
+    }
+
+    private static void join(final CompletableFuture<Boolean> future) {
+        try {
+            future.join();
+        } catch (CompletionException ex) {
+            if(ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+}
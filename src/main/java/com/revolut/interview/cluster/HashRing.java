@@ -0,0 +1,76 @@
+package com.revolut.interview.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Consistent-hash ring. Every node is placed on the ring at {@code virtualNodes} points derived
+ * from its id, and a key belongs to the node at the first point at or after the key's hash,
+ * wrapping around. Adding or removing a node therefore only moves the keys next to its own
+ * points, and the virtual nodes spread each node's share evenly around the ring.
+ *
+ * <p>Points are held in two parallel sorted arrays, so a lookup is one binary search.
+ */
+public class HashRing {
+
+    private final long[]        points;
+    private final ClusterNode[] owners;
+
+    public HashRing(final List<ClusterNode> nodes, final int virtualNodes) {
+        if(nodes.isEmpty() || virtualNodes <= 0) {
+            throw new IllegalArgumentException(String.format("A ring needs nodes and a positive number of virtual nodes: %s, %s",
+                                                             nodes, virtualNodes));
+        }
+        final int size = nodes.size() * virtualNodes;
+        final long[][] entries = new long[size][];
+        for(int n = 0; n < nodes.size(); n++) {
+            for(int v = 0; v < virtualNodes; v++) {
+                entries[n * virtualNodes + v] = new long[] {hash(nodes.get(n).getId() + "#" + v), n};
+            }
+        }
+        Arrays.sort(entries, (first, second) -> first[0] != second[0]
+                ? Long.compare(first[0], second[0])
+                : nodes.get((int) first[1]).getId().compareTo(nodes.get((int) second[1]).getId()));
+        this.points = new long[size];
+        this.owners = new ClusterNode[size];
+        for(int i = 0; i < size; i++) {
+            points[i] = entries[i][0];
+            owners[i] = nodes.get((int) entries[i][1]);
+        }
+    }
+
+    public ClusterNode ownerOf(final UUID accountId) {
+        return ownerOfHash(mix(accountId.getMostSignificantBits() ^ Long.rotateLeft(accountId.getLeastSignificantBits(), 32)));
+    }
+
+    public ClusterNode ownerOf(final String key) {
+        return ownerOfHash(hash(key));
+    }
+
+    private ClusterNode ownerOfHash(final long hash) {
+        int index = Arrays.binarySearch(points, hash);
+        if(index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * FNV-1a over the UTF-8 bytes, finished with {@link #mix} so that similar keys land far apart.
+     */
+    static long hash(final String key) {
+        long hash = 0xcbf29ce484222325L;
+        for(final byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+}
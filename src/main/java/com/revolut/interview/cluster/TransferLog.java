@@ -0,0 +1,231 @@
+package com.revolut.interview.cluster;
+
+import com.google.gson.JsonParseException;
+
+import com.revolut.interview.execption.JournalException;
+import com.revolut.interview.json.JsonSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Append-only log of cross-node transfer steps, one JSON {@link TransferRecord} per line.
+ * {@link #append} returns once the record is synced to disk. {@link #replay} must run once,
+ * before the first append; it reads the file a line at a time and cuts off a torn last line
+ * left by a crash.
+ *
+ * <p>The log keeps in memory the records that still matter: the steps of transfers neither
+ * committed nor aborted, and the credits this node applied. {@link #compact} rewrites the file
+ * with only those once most of it is finished transfers, and forgets credits applied before a
+ * given time, so neither the file nor the memory grows with the number of transfers ever made.
+ */
+public class TransferLog implements Closeable {
+
+    static final int DEFAULT_MIN_COMPACTION_RECORDS = 1024;
+
+    private final Path                             path;
+    private final int                              minCompactionRecords;
+    private final Map<UUID, List<TransferRecord>>  live = new LinkedHashMap<>();
+
+    private FileChannel channel;
+    private long        written;
+
+    private static final Logger logger = LoggerFactory.getLogger(TransferLog.class);
+
+    public TransferLog(final Path path) {
+        this(path, DEFAULT_MIN_COMPACTION_RECORDS);
+    }
+
+    /**
+     * @param minCompactionRecords records the file must hold before it is worth compacting
+     */
+    public TransferLog(final Path path, final int minCompactionRecords) {
+        this.path = path;
+        this.minCompactionRecords = minCompactionRecords;
+        try {
+            if(path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+        } catch (IOException ex) {
+            throw new JournalException(String.format("Could not create transfer log directory: %s", path.getParent()), ex);
+        }
+    }
+
+    /**
+     * Returns the records that still matter, in the order they were logged. Records written
+     * before steps were timestamped are stamped with the current time.
+     */
+    public synchronized List<TransferRecord> replay() {
+        final long now = System.currentTimeMillis();
+        long position = 0;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try(InputStream input = new BufferedInputStream(Files.newInputStream(path))) {
+                final ByteArrayOutputStream line = new ByteArrayOutputStream();
+                long read = 0;
+                int next;
+                while((next = input.read()) != -1) {
+                    read++;
+                    if(next != '\n') {
+                        line.write(next);
+                        continue;
+                    }
+                    final TransferRecord record = parse(new String(line.toByteArray(), StandardCharsets.UTF_8));
+                    if(record.getTimestamp() == 0) {
+                        record.setTimestamp(now);
+                    }
+                    track(record);
+                    line.reset();
+                    position = read;
+                }
+            }
+            if(position < channel.size()) {
+                logger.warn("Discarding {} bytes of torn transfer log tail in {}", channel.size() - position, path);
+                channel.truncate(position);
+                channel.force(true);
+            }
+            channel.position(position);
+        } catch (IOException ex) {
+            throw new JournalException(String.format("Could not replay transfer log: %s", path), ex);
+        }
+        logger.info("Replayed {} transfer log records from {}, {} of them still needed", written, path, liveRecords());
+        return records();
+    }
+
+    public synchronized void append(final TransferRecord record) {
+        if(channel == null) {
+            throw new IllegalStateException("Transfer log must be replayed before it is written");
+        }
+        try {
+            write(channel, record);
+            channel.force(false);
+        } catch (IOException ex) {
+            throw new JournalException(String.format("Could not append to transfer log: %s", path), ex);
+        }
+        written++;
+        track(record);
+    }
+
+    /**
+     * Forgets credits applied before {@code creditedBefore} (epoch millis) and rewrites the file
+     * with the records still needed once at least half of it is no longer needed. The new file
+     * is synced before it atomically replaces the old one, so a crash leaves one or the other.
+     */
+    public synchronized void compact(final long creditedBefore) {
+        if(channel == null) {
+            throw new IllegalStateException("Transfer log must be replayed before it is compacted");
+        }
+        live.values().removeIf(records -> records.get(0).getType() == TransferRecord.Type.CREDITED
+                                          && records.get(0).getTimestamp() < creditedBefore);
+        final long needed = liveRecords();
+        if(written < minCompactionRecords || written < 2 * needed) {
+            return;
+        }
+        final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try(FileChannel compacted = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                                         StandardOpenOption.WRITE)) {
+                for(final TransferRecord record : records()) {
+                    write(compacted, record);
+                }
+                compacted.force(true);
+            }
+            channel.close();
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        } catch (IOException ex) {
+            throw new JournalException(String.format("Could not compact transfer log: %s", path), ex);
+        }
+        logger.info("Compacted transfer log {} from {} to {} records", path, written, needed);
+        written = needed;
+    }
+
+    @Override
+    public synchronized void close() {
+        if(channel == null || !channel.isOpen()) {
+            return;
+        }
+        try {
+            channel.force(true);
+            channel.close();
+        } catch (IOException ex) {
+            throw new JournalException(String.format("Could not close transfer log: %s", path), ex);
+        }
+    }
+
+    synchronized long size() {
+        return written;
+    }
+
+    private void track(final TransferRecord record) {
+        switch (record.getType()) {
+            case BEGIN:
+            case CREDITING:
+            case CREDITED:
+                live.put(record.getTransferId(), new ArrayList<>(Collections.singletonList(record)));
+                break;
+            case DEBITED:
+                final List<TransferRecord> records = live.get(record.getTransferId());
+                if(records != null) {
+                    records.add(record);
+                }
+                break;
+            case COMMITTED:
+            case ABORTED:
+                live.remove(record.getTransferId());
+                break;
+            default:
+                throw new IllegalStateException(String.format("Unknown transfer record: %s", record));
+        }
+    }
+
+    private List<TransferRecord> records() {
+        final List<TransferRecord> records = new ArrayList<>();
+        live.values().forEach(records::addAll);
+        return records;
+    }
+
+    private long liveRecords() {
+        long count = 0;
+        for(final List<TransferRecord> records : live.values()) {
+            count += records.size();
+        }
+        return count;
+    }
+
+    private TransferRecord parse(final String line) {
+        written++;
+        try {
+            return JsonSupport.GSON.fromJson(line, TransferRecord.class);
+        } catch (JsonParseException ex) {
+            throw new JournalException(String.format("Corrupt transfer log line %s in %s", written, path), ex);
+        }
+    }
+
+    private static void write(final FileChannel channel, final TransferRecord record) throws IOException {
+        final ByteBuffer line = StandardCharsets.UTF_8.encode(JsonSupport.GSON.toJson(record) + "\n");
+        while(line.hasRemaining()) {
+            channel.write(line);
+        }
+    }
+}
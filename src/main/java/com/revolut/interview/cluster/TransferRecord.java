@@ -0,0 +1,50 @@
+package com.revolut.interview.cluster;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.UUID;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * One line of the {@link TransferLog}. {@code BEGIN} carries the whole transfer; the records
+ * after it only name the transfer they move on. {@code BEGIN}, {@code CREDITING} and
+ * {@code CREDITED} are stamped with the time they were logged, in epoch millis.
+ */
+@Builder(toBuilder = true)
+@Data
+@EqualsAndHashCode
+@ToString
+public class TransferRecord {
+
+    public enum Type {
+        /** The source node is about to debit the source account. */
+        BEGIN,
+        /** The debit is applied; the credit is owed to the target node. */
+        DEBITED,
+        /** The target node applied the credit. */
+        COMMITTED,
+        /** The transfer will not happen; any debit was refunded. On the target node, the credit logged as {@code CREDITING} was not applied. */
+        ABORTED,
+        /** Written by the target node once it applied a credit, so that a resent credit is not applied twice. */
+        CREDITED,
+        /** Written by the target node before it applies a credit, so that a crash before {@code CREDITED} is noticed. */
+        CREDITING
+    }
+
+    private Type       type;
+    private UUID       transferId;
+    private UUID       fromAccount;
+    private UUID       toAccount;
+    private BigDecimal amount;
+    private Currency   currency;
+    private String     targetNode;
+    private long       timestamp;
+
+    public TransferRecord next(final Type nextType) {
+        return TransferRecord.builder().type(nextType).transferId(transferId).build();
+    }
+}
@@ -0,0 +1,31 @@
+package com.revolut.interview.config;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+@Builder(toBuilder = true)
+@Data
+@EqualsAndHashCode
+@ToString
+public class ServerConfig {
+
+    private int     port;
+    private int     minThreads;
+    private int     maxThreads;
+    private int     queueCapacity;
+    private int     idleTimeoutMillis;
+    private boolean virtualThreads;
+
+    public static ServerConfig fromSystemProperties() {
+        return ServerConfig.builder()
+                           .port(Integer.getInteger("moneytransfer.server.port", 4567))
+                           .minThreads(Integer.getInteger("moneytransfer.server.threads.min", 8))
+                           .maxThreads(Integer.getInteger("moneytransfer.server.threads.max", 200))
+                           .queueCapacity(Integer.getInteger("moneytransfer.server.queue.capacity", 4096))
+                           .idleTimeoutMillis(Integer.getInteger("moneytransfer.server.idle.timeout.millis", 60000))
+                           .virtualThreads(Boolean.getBoolean("moneytransfer.server.virtual.threads"))
+                           .build();
+    }
+}
@@ -0,0 +1,89 @@
+package com.revolut.interview.config;
+
+import com.revolut.interview.hold.HoldBook;
+import com.revolut.interview.lock.LockMode;
+import com.revolut.interview.replication.ReplicationRole;
+import com.revolut.interview.repository.StorageMode;
+import com.revolut.interview.service.ServiceEngine;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+@Builder(toBuilder = true)
+@Data
+@EqualsAndHashCode
+@ToString
+public class ServiceConfig {
+
+    private ServiceEngine engine;
+    private LockMode      lockMode;
+    private int           lockStripes;
+    private int           auditSampleRate;
+    private int           ringBufferSize;
+    private StorageMode   storageMode;
+    private String        journalPath;
+    private long          snapshotIntervalSeconds;
+    private int           admissionMinLimit;
+    private int           admissionMaxLimit;
+    private long          admissionTargetLatencyMillis;
+    private double        clientQuotaPerSecond;
+    private int           clientQuotaBurst;
+    private int           idempotencyMaxEntries;
+    private long          idempotencyTtlSeconds;
+    private boolean       ledgerEnabled;
+    private String        fxRatesPath;
+    private int           shardCount;
+    private String        clusterConfigPath;
+    private String        clusterNodeId;
+    private String        clusterTransferLogPath;
+    private long          clusterCreditRetentionHours;
+    private ReplicationRole replicationRole;
+    private int           replicationPort;
+    private String        replicationPrimary;
+    private int           replicationAcks;
+    private long          replicationAckTimeoutMillis;
+    private long          replicationMaxStalenessMillis;
+    private int           replicationBacklog;
+    private long          holdTickMillis;
+    private int           holdWheelSize;
+    private long          holdMaxExpirySeconds;
+
+    public static ServiceConfig fromSystemProperties() {
+        return ServiceConfig.builder()
+                            .engine(ServiceEngine.valueOf(System.getProperty("moneytransfer.engine", "LOCKING").toUpperCase()))
+                            .lockMode(LockMode.valueOf(System.getProperty("moneytransfer.lock.mode", "STRIPED").toUpperCase()))
+                            .lockStripes(Integer.getInteger("moneytransfer.lock.stripes", 256))
+                            .auditSampleRate(Integer.getInteger("moneytransfer.audit.sample.rate", 1))
+                            .ringBufferSize(Integer.getInteger("moneytransfer.writer.ring.size", 16384))
+                            .storageMode(StorageMode.valueOf(System.getProperty("moneytransfer.storage.mode", "HEAP").toUpperCase()))
+                            .journalPath(System.getProperty("moneytransfer.journal.path"))
+                            .snapshotIntervalSeconds(Long.getLong("moneytransfer.snapshot.interval.seconds", 300))
+                            .admissionMinLimit(Integer.getInteger("moneytransfer.admission.limit.min", 8))
+                            .admissionMaxLimit(Integer.getInteger("moneytransfer.admission.limit.max", 256))
+                            .admissionTargetLatencyMillis(Long.getLong("moneytransfer.admission.target.latency.millis", 50))
+                            .clientQuotaPerSecond(Double.parseDouble(System.getProperty("moneytransfer.client.quota.per.second", "0")))
+                            .clientQuotaBurst(Integer.getInteger("moneytransfer.client.quota.burst", 20))
+                            .idempotencyMaxEntries(Integer.getInteger("moneytransfer.idempotency.max.entries", 100_000))
+                            .idempotencyTtlSeconds(Long.getLong("moneytransfer.idempotency.ttl.seconds", 86_400))
+                            .ledgerEnabled(Boolean.parseBoolean(System.getProperty("moneytransfer.ledger.enabled", "true")))
+                            .fxRatesPath(System.getProperty("moneytransfer.fx.rates.path"))
+                            .shardCount(Integer.getInteger("moneytransfer.shards", Runtime.getRuntime().availableProcessors()))
+                            .clusterConfigPath(System.getProperty("moneytransfer.cluster.config"))
+                            .clusterNodeId(System.getProperty("moneytransfer.cluster.node"))
+                            .clusterTransferLogPath(System.getProperty("moneytransfer.cluster.transfer.log"))
+                            .clusterCreditRetentionHours(Long.getLong("moneytransfer.cluster.credit.retention.hours", 168))
+                            .replicationRole(ReplicationRole.valueOf(System.getProperty("moneytransfer.replication.role", "NONE").toUpperCase()))
+                            .replicationPort(Integer.getInteger("moneytransfer.replication.port", 4600))
+                            .replicationPrimary(System.getProperty("moneytransfer.replication.primary"))
+                            .replicationAcks(Integer.getInteger("moneytransfer.replication.acks", 0))
+                            .replicationAckTimeoutMillis(Long.getLong("moneytransfer.replication.ack.timeout.millis", 1000))
+                            .replicationMaxStalenessMillis(Long.getLong("moneytransfer.replication.max.staleness.millis", 1000))
+                            .replicationBacklog(Integer.getInteger("moneytransfer.replication.backlog", 100_000))
+                            .holdTickMillis(Long.getLong("moneytransfer.hold.tick.millis", HoldBook.DEFAULT_TICK_MILLIS))
+                            .holdWheelSize(Integer.getInteger("moneytransfer.hold.wheel.size", HoldBook.DEFAULT_WHEEL_SIZE))
+                            .holdMaxExpirySeconds(Long.getLong("moneytransfer.hold.max.expiry.seconds", HoldBook.DEFAULT_MAX_EXPIRY_SECONDS))
+                            .build();
+    }
+}
@@ -1,22 +1,55 @@
 package com.revolut.interview.controller;
 
-import com.google.gson.Gson;
 import com.google.inject.Inject;
 
+import com.revolut.interview.admission.ClientQuotas;
+import com.revolut.interview.cluster.ClusterClient;
+import com.revolut.interview.cluster.ClusterMembership;
+import com.revolut.interview.execption.InvalidRequestException;
+import com.revolut.interview.execption.QuotaExceededException;
+import com.revolut.interview.fx.FxRateTable;
+import com.revolut.interview.fx.FxRates;
+import com.revolut.interview.idempotency.IdempotencyCache;
+import com.revolut.interview.json.JsonSupport;
+import com.revolut.interview.metrics.LatencyHistogram;
+import com.revolut.interview.metrics.MetricsRegistry;
 import com.revolut.interview.request.CreateAccount;
 import com.revolut.interview.request.DepositMoney;
+import com.revolut.interview.request.PlaceHold;
+import com.revolut.interview.request.TransactionQuery;
+import com.revolut.interview.request.TransferBatch;
 import com.revolut.interview.request.TransferMoney;
+import com.revolut.interview.request.UpdateFxRates;
 import com.revolut.interview.request.WithDrawMoney;
+import com.revolut.interview.response.AccountPage;
+import com.revolut.interview.response.FxRatesResponse;
+import com.revolut.interview.response.HoldResponse;
 import com.revolut.interview.response.JsonResponse;
+import com.revolut.interview.response.TransactionPage;
+import com.revolut.interview.response.TransferResult;
 import com.revolut.interview.service.AccountService;
+import com.revolut.interview.uuid.Uuids;
 
+import org.eclipse.jetty.http.HttpStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
+import spark.Request;
+import spark.Route;
+
+import static com.revolut.interview.response.Status.ERROR;
 import static com.revolut.interview.response.Status.SUCCESS;
+import static spark.Spark.before;
 import static spark.Spark.delete;
 import static spark.Spark.get;
 import static spark.Spark.post;
@@ -24,80 +57,345 @@ import static spark.Spark.put;
 
 public class AccountController {
 
-    private AccountService accountService;
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE     = 1000;
+
+    private static final String LIMIT  = "limit";
+    private static final String AFTER  = "after";
+    private static final String BEFORE = "before";
+    private static final String FROM   = "from";
+    private static final String TO     = "to";
+    private static final String FORMAT = "format";
+    private static final String NDJSON = "ndjson";
+
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
+    private AccountService    accountService;
+    private ClusterMembership membership;
+    private ClientQuotas      clientQuotas;
+    private IdempotencyCache  idempotencyCache;
+    private MetricsRegistry   metricsRegistry;
+    private FxRateTable       fxRateTable;
 
     private static final Logger logger = LoggerFactory.getLogger(AccountController.class);
 
     @Inject
-    public AccountController(final AccountService accountService) {this.accountService = accountService;}
+    public AccountController(final AccountService accountService, final ClusterMembership membership, final ClientQuotas clientQuotas,
+                             final IdempotencyCache idempotencyCache, final MetricsRegistry metricsRegistry,
+                             final FxRateTable fxRateTable) {
+        this.accountService = accountService;
+        this.membership = membership;
+        this.clientQuotas = clientQuotas;
+        this.idempotencyCache = idempotencyCache;
+        this.metricsRegistry = metricsRegistry;
+        this.fxRateTable = fxRateTable;
+    }
 
     public void registerAccountApiRoutes() {
 
-        get("/account/:accountId", (request, response) -> {
-            final UUID accountId = UUID.fromString(Objects.requireNonNull(request.params(":accountId")));
-            logger.info(String.format("Received request for account lookup: %s", accountId));
-            return new Gson().toJson(
-                    new JsonResponse(SUCCESS, new Gson()
-                            .toJsonTree(accountService.getAccount(accountId))));
-        });
+        if(clientQuotas.isEnabled()) {
+            for(final String path : new String[] {"/account/transfer", "/account/transfers", "/account/withdraw", "/account/deposit",
+                                                  "/account/:accountId/holds", "/account/:accountId/holds/:holdId/capture"}) {
+                before(path, (request, response) -> {
+                    // Listing holds is a read and shares its path with placing one
+                    if(!"GET".equals(request.requestMethod())) {
+                        checkClientQuota(request);
+                    }
+                });
+            }
+        }
+
+        get("/account/:accountId", timed("GET", "/account/:accountId", (request, response) -> {
+            final UUID accountId = Uuids.parse(Objects.requireNonNull(request.params(":accountId")));
+            logger.debug("Received request for account lookup: {}", accountId);
+            return JsonSupport.writeBytes(response, accountService.getAccountView(accountId).json());
+        }));
+
+        get("/account/:accountId/transactions", timed("GET", "/account/:accountId/transactions", (request, response) -> {
+            final UUID accountId = Uuids.parse(Objects.requireNonNull(request.params(":accountId")));
+            final TransactionQuery transactionQuery = TransactionQuery.builder()
+                                                                      .accountId(accountId)
+                                                                      .fromMillis(parseLong(FROM, request.queryParams(FROM), Long.MIN_VALUE))
+                                                                      .toMillis(parseLong(TO, request.queryParams(TO), Long.MAX_VALUE))
+                                                                      .beforeEntryId(parseLong(BEFORE, request.queryParams(BEFORE), Long.MAX_VALUE))
+                                                                      .limit(parseLimit(request.queryParams(LIMIT)))
+                                                                      .build();
+            logger.debug("Received request for transactions: {}", transactionQuery);
+            return JsonSupport.write(response,
+                    new JsonResponse(SUCCESS, TransactionPage.of(accountService.getTransactions(transactionQuery),
+                                                                 transactionQuery.getLimit())));
+        }));
 
-        post("/account", (request, response) -> {
-            final CreateAccount createAccount = new Gson().fromJson(request.body(), CreateAccount.class);
-            logger.info(String.format("Received request for creating new account for: %s", createAccount));
-            return new Gson().toJson(
+        post("/account", timed("POST", "/account", (request, response) -> {
+            final CreateAccount createAccount = JsonSupport.read(request, CreateAccount.class);
+            logger.debug("Received request for creating new account for: {}", createAccount);
+            return JsonSupport.write(response,
                     new JsonResponse(SUCCESS, "New account has been created",
-                                     new Gson().toJsonTree(accountService.createAccount(createAccount))));
-        });
+                                     accountService.createAccount(createAccount)));
+        }));
 
-        get("/accounts", (request, response) -> {
-            logger.info("Received request for getting all existing accounts");
-            return new Gson().toJson(
-                    new JsonResponse(SUCCESS, new Gson()
-                            .toJsonTree(accountService.getAllAccounts())));
-        });
+        get("/accounts", timed("GET", "/accounts", (request, response) -> {
+            if(isNdjsonRequested(request)) {
+                logger.debug("Received request for streaming all existing accounts");
+                return JsonSupport.writeLines(response, accountService::forEachAccount);
+            }
+            if(request.queryParams(LIMIT) != null || request.queryParams(AFTER) != null) {
+                final int limit = parseLimit(request.queryParams(LIMIT));
+                final UUID after = parseCursor(request.queryParams(AFTER));
+                logger.debug("Received request for {} accounts after: {}", limit, after);
+                return JsonSupport.write(response,
+                        new JsonResponse(SUCCESS, AccountPage.of(accountService.getAccounts(after, limit), limit)));
+            }
+            logger.debug("Received request for getting all existing accounts");
+            return JsonSupport.write(response,
+                    new JsonResponse(SUCCESS, accountService.getAllAccounts()));
+        }));
 
-        delete("/account/:accountId", (request, response) -> {
-            final UUID accountId = UUID.fromString(Objects.requireNonNull(request.params(":accountId")));
-            logger.info(String.format("Received request for deleting account: %s", accountId));
+        delete("/account/:accountId", timed("DELETE", "/account/:accountId", (request, response) -> {
+            final UUID accountId = Uuids.parse(Objects.requireNonNull(request.params(":accountId")));
+            logger.debug("Received request for deleting account: {}", accountId);
             accountService.deleteAccount(accountId);
-            return new Gson().toJson(
+            return JsonSupport.write(response,
                     new JsonResponse(SUCCESS,
                                      String.format("Account [%s] has been deleted", accountId)));
+        }));
+
+        get("/metrics/idempotency", (request, response) -> {
+            logger.debug("Received request for idempotency cache statistics");
+            return JsonSupport.write(response,
+                    new JsonResponse(SUCCESS, idempotencyCache.stats()));
+        });
+
+        get("/metrics", (request, response) -> {
+            response.type(MetricsRegistry.CONTENT_TYPE);
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(response.raw().getOutputStream(), StandardCharsets.UTF_8));
+            metricsRegistry.writeTo(writer);
+            writer.flush();
+            return "";
         });
 
-        delete("/accounts", (request, response) -> {
-            logger.info("Received request for deleting all accounts");
+        get("/fx/rates", timed("GET", "/fx/rates", (request, response) -> {
+            logger.debug("Received request for FX rates");
+            return JsonSupport.write(response,
+                    new JsonResponse(SUCCESS, FxRatesResponse.of(fxRateTable.current())));
+        }));
+
+        put("/fx/rates", timed("PUT", "/fx/rates", (request, response) -> {
+            final UpdateFxRates updateFxRates = JsonSupport.read(request, UpdateFxRates.class);
+            logger.debug("Received request for updating FX rates: {}", updateFxRates);
+            if(updateFxRates == null || updateFxRates.getBase() == null || updateFxRates.getRates() == null) {
+                throw new InvalidRequestException("FX rates must have a base currency and rates");
+            }
+            final FxRates fxRates;
+            try {
+                fxRates = fxRateTable.update(updateFxRates.getBase(), updateFxRates.getRates());
+            } catch (IllegalArgumentException ex) {
+                throw new InvalidRequestException(ex.getMessage());
+            }
+            return JsonSupport.write(response,
+                    new JsonResponse(SUCCESS,
+                                     String.format("FX rates version %s loaded", fxRates.getVersion()),
+                                     FxRatesResponse.of(fxRates)));
+        }));
+
+        delete("/accounts", timed("DELETE", "/accounts", (request, response) -> {
+            logger.debug("Received request for deleting all accounts");
             accountService.deleteAllAccounts();
-            return new Gson().toJson(
+            return JsonSupport.write(response,
                     new JsonResponse(SUCCESS,
                                      String.format("Deleting all accounts")));
-        });
+        }));
 
-        post("/account/transfer", (request, response) -> {
-            final TransferMoney transferMoney = new Gson().fromJson(request.body(), TransferMoney.class);
-            logger.info(String.format("Received request for transfer money for: %s", transferMoney));
-            accountService.transferAmount(transferMoney);
-            return new Gson().toJson(
+        post("/account/transfer", timed("POST", "/account/transfer", (request, response) -> {
+            final TransferMoney transferMoney = JsonSupport.read(request, TransferMoney.class);
+            logger.debug("Received request for transfer money for: {}", transferMoney);
+            idempotent(request, transferMoney, () -> {
+                accountService.transferAmount(transferMoney);
+                return Boolean.TRUE;
+            });
+            return JsonSupport.write(response,
                     new JsonResponse(SUCCESS,
                                      "Money has been transferred successfully"));
-        });
+        }));
 
-        put("/account/withdraw", (request, response) -> {
-            final WithDrawMoney withDrawMoney = new Gson().fromJson(request.body(), WithDrawMoney.class);
-            logger.info(String.format("Received request for withdraw money from account: %s", withDrawMoney.getAccountId()));
-            accountService.withDrawMoney(withDrawMoney);
-            return new Gson().toJson(
+        post("/account/transfers", timed("POST", "/account/transfers", (request, response) -> {
+            final TransferBatch transferBatch = JsonSupport.read(request, TransferBatch.class);
+            logger.debug("Received request for batch transfer, allowPartial: {}", transferBatch.isAllowPartial());
+            final List<TransferResult> results = idempotent(request, transferBatch, () -> accountService.transferAll(transferBatch));
+            final long applied = results.stream().filter(TransferResult::isApplied).count();
+            if(!transferBatch.isAllowPartial() && applied < results.size()) {
+                response.status(HttpStatus.BAD_REQUEST_400);
+                return JsonSupport.write(response,
+                        new JsonResponse(ERROR,
+                                         "Batch rejected, no transfer has been applied",
+                                         results));
+            }
+            return JsonSupport.write(response,
+                    new JsonResponse(SUCCESS,
+                                     String.format("%d of %d transfers applied", applied, results.size()),
+                                     results));
+        }));
+
+        put("/account/withdraw", timed("PUT", "/account/withdraw", (request, response) -> {
+            final WithDrawMoney withDrawMoney = JsonSupport.read(request, WithDrawMoney.class);
+            logger.debug("Received request for withdraw money from account: {}", withDrawMoney.getAccountId());
+            idempotent(request, withDrawMoney, () -> {
+                accountService.withDrawMoney(withDrawMoney);
+                return Boolean.TRUE;
+            });
+            return JsonSupport.write(response,
                     new JsonResponse(SUCCESS,
                                      String.format("Amount has been withdrawn from account: %s", withDrawMoney.getAccountId())));
-        });
+        }));
 
-        put("/account/deposit", (request, response) -> {
-            final DepositMoney depositMoney = new Gson().fromJson(request.body(), DepositMoney.class);
-            logger.info(String.format("Received request for deposit money to account: %s", depositMoney.getAccountId()));
-            accountService.depositMoney(depositMoney);
-            return new Gson().toJson(
+        put("/account/deposit", timed("PUT", "/account/deposit", (request, response) -> {
+            final DepositMoney depositMoney = JsonSupport.read(request, DepositMoney.class);
+            logger.debug("Received request for deposit money to account: {}", depositMoney.getAccountId());
+            idempotent(request, depositMoney, () -> {
+                accountService.depositMoney(depositMoney);
+                return Boolean.TRUE;
+            });
+            return JsonSupport.write(response,
                     new JsonResponse(SUCCESS,
                                      String.format("Amount has been deposit to account: %s", depositMoney.getAccountId())));
-        });
+        }));
+
+        get("/account/:accountId/holds", timed("GET", "/account/:accountId/holds", (request, response) -> {
+            final UUID accountId = Uuids.parse(Objects.requireNonNull(request.params(":accountId")));
+            logger.debug("Received request for holds on account: {}", accountId);
+            return JsonSupport.write(response,
+                    new JsonResponse(SUCCESS, accountService.getHolds(accountId)));
+        }));
+
+        post("/account/:accountId/holds", timed("POST", "/account/:accountId/holds", (request, response) -> {
+            final UUID accountId = Uuids.parse(Objects.requireNonNull(request.params(":accountId")));
+            final PlaceHold placeHold = JsonSupport.read(request, PlaceHold.class);
+            if(placeHold == null) {
+                throw new InvalidRequestException("Hold must have an amount and expirySeconds");
+            }
+            placeHold.setAccountId(accountId);
+            logger.debug("Received request for hold on account: {}", accountId);
+            final HoldResponse hold = idempotent(request, placeHold, () -> accountService.placeHold(placeHold));
+            return JsonSupport.write(response,
+                    new JsonResponse(SUCCESS,
+                                     String.format("Amount has been held on account: %s", accountId),
+                                     hold));
+        }));
+
+        post("/account/:accountId/holds/:holdId/capture", timed("POST", "/account/:accountId/holds/:holdId/capture", (request, response) -> {
+            final UUID accountId = Uuids.parse(Objects.requireNonNull(request.params(":accountId")));
+            final UUID holdId = Uuids.parse(Objects.requireNonNull(request.params(":holdId")));
+            logger.debug("Received request for capturing hold {} on account: {}", holdId, accountId);
+            final HoldResponse hold = idempotent(request, holdId, () -> accountService.captureHold(accountId, holdId));
+            return JsonSupport.write(response,
+                    new JsonResponse(SUCCESS,
+                                     String.format("Held amount has been withdrawn from account: %s", accountId),
+                                     hold));
+        }));
+
+        delete("/account/:accountId/holds/:holdId", timed("DELETE", "/account/:accountId/holds/:holdId", (request, response) -> {
+            final UUID accountId = Uuids.parse(Objects.requireNonNull(request.params(":accountId")));
+            final UUID holdId = Uuids.parse(Objects.requireNonNull(request.params(":holdId")));
+            logger.debug("Received request for releasing hold {} on account: {}", holdId, accountId);
+            return JsonSupport.write(response,
+                    new JsonResponse(SUCCESS,
+                                     String.format("Hold [%s] has been released", holdId),
+                                     accountService.releaseHold(accountId, holdId)));
+        }));
+    }
+
+    /**
+     * Records the route's latency, including failed requests, in a histogram looked up once here.
+     */
+    private Route timed(final String method, final String path, final Route route) {
+        final LatencyHistogram latency = metricsRegistry.histogram("http_request_duration_seconds",
+                                                                   "Time spent handling requests",
+                                                                   "method", method, "route", path);
+        return (request, response) -> {
+            final long start = System.nanoTime();
+            try {
+                return route.handle(request, response);
+            } finally {
+                latency.record(System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * Runs the operation at most once per {@code Idempotency-Key} header of this route; a retry
+     * with the same key gets the original result or failure back.
+     */
+    private <T> T idempotent(final Request request, final Object body, final Supplier<T> operation) {
+        final String key = request.headers(IDEMPOTENCY_KEY);
+        if(key == null) {
+            return operation.get();
+        }
+        if(key.isEmpty() || key.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new InvalidRequestException(String.format("%s must be 1 to %s characters long", IDEMPOTENCY_KEY, MAX_IDEMPOTENCY_KEY_LENGTH));
+        }
+        return idempotencyCache.execute(request.requestMethod() + " " + request.pathInfo() + " " + key, body, operation);
+    }
+
+    /**
+     * Quotas are keyed on the remote address, which a client cannot choose per request; a
+     * request forwarded by another node carries the address its client connected from.
+     */
+    private void checkClientQuota(final Request request) {
+        String clientId = request.ip();
+        if(request.headers(ClusterClient.CLIENT_ADDRESS) != null) {
+            membership.authenticate(request.headers(ClusterClient.FORWARDED_BY), request.headers(ClusterClient.CLUSTER_SECRET));
+            clientId = request.headers(ClusterClient.CLIENT_ADDRESS);
+        }
+        final long waitNanos = clientQuotas.tryAcquire(clientId);
+        if(waitNanos > 0) {
+            logger.debug("Client {} exceeded its quota", clientId);
+            throw new QuotaExceededException(String.format("Request quota exceeded for client: %s", clientId),
+                                             Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+        }
+    }
+
+    private static boolean isNdjsonRequested(final Request request) {
+        final String accept = request.headers("Accept");
+        return NDJSON.equalsIgnoreCase(request.queryParams(FORMAT))
+               || (accept != null && accept.contains(JsonSupport.NDJSON_TYPE));
+    }
+
+    private static int parseLimit(final String value) {
+        if(value == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        try {
+            final int limit = Integer.parseInt(value);
+            if(limit > 0 && limit <= MAX_PAGE_SIZE) {
+                return limit;
+            }
+        } catch (NumberFormatException ex) {
+            // reported below
+        }
+        throw new InvalidRequestException(String.format("limit must be between 1 and %s: %s", MAX_PAGE_SIZE, value));
+    }
+
+    private static long parseLong(final String name, final String value, final long defaultValue) {
+        if(value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ex) {
+            throw new InvalidRequestException(String.format("%s must be a whole number: %s", name, value));
+        }
+    }
+
+    private static UUID parseCursor(final String value) {
+        if(value == null) {
+            return null;
+        }
+        try {
+            return Uuids.parse(value);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidRequestException(String.format("after must be an account id: %s", value));
+        }
     }
 }
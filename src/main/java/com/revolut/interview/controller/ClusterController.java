@@ -0,0 +1,187 @@
+package com.revolut.interview.controller;
+
+import com.google.inject.Inject;
+
+import com.revolut.interview.cluster.ClusterClient;
+import com.revolut.interview.cluster.ClusterMembership;
+import com.revolut.interview.cluster.ClusterNode;
+import com.revolut.interview.cluster.ClusterTransfers;
+import com.revolut.interview.execption.InvalidRequestException;
+import com.revolut.interview.execption.MisdirectedRequestException;
+import com.revolut.interview.json.JsonSupport;
+import com.revolut.interview.metrics.MetricsRegistry;
+import com.revolut.interview.request.CreateAccount;
+import com.revolut.interview.request.DepositMoney;
+import com.revolut.interview.request.RemoteCredit;
+import com.revolut.interview.request.TransferBatch;
+import com.revolut.interview.request.TransferMoney;
+import com.revolut.interview.request.WithDrawMoney;
+import com.revolut.interview.response.ClusterStatus;
+import com.revolut.interview.response.JsonResponse;
+import com.revolut.interview.uuid.Uuids;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+import spark.Request;
+import spark.Response;
+
+import static com.revolut.interview.response.Status.SUCCESS;
+import static spark.Spark.before;
+import static spark.Spark.get;
+import static spark.Spark.halt;
+import static spark.Spark.post;
+
+/**
+ * Routes every account request to the node that owns the account. Filters run ahead of the
+ * {@link AccountController} routes: a request for an account of this node falls through to
+ * them, any other is forwarded to its owner and the owner's answer is returned as is. Account
+ * creation goes to the node that owns the user id, which then hands out an account id it owns.
+ * Listing and deleting all accounts stay on the node that receives the request.
+ */
+public class ClusterController {
+
+    private static final String[] FORWARDED_HEADERS = {"Content-Type", "Accept", "Idempotency-Key"};
+
+    private static final String RETRY_AFTER = "Retry-After";
+
+    private ClusterMembership membership;
+    private ClusterClient     clusterClient;
+    private ClusterTransfers  clusterTransfers;
+    private LongAdder         forwarded;
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterController.class);
+
+    @Inject
+    public ClusterController(final ClusterMembership membership, final ClusterClient clusterClient,
+                             final ClusterTransfers clusterTransfers, final MetricsRegistry metricsRegistry) {
+        this.membership = membership;
+        this.clusterClient = clusterClient;
+        this.clusterTransfers = clusterTransfers;
+        this.forwarded = metricsRegistry.counter("cluster_forwarded_requests_total", "Requests forwarded to the node owning their account");
+    }
+
+    public void registerClusterRoutes() {
+
+        before("/account/:accountId", (request, response) -> {
+            if("GET".equals(request.requestMethod()) || "DELETE".equals(request.requestMethod())) {
+                routeTo(ownerOf(request.params(":accountId")), request, response);
+            }
+        });
+
+        before("/account/:accountId/transactions", (request, response) -> routeTo(ownerOf(request.params(":accountId")), request, response));
+
+        // Holds are kept by the node owning their account
+        before("/account/:accountId/holds", (request, response) -> routeTo(ownerOf(request.params(":accountId")), request, response));
+        before("/account/:accountId/holds/:holdId", (request, response) -> routeTo(ownerOf(request.params(":accountId")), request, response));
+        before("/account/:accountId/holds/:holdId/capture", (request, response) -> routeTo(ownerOf(request.params(":accountId")), request, response));
+
+        before("/account", (request, response) -> {
+            if("POST".equals(request.requestMethod())) {
+                final CreateAccount createAccount = JsonSupport.read(request, CreateAccount.class);
+                if(createAccount != null && createAccount.getUserId() != null) {
+                    routeTo(membership.ownerOfUser(createAccount.getUserId()), request, response);
+                }
+            }
+        });
+
+        before("/account/withdraw", (request, response) -> {
+            final WithDrawMoney withDrawMoney = JsonSupport.read(request, WithDrawMoney.class);
+            routeTo(withDrawMoney == null ? null : ownerOf(withDrawMoney.getAccountId()), request, response);
+        });
+
+        before("/account/deposit", (request, response) -> {
+            final DepositMoney depositMoney = JsonSupport.read(request, DepositMoney.class);
+            routeTo(depositMoney == null ? null : ownerOf(depositMoney.getAccountId()), request, response);
+        });
+
+        before("/account/transfer", (request, response) -> {
+            final TransferMoney transferMoney = JsonSupport.read(request, TransferMoney.class);
+            routeTo(transferMoney == null ? null : ownerOf(transferMoney.getFromAccount()), request, response);
+        });
+
+        // A batch goes to the owner of its first source account, which turns down sources it does not own
+        before("/account/transfers", (request, response) -> {
+            final TransferBatch transferBatch = JsonSupport.read(request, TransferBatch.class);
+            if(transferBatch != null && transferBatch.getTransfers() != null) {
+                transferBatch.getTransfers().stream()
+                             .filter(transfer -> transfer != null && transfer.getFromAccount() != null)
+                             .findFirst()
+                             .ifPresent(transfer -> routeTo(ownerOf(transfer.getFromAccount()), request, response));
+            }
+        });
+
+        // Only another member holding the cluster secret may credit an account of this node
+        post("/cluster/credit", (request, response) -> {
+            final ClusterNode sender = membership.authenticate(request.headers(ClusterClient.FORWARDED_BY),
+                                                               request.headers(ClusterClient.CLUSTER_SECRET));
+            final RemoteCredit remoteCredit = JsonSupport.read(request, RemoteCredit.class);
+            if(remoteCredit == null) {
+                throw new InvalidRequestException("A credit needs a body");
+            }
+            logger.debug("Received credit of transfer {} from node {}", remoteCredit.getTransferId(), sender.getId());
+            final boolean applied = clusterTransfers.credit(remoteCredit);
+            return JsonSupport.write(response,
+                    new JsonResponse(SUCCESS, applied ? "Credit has been applied" : "Credit was already applied"));
+        });
+
+        get("/cluster", (request, response) -> JsonSupport.write(response,
+                new JsonResponse(SUCCESS, ClusterStatus.builder()
+                                                       .self(membership.getSelf().getId())
+                                                       .nodes(membership.getNodes())
+                                                       .pendingTransfers(clusterTransfers.pendingCount())
+                                                       .build())));
+    }
+
+    /**
+     * Forwards the request unless this node owns it; a {@code null} owner means the request is
+     * left to the route, which reports what is wrong with it.
+     */
+    private void routeTo(final ClusterNode owner, final Request request, final Response response) {
+        if(owner == null || owner.equals(membership.getSelf())) {
+            return;
+        }
+        if(request.headers(ClusterClient.FORWARDED_BY) != null) {
+            throw new MisdirectedRequestException(String.format("Node %s sent a request owned by node %s; every node must run with the same membership",
+                                                                request.headers(ClusterClient.FORWARDED_BY), owner.getId()));
+        }
+        final Map<String, String> headers = new HashMap<>();
+        for(final String header : FORWARDED_HEADERS) {
+            if(request.headers(header) != null) {
+                headers.put(header, request.headers(header));
+            }
+        }
+        // The owner applies the client's quota, which is keyed on the address the client connected from
+        headers.put(ClusterClient.CLIENT_ADDRESS, request.ip());
+        final String query = request.queryString();
+        logger.debug("Forwarding {} {} to node {}", request.requestMethod(), request.pathInfo(), owner.getId());
+        final ClusterClient.Reply reply = clusterClient.send(owner, request.requestMethod(),
+                                                             query == null ? request.pathInfo() : request.pathInfo() + "?" + query,
+                                                             headers, request.bodyAsBytes());
+        forwarded.increment();
+        if(reply.getContentType() != null) {
+            response.type(reply.getContentType());
+        }
+        if(reply.getRetryAfter() != null) {
+            response.header(RETRY_AFTER, reply.getRetryAfter());
+        }
+        halt(reply.getStatus(), reply.getBody());
+    }
+
+    private ClusterNode ownerOf(final String accountId) {
+        try {
+            return accountId == null ? null : membership.ownerOf(Uuids.parse(accountId));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private ClusterNode ownerOf(final UUID accountId) {
+        return accountId == null ? null : membership.ownerOf(accountId);
+    }
+}
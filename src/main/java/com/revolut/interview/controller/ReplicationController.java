@@ -0,0 +1,66 @@
+package com.revolut.interview.controller;
+
+import com.google.inject.Inject;
+
+import com.revolut.interview.execption.MisdirectedRequestException;
+import com.revolut.interview.json.JsonSupport;
+import com.revolut.interview.replication.ReplicationNode;
+import com.revolut.interview.response.JsonResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.regex.Pattern;
+
+import static com.revolut.interview.response.Status.SUCCESS;
+import static spark.Spark.before;
+import static spark.Spark.get;
+import static spark.Spark.post;
+
+/**
+ * Keeps a replica read-only. Until it is promoted, a replica answers account lookups and
+ * listings while it is fresh enough, along with the replication and metrics routes, and turns
+ * everything else away to the primary. Transaction history is not replicated, so it is only
+ * served by the primary.
+ */
+public class ReplicationController {
+
+    private static final Pattern ACCOUNT_PATH = Pattern.compile("/account/[^/]+");
+
+    private ReplicationNode replicationNode;
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationController.class);
+
+    @Inject
+    public ReplicationController(final ReplicationNode replicationNode) {
+        this.replicationNode = replicationNode;
+    }
+
+    public void registerReplicationRoutes() {
+
+        before((request, response) -> {
+            if(!replicationNode.isReadOnly()) {
+                return;
+            }
+            final String path = request.pathInfo();
+            if(path.startsWith("/replication") || path.startsWith("/metrics")) {
+                return;
+            }
+            if("GET".equals(request.requestMethod()) && (path.equals("/accounts") || ACCOUNT_PATH.matcher(path).matches())) {
+                replicationNode.checkFresh();
+                return;
+            }
+            throw new MisdirectedRequestException(String.format("This node is a read-only replica; send %s %s to the primary",
+                                                                request.requestMethod(), path));
+        });
+
+        get("/replication", (request, response) -> JsonSupport.write(response,
+                new JsonResponse(SUCCESS, replicationNode.status())));
+
+        post("/replication/promote", (request, response) -> {
+            logger.info("Received request to promote this replica");
+            return JsonSupport.write(response,
+                    new JsonResponse(SUCCESS, "Replica has been promoted to primary", replicationNode.promote()));
+        });
+    }
+}
@@ -0,0 +1,8 @@
+package com.revolut.interview.execption;
+
+public class ClusterAuthenticationException extends RuntimeException {
+
+    public ClusterAuthenticationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.revolut.interview.execption;
+
+public class HoldNotExistsException extends RuntimeException {
+
+    public HoldNotExistsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.revolut.interview.execption;
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.revolut.interview.execption;
+
+public class InvalidAmountException extends RuntimeException {
+
+    public InvalidAmountException(String message) {
+        super(message);
+    }
+}
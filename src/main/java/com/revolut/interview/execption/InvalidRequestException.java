@@ -0,0 +1,8 @@
+package com.revolut.interview.execption;
+
+public class InvalidRequestException extends RuntimeException {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
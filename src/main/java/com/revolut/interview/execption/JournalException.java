@@ -0,0 +1,12 @@
+package com.revolut.interview.execption;
+
+public class JournalException extends RuntimeException {
+
+    public JournalException(String message) {
+        super(message);
+    }
+
+    public JournalException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
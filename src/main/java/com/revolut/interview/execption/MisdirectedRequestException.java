@@ -0,0 +1,8 @@
+package com.revolut.interview.execption;
+
+public class MisdirectedRequestException extends RuntimeException {
+
+    public MisdirectedRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.revolut.interview.execption;
+
+public class NodeUnavailableException extends RuntimeException {
+
+    public NodeUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
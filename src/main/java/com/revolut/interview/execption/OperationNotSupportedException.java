@@ -0,0 +1,8 @@
+package com.revolut.interview.execption;
+
+public class OperationNotSupportedException extends RuntimeException {
+
+    public OperationNotSupportedException(String message) {
+        super(message);
+    }
+}
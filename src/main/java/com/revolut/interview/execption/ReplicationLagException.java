@@ -0,0 +1,8 @@
+package com.revolut.interview.execption;
+
+public class ReplicationLagException extends RuntimeException {
+
+    public ReplicationLagException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.revolut.interview.execption;
+
+public class ReplicationTimeoutException extends RuntimeException {
+
+    public ReplicationTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.revolut.interview.execption;
+
+public class UnsupportedCurrencyException extends RuntimeException {
+
+    public UnsupportedCurrencyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,77 @@
+package com.revolut.interview.fx;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Currency;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link FxRates}. Transfers read the snapshot once and convert with it, so a
+ * refresh swaps in a whole new table without waiting for them, and no transfer ever mixes
+ * rates of two versions. Versions increase by one with every swap. The table starts empty,
+ * which allows transfers between accounts of one currency only.
+ */
+public class FxRateTable {
+
+    private static final String BASE = "base";
+
+    private final AtomicReference<FxRates> current = new AtomicReference<>(FxRates.empty());
+
+    private static final Logger logger = LoggerFactory.getLogger(FxRateTable.class);
+
+    public FxRates current() {
+        return current.get();
+    }
+
+    public FxRates update(final Currency base, final Map<Currency, BigDecimal> ratesPerBase) {
+        while(true) {
+            final FxRates previous = current.get();
+            final FxRates next = FxRates.of(previous.getVersion() + 1, base, ratesPerBase);
+            if(current.compareAndSet(previous, next)) {
+                logger.info("FX rate table version {} loaded with {} currencies against {}", next.getVersion(),
+                            next.getRatesPerBase().size(), base);
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Loads a properties file naming the {@code base} currency and, per currency code, the
+     * units of that currency per one unit of the base:
+     * <pre>
+     * base=EUR
+     * GBP=0.8571
+     * USD=1.0842
+     * </pre>
+     */
+    public FxRates load(final Path path) {
+        final Properties properties = new Properties();
+        try(Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(String.format("Could not read FX rates from %s", path), ex);
+        }
+        final String base = properties.getProperty(BASE);
+        if(base == null) {
+            throw new IllegalArgumentException(String.format("FX rate file %s has no %s currency", path, BASE));
+        }
+        final Map<Currency, BigDecimal> ratesPerBase = new LinkedHashMap<>();
+        for(final String code : properties.stringPropertyNames()) {
+            if(!BASE.equals(code)) {
+                ratesPerBase.put(Currency.getInstance(code.trim()), new BigDecimal(properties.getProperty(code).trim()));
+            }
+        }
+        return update(Currency.getInstance(base.trim()), ratesPerBase);
+    }
+}
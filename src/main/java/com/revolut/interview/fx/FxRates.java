@@ -0,0 +1,131 @@
+package com.revolut.interview.fx;
+
+import com.revolut.interview.execption.InvalidAmountException;
+import com.revolut.interview.execption.UnsupportedCurrencyException;
+import com.revolut.interview.model.MinorUnits;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One immutable version of the FX rate table. Rates are given as units of each currency per
+ * one unit of the base currency; the cross rate of every pair is computed once, when the
+ * snapshot is built, and kept in a square array. A currency finds its row through its ISO 4217
+ * numeric code, so {@link #rate} is two array reads and allocates nothing.
+ *
+ * <p>{@link #convert} rounds down to the target currency's minor unit, so a conversion never
+ * credits more than the debit is worth. Accounts without a currency predate multi-currency
+ * support: money moves between two of them unconverted, but never between one of them and an
+ * account with a currency.
+ */
+public final class FxRates {
+
+    private static final int         NUMERIC_CODES = 1000;
+    private static final MathContext PRECISION     = MathContext.DECIMAL64;
+
+    private final long                      version;
+    private final Currency                  base;
+    private final Map<Currency, BigDecimal> ratesPerBase;
+    private final Currency[]                currencies;
+    private final int[]                     indexes;
+    private final BigDecimal[]              crossRates;
+
+    private FxRates(final long version, final Currency base, final Map<Currency, BigDecimal> ratesPerBase) {
+        this.version = version;
+        this.base = base;
+        this.ratesPerBase = Collections.unmodifiableMap(ratesPerBase);
+        this.currencies = ratesPerBase.keySet().toArray(new Currency[0]);
+        this.indexes = new int[NUMERIC_CODES];
+        final BigDecimal[] rates = ratesPerBase.values().toArray(new BigDecimal[0]);
+        final int count = currencies.length;
+        for(int i = 0; i < count; i++) {
+            final int code = currencies[i].getNumericCode();
+            if(code <= 0 || code >= NUMERIC_CODES || indexes[code] != 0) {
+                throw new IllegalArgumentException(String.format("Currency %s has no usable numeric code", currencies[i]));
+            }
+            indexes[code] = i + 1;
+        }
+        this.crossRates = new BigDecimal[count * count];
+        for(int from = 0; from < count; from++) {
+            for(int to = 0; to < count; to++) {
+                crossRates[from * count + to] = from == to ? BigDecimal.ONE : rates[to].divide(rates[from], PRECISION);
+            }
+        }
+    }
+
+    public static FxRates empty() {
+        return new FxRates(0, null, new LinkedHashMap<>());
+    }
+
+    /**
+     * Builds a snapshot from rates per one unit of {@code base}; the base itself is added at
+     * a rate of one if missing.
+     */
+    public static FxRates of(final long version, final Currency base, final Map<Currency, BigDecimal> ratesPerBase) {
+        final Map<Currency, BigDecimal> rates = new LinkedHashMap<>();
+        rates.put(base, BigDecimal.ONE);
+        ratesPerBase.forEach((currency, rate) -> {
+            if(rate == null || rate.signum() <= 0) {
+                throw new IllegalArgumentException(String.format("Rate for %s must be positive: %s", currency, rate));
+            }
+            if(!currency.equals(base)) {
+                rates.put(currency, rate);
+            }
+        });
+        return new FxRates(version, base, rates);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Currency getBase() {
+        return base;
+    }
+
+    public Map<Currency, BigDecimal> getRatesPerBase() {
+        return ratesPerBase;
+    }
+
+    /**
+     * Units of {@code to} bought by one unit of {@code from}.
+     */
+    public BigDecimal rate(final Currency from, final Currency to) {
+        final int count = currencies.length;
+        return crossRates[indexOf(from) * count + indexOf(to)];
+    }
+
+    /**
+     * {@code amount} of {@code from} expressed in {@code to}.
+     *
+     * @throws UnsupportedCurrencyException if only one side has a currency
+     * @throws InvalidAmountException if the amount is finer than the minor unit of {@code from}
+     */
+    public BigDecimal convert(final BigDecimal amount, final Currency from, final Currency to) {
+        if(from == null && to == null || from != null && from.equals(to)) {
+            return amount;
+        }
+        if(from == null || to == null) {
+            throw new UnsupportedCurrencyException(String.format("Cannot convert between %s and %s: an account without a currency only "
+                                                                 + "exchanges money with accounts without one", from, to));
+        }
+        if(amount.stripTrailingZeros().scale() > MinorUnits.fractionDigits(from)) {
+            throw new InvalidAmountException(String.format("Amount %s cannot be represented exactly in %s", amount.toPlainString(), from));
+        }
+        return amount.multiply(rate(from, to)).setScale(MinorUnits.fractionDigits(to), RoundingMode.DOWN);
+    }
+
+    private int indexOf(final Currency currency) {
+        final int code = currency.getNumericCode();
+        final int index = code > 0 && code < NUMERIC_CODES ? indexes[code] - 1 : -1;
+        if(index < 0) {
+            throw new UnsupportedCurrencyException(String.format("No FX rate for currency %s in rate table version %s", currency, version));
+        }
+        return index;
+    }
+}
@@ -0,0 +1,235 @@
+package com.revolut.interview.hold;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Runs tasks after a delay, to within one tick, at a constant cost per task however many are
+ * waiting. Tasks hang in a ring of {@code wheelSize} buckets that one thread visits a bucket per
+ * tick; a task due more than a turn of the wheel away waits out the remaining turns in its
+ * bucket. Scheduling and cancelling only queue the request for that thread, so neither waits
+ * for it, and a cancelled task is unlinked on the next tick rather than left until its deadline.
+ *
+ * <p>Expired tasks run on the wheel's thread and should be short. The thread starts with the
+ * first task scheduled.
+ */
+public class HashedTimingWheel implements Closeable {
+
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final long          tickNanos;
+    private final long          startNanos;
+    private final Bucket[]      wheel;
+    private final int           mask;
+    private final Thread        thread;
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean closed;
+
+    private static final Logger logger = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    /**
+     * @param wheelSize rounded up to a power of two
+     */
+    public HashedTimingWheel(final String name, final long tickMillis, final int wheelSize) {
+        if(tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException(String.format("Tick (%s ms) and wheel size (%s) must be positive", tickMillis, wheelSize));
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.startNanos = System.nanoTime();
+        int size = 1;
+        while(size < wheelSize) {
+            size <<= 1;
+        }
+        this.wheel = new Bucket[size];
+        for(int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheel.length - 1;
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+    }
+
+    public Timeout schedule(final Runnable task, final long delayMillis) {
+        if(closed) {
+            throw new IllegalStateException("Timing wheel is closed");
+        }
+        final Timeout timeout = new Timeout(this, task, System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis)));
+        scheduled.add(timeout);
+        if(started.compareAndSet(false, true)) {
+            thread.start();
+        }
+        return timeout;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        if(started.get()) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        // Ticks before the first task had nothing to expire
+        long tick = (System.nanoTime() - startNanos) / tickNanos;
+        while(!closed) {
+            final long deadline = (tick + 1) * tickNanos;
+            final long sleepNanos = deadline - (System.nanoTime() - startNanos);
+            if(sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException ex) {
+                    if(closed) {
+                        return;
+                    }
+                }
+                continue;
+            }
+            unlinkCancelled();
+            placeScheduled(tick);
+            wheel[(int) (tick & mask)].expire(deadline);
+            tick++;
+        }
+    }
+
+    private void placeScheduled(final long tick) {
+        for(int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            final Timeout timeout = scheduled.poll();
+            if(timeout == null) {
+                return;
+            }
+            if(timeout.state != Timeout.PENDING) {
+                continue;
+            }
+            final long dueTick = Math.max(timeout.deadlineNanos / tickNanos, tick);
+            timeout.remainingRounds = (dueTick - tick) / wheel.length;
+            wheel[(int) (dueTick & mask)].add(timeout);
+        }
+    }
+
+    private void unlinkCancelled() {
+        Timeout timeout;
+        while((timeout = cancelled.poll()) != null) {
+            if(timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * A task waiting in the wheel.
+     */
+    public static final class Timeout {
+
+        private static final int PENDING   = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED   = 2;
+
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final HashedTimingWheel owner;
+        private final Runnable          task;
+        private final long              deadlineNanos;
+
+        private volatile int state = PENDING;
+
+        // Only touched by the wheel's thread
+        private long    remainingRounds;
+        private Bucket  bucket;
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(final HashedTimingWheel owner, final Runnable task, final long deadlineNanos) {
+            this.owner = owner;
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Returns false if the task has already run or been cancelled.
+         */
+        public boolean cancel() {
+            if(!STATE.compareAndSet(this, PENDING, CANCELLED)) {
+                return false;
+            }
+            owner.cancelled.add(this);
+            return true;
+        }
+
+        private void expire() {
+            if(!STATE.compareAndSet(this, PENDING, EXPIRED)) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                logger.warn("Timed task failed", ex);
+            }
+        }
+    }
+
+    private static final class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        void add(final Timeout timeout) {
+            timeout.bucket = this;
+            if(head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.previous = tail;
+                tail = timeout;
+            }
+        }
+
+        void expire(final long deadlineNanos) {
+            Timeout timeout = head;
+            while(timeout != null) {
+                final Timeout next = timeout.next;
+                if(timeout.state == Timeout.CANCELLED) {
+                    remove(timeout);
+                } else if(timeout.remainingRounds <= 0 && timeout.deadlineNanos <= deadlineNanos) {
+                    remove(timeout);
+                    timeout.expire();
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(final Timeout timeout) {
+            if(timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if(timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            } else {
+                tail = timeout.previous;
+            }
+            timeout.previous = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.revolut.interview.hold;
+
+import com.revolut.interview.execption.InvalidAmountException;
+import com.revolut.interview.execption.InvalidRequestException;
+import com.revolut.interview.execption.OperationNotSupportedException;
+import com.revolut.interview.model.Hold;
+import com.revolut.interview.uuid.UuidMap;
+
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Outstanding holds by id and by account, each with its expiry waiting in a
+ * {@link HashedTimingWheel}. The book does no locking of its own: the engine changes an
+ * account's holds only under that account's write lock and reads them under its read lock.
+ *
+ * <p>Holds are kept in memory, like the ledger. They are not journaled or replicated, so a
+ * restart or a failover would release them while the balances they guard survive; a book built
+ * with a {@code refusal} turns every new hold away with it instead.
+ */
+public class HoldBook implements Closeable {
+
+    public static final long DEFAULT_TICK_MILLIS        = 100;
+    public static final int  DEFAULT_WHEEL_SIZE         = 512;
+    public static final long DEFAULT_MAX_EXPIRY_SECONDS = TimeUnit.DAYS.toSeconds(30);
+
+    private final HashedTimingWheel expiries;
+    private final long              maxExpirySeconds;
+    private final Clock             clock;
+    private final String            refusal;
+
+    private volatile UuidMap<Entry>      holds     = new UuidMap<>();
+    private volatile UuidMap<List<Hold>> byAccount = new UuidMap<>();
+
+    public HoldBook() {
+        this(DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE, DEFAULT_MAX_EXPIRY_SECONDS, Clock.systemUTC());
+    }
+
+    public HoldBook(final long tickMillis, final int wheelSize, final long maxExpirySeconds, final Clock clock) {
+        this(tickMillis, wheelSize, maxExpirySeconds, clock, null);
+    }
+
+    /**
+     * @param refusal why holds cannot be placed, or null to take them
+     */
+    public HoldBook(final long tickMillis, final int wheelSize, final long maxExpirySeconds, final Clock clock, final String refusal) {
+        this.expiries = new HashedTimingWheel("hold-expiry", tickMillis, wheelSize);
+        this.maxExpirySeconds = maxExpirySeconds;
+        this.clock = clock;
+        this.refusal = refusal;
+    }
+
+    /**
+     * Records a hold on the account and arranges for {@code onExpiry} to be called with it once
+     * it expires, unless it is removed first.
+     */
+    public Hold place(final UUID accountId, final BigDecimal amount, final long expirySeconds, final Consumer<Hold> onExpiry) {
+        if(refusal != null) {
+            throw new OperationNotSupportedException(refusal);
+        }
+        if(amount == null || amount.signum() <= 0) {
+            throw new InvalidAmountException(String.format("Hold amount must be positive: %s", amount));
+        }
+        if(expirySeconds <= 0 || expirySeconds > maxExpirySeconds) {
+            throw new InvalidRequestException(String.format("expirySeconds must be between 1 and %s: %s", maxExpirySeconds, expirySeconds));
+        }
+        final long now = clock.millis();
+        final Hold hold = Hold.builder()
+                              .holdId(UUID.randomUUID())
+                              .accountId(accountId)
+                              .amount(amount)
+                              .createdAt(now)
+                              .expiresAt(now + TimeUnit.SECONDS.toMillis(expirySeconds))
+                              .build();
+        final Entry entry = new Entry(hold);
+        holds.put(hold.getHoldId(), entry);
+        final List<Hold> accountHolds = byAccount.get(accountId);
+        if(accountHolds == null) {
+            byAccount.put(accountId, new ArrayList<>(Collections.singletonList(hold)));
+        } else {
+            accountHolds.add(hold);
+        }
+        entry.timeout = expiries.schedule(() -> onExpiry.accept(hold), TimeUnit.SECONDS.toMillis(expirySeconds));
+        return hold;
+    }
+
+    public Hold get(final UUID holdId) {
+        final Entry entry = holds.get(holdId);
+        return entry == null ? null : entry.hold;
+    }
+
+    /**
+     * Forgets the hold and cancels its expiry. Returns false if it had already been captured,
+     * released or expired.
+     */
+    public boolean remove(final Hold hold) {
+        final Entry entry = holds.get(hold.getHoldId());
+        if(entry == null || entry.hold != hold || !holds.remove(hold.getHoldId(), entry)) {
+            return false;
+        }
+        final List<Hold> accountHolds = byAccount.get(hold.getAccountId());
+        if(accountHolds != null) {
+            accountHolds.remove(hold);
+            if(accountHolds.isEmpty()) {
+                byAccount.remove(hold.getAccountId(), accountHolds);
+            }
+        }
+        if(entry.timeout != null) {
+            entry.timeout.cancel();
+        }
+        return true;
+    }
+
+    public BigDecimal heldOn(final UUID accountId) {
+        final List<Hold> accountHolds = byAccount.get(accountId);
+        if(accountHolds == null) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal held = BigDecimal.ZERO;
+        for(final Hold hold : accountHolds) {
+            held = held.add(hold.getAmount());
+        }
+        return held;
+    }
+
+    public List<Hold> holdsOf(final UUID accountId) {
+        final List<Hold> accountHolds = byAccount.get(accountId);
+        return accountHolds == null ? Collections.emptyList() : new ArrayList<>(accountHolds);
+    }
+
+    /**
+     * Releases every hold on an account that is being deleted.
+     */
+    public void removeAll(final UUID accountId) {
+        holdsOf(accountId).forEach(this::remove);
+    }
+
+    public void clear() {
+        final UuidMap<Entry> cleared = holds;
+        holds = new UuidMap<>();
+        byAccount = new UuidMap<>();
+        cleared.forEach(entry -> {
+            if(entry.timeout != null) {
+                entry.timeout.cancel();
+            }
+        });
+    }
+
+    public int size() {
+        return holds.size();
+    }
+
+    @Override
+    public void close() {
+        expiries.close();
+    }
+
+    private static final class Entry {
+
+        private final Hold hold;
+
+        private volatile HashedTimingWheel.Timeout timeout;
+
+        private Entry(final Hold hold) {
+            this.hold = hold;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.revolut.interview.idempotency;
+
+import com.revolut.interview.execption.IdempotencyKeyReusedException;
+import com.revolut.interview.response.CacheStats;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the outcome of each operation by its idempotency key, so that a retried request
+ * gets the original result back instead of running again. A retry that arrives while the
+ * original is still running waits for it.
+ *
+ * <p>Failures are remembered only when {@code isFinal} accepts them, i.e. when running the
+ * same request again would fail the same way; after any other failure the key is forgotten
+ * and a retry runs again.
+ *
+ * <p>Keys are spread over independently locked shards. Each shard is an LRU map holding its
+ * share of {@code maxEntries}; entries expire {@code ttl} after they complete and are dropped
+ * when they are next looked up or pushed out by newer keys. Keys still in flight are never
+ * pushed out.
+ */
+public class IdempotencyCache {
+
+    private static final long IN_FLIGHT = Long.MAX_VALUE;
+
+    private final Shard[]                     shards;
+    private final long                        ttlNanos;
+    private final Predicate<RuntimeException> isFinal;
+    private final LongAdder                   hits      = new LongAdder();
+    private final LongAdder                   misses    = new LongAdder();
+    private final LongAdder                   evictions = new LongAdder();
+
+    public IdempotencyCache(final int shardCount, final int maxEntries, final long ttlSeconds,
+                            final Predicate<RuntimeException> isFinal) {
+        if(shardCount <= 0 || Integer.bitCount(shardCount) != 1 || maxEntries < shardCount || ttlSeconds <= 0) {
+            throw new IllegalArgumentException(String.format("Idempotency cache needs a power of two shards, at least one entry per shard and a positive TTL: %s, %s, %s",
+                                                             shardCount, maxEntries, ttlSeconds));
+        }
+        this.shards = new Shard[shardCount];
+        for(int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(maxEntries / shardCount);
+        }
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.isFinal = isFinal;
+    }
+
+    /**
+     * Runs the operation once per key and returns its result, or rethrows its failure, to
+     * every call with that key. A key that comes back with a different request is rejected.
+     */
+    public <T> T execute(final String key, final Object request, final Supplier<T> operation) {
+        final Shard shard = shards[spread(key.hashCode()) & (shards.length - 1)];
+        final Entry entry;
+        final boolean owner;
+        synchronized (shard) {
+            final Entry existing = shard.get(key);
+            owner = existing == null || existing.isExpired(System.nanoTime());
+            entry = owner ? new Entry(request) : existing;
+            if(owner) {
+                shard.put(key, entry);
+            }
+        }
+        if(!owner) {
+            hits.increment();
+            if(!Objects.equals(entry.request, request)) {
+                throw new IdempotencyKeyReusedException(String.format("Idempotency key was already used for a different request: %s", key));
+            }
+            return await(entry);
+        }
+        misses.increment();
+        try {
+            final T value = operation.get();
+            entry.expiresAt = System.nanoTime() + ttlNanos;
+            entry.result.complete(value);
+            return value;
+        } catch (RuntimeException ex) {
+            if(isFinal.test(ex)) {
+                entry.expiresAt = System.nanoTime() + ttlNanos;
+            } else {
+                forget(shard, key, entry);
+            }
+            entry.result.completeExceptionally(ex);
+            throw ex;
+        } catch (Error error) {
+            forget(shard, key, entry);
+            entry.result.completeExceptionally(error);
+            throw error;
+        }
+    }
+
+    public CacheStats stats() {
+        long size = 0;
+        for(final Shard shard : shards) {
+            synchronized (shard) {
+                size += shard.size();
+            }
+        }
+        return CacheStats.builder()
+                         .hits(hits.sum())
+                         .misses(misses.sum())
+                         .evictions(evictions.sum())
+                         .size(size)
+                         .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T await(final Entry entry) {
+        try {
+            return (T) entry.result.join();
+        } catch (CompletionException ex) {
+            if(ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw (RuntimeException) ex.getCause();
+        }
+    }
+
+    private static void forget(final Shard shard, final String key, final Entry entry) {
+        synchronized (shard) {
+            shard.remove(key, entry);
+        }
+    }
+
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Entry {
+
+        private final Object                    request;
+        private final CompletableFuture<Object> result    = new CompletableFuture<>();
+        private volatile long                   expiresAt = IN_FLIGHT;
+
+        private Entry(final Object request) {
+            this.request = request;
+        }
+
+        private boolean isExpired(final long now) {
+            final long deadline = expiresAt;
+            return deadline != IN_FLIGHT && now - deadline > 0;
+        }
+    }
+
+    private final class Shard extends LinkedHashMap<String, Entry> {
+
+        private final int capacity;
+
+        private Shard(final int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        /**
+         * Drops the least recently used completed entry. An entry still in flight is never
+         * dropped, or a retry would run the operation a second time; a shard full of them
+         * grows past its capacity until they complete.
+         */
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+            if(size() <= capacity) {
+                return false;
+            }
+            final Iterator<Entry> entries = values().iterator();
+            while(entries.hasNext()) {
+                if(entries.next().expiresAt != IN_FLIGHT) {
+                    entries.remove();
+                    evictions.increment();
+                    return false;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -1,16 +1,325 @@
 package com.revolut.interview.injector;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.Provider;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.google.inject.name.Names;
 
+import com.revolut.interview.admission.AdaptiveConcurrencyLimit;
+import com.revolut.interview.admission.ClientQuotas;
+import com.revolut.interview.audit.AuditLog;
+import com.revolut.interview.cluster.ClusterClient;
+import com.revolut.interview.cluster.ClusterMembership;
+import com.revolut.interview.cluster.ClusterTransfers;
+import com.revolut.interview.cluster.TransferLog;
+import com.revolut.interview.config.ServiceConfig;
+import com.revolut.interview.execption.AccountNotExistsException;
+import com.revolut.interview.execption.HoldNotExistsException;
+import com.revolut.interview.execption.InsufficientBalanceException;
+import com.revolut.interview.execption.InvalidAmountException;
+import com.revolut.interview.execption.ReplicationTimeoutException;
+import com.revolut.interview.fx.FxRateTable;
+import com.revolut.interview.hold.HoldBook;
+import com.revolut.interview.idempotency.IdempotencyCache;
+import com.revolut.interview.journal.SnapshotStore;
+import com.revolut.interview.journal.WriteAheadJournal;
+import com.revolut.interview.ledger.TransactionLedger;
+import com.revolut.interview.lock.AccountLock;
+import com.revolut.interview.lock.GlobalAccountLock;
+import com.revolut.interview.lock.StripedAccountLock;
+import com.revolut.interview.lock.TimedAccountLock;
+import com.revolut.interview.metrics.MetricsRegistry;
+import com.revolut.interview.replication.ReplicationNode;
+import com.revolut.interview.replication.ReplicationRole;
 import com.revolut.interview.repository.AccountRepository;
 import com.revolut.interview.repository.AccountRepositoryImpl;
+import com.revolut.interview.repository.JournaledAccountRepository;
+import com.revolut.interview.repository.OffHeapAccountRepository;
+import com.revolut.interview.repository.ReplicatedAccountRepository;
+import com.revolut.interview.repository.StorageMode;
 import com.revolut.interview.service.AccountService;
 import com.revolut.interview.service.AccountServiceImpl;
+import com.revolut.interview.service.AdmissionControlledAccountService;
+import com.revolut.interview.service.ClusteredAccountService;
+import com.revolut.interview.service.InstrumentedAccountService;
+import com.revolut.interview.service.OptimisticAccountServiceImpl;
+import com.revolut.interview.service.ReplicatedAccountService;
+import com.revolut.interview.service.ServiceEngine;
+import com.revolut.interview.service.ShardedAccountServiceImpl;
+import com.revolut.interview.service.SingleWriterAccountServiceImpl;
+import com.revolut.interview.uuid.AccountIdGenerator;
+import com.revolut.interview.view.AccountViews;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
 
 public class ApplicationInjector extends AbstractModule {
+
+    private static final String ENGINE = "engine";
+
+    private static final String ADMITTED = "admitted";
+
+    private static final String LOCAL = "local";
+
+    private static final int MAX_QUOTA_CLIENTS = 100_000;
+
+    private static final int IDEMPOTENCY_SHARDS = 64;
+
+    private static final int LEDGER_PARTITIONS = 64;
+
+    private static final int CLUSTER_CONNECT_TIMEOUT_MILLIS = 1000;
+
+    private static final int CLUSTER_READ_TIMEOUT_MILLIS = 10000;
+
+    private static final long CLUSTER_RETRY_INTERVAL_MILLIS = 1000;
+
+    private final ServiceConfig serviceConfig;
+
+    public ApplicationInjector() {
+        this(ServiceConfig.fromSystemProperties());
+    }
+
+    public ApplicationInjector(final ServiceConfig serviceConfig) {
+        this.serviceConfig = serviceConfig;
+    }
+
     @Override
     protected void configure() {
-        bind(AccountRepository.class).to(AccountRepositoryImpl.class);
-        bind(AccountService.class).to(AccountServiceImpl.class);
+        bind(ServiceConfig.class).toInstance(serviceConfig);
+        bind(MetricsRegistry.class).in(Singleton.class);
+        bind(AccountViews.class).in(Singleton.class);
+        if(serviceConfig.getEngine() != ServiceEngine.LOCKING && serviceConfig.getJournalPath() != null && !serviceConfig.getJournalPath().isEmpty()) {
+            throw new IllegalStateException(String.format("The journal records the account repository, which the %s engine does not use; run the LOCKING engine or unset moneytransfer.journal.path",
+                                                          serviceConfig.getEngine()));
+        }
+        switch (serviceConfig.getEngine()) {
+            case OPTIMISTIC:
+                bind(AccountService.class).annotatedWith(Names.named(ENGINE)).to(OptimisticAccountServiceImpl.class).in(Singleton.class);
+                break;
+            case SINGLE_WRITER:
+                bind(AccountService.class).annotatedWith(Names.named(ENGINE)).to(SingleWriterAccountServiceImpl.class).in(Singleton.class);
+                break;
+            case SHARDED:
+                bind(AccountService.class).annotatedWith(Names.named(ENGINE)).to(ShardedAccountServiceImpl.class).in(Singleton.class);
+                break;
+            case LOCKING:
+            default:
+                bind(AccountService.class).annotatedWith(Names.named(ENGINE)).to(AccountServiceImpl.class).in(Singleton.class);
+        }
+    }
+
+    @Provides
+    @Singleton
+    AccountService provideAccountService(@Named(LOCAL) final AccountService local, final ClusterMembership clusterMembership,
+                                         final Provider<ClusterTransfers> clusterTransfers) {
+        if(!clusterMembership.isClustered()) {
+            return local;
+        }
+        return new ClusteredAccountService(local, clusterMembership, clusterTransfers.get());
+    }
+
+    @Provides
+    @Singleton
+    @Named(LOCAL)
+    AccountService provideLocalAccountService(@Named(ADMITTED) final AccountService admitted, final MetricsRegistry metricsRegistry,
+                                              final Provider<ReplicationNode> replicationNode) {
+        AccountService accountService = admitted;
+        // Replica acks are awaited outside the admission limit, which is meant for the engine's own work
+        if(isAwaitingReplicas()) {
+            accountService = new ReplicatedAccountService(accountService, replicationNode.get());
+        }
+        return new InstrumentedAccountService(accountService, metricsRegistry);
+    }
+
+    @Provides
+    @Singleton
+    @Named(ADMITTED)
+    AccountService provideAdmittedAccountService(@Named(ENGINE) final AccountService engine) {
+        if(serviceConfig.getAdmissionMaxLimit() <= 0) {
+            return engine;
+        }
+        return new AdmissionControlledAccountService(engine,
+                                                     new AdaptiveConcurrencyLimit(serviceConfig.getAdmissionMinLimit(),
+                                                                                  serviceConfig.getAdmissionMaxLimit(),
+                                                                                  serviceConfig.getAdmissionTargetLatencyMillis()));
+    }
+
+    @Provides
+    @Singleton
+    ClusterMembership provideClusterMembership() {
+        if(serviceConfig.getClusterConfigPath() == null || serviceConfig.getClusterConfigPath().isEmpty()) {
+            return ClusterMembership.standalone();
+        }
+        return ClusterMembership.load(Paths.get(serviceConfig.getClusterConfigPath()), serviceConfig.getClusterNodeId());
+    }
+
+    @Provides
+    @Singleton
+    AccountIdGenerator provideAccountIdGenerator(final ClusterMembership clusterMembership) {
+        return clusterMembership.localAccountIds();
+    }
+
+    @Provides
+    @Singleton
+    ClusterClient provideClusterClient(final ClusterMembership clusterMembership) {
+        return new ClusterClient(clusterMembership.getSelf().getId(), clusterMembership.getSecret(), CLUSTER_CONNECT_TIMEOUT_MILLIS, CLUSTER_READ_TIMEOUT_MILLIS);
+    }
+
+    @Provides
+    @Singleton
+    ClusterTransfers provideClusterTransfers(@Named(ENGINE) final AccountService engine, @Named(ADMITTED) final AccountService admitted,
+                                             final Provider<ReplicationNode> replicationNode, final ClusterMembership clusterMembership,
+                                             final ClusterClient clusterClient, final FxRateTable fxRateTable,
+                                             final MetricsRegistry metricsRegistry) {
+        final String transferLogPath = serviceConfig.getClusterTransferLogPath() == null || serviceConfig.getClusterTransferLogPath().isEmpty()
+                ? String.format("transfers-%s.log", clusterMembership.getSelf().getId())
+                : serviceConfig.getClusterTransferLogPath();
+        // The steps of a transfer are logged before replicas are awaited, so a replica timeout cannot pass for a step not taken
+        final Runnable awaitReplication = isAwaitingReplicas() ? replicationNode.get()::awaitReplication : () -> { };
+        final ClusterTransfers clusterTransfers = new ClusterTransfers(engine, admitted, awaitReplication, clusterMembership, clusterClient,
+                                                                       new TransferLog(Paths.get(transferLogPath)), fxRateTable,
+                                                                       CLUSTER_RETRY_INTERVAL_MILLIS,
+                                                                       TimeUnit.HOURS.toMillis(serviceConfig.getClusterCreditRetentionHours()),
+                                                                       Clock.systemUTC());
+        metricsRegistry.gauge("cluster_transfers_pending", "Cross-node transfers debited and waiting for their credit", clusterTransfers::pendingCount);
+        return clusterTransfers;
+    }
+
+    @Provides
+    @Singleton
+    ClientQuotas provideClientQuotas() {
+        return new ClientQuotas(serviceConfig.getClientQuotaPerSecond(), serviceConfig.getClientQuotaBurst(), MAX_QUOTA_CLIENTS);
+    }
+
+    @Provides
+    @Singleton
+    IdempotencyCache provideIdempotencyCache(final MetricsRegistry metricsRegistry) {
+        // Failures caused by the request itself are its outcome; anything else may pass on retry.
+        // A change that replicas did not confirm in time has still been made, so it is not made again
+        final IdempotencyCache idempotencyCache = new IdempotencyCache(IDEMPOTENCY_SHARDS,
+                                    serviceConfig.getIdempotencyMaxEntries(),
+                                    serviceConfig.getIdempotencyTtlSeconds(),
+                                    ex -> ex instanceof AccountNotExistsException
+                                          || ex instanceof HoldNotExistsException
+                                          || ex instanceof InsufficientBalanceException
+                                          || ex instanceof InvalidAmountException
+                                          || ex instanceof ReplicationTimeoutException);
+        metricsRegistry.gauge("idempotency_cache_hits_total", "Retries answered from the idempotency cache", () -> idempotencyCache.stats().getHits());
+        metricsRegistry.gauge("idempotency_cache_misses_total", "Idempotent requests that ran", () -> idempotencyCache.stats().getMisses());
+        metricsRegistry.gauge("idempotency_cache_evictions_total", "Idempotency keys forgotten to stay within capacity", () -> idempotencyCache.stats().getEvictions());
+        metricsRegistry.gauge("idempotency_cache_size", "Idempotency keys remembered", () -> idempotencyCache.stats().getSize());
+        return idempotencyCache;
+    }
+
+    @Provides
+    @Singleton
+    HoldBook provideHoldBook(final MetricsRegistry metricsRegistry) {
+        // Holds live in memory only, so they would vanish on a restart or failover that the balances survive
+        String refusal = null;
+        if(serviceConfig.getJournalPath() != null && !serviceConfig.getJournalPath().isEmpty()) {
+            refusal = "Holds are not journaled; unset moneytransfer.journal.path to take them";
+        } else if(serviceConfig.getReplicationRole() != ReplicationRole.NONE) {
+            refusal = "Holds are not replicated; run without moneytransfer.replication.role to take them";
+        }
+        final HoldBook holdBook = new HoldBook(serviceConfig.getHoldTickMillis(), serviceConfig.getHoldWheelSize(),
+                                               serviceConfig.getHoldMaxExpirySeconds(), Clock.systemUTC(), refusal);
+        metricsRegistry.gauge("holds_outstanding", "Holds placed and not yet captured, released or expired", holdBook::size);
+        return holdBook;
+    }
+
+    @Provides
+    @Singleton
+    TransactionLedger provideTransactionLedger(final MetricsRegistry metricsRegistry) {
+        final TransactionLedger transactionLedger = new TransactionLedger(LEDGER_PARTITIONS, serviceConfig.isLedgerEnabled(), Clock.systemUTC());
+        metricsRegistry.gauge("ledger_entries", "Entries in the transaction ledger", transactionLedger::size);
+        return transactionLedger;
+    }
+
+    @Provides
+    @Singleton
+    FxRateTable provideFxRateTable(final MetricsRegistry metricsRegistry) {
+        final FxRateTable fxRateTable = new FxRateTable();
+        if(serviceConfig.getFxRatesPath() != null && !serviceConfig.getFxRatesPath().isEmpty()) {
+            fxRateTable.load(Paths.get(serviceConfig.getFxRatesPath()));
+        }
+        metricsRegistry.gauge("fx_rates_version", "Version of the FX rate table in use", () -> fxRateTable.current().getVersion());
+        return fxRateTable;
+    }
+
+    @Provides
+    @Singleton
+    ReplicationNode provideReplicationNode(final ReplicatedAccountRepository accountRepository, final AccountViews accountViews,
+                                           final MetricsRegistry metricsRegistry) {
+        if(serviceConfig.getEngine() != ServiceEngine.LOCKING) {
+            throw new IllegalStateException(String.format("Replication ships the account repository, which the %s engine does not use; run the LOCKING engine",
+                                                          serviceConfig.getEngine()));
+        }
+        final ReplicationNode replicationNode = new ReplicationNode(accountRepository, accountViews, serviceConfig);
+        replicationNode.start();
+        metricsRegistry.gauge("replication_lsn", "Last change published by the primary or applied by the replica", () -> replicationNode.status().getLsn());
+        metricsRegistry.gauge("replication_replicas", "Replicas connected to the primary", () -> replicationNode.status().getReplicaLsns().size());
+        metricsRegistry.gauge("replication_staleness_seconds", "How far the replica may be behind the primary", () -> {
+            final Long stalenessMillis = replicationNode.status().getStalenessMillis();
+            return stalenessMillis == null ? 0 : stalenessMillis / 1000.0;
+        });
+        return replicationNode;
+    }
+
+    @Provides
+    @Singleton
+    ReplicatedAccountRepository provideReplicatedAccountRepository() {
+        return new ReplicatedAccountRepository(createAccountStore());
+    }
+
+    @Provides
+    @Singleton
+    AccountRepository provideAccountRepository(final Provider<ReplicatedAccountRepository> replicatedAccountRepository) {
+        if(serviceConfig.getReplicationRole() != ReplicationRole.NONE) {
+            return replicatedAccountRepository.get();
+        }
+        return createAccountStore();
+    }
+
+    private AccountRepository createAccountStore() {
+        final AccountRepository store = serviceConfig.getStorageMode() == StorageMode.OFF_HEAP
+                ? new OffHeapAccountRepository()
+                : new AccountRepositoryImpl();
+        if(serviceConfig.getJournalPath() == null || serviceConfig.getJournalPath().isEmpty()) {
+            return store;
+        }
+        final Path journalPath = Paths.get(serviceConfig.getJournalPath());
+        final JournaledAccountRepository accountRepository = new JournaledAccountRepository(store,
+                                                                                            new WriteAheadJournal(journalPath),
+                                                                                            new SnapshotStore(journalPath));
+        if(serviceConfig.getSnapshotIntervalSeconds() > 0) {
+            accountRepository.scheduleSnapshots(serviceConfig.getSnapshotIntervalSeconds());
+        }
+        return accountRepository;
+    }
+
+    @Provides
+    @Singleton
+    AccountLock provideAccountLock(final MetricsRegistry metricsRegistry) {
+        switch (serviceConfig.getLockMode()) {
+            case GLOBAL:
+                return new TimedAccountLock(new GlobalAccountLock(), metricsRegistry);
+            case STRIPED:
+            default:
+                return new TimedAccountLock(new StripedAccountLock(serviceConfig.getLockStripes()), metricsRegistry);
+        }
+    }
+
+    @Provides
+    @Singleton
+    AuditLog provideAuditLog() {
+        return new AuditLog(serviceConfig.getAuditSampleRate());
+    }
+
+    private boolean isAwaitingReplicas() {
+        return serviceConfig.getReplicationRole() != ReplicationRole.NONE && serviceConfig.getReplicationAcks() > 0;
     }
 }
@@ -0,0 +1,200 @@
+package com.revolut.interview.journal;
+
+import com.revolut.interview.execption.JournalException;
+import com.revolut.interview.model.Account;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Binary frame of a {@link JournalEntry}:
+ * <pre>
+ * int length | long lsn | payload (length bytes) | int crc32(lsn, payload)
+ * </pre>
+ * A frame that is cut short or fails its checksum marks the end of the readable journal.
+ * The account encoding is shared with {@link SnapshotStore}.
+ */
+public final class JournalCodec {
+
+    static final int  HEADER_SIZE  = Integer.BYTES + Long.BYTES;
+    static final int  TRAILER_SIZE = Integer.BYTES;
+    static final int  MAX_PAYLOAD  = 64 * 1024 * 1024;
+
+    private JournalCodec() {
+    }
+
+    public static ByteBuffer encode(final long lsn, final List<JournalRecord> records) {
+        return frame(lsn, encodePayload(records));
+    }
+
+    /**
+     * Encodes the records on their own, so that a caller can do the work before it knows the
+     * entry's LSN and then {@link #frame} them.
+     */
+    public static byte[] encodePayload(final List<JournalRecord> records) {
+        final byte[] payload = encodeRecords(records);
+        if(payload.length > MAX_PAYLOAD) {
+            throw new JournalException(String.format("Journal entry of %s bytes exceeds the limit of %s", payload.length, MAX_PAYLOAD));
+        }
+        return payload;
+    }
+
+    public static ByteBuffer frame(final long lsn, final byte[] payload) {
+        final ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + payload.length + TRAILER_SIZE);
+        frame.putInt(payload.length).putLong(lsn).put(payload);
+        frame.putInt(checksum(frame.array(), Integer.BYTES, Long.BYTES + payload.length));
+        frame.flip();
+        return frame;
+    }
+
+    /**
+     * Decodes the frame at the buffer position and moves past it. Returns {@code null}, with the
+     * position unchanged, if no complete and intact frame starts there.
+     */
+    public static JournalEntry decode(final ByteBuffer buffer) {
+        final int start = buffer.position();
+        if(buffer.remaining() < HEADER_SIZE + TRAILER_SIZE) {
+            return null;
+        }
+        final int length = buffer.getInt(start);
+        if(length < 0 || length > MAX_PAYLOAD || buffer.remaining() < HEADER_SIZE + length + TRAILER_SIZE) {
+            return null;
+        }
+        final byte[] checked = new byte[Long.BYTES + length];
+        buffer.position(start + Integer.BYTES);
+        buffer.get(checked);
+        final int crc = buffer.getInt();
+        if(crc != checksum(checked, 0, checked.length)) {
+            buffer.position(start);
+            return null;
+        }
+        final ByteBuffer payload = ByteBuffer.wrap(checked);
+        final long lsn = payload.getLong();
+        return JournalEntry.builder()
+                           .lsn(lsn)
+                           .records(decodeRecords(payload))
+                           .build();
+    }
+
+    /**
+     * Reads the next frame from a stream. Unlike {@link #decode}, a damaged frame is an error
+     * rather than the end of the data: a stream has no torn tail.
+     */
+    public static JournalEntry read(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if(length < 0 || length > MAX_PAYLOAD) {
+            throw new IOException(String.format("Frame length %s is out of range", length));
+        }
+        final ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + length + TRAILER_SIZE);
+        frame.putInt(length);
+        in.readFully(frame.array(), Integer.BYTES, frame.capacity() - Integer.BYTES);
+        frame.rewind();
+        final JournalEntry entry = decode(frame);
+        if(entry == null) {
+            throw new IOException("Frame failed its checksum");
+        }
+        return entry;
+    }
+
+    static void writeAccount(final DataOutputStream out, final Account account) throws IOException {
+        out.writeLong(account.getId().getMostSignificantBits());
+        out.writeLong(account.getId().getLeastSignificantBits());
+        writeAccountFields(out, account);
+    }
+
+    static Account readAccount(final ByteBuffer in) {
+        return readAccountFields(in, new UUID(in.getLong(), in.getLong()));
+    }
+
+    static int checksum(final byte[] bytes, final int offset, final int length) {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encodeRecords(final List<JournalRecord> records) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * records.size());
+        try(DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(records.size());
+            for(final JournalRecord record : records) {
+                out.writeByte(record.getType().ordinal());
+                out.writeLong(record.getAccountId().getMostSignificantBits());
+                out.writeLong(record.getAccountId().getLeastSignificantBits());
+                if(record.getType() == JournalRecord.Type.PUT) {
+                    writeAccountFields(out, record.getAccount());
+                }
+            }
+        } catch (IOException ex) {
+            throw new JournalException("Could not encode journal entry", ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<JournalRecord> decodeRecords(final ByteBuffer in) {
+        try {
+            final int count = in.getInt();
+            final List<JournalRecord> records = new ArrayList<>(count);
+            for(int i = 0; i < count; i++) {
+                final JournalRecord.Type type = JournalRecord.Type.values()[in.get()];
+                final UUID accountId = new UUID(in.getLong(), in.getLong());
+                records.add(type == JournalRecord.Type.DELETE
+                                    ? JournalRecord.delete(accountId)
+                                    : JournalRecord.put(readAccountFields(in, accountId)));
+            }
+            return records;
+        } catch (RuntimeException ex) {
+            throw new JournalException("Journal entry passed its checksum but could not be decoded", ex);
+        }
+    }
+
+    private static void writeAccountFields(final DataOutputStream out, final Account account) throws IOException {
+        writeString(out, account.getUserId());
+        writeString(out, account.getCurrencyCode() == null ? null : account.getCurrencyCode().getCurrencyCode());
+        writeString(out, account.getBalance() == null ? null : account.getBalance().toString());
+    }
+
+    private static Account readAccountFields(final ByteBuffer in, final UUID accountId) {
+        final String userId = readString(in);
+        final String currency = readString(in);
+        final String balance = readString(in);
+        return Account.builder()
+                      .id(accountId)
+                      .userId(userId)
+                      .currencyCode(currency == null ? null : Currency.getInstance(currency))
+                      .balance(balance == null ? null : new BigDecimal(balance))
+                      .build();
+    }
+
+    /**
+     * Length-prefixed UTF-8; a length of -1 stands for {@code null}.
+     */
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        if(value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final ByteBuffer in) {
+        final int length = in.getInt();
+        if(length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
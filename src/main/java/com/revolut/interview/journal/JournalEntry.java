@@ -0,0 +1,21 @@
+package com.revolut.interview.journal;
+
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * One atomic unit of the journal: every record of an entry is replayed, or none is.
+ */
+@Builder
+@Data
+@EqualsAndHashCode
+@ToString
+public class JournalEntry {
+
+    private long                lsn;
+    private List<JournalRecord> records;
+}
@@ -0,0 +1,41 @@
+package com.revolut.interview.journal;
+
+import com.revolut.interview.model.Account;
+
+import java.util.UUID;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+@Builder
+@Data
+@EqualsAndHashCode
+@ToString
+public class JournalRecord {
+
+    public enum Type {
+        PUT,
+        DELETE
+    }
+
+    private Type    type;
+    private UUID    accountId;
+    private Account account;
+
+    /**
+     * Accounts are mutable, so the record keeps its own copy of the state being saved.
+     */
+    public static JournalRecord put(final Account account) {
+        return JournalRecord.builder()
+                            .type(Type.PUT)
+                            .accountId(account.getId())
+                            .account(account.toBuilder().build())
+                            .build();
+    }
+
+    public static JournalRecord delete(final UUID accountId) {
+        return JournalRecord.builder().type(Type.DELETE).accountId(accountId).build();
+    }
+}
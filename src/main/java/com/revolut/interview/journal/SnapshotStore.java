@@ -0,0 +1,178 @@
+package com.revolut.interview.journal;
+
+import com.revolut.interview.execption.JournalException;
+import com.revolut.interview.model.Account;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary images of every account, each labelled with the journal LSN it is consistent with.
+ * <pre>
+ * int magic | int version | long lsn | (byte 1, account)* | byte 0 | int crc32(all before)
+ * </pre>
+ * A snapshot is written to a temporary file, synced and renamed, so a snapshot file that
+ * exists is complete. The newest one is loaded memory-mapped.
+ */
+public class SnapshotStore {
+
+    static final String SNAPSHOT_PREFIX = "snapshot-";
+    static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private static final int  MAGIC          = 0x534E4150;
+    private static final int  VERSION        = 1;
+    private static final byte ACCOUNT        = 1;
+    private static final byte END            = 0;
+    private static final int  BUFFER_SIZE    = 1 << 16;
+
+    private final Path directory;
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotStore.class);
+
+    public SnapshotStore(final Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new JournalException(String.format("Could not create snapshot directory: %s", directory), ex);
+        }
+    }
+
+    /**
+     * Writes the accounts as the snapshot for {@code lsn}. The collection may change while it is
+     * written; replaying the journal after {@code lsn} on top of it restores a consistent state.
+     */
+    public Path write(final long lsn, final Collection<Account> accounts) {
+        final Path snapshot = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, lsn, SNAPSHOT_SUFFIX));
+        final Path temporary = directory.resolve(snapshot.getFileName() + ".tmp");
+        try {
+            final CRC32 crc = new CRC32();
+            long written = 0;
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Files.newOutputStream(temporary), crc), BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(lsn);
+                for(final Account account : accounts) {
+                    out.writeByte(ACCOUNT);
+                    JournalCodec.writeAccount(out, account);
+                    written++;
+                }
+                out.writeByte(END);
+                out.flush();
+                out.writeInt((int) crc.getValue());
+            }
+            try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Wrote snapshot of {} accounts at lsn {} to {}", written, lsn, snapshot);
+            return snapshot;
+        } catch (IOException ex) {
+            throw new JournalException(String.format("Could not write snapshot: %s", snapshot), ex);
+        }
+    }
+
+    /**
+     * Feeds every account of the newest snapshot to the consumer and returns its LSN, or zero
+     * if there is no snapshot yet.
+     */
+    public long loadLatest(final Consumer<Account> consumer) {
+        final List<Path> snapshots = snapshots();
+        if(snapshots.isEmpty()) {
+            return 0;
+        }
+        final Path snapshot = snapshots.get(snapshots.size() - 1);
+        try(FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            if(channel.size() > Integer.MAX_VALUE) {
+                throw new JournalException(String.format("Snapshot is larger than 2 GB: %s", snapshot));
+            }
+            final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            verifyChecksum(snapshot, mapped);
+            if(mapped.getInt() != MAGIC || mapped.getInt() != VERSION) {
+                throw new JournalException(String.format("Not a version %s snapshot: %s", VERSION, snapshot));
+            }
+            final long lsn = mapped.getLong();
+            long loaded = 0;
+            while(mapped.get() == ACCOUNT) {
+                consumer.accept(JournalCodec.readAccount(mapped));
+                loaded++;
+            }
+            logger.info("Loaded snapshot of {} accounts at lsn {} from {}", loaded, lsn, snapshot);
+            return lsn;
+        } catch (IOException | RuntimeException ex) {
+            if(ex instanceof JournalException) {
+                throw (JournalException) ex;
+            }
+            throw new JournalException(String.format("Could not load snapshot: %s", snapshot), ex);
+        }
+    }
+
+    /**
+     * Deletes snapshots older than {@code lsn} and leftovers of interrupted writes.
+     */
+    public void deleteOlderThan(final long lsn) {
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*")) {
+            for(final Path file : stream) {
+                final String name = file.getFileName().toString();
+                if(!name.endsWith(SNAPSHOT_SUFFIX) || lsnOf(file) < lsn) {
+                    Files.delete(file);
+                }
+            }
+        } catch (IOException ex) {
+            throw new JournalException(String.format("Could not delete old snapshots in: %s", directory), ex);
+        }
+    }
+
+    private List<Path> snapshots() {
+        final List<Path> snapshots = new ArrayList<>();
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+            stream.forEach(snapshots::add);
+        } catch (IOException ex) {
+            throw new JournalException(String.format("Could not list snapshots: %s", directory), ex);
+        }
+        snapshots.sort((first, second) -> Long.compare(lsnOf(first), lsnOf(second)));
+        return snapshots;
+    }
+
+    private static long lsnOf(final Path snapshot) {
+        final String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    private static void verifyChecksum(final Path snapshot, final MappedByteBuffer mapped) {
+        final int checkedLength = mapped.limit() - Integer.BYTES;
+        if(checkedLength < 0) {
+            throw new JournalException(String.format("Truncated snapshot: %s", snapshot));
+        }
+        final CRC32 crc = new CRC32();
+        final byte[] chunk = new byte[BUFFER_SIZE];
+        mapped.position(0);
+        while(mapped.position() < checkedLength) {
+            final int length = Math.min(chunk.length, checkedLength - mapped.position());
+            mapped.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+        if(mapped.getInt() != (int) crc.getValue()) {
+            throw new JournalException(String.format("Snapshot failed its checksum: %s", snapshot));
+        }
+        mapped.position(0);
+    }
+}
@@ -0,0 +1,326 @@
+package com.revolut.interview.journal;
+
+import com.revolut.interview.execption.JournalException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Append-only journal written through a {@link FileChannel}. {@link #append} returns once
+ * the entry is on disk. Concurrent appenders share fsyncs (group commit): whichever thread
+ * finds no sync in progress becomes the leader and forces everything written so far, the
+ * others wait for a sync that covers their entry instead of issuing their own.
+ *
+ * <p>The journal is a sequence of segment files named after the first LSN they may hold.
+ * {@link #roll} starts a new segment so that older ones can be deleted once a snapshot
+ * covers them.
+ *
+ * <p>{@link #replay} must run once, before the first append; it stops at the first torn or
+ * corrupt frame of the newest segment and cuts the file there.
+ *
+ * <p>A failed write, sync or roll stops the journal: every later append, and every append still
+ * waiting for a sync, fails. An entry whose sync failed may still be in the segment, so no
+ * later sync may succeed and report entries after it durable while it was reported lost.
+ */
+public class WriteAheadJournal implements Closeable {
+
+    static final String SEGMENT_PREFIX = "journal-";
+    static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path          directory;
+    private final SegmentOpener segmentOpener;
+    private final Object        writeMonitor = new Object();
+    private final ReentrantLock syncLock     = new ReentrantLock();
+    private final Condition     synced       = syncLock.newCondition();
+
+    private volatile FileChannel channel;
+    private long                 nextLsn = 1;
+    private volatile boolean     failed;
+    private volatile long        writtenLsn;
+    private long                 durableLsn;
+    private boolean              syncing;
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadJournal.class);
+
+    public WriteAheadJournal(final Path directory) {
+        this(directory, segment -> FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE));
+    }
+
+    WriteAheadJournal(final Path directory, final SegmentOpener segmentOpener) {
+        this.directory = directory;
+        this.segmentOpener = segmentOpener;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new JournalException(String.format("Could not create journal directory: %s", directory), ex);
+        }
+    }
+
+    /**
+     * Feeds every intact entry after {@code afterLsn} to the consumer in log order, opens a new
+     * segment for appends and returns how many entries were replayed.
+     */
+    public long replay(final long afterLsn, final Consumer<JournalEntry> consumer) {
+        synchronized (writeMonitor) {
+            final List<Path> segments = segments();
+            long expectedLsn = afterLsn + 1;
+            for(int i = 0; i < segments.size(); i++) {
+                if(i + 1 < segments.size() && firstLsnOf(segments.get(i + 1)) <= afterLsn + 1) {
+                    continue;
+                }
+                expectedLsn = replaySegment(segments.get(i), i + 1 == segments.size(), afterLsn, expectedLsn, consumer);
+            }
+            nextLsn = expectedLsn;
+            writtenLsn = nextLsn - 1;
+            durableLsn = writtenLsn;
+            channel = openSegment(nextLsn);
+            logger.info("Replayed {} journal entries from {}", expectedLsn - afterLsn - 1, directory);
+            return expectedLsn - afterLsn - 1;
+        }
+    }
+
+    /**
+     * Appends the records as one entry and waits until it is durable.
+     */
+    public long append(final List<JournalRecord> records) {
+        final long lsn;
+        synchronized (writeMonitor) {
+            checkWritable();
+            lsn = nextLsn;
+            final ByteBuffer frame = JournalCodec.encode(lsn, records);
+            final long start = writePosition();
+            try {
+                while(frame.hasRemaining()) {
+                    channel.write(frame);
+                }
+            } catch (IOException ex) {
+                discardPartialWrite(start);
+                throw new JournalException(String.format("Could not append to journal: %s", directory), ex);
+            }
+            nextLsn++;
+            writtenLsn = lsn;
+        }
+        awaitDurable(lsn);
+        return lsn;
+    }
+
+    /**
+     * Syncs and closes the current segment, starts a new one and returns the last LSN written
+     * to the old segments.
+     */
+    public long roll() {
+        synchronized (writeMonitor) {
+            checkWritable();
+            syncLock.lock();
+            try {
+                while(syncing) {
+                    synced.awaitUninterruptibly();
+                }
+                syncing = true;
+            } finally {
+                syncLock.unlock();
+            }
+
+            final long lastLsn = nextLsn - 1;
+            boolean rolled = false;
+            try {
+                channel.force(false);
+                channel.close();
+                channel = openSegment(nextLsn);
+                rolled = true;
+            } catch (IOException ex) {
+                failed = true;
+                throw new JournalException(String.format("Could not roll journal segment: %s", directory), ex);
+            } finally {
+                syncLock.lock();
+                try {
+                    if(rolled) {
+                        durableLsn = Math.max(durableLsn, lastLsn);
+                    }
+                    syncing = false;
+                    synced.signalAll();
+                } finally {
+                    syncLock.unlock();
+                }
+            }
+            return lastLsn;
+        }
+    }
+
+    /**
+     * Deletes the segments that only hold entries up to {@code lsn}; the current segment is kept.
+     */
+    public int deleteSegmentsUpTo(final long lsn) {
+        final List<Path> segments = segments();
+        int deleted = 0;
+        for(int i = 0; i + 1 < segments.size(); i++) {
+            if(firstLsnOf(segments.get(i + 1)) > lsn + 1) {
+                break;
+            }
+            try {
+                Files.delete(segments.get(i));
+                deleted++;
+            } catch (IOException ex) {
+                throw new JournalException(String.format("Could not delete journal segment: %s", segments.get(i)), ex);
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public void close() {
+        synchronized (writeMonitor) {
+            if(channel == null || !channel.isOpen()) {
+                return;
+            }
+            try {
+                channel.force(true);
+                channel.close();
+            } catch (IOException ex) {
+                throw new JournalException(String.format("Could not close journal: %s", directory), ex);
+            }
+        }
+    }
+
+    private long replaySegment(final Path segment, final boolean newest, final long afterLsn, long expectedLsn,
+                               final Consumer<JournalEntry> consumer) {
+        try(FileChannel segmentChannel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final long size = segmentChannel.size();
+            final MappedByteBuffer mapped = segmentChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            JournalEntry entry;
+            while((entry = JournalCodec.decode(mapped)) != null) {
+                if(entry.getLsn() <= afterLsn) {
+                    continue;
+                }
+                if(entry.getLsn() != expectedLsn) {
+                    throw new JournalException(String.format("Journal entry %s found where %s was expected in %s", entry.getLsn(), expectedLsn, segment));
+                }
+                consumer.accept(entry);
+                expectedLsn++;
+            }
+            if(mapped.position() < size) {
+                if(!newest) {
+                    throw new JournalException(String.format("Corrupt journal segment: %s", segment));
+                }
+                logger.warn("Discarding {} bytes of torn or corrupt journal tail in {}", size - mapped.position(), segment);
+                segmentChannel.truncate(mapped.position());
+                segmentChannel.force(true);
+            }
+            return expectedLsn;
+        } catch (IOException ex) {
+            throw new JournalException(String.format("Could not replay journal segment: %s", segment), ex);
+        }
+    }
+
+    private void awaitDurable(final long lsn) {
+        syncLock.lock();
+        try {
+            while(durableLsn < lsn) {
+                if(failed) {
+                    throw new JournalException(String.format("Journal is unusable after a failed sync: %s", directory));
+                }
+                if(syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                final long target = writtenLsn;
+                final FileChannel syncChannel = channel;
+                syncLock.unlock();
+                boolean forced = false;
+                try {
+                    syncChannel.force(false);
+                    forced = true;
+                } catch (IOException ex) {
+                    throw new JournalException(String.format("Could not sync journal: %s", directory), ex);
+                } finally {
+                    syncLock.lock();
+                    if(!forced) {
+                        failed = true;
+                    }
+                    syncing = false;
+                    synced.signalAll();
+                }
+                durableLsn = Math.max(durableLsn, target);
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void checkWritable() {
+        if(channel == null) {
+            throw new IllegalStateException("Journal must be replayed before it is written");
+        }
+        if(failed) {
+            throw new JournalException(String.format("Journal is unusable after a failed write: %s", directory));
+        }
+    }
+
+    private FileChannel openSegment(final long firstLsn) {
+        final Path segment = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstLsn, SEGMENT_SUFFIX));
+        try {
+            final FileChannel segmentChannel = segmentOpener.open(segment);
+            segmentChannel.position(segmentChannel.size());
+            return segmentChannel;
+        } catch (IOException ex) {
+            throw new JournalException(String.format("Could not open journal segment: %s", segment), ex);
+        }
+    }
+
+    private List<Path> segments() {
+        final List<Path> segments = new ArrayList<>();
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(segments::add);
+        } catch (IOException ex) {
+            throw new JournalException(String.format("Could not list journal segments: %s", directory), ex);
+        }
+        segments.sort((first, second) -> Long.compare(firstLsnOf(first), firstLsnOf(second)));
+        return segments;
+    }
+
+    private static long firstLsnOf(final Path segment) {
+        final String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private long writePosition() {
+        try {
+            return channel.position();
+        } catch (IOException ex) {
+            throw new JournalException(String.format("Could not read journal position: %s", directory), ex);
+        }
+    }
+
+    private void discardPartialWrite(final long start) {
+        try {
+            channel.truncate(start);
+            channel.position(start);
+        } catch (IOException ex) {
+            failed = true;
+            logger.error("Could not discard partial journal write, journal is now read-only: {}", directory, ex);
+        }
+    }
+
+    /**
+     * Opens a segment for appends.
+     */
+    interface SegmentOpener {
+        FileChannel open(Path segment) throws IOException;
+    }
+}
@@ -0,0 +1,161 @@
+package com.revolut.interview.json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.revolut.interview.uuid.Uuids;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Currency;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import spark.Request;
+import spark.Response;
+
+/**
+ * The one Gson used by the API (Gson is thread-safe once built). Request bodies are parsed
+ * straight from the request stream and responses are streamed to the servlet output with a
+ * {@link JsonWriter}, so no intermediate strings or JSON trees are built.
+ */
+public final class JsonSupport {
+
+    public static final String CONTENT_TYPE = "application/json; charset=utf-8";
+    public static final String NDJSON_TYPE  = "application/x-ndjson";
+
+    public static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(UUID.class, new UuidAdapter().nullSafe())
+            .registerTypeAdapter(BigDecimal.class, new BigDecimalAdapter().nullSafe())
+            .registerTypeAdapter(Currency.class, new CurrencyAdapter().nullSafe())
+            .create();
+
+    private JsonSupport() {
+    }
+
+    public static <T> T read(final Request request, final Class<T> type) {
+        try(JsonReader reader = new JsonReader(new InputStreamReader(request.raw().getInputStream(), StandardCharsets.UTF_8))) {
+            return GSON.fromJson(reader, type);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Streams the value as the response body and returns the (empty) body Spark should send
+     * after it, so a route can end with {@code return JsonSupport.write(response, value);}.
+     */
+    public static String write(final Response response, final Object value) {
+        response.type(CONTENT_TYPE);
+        try {
+            final JsonWriter writer = new JsonWriter(new BufferedWriter(
+                    new OutputStreamWriter(response.raw().getOutputStream(), StandardCharsets.UTF_8)));
+            GSON.toJson(value, value.getClass(), writer);
+            writer.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return "";
+    }
+
+    /**
+     * Renders the value as {@link #write} would send it, for bodies that are cached and sent
+     * again with {@link #writeBytes}.
+     */
+    public static byte[] toBytes(final Object value) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try {
+            final JsonWriter writer = new JsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8));
+            GSON.toJson(value, value.getClass(), writer);
+            writer.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Sends an already rendered JSON body.
+     */
+    public static String writeBytes(final Response response, final byte[] body) {
+        response.type(CONTENT_TYPE);
+        try {
+            response.raw().getOutputStream().write(body);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return "";
+    }
+
+    /**
+     * Streams one JSON document per line (NDJSON) for every element the source hands over. Only
+     * the writer's buffer is held in memory; Jetty sends the body chunked as the buffer fills.
+     */
+    public static <T> String writeLines(final Response response, final Consumer<Consumer<T>> source) {
+        response.type(NDJSON_TYPE);
+        try {
+            final Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(response.raw().getOutputStream(), StandardCharsets.UTF_8));
+            source.accept(element -> {
+                try {
+                    GSON.toJson(element, writer);
+                    writer.write('\n');
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            writer.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return "";
+    }
+
+    private static final class UuidAdapter extends TypeAdapter<UUID> {
+
+        @Override
+        public void write(final JsonWriter out, final UUID value) throws IOException {
+            out.value(value.toString());
+        }
+
+        @Override
+        public UUID read(final JsonReader in) throws IOException {
+            return Uuids.parse(in.nextString());
+        }
+    }
+
+    private static final class BigDecimalAdapter extends TypeAdapter<BigDecimal> {
+
+        @Override
+        public void write(final JsonWriter out, final BigDecimal value) throws IOException {
+            out.value(value);
+        }
+
+        @Override
+        public BigDecimal read(final JsonReader in) throws IOException {
+            return new BigDecimal(in.nextString());
+        }
+    }
+
+    private static final class CurrencyAdapter extends TypeAdapter<Currency> {
+
+        @Override
+        public void write(final JsonWriter out, final Currency value) throws IOException {
+            out.value(value.getCurrencyCode());
+        }
+
+        @Override
+        public Currency read(final JsonReader in) throws IOException {
+            return Currency.getInstance(in.nextString());
+        }
+    }
+}
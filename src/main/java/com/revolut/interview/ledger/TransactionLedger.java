@@ -0,0 +1,335 @@
+package com.revolut.interview.ledger;
+
+import com.revolut.interview.model.LedgerEntry;
+import com.revolut.interview.model.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only, in-memory record of every deposit, withdrawal and transfer with the balance
+ * it left behind. Entries are stored column by column in chunks of primitive arrays, about
+ * 38 bytes per entry plus 4 bytes in the account index, instead of one object per entry:
+ * accounts are {@code int} references into a dictionary, amounts and balances are unscaled
+ * {@code long}s sharing one scale per entry. Amounts that do not fit are kept aside as
+ * {@link BigDecimal}s.
+ *
+ * <p>Accounts are spread over partitions by id. Each partition appends under its own lock
+ * and keeps, per account, the entry numbers in append order; its timestamps never go
+ * backwards, so a statement finds its time range by binary search. Readers never block and
+ * only see entries up to the partition's published size.
+ *
+ * <p>A transfer is a debit entry in the source account's partition and a credit entry in
+ * the target's, both carrying the debit's entry id as transaction id. Entry ids interleave
+ * the partitions, so within one account a higher entry id is always a later entry.
+ */
+public class TransactionLedger {
+
+    private static final int               DEFAULT_PARTITIONS = 16;
+    private static final TransactionType[] TYPES              = TransactionType.values();
+
+    private final boolean     enabled;
+    private final Clock       clock;
+    private final Partition[] partitions;
+
+    public TransactionLedger() {
+        this(DEFAULT_PARTITIONS, true, Clock.systemUTC());
+    }
+
+    public TransactionLedger(final int partitionCount, final boolean enabled, final Clock clock) {
+        if(partitionCount <= 0) {
+            throw new IllegalArgumentException(String.format("Partition count must be positive: %s", partitionCount));
+        }
+        this.enabled = enabled;
+        this.clock = clock;
+        this.partitions = new Partition[partitionCount];
+        for(int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(i);
+        }
+    }
+
+    public void recordDeposit(final UUID accountId, final BigDecimal amount, final BigDecimal balance) {
+        if(enabled) {
+            partitionOf(accountId).append(TransactionType.DEPOSIT, accountId, null, 0, amount, balance);
+        }
+    }
+
+    public void recordWithdrawal(final UUID accountId, final BigDecimal amount, final BigDecimal balance) {
+        if(enabled) {
+            partitionOf(accountId).append(TransactionType.WITHDRAWAL, accountId, null, 0, amount, balance);
+        }
+    }
+
+    public void recordTransfer(final UUID fromAccountId, final UUID toAccountId, final BigDecimal amount,
+                               final BigDecimal fromBalance, final BigDecimal toBalance) {
+        recordTransfer(fromAccountId, toAccountId, amount, amount, fromBalance, toBalance);
+    }
+
+    /**
+     * Records a transfer whose credit differs from its debit, as when it crosses currencies.
+     */
+    public void recordTransfer(final UUID fromAccountId, final UUID toAccountId, final BigDecimal debitAmount,
+                               final BigDecimal creditAmount, final BigDecimal fromBalance, final BigDecimal toBalance) {
+        if(enabled) {
+            final long transactionId = partitionOf(fromAccountId).append(TransactionType.TRANSFER_OUT, fromAccountId, toAccountId, 0, debitAmount, fromBalance);
+            partitionOf(toAccountId).append(TransactionType.TRANSFER_IN, toAccountId, fromAccountId, transactionId, creditAmount, toBalance);
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} entries of the account, newest first, with timestamps in
+     * {@code [fromMillis, toMillis)} and entry ids below {@code beforeEntryId}.
+     */
+    public List<LedgerEntry> statement(final UUID accountId, final long fromMillis, final long toMillis,
+                                       final long beforeEntryId, final int limit) {
+        if(limit <= 0) {
+            return Collections.emptyList();
+        }
+        return partitionOf(accountId).statement(accountId, fromMillis, toMillis, beforeEntryId, limit);
+    }
+
+    public long size() {
+        long size = 0;
+        for(final Partition partition : partitions) {
+            size += partition.size;
+        }
+        return size;
+    }
+
+    private Partition partitionOf(final UUID accountId) {
+        final int hash = accountId.hashCode();
+        return partitions[Math.floorMod(hash ^ (hash >>> 16), partitions.length)];
+    }
+
+    private final class Partition {
+
+        private static final int  CHUNK_BITS      = 12;
+        private static final int  CHUNK_SIZE      = 1 << CHUNK_BITS;
+        private static final int  CHUNK_MASK      = CHUNK_SIZE - 1;
+        private static final int  NO_COUNTERPARTY = -1;
+        private static final byte OVERSIZED       = Byte.MIN_VALUE;
+
+        private final int                         number;
+        private final Map<UUID, Integer>          references = new ConcurrentHashMap<>();
+        private final Map<Integer, BigDecimal[]>  oversized  = new ConcurrentHashMap<>();
+
+        private volatile UUID[]         accounts = new UUID[64];
+        private volatile AccountIndex[] indexes  = new AccountIndex[64];
+        private volatile Chunk[]        chunks   = new Chunk[4];
+        private volatile int            size;
+        private long                    lastTimestamp;
+
+        private Partition(final int number) {
+            this.number = number;
+        }
+
+        /**
+         * Appends one entry and returns its entry id. A {@code transactionId} of zero makes the
+         * entry its own transaction.
+         */
+        private synchronized long append(final TransactionType type, final UUID accountId, final UUID counterpartyId,
+                                         final long transactionId, final BigDecimal amount, final BigDecimal balance) {
+            final int row = size;
+            if(row == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Transaction ledger partition is full");
+            }
+            final int account = reference(accountId);
+            final long entryId = entryIdOf(row);
+            final Chunk chunk = chunkFor(row);
+            final int offset = row & CHUNK_MASK;
+            lastTimestamp = Math.max(lastTimestamp, clock.millis());
+            chunk.transactionIds[offset] = transactionId == 0 ? entryId : transactionId;
+            chunk.timestamps[offset] = lastTimestamp;
+            chunk.types[offset] = (byte) type.ordinal();
+            chunk.counterparties[offset] = counterpartyId == null ? NO_COUNTERPARTY : reference(counterpartyId);
+
+            final int scale = Math.max(amount.scale(), balance.scale());
+            final BigDecimal scaledAmount = amount.setScale(scale);
+            final BigDecimal scaledBalance = balance.setScale(scale);
+            if(scale == (byte) scale && scale != OVERSIZED
+               && scaledAmount.unscaledValue().bitLength() < Long.SIZE
+               && scaledBalance.unscaledValue().bitLength() < Long.SIZE) {
+                chunk.scales[offset] = (byte) scale;
+                chunk.amounts[offset] = scaledAmount.unscaledValue().longValue();
+                chunk.balances[offset] = scaledBalance.unscaledValue().longValue();
+            } else {
+                chunk.scales[offset] = OVERSIZED;
+                oversized.put(row, new BigDecimal[] {amount, balance});
+            }
+            indexOf(account).add(row);
+            size = row + 1;
+            return entryId;
+        }
+
+        private List<LedgerEntry> statement(final UUID accountId, final long fromMillis, final long toMillis,
+                                            final long beforeEntryId, final int limit) {
+            final int published = size;
+            final Integer account = references.get(accountId);
+            final AccountIndex index = account == null ? null : indexes[account];
+            if(index == null) {
+                return Collections.emptyList();
+            }
+            final int count = index.size;
+            final int[] rows = index.rows;
+            final Chunk[] publishedChunks = chunks;
+
+            int end = firstAtOrAfter(rows, count, Math.min(published, rowsBefore(beforeEntryId)));
+            end = Math.min(end, firstAtOrAfter(rows, end, publishedChunks, toMillis));
+            final List<LedgerEntry> entries = new ArrayList<>(Math.min(limit, end));
+            for(int i = end - 1; i >= 0 && entries.size() < limit; i--) {
+                final int row = rows[i];
+                final Chunk chunk = publishedChunks[row >>> CHUNK_BITS];
+                if(chunk.timestamps[row & CHUNK_MASK] < fromMillis) {
+                    break;
+                }
+                entries.add(entryAt(row, chunk, accountId));
+            }
+            return entries;
+        }
+
+        private LedgerEntry entryAt(final int row, final Chunk chunk, final UUID accountId) {
+            final int offset = row & CHUNK_MASK;
+            final int counterparty = chunk.counterparties[offset];
+            final BigDecimal amount;
+            final BigDecimal balance;
+            if(chunk.scales[offset] == OVERSIZED) {
+                final BigDecimal[] values = oversized.get(row);
+                amount = values[0];
+                balance = values[1];
+            } else {
+                amount = BigDecimal.valueOf(chunk.amounts[offset], chunk.scales[offset]);
+                balance = BigDecimal.valueOf(chunk.balances[offset], chunk.scales[offset]);
+            }
+            return LedgerEntry.builder()
+                              .entryId(entryIdOf(row))
+                              .transactionId(chunk.transactionIds[offset])
+                              .timestamp(chunk.timestamps[offset])
+                              .type(TYPES[chunk.types[offset]])
+                              .accountId(accountId)
+                              .counterpartyAccountId(counterparty == NO_COUNTERPARTY ? null : accounts[counterparty])
+                              .amount(amount)
+                              .balance(balance)
+                              .build();
+        }
+
+        private long entryIdOf(final int row) {
+            return (long) row * partitions.length + number + 1;
+        }
+
+        /**
+         * Number of rows of this partition whose entry id is below {@code entryId}.
+         */
+        private int rowsBefore(final long entryId) {
+            final long span = entryId - 1 - number;
+            if(span <= 0) {
+                return 0;
+            }
+            final long rows = span / partitions.length + (span % partitions.length == 0 ? 0 : 1);
+            return (int) Math.min(Integer.MAX_VALUE, rows);
+        }
+
+        private int reference(final UUID accountId) {
+            final Integer existing = references.get(accountId);
+            if(existing != null) {
+                return existing;
+            }
+            final int reference = references.size();
+            if(reference == accounts.length) {
+                accounts = Arrays.copyOf(accounts, reference * 2);
+                indexes = Arrays.copyOf(indexes, reference * 2);
+            }
+            accounts[reference] = accountId;
+            references.put(accountId, reference);
+            return reference;
+        }
+
+        private AccountIndex indexOf(final int account) {
+            if(indexes[account] == null) {
+                indexes[account] = new AccountIndex();
+            }
+            return indexes[account];
+        }
+
+        private Chunk chunkFor(final int row) {
+            final int chunkNumber = row >>> CHUNK_BITS;
+            if(chunkNumber == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunkNumber * 2);
+            }
+            if(chunks[chunkNumber] == null) {
+                chunks[chunkNumber] = new Chunk();
+            }
+            return chunks[chunkNumber];
+        }
+
+        /**
+         * First index position, below {@code end}, of an entry at or after {@code millis}.
+         */
+        private int firstAtOrAfter(final int[] rows, final int end, final Chunk[] publishedChunks, final long millis) {
+            int low = 0;
+            int high = end;
+            while(low < high) {
+                final int middle = (low + high) >>> 1;
+                final int row = rows[middle];
+                if(publishedChunks[row >>> CHUNK_BITS].timestamps[row & CHUNK_MASK] < millis) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * First index position, below {@code end}, holding a row at or after {@code row}.
+         */
+        private int firstAtOrAfter(final int[] rows, final int end, final int row) {
+            int low = 0;
+            int high = end;
+            while(low < high) {
+                final int middle = (low + high) >>> 1;
+                if(rows[middle] < row) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static final class Chunk {
+
+        private final long[] transactionIds = new long[Partition.CHUNK_SIZE];
+        private final long[] timestamps     = new long[Partition.CHUNK_SIZE];
+        private final byte[] types          = new byte[Partition.CHUNK_SIZE];
+        private final int[]  counterparties = new int[Partition.CHUNK_SIZE];
+        private final long[] amounts        = new long[Partition.CHUNK_SIZE];
+        private final long[] balances       = new long[Partition.CHUNK_SIZE];
+        private final byte[] scales         = new byte[Partition.CHUNK_SIZE];
+    }
+
+    /**
+     * Rows of one account in append order. A full array is replaced by a larger copy before
+     * the size covering the new row is published.
+     */
+    private static final class AccountIndex {
+
+        private volatile int[] rows = new int[4];
+        private volatile int   size;
+
+        private void add(final int row) {
+            if(size == rows.length) {
+                rows = Arrays.copyOf(rows, size + (size >> 1) + 1);
+            }
+            rows[size] = row;
+            size = size + 1;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.revolut.interview.lock;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+
+public interface AccountLock {
+
+    Lock readLock(final UUID accountId);
+    Lock writeLock(final UUID accountId);
+    Lock writeLock(final UUID firstAccountId, final UUID secondAccountId);
+    Lock writeLock(final Collection<UUID> accountIds);
+    Lock readAllLock();
+    Lock writeAllLock();
+}
@@ -0,0 +1,45 @@
+package com.revolut.interview.lock;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One read/write lock for the whole account book: every mutation is serialized.
+ */
+public class GlobalAccountLock implements AccountLock {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public Lock readLock(final UUID accountId) {
+        return lock.readLock();
+    }
+
+    @Override
+    public Lock writeLock(final UUID accountId) {
+        return lock.writeLock();
+    }
+
+    @Override
+    public Lock writeLock(final UUID firstAccountId, final UUID secondAccountId) {
+        return lock.writeLock();
+    }
+
+    @Override
+    public Lock writeLock(final Collection<UUID> accountIds) {
+        return lock.writeLock();
+    }
+
+    @Override
+    public Lock readAllLock() {
+        return lock.readLock();
+    }
+
+    @Override
+    public Lock writeAllLock() {
+        return lock.writeLock();
+    }
+}
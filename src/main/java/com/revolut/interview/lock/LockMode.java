@@ -0,0 +1,6 @@
+package com.revolut.interview.lock;
+
+public enum LockMode {
+    GLOBAL,
+    STRIPED
+}
@@ -0,0 +1,83 @@
+package com.revolut.interview.lock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Acquires a fixed sequence of locks in array order and releases them in reverse order.
+ * Callers are responsible for passing the locks in a globally consistent order.
+ */
+class OrderedLock implements Lock {
+
+    private final Lock[] locks;
+
+    OrderedLock(final Lock... locks) {
+        this.locks = locks;
+    }
+
+    @Override
+    public void lock() {
+        for(final Lock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        int acquired = 0;
+        try {
+            for(; acquired < locks.length; acquired++) {
+                locks[acquired].lockInterruptibly();
+            }
+        } catch (InterruptedException ex) {
+            unlock(acquired);
+            throw ex;
+        }
+    }
+
+    @Override
+    public boolean tryLock() {
+        for(int i = 0; i < locks.length; i++) {
+            if(!locks[i].tryLock()) {
+                unlock(i);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean tryLock(final long time, final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(time);
+        int acquired = 0;
+        try {
+            for(; acquired < locks.length; acquired++) {
+                if(!locks[acquired].tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    unlock(acquired);
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException ex) {
+            unlock(acquired);
+            throw ex;
+        }
+    }
+
+    @Override
+    public void unlock() {
+        unlock(locks.length);
+    }
+
+    @Override
+    public Condition newCondition() {
+        throw new UnsupportedOperationException("Conditions are not supported on multi-account locks");
+    }
+
+    private void unlock(final int acquired) {
+        for(int i = acquired - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+}
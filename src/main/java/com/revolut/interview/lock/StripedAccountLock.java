@@ -0,0 +1,96 @@
+package com.revolut.interview.lock;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hashes accounts onto a fixed number of read/write lock stripes so that movements only
+ * lock the accounts they touch. Multi-stripe locks are always taken in ascending stripe
+ * order, which keeps two-account transfers deadlock-free.
+ */
+public class StripedAccountLock implements AccountLock {
+
+    private static final int MAX_STRIPES = 1 << 16;
+
+    private final ReadWriteLock[] stripes;
+    private final int             mask;
+    private final Lock            readAllLock;
+    private final Lock            writeAllLock;
+
+    public StripedAccountLock(final int stripeCount) {
+        if(stripeCount <= 0 || stripeCount > MAX_STRIPES) {
+            throw new IllegalArgumentException(String.format("Stripe count must be between 1 and %s: %s", MAX_STRIPES, stripeCount));
+        }
+        final int size = stripeCount == 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        this.stripes = new ReadWriteLock[size];
+        this.mask = size - 1;
+
+        final Lock[] readLocks = new Lock[size];
+        final Lock[] writeLocks = new Lock[size];
+        for(int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantReadWriteLock();
+            readLocks[i] = stripes[i].readLock();
+            writeLocks[i] = stripes[i].writeLock();
+        }
+        this.readAllLock = new OrderedLock(readLocks);
+        this.writeAllLock = new OrderedLock(writeLocks);
+    }
+
+    @Override
+    public Lock readLock(final UUID accountId) {
+        return stripes[stripeOf(accountId)].readLock();
+    }
+
+    @Override
+    public Lock writeLock(final UUID accountId) {
+        return stripes[stripeOf(accountId)].writeLock();
+    }
+
+    @Override
+    public Lock writeLock(final UUID firstAccountId, final UUID secondAccountId) {
+        final int first = stripeOf(firstAccountId);
+        final int second = stripeOf(secondAccountId);
+        if(first == second) {
+            return stripes[first].writeLock();
+        }
+        return new OrderedLock(stripes[Math.min(first, second)].writeLock(),
+                               stripes[Math.max(first, second)].writeLock());
+    }
+
+    @Override
+    public Lock writeLock(final Collection<UUID> accountIds) {
+        final BitSet stripeSet = new BitSet(stripes.length);
+        accountIds.forEach(accountId -> stripeSet.set(stripeOf(accountId)));
+        if(stripeSet.cardinality() == stripes.length) {
+            return writeAllLock;
+        }
+        final Lock[] locks = new Lock[stripeSet.cardinality()];
+        for(int stripe = stripeSet.nextSetBit(0), i = 0; stripe >= 0; stripe = stripeSet.nextSetBit(stripe + 1), i++) {
+            locks[i] = stripes[stripe].writeLock();
+        }
+        return locks.length == 1 ? locks[0] : new OrderedLock(locks);
+    }
+
+    @Override
+    public Lock readAllLock() {
+        return readAllLock;
+    }
+
+    @Override
+    public Lock writeAllLock() {
+        return writeAllLock;
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    int stripeOf(final Object key) {
+        final int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,128 @@
+package com.revolut.interview.lock;
+
+import com.revolut.interview.metrics.LatencyHistogram;
+import com.revolut.interview.metrics.MetricsRegistry;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Records how long callers wait for the wrapped locks and how long they hold them, split by
+ * read and write locks.
+ */
+public class TimedAccountLock implements AccountLock {
+
+    private final AccountLock      delegate;
+    private final LatencyHistogram readWait;
+    private final LatencyHistogram readHold;
+    private final LatencyHistogram writeWait;
+    private final LatencyHistogram writeHold;
+
+    public TimedAccountLock(final AccountLock delegate, final MetricsRegistry metricsRegistry) {
+        this.delegate = delegate;
+        this.readWait = metricsRegistry.histogram("account_lock_wait_seconds", "Time spent waiting for account locks", "mode", "read");
+        this.readHold = metricsRegistry.histogram("account_lock_hold_seconds", "Time account locks are held", "mode", "read");
+        this.writeWait = metricsRegistry.histogram("account_lock_wait_seconds", "Time spent waiting for account locks", "mode", "write");
+        this.writeHold = metricsRegistry.histogram("account_lock_hold_seconds", "Time account locks are held", "mode", "write");
+    }
+
+    @Override
+    public Lock readLock(final UUID accountId) {
+        return new TimedLock(delegate.readLock(accountId), readWait, readHold);
+    }
+
+    @Override
+    public Lock writeLock(final UUID accountId) {
+        return new TimedLock(delegate.writeLock(accountId), writeWait, writeHold);
+    }
+
+    @Override
+    public Lock writeLock(final UUID firstAccountId, final UUID secondAccountId) {
+        return new TimedLock(delegate.writeLock(firstAccountId, secondAccountId), writeWait, writeHold);
+    }
+
+    @Override
+    public Lock writeLock(final Collection<UUID> accountIds) {
+        return new TimedLock(delegate.writeLock(accountIds), writeWait, writeHold);
+    }
+
+    @Override
+    public Lock readAllLock() {
+        return new TimedLock(delegate.readAllLock(), readWait, readHold);
+    }
+
+    @Override
+    public Lock writeAllLock() {
+        return new TimedLock(delegate.writeAllLock(), writeWait, writeHold);
+    }
+
+    /**
+     * Times one acquisition: it is meant to be locked once and then unlocked by the same thread.
+     */
+    private static final class TimedLock implements Lock {
+
+        private final Lock             lock;
+        private final LatencyHistogram wait;
+        private final LatencyHistogram hold;
+        private long                   acquiredAt;
+
+        private TimedLock(final Lock lock, final LatencyHistogram wait, final LatencyHistogram hold) {
+            this.lock = lock;
+            this.wait = wait;
+            this.hold = hold;
+        }
+
+        @Override
+        public void lock() {
+            final long start = System.nanoTime();
+            lock.lock();
+            acquired(start);
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            final long start = System.nanoTime();
+            lock.lockInterruptibly();
+            acquired(start);
+        }
+
+        @Override
+        public boolean tryLock() {
+            final long start = System.nanoTime();
+            if(!lock.tryLock()) {
+                return false;
+            }
+            acquired(start);
+            return true;
+        }
+
+        @Override
+        public boolean tryLock(final long time, final TimeUnit unit) throws InterruptedException {
+            final long start = System.nanoTime();
+            if(!lock.tryLock(time, unit)) {
+                return false;
+            }
+            acquired(start);
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            hold.record(System.nanoTime() - acquiredAt);
+            lock.unlock();
+        }
+
+        @Override
+        public Condition newCondition() {
+            return lock.newCondition();
+        }
+
+        private void acquired(final long start) {
+            acquiredAt = System.nanoTime();
+            wait.record(acquiredAt - start);
+        }
+    }
+}
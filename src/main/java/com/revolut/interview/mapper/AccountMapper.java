@@ -1,9 +1,16 @@
 package com.revolut.interview.mapper;
 
 import com.revolut.interview.model.Account;
+import com.revolut.interview.model.AccountSnapshot;
+import com.revolut.interview.model.Hold;
+import com.revolut.interview.model.LedgerEntry;
+import com.revolut.interview.model.MinorUnits;
 import com.revolut.interview.request.CreateAccount;
 import com.revolut.interview.response.AccountResponse;
+import com.revolut.interview.response.HoldResponse;
+import com.revolut.interview.response.TransactionResponse;
 
+import java.math.BigDecimal;
 import java.util.UUID;
 
 public class AccountMapper {
@@ -22,7 +29,54 @@ public class AccountMapper {
                               .accountId(account.getId())
                               .userId(account.getUserId())
                               .balance(account.getBalance())
+                              .heldAmount(account.getHeldAmount())
+                              .availableBalance(account.getBalance() == null ? null : account.getAvailableBalance())
                               .currency(account.getCurrencyCode())
                               .build();
     }
+
+    public AccountSnapshot createSnapshotFrom(final CreateAccount createAccount, final UUID accountId) {
+        return AccountSnapshot.builder()
+                              .id(accountId)
+                              .userId(createAccount.getUserId())
+                              .currencyCode(createAccount.getCurrency())
+                              .balance(MinorUnits.fromDecimal(createAccount.getBalance(), createAccount.getCurrency()))
+                              .build();
+    }
+
+    public AccountResponse createFrom(final AccountSnapshot snapshot) {
+        final BigDecimal balance = MinorUnits.toDecimal(snapshot.getBalance(), snapshot.getCurrencyCode());
+        // Only the LOCKING engine takes holds
+        return AccountResponse.builder()
+                              .accountId(snapshot.getId())
+                              .userId(snapshot.getUserId())
+                              .balance(balance)
+                              .heldAmount(BigDecimal.ZERO)
+                              .availableBalance(balance)
+                              .currency(snapshot.getCurrencyCode())
+                              .build();
+    }
+
+    public HoldResponse createFrom(final Hold hold) {
+        return HoldResponse.builder()
+                           .holdId(hold.getHoldId())
+                           .accountId(hold.getAccountId())
+                           .amount(hold.getAmount())
+                           .createdAt(hold.getCreatedAt())
+                           .expiresAt(hold.getExpiresAt())
+                           .build();
+    }
+
+    public TransactionResponse createFrom(final LedgerEntry entry) {
+        return TransactionResponse.builder()
+                                  .entryId(entry.getEntryId())
+                                  .transactionId(entry.getTransactionId())
+                                  .timestamp(entry.getTimestamp())
+                                  .type(entry.getType())
+                                  .accountId(entry.getAccountId())
+                                  .counterpartyAccountId(entry.getCounterpartyAccountId())
+                                  .amount(entry.getAmount())
+                                  .balance(entry.getBalance())
+                                  .build();
+    }
 }
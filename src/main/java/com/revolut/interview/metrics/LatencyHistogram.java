@@ -0,0 +1,89 @@
+package com.revolut.interview.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-linear latency histogram in the style of HdrHistogram. Values below 64ns are counted
+ * exactly; above that every power of two is split into 32 buckets, so a percentile is
+ * reported within about 3% of the true value. Values beyond about 18 minutes fall into the
+ * top bucket.
+ *
+ * <p>{@link #record} only increments counters in preallocated arrays, so it allocates
+ * nothing. Percentiles are read without stopping writers and may miss values recorded
+ * at the same time.
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS  = 64;
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+    private static final int MIN_EXPONENT    = 6;
+    private static final int MAX_EXPONENT    = 40;
+    private static final int BUCKET_COUNT    = LINEAR_BUCKETS + (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder       count  = new LongAdder();
+    private final LongAdder       sum    = new LongAdder();
+
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSumNanos() {
+        return sum.sum();
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding the given percentile (0 - 100), or zero
+     * if nothing was recorded.
+     */
+    public long valueAtPercentile(final double percentile) {
+        long total = 0;
+        final long[] snapshot = new long[BUCKET_COUNT];
+        for(int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if(total == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for(int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if(seen >= rank) {
+                return upperBoundOf(i);
+            }
+        }
+        return upperBoundOf(BUCKET_COUNT - 1);
+    }
+
+    static int indexOf(final long value) {
+        if(value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if(exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(final int index) {
+        if(index < LINEAR_BUCKETS) {
+            return index;
+        }
+        final int exponent = (index - LINEAR_BUCKETS) / SUB_BUCKETS + MIN_EXPONENT;
+        final int subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
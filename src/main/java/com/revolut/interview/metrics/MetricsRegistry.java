@@ -0,0 +1,143 @@
+package com.revolut.interview.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Named histograms, counters and gauges, written out in the Prometheus text format.
+ *
+ * <p>Metrics are looked up once, when the code that records them is set up, and then
+ * recorded through the returned object; registering is the only part that allocates.
+ * Asking for a metric that exists returns the existing one.
+ */
+public class MetricsRegistry {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES        = {0.5, 0.9, 0.99, 0.999};
+    private static final double   NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * Returns the latency histogram for the name and {@code label, value} pairs; it is
+     * exposed as a summary in seconds.
+     */
+    public LatencyHistogram histogram(final String name, final String help, final String... labels) {
+        return (LatencyHistogram) family(name, help, "summary").series(labels, LatencyHistogram::new);
+    }
+
+    public LongAdder counter(final String name, final String help, final String... labels) {
+        return (LongAdder) family(name, help, "counter").series(labels, LongAdder::new);
+    }
+
+    public void gauge(final String name, final String help, final DoubleSupplier value) {
+        family(name, help, "gauge").series(new String[0], () -> value);
+    }
+
+    public void writeTo(final Writer writer) throws IOException {
+        for(final Family family : families.values()) {
+            writer.write("# HELP " + family.name + " " + family.help + "\n");
+            writer.write("# TYPE " + family.name + " " + family.type + "\n");
+            for(final Series series : family.series) {
+                if(series.metric instanceof LatencyHistogram) {
+                    writeSummary(writer, family.name, series.labels, (LatencyHistogram) series.metric);
+                } else if(series.metric instanceof LongAdder) {
+                    writeSample(writer, family.name, series.labels, ((LongAdder) series.metric).sum());
+                } else {
+                    writeSample(writer, family.name, series.labels, ((DoubleSupplier) series.metric).getAsDouble());
+                }
+            }
+        }
+    }
+
+    private Family family(final String name, final String help, final String type) {
+        final Family family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+        if(!family.type.equals(type)) {
+            throw new IllegalArgumentException(String.format("Metric %s is a %s, not a %s", name, family.type, type));
+        }
+        return family;
+    }
+
+    private static void writeSummary(final Writer writer, final String name, final String labels,
+                                     final LatencyHistogram histogram) throws IOException {
+        for(final double quantile : QUANTILES) {
+            final String quantileLabel = "quantile=\"" + quantile + "\"";
+            writeSample(writer, name, labels.isEmpty() ? quantileLabel : labels + "," + quantileLabel,
+                        histogram.valueAtPercentile(quantile * 100) / NANOS_PER_SECOND);
+        }
+        writeSample(writer, name + "_sum", labels, histogram.getSumNanos() / NANOS_PER_SECOND);
+        writeSample(writer, name + "_count", labels, histogram.getCount());
+    }
+
+    private static void writeSample(final Writer writer, final String name, final String labels,
+                                    final double value) throws IOException {
+        writer.write(name);
+        if(!labels.isEmpty()) {
+            writer.write("{" + labels + "}");
+        }
+        writer.write(" ");
+        writer.write(value == Math.rint(value) && !Double.isInfinite(value) ? String.valueOf((long) value) : String.valueOf(value));
+        writer.write("\n");
+    }
+
+    private static String formatLabels(final String[] labels) {
+        if(labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be given as name, value pairs");
+        }
+        final StringBuilder formatted = new StringBuilder();
+        for(int i = 0; i < labels.length; i += 2) {
+            if(i > 0) {
+                formatted.append(',');
+            }
+            formatted.append(labels[i]).append("=\"")
+                     .append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                     .append('"');
+        }
+        return formatted.toString();
+    }
+
+    private static final class Family {
+
+        private final String              name;
+        private final String              help;
+        private final String              type;
+        private final List<Series>        series   = new CopyOnWriteArrayList<>();
+        private final Map<String, Series> byLabels = new ConcurrentHashMap<>();
+
+        private Family(final String name, final String help, final String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        private Object series(final String[] labels, final Supplier<Object> factory) {
+            final String formatted = formatLabels(labels);
+            return byLabels.computeIfAbsent(formatted, key -> {
+                final Series created = new Series(key, factory.get());
+                series.add(created);
+                return created;
+            }).metric;
+        }
+    }
+
+    private static final class Series {
+
+        private final String labels;
+        private final Object metric;
+
+        private Series(final String labels, final Object metric) {
+            this.labels = labels;
+            this.metric = metric;
+        }
+    }
+}
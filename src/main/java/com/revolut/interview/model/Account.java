@@ -9,7 +9,7 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
-@Builder
+@Builder(toBuilder = true)
 @Data
 @EqualsAndHashCode
 @ToString
@@ -17,6 +17,15 @@ public class Account {
     private UUID       id;
     private String     userId;
     private BigDecimal balance;
-    private Currency   currencyCode; // Assuming currencyCode is same for all accounts for speciality
+    private Currency   currencyCode; // Transfers between currencies are converted with the FX rate table
+    @Builder.Default
+    private BigDecimal heldAmount = BigDecimal.ZERO; // Filled in by the engine from its holds, not stored by repositories
+
+    /**
+     * The balance less what is held, which is all a withdrawal or transfer may take.
+     */
+    public BigDecimal getAvailableBalance() {
+        return balance.subtract(heldAmount);
+    }
 
 }
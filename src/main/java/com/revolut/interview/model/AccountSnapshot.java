@@ -0,0 +1,49 @@
+package com.revolut.interview.model;
+
+import java.util.Currency;
+import java.util.UUID;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Immutable version of an account's state. Every balance change produces a new snapshot
+ * with the next version, so a reference to a snapshot can be swapped with compare-and-set.
+ * The balance is held in {@link MinorUnits} of the account currency. {@code pending} is the
+ * {@link PendingCommit} installed on the account, if any; the balance is the one before it,
+ * and {@link #resolved()} gives the state with it applied or dropped.
+ */
+@Builder(toBuilder = true)
+@Value
+public class AccountSnapshot {
+    private UUID          id;
+    private String        userId;
+    private long          balance;
+    private Currency      currencyCode;
+    private long          version;
+    private PendingCommit pending;
+
+    // Called on every compare-and-set attempt, so they build the snapshot without a builder
+    public AccountSnapshot withBalance(final long newBalance) {
+        return new AccountSnapshot(id, userId, newBalance, currencyCode, version + 1, pending);
+    }
+
+    public AccountSnapshot withPending(final PendingCommit newPending) {
+        return new AccountSnapshot(id, userId, balance, currencyCode, version, newPending);
+    }
+
+    /**
+     * Returns this snapshot without its pending commit: applied if the commit went through,
+     * dropped if it has not (yet).
+     */
+    public AccountSnapshot resolved() {
+        if(pending == null) {
+            return this;
+        }
+        if(pending.isCommitted()) {
+            // The commit checked the new balance for overflow before it was installed
+            return withPending(null).withBalance(balance + pending.changeOf(id));
+        }
+        return withPending(null);
+    }
+}
@@ -0,0 +1,21 @@
+package com.revolut.interview.model;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Amount reserved on an account until it is captured, released or expires at
+ * {@code expiresAt} (epoch millis).
+ */
+@Builder
+@Value
+public class Hold {
+    private UUID       holdId;
+    private UUID       accountId;
+    private BigDecimal amount;
+    private long       createdAt;
+    private long       expiresAt;
+}
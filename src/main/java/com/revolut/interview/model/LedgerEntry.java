@@ -0,0 +1,24 @@
+package com.revolut.interview.model;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * One movement on one account. Both sides of a transfer share the {@code transactionId},
+ * which is the entry id of the debit.
+ */
+@Builder
+@Value
+public class LedgerEntry {
+    private long            entryId;
+    private long            transactionId;
+    private long            timestamp;
+    private TransactionType type;
+    private UUID            accountId;
+    private UUID            counterpartyAccountId;
+    private BigDecimal      amount;
+    private BigDecimal      balance;
+}
@@ -0,0 +1,53 @@
+package com.revolut.interview.model;
+
+import com.revolut.interview.execption.InvalidAmountException;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+/**
+ * Money as a {@code long} count of the currency's minor units (pence for GBP, yen for JPY).
+ * Conversions are exact: an amount with more fraction digits than the currency allows is
+ * rejected rather than rounded, and arithmetic is overflow-checked.
+ */
+public final class MinorUnits {
+
+    private MinorUnits() {
+    }
+
+    public static long fromDecimal(final BigDecimal amount, final Currency currency) {
+        try {
+            return amount.movePointRight(fractionDigits(currency)).longValueExact();
+        } catch (ArithmeticException ex) {
+            throw new InvalidAmountException(String.format("Amount %s cannot be represented exactly in %s", amount.toPlainString(), currency));
+        }
+    }
+
+    public static BigDecimal toDecimal(final long minorUnits, final Currency currency) {
+        return BigDecimal.valueOf(minorUnits, fractionDigits(currency));
+    }
+
+    public static long add(final long balance, final long amount) {
+        try {
+            return Math.addExact(balance, amount);
+        } catch (ArithmeticException ex) {
+            throw new InvalidAmountException(String.format("Balance overflow when adding %s to %s minor units", amount, balance));
+        }
+    }
+
+    public static long subtract(final long balance, final long amount) {
+        try {
+            return Math.subtractExact(balance, amount);
+        } catch (ArithmeticException ex) {
+            throw new InvalidAmountException(String.format("Balance overflow when subtracting %s from %s minor units", amount, balance));
+        }
+    }
+
+    public static int fractionDigits(final Currency currency) {
+        final int digits = currency.getDefaultFractionDigits();
+        if(digits < 0) {
+            throw new InvalidAmountException(String.format("Currency %s has no minor unit", currency));
+        }
+        return digits;
+    }
+}
@@ -0,0 +1,55 @@
+package com.revolut.interview.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Balance changes, in {@link MinorUnits}, that commit on several accounts at once. The change
+ * is installed in the {@link AccountSnapshot} of every account it touches while it is
+ * undecided; a reader looks through it to the balance before the change until it commits and
+ * to the balance after it once it has, so no account shows part of it. It is decided once:
+ * committed by its owner, or aborted by its owner or by a writer that needs one of its accounts.
+ */
+public final class PendingCommit {
+
+    private static final int UNDECIDED = 0;
+    private static final int COMMITTED = 1;
+    private static final int ABORTED   = 2;
+
+    private final Map<UUID, Long> changes;
+    private final AtomicInteger   status = new AtomicInteger(UNDECIDED);
+
+    public PendingCommit(final Map<UUID, Long> changes) {
+        this.changes = Collections.unmodifiableMap(new HashMap<>(changes));
+    }
+
+    public long changeOf(final UUID accountId) {
+        final Long change = changes.get(accountId);
+        return change == null ? 0 : change;
+    }
+
+    /**
+     * Returns false if the change was aborted first.
+     */
+    public boolean commit() {
+        return status.compareAndSet(UNDECIDED, COMMITTED);
+    }
+
+    /**
+     * Aborts the change unless it has committed already.
+     */
+    public void abort() {
+        status.compareAndSet(UNDECIDED, ABORTED);
+    }
+
+    public boolean isCommitted() {
+        return status.get() == COMMITTED;
+    }
+
+    public boolean isAborted() {
+        return status.get() == ABORTED;
+    }
+}
@@ -0,0 +1,187 @@
+package com.revolut.interview.replication;
+
+import com.revolut.interview.execption.JournalException;
+import com.revolut.interview.journal.JournalCodec;
+import com.revolut.interview.journal.JournalEntry;
+import com.revolut.interview.journal.JournalRecord;
+import com.revolut.interview.repository.ReplicatedAccountRepository;
+import com.revolut.interview.view.AccountViews;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a repository in step with a {@link ReplicationPrimary}, reconnecting whenever the stream
+ * breaks. After installing a snapshot if the primary sends one, frames are applied strictly in
+ * LSN order and the applied LSN is reported back each time the frames received so far are
+ * applied, so a burst of changes costs one acknowledgement.
+ *
+ * <p>A heartbeat carries the primary's newest LSN. Once that LSN is applied the replica is as
+ * fresh as the primary was when it sent the heartbeat; {@link #stalenessMillis} counts from when
+ * that heartbeat arrived, which leaves out the time it spent on the network.
+ */
+public class ReplicationFollower implements Closeable {
+
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+    private static final int BUFFER_SIZE            = 64 * 1024;
+
+    private final String                      host;
+    private final int                         port;
+    private final ReplicatedAccountRepository repository;
+    private final AccountViews                accountViews;
+    private final long                        reconnectMillis;
+    private final Thread                      thread;
+
+    private volatile Socket  socket;
+    private volatile boolean closed;
+    private volatile long    historyId;
+    private volatile long    appliedLsn;
+    private volatile long    freshAtNanos = NEVER;
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationFollower.class);
+
+    public ReplicationFollower(final String host, final int port, final ReplicatedAccountRepository repository,
+                               final AccountViews accountViews, final long reconnectMillis) {
+        this.host = host;
+        this.port = port;
+        this.repository = repository;
+        this.accountViews = accountViews;
+        this.reconnectMillis = reconnectMillis;
+        this.thread = new Thread(this::run, "replication-follower");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public long getHistoryId() {
+        return historyId;
+    }
+
+    public long getAppliedLsn() {
+        return appliedLsn;
+    }
+
+    /**
+     * How far behind the primary this replica may be, or {@link Long#MAX_VALUE} if it has not
+     * caught up since it last installed a snapshot.
+     */
+    public long stalenessMillis() {
+        final long freshAt = freshAtNanos;
+        return freshAt == NEVER ? Long.MAX_VALUE : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - freshAt);
+    }
+
+    /**
+     * Stops following and waits for the frame being applied, if any; the applied LSN does not
+     * move afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        final Socket current = socket;
+        if(current != null) {
+            try {
+                current.close();
+            } catch (IOException ex) {
+                logger.debug("Could not close replication socket", ex);
+            }
+        }
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while(!closed) {
+            try(Socket connection = new Socket()) {
+                socket = connection;
+                connection.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+                connection.setTcpNoDelay(true);
+                follow(connection);
+            } catch (IOException | JournalException ex) {
+                if(!closed) {
+                    logger.warn("Replication from {}:{} stopped, reconnecting in {} ms: {}", host, port, reconnectMillis, ex.getMessage());
+                }
+            }
+            try {
+                Thread.sleep(reconnectMillis);
+            } catch (InterruptedException ex) {
+                return;
+            }
+        }
+    }
+
+    private void follow(final Socket connection) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream(), BUFFER_SIZE));
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+        out.writeLong(historyId);
+        out.writeLong(appliedLsn);
+        out.flush();
+
+        final byte mode = in.readByte();
+        final long primaryHistoryId = in.readLong();
+        if(mode == ReplicationPrimary.SNAPSHOT) {
+            installSnapshot(in);
+        }
+        historyId = primaryHistoryId;
+        logger.info("Following {}:{} from lsn {}", host, port, appliedLsn);
+
+        long ackedLsn = -1;
+        while(!closed) {
+            final JournalEntry entry = JournalCodec.read(in);
+            if(entry.getRecords().isEmpty()) {
+                if(entry.getLsn() <= appliedLsn) {
+                    freshAtNanos = System.nanoTime();
+                }
+            } else if(entry.getLsn() != appliedLsn + 1) {
+                throw new IOException(String.format("Expected lsn %s but received %s", appliedLsn + 1, entry.getLsn()));
+            } else {
+                repository.applyReplicated(entry.getRecords());
+                for(final JournalRecord record : entry.getRecords()) {
+                    accountViews.invalidate(record.getAccountId());
+                }
+                appliedLsn = entry.getLsn();
+            }
+            if(in.available() == 0 && ackedLsn != appliedLsn) {
+                out.writeLong(appliedLsn);
+                out.flush();
+                ackedLsn = appliedLsn;
+            }
+        }
+    }
+
+    private void installSnapshot(final DataInputStream in) throws IOException {
+        // A snapshot cut short leaves nothing to continue from
+        freshAtNanos = NEVER;
+        historyId = 0;
+        appliedLsn = 0;
+        final long snapshotLsn = in.readLong();
+        final int chunks = in.readInt();
+        repository.clearReplicated();
+        accountViews.invalidateAll();
+        int accounts = 0;
+        for(int i = 0; i < chunks; i++) {
+            final JournalEntry chunk = JournalCodec.read(in);
+            repository.applyReplicated(chunk.getRecords());
+            accounts += chunk.getRecords().size();
+        }
+        appliedLsn = snapshotLsn;
+        logger.info("Installed a snapshot of {} accounts at lsn {}", accounts, snapshotLsn);
+    }
+}
@@ -0,0 +1,162 @@
+package com.revolut.interview.replication;
+
+import com.revolut.interview.config.ServiceConfig;
+import com.revolut.interview.execption.InvalidRequestException;
+import com.revolut.interview.execption.ReplicationLagException;
+import com.revolut.interview.execption.ReplicationTimeoutException;
+import com.revolut.interview.repository.ReplicatedAccountRepository;
+import com.revolut.interview.response.ReplicationStatus;
+import com.revolut.interview.view.AccountViews;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+
+/**
+ * This process's part in replication. A primary ships its repository's changes to every
+ * replica that connects and, if asked to, has each change wait for {@code replicationAcks}
+ * replicas. A replica follows the primary at {@code replicationPrimary} (host:port), is
+ * read-only and answers reads only while it is at most {@code replicationMaxStalenessMillis}
+ * behind. Promoting a replica stops it following and makes it a primary that continues the old
+ * primary's history.
+ */
+public class ReplicationNode implements Closeable {
+
+    static final long HEARTBEAT_MILLIS = 100;
+    static final long RECONNECT_MILLIS = 500;
+
+    private final ReplicatedAccountRepository repository;
+    private final AccountViews                accountViews;
+    private final ServiceConfig               serviceConfig;
+
+    private volatile ReplicationRole     role;
+    private volatile ReplicationPrimary  primary;
+    private volatile ReplicationFollower follower;
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationNode.class);
+
+    public ReplicationNode(final ReplicatedAccountRepository repository, final AccountViews accountViews,
+                           final ServiceConfig serviceConfig) {
+        this.repository = repository;
+        this.accountViews = accountViews;
+        this.serviceConfig = serviceConfig;
+        this.role = serviceConfig.getReplicationRole();
+    }
+
+    public synchronized void start() {
+        if(role == ReplicationRole.PRIMARY) {
+            startPrimary(0, 0);
+        } else if(role == ReplicationRole.REPLICA) {
+            final String address = serviceConfig.getReplicationPrimary();
+            final int separator = address == null ? -1 : address.lastIndexOf(':');
+            if(separator <= 0) {
+                throw new IllegalArgumentException(String.format("Replica needs the primary as host:port, not %s", address));
+            }
+            follower = new ReplicationFollower(address.substring(0, separator), Integer.parseInt(address.substring(separator + 1)),
+                                               repository, accountViews, RECONNECT_MILLIS);
+            follower.start();
+        }
+    }
+
+    public ReplicationRole getRole() {
+        return role;
+    }
+
+    /**
+     * Port the primary listens on for replicas, which may have been picked by the system.
+     */
+    int primaryPort() {
+        return primary.getPort();
+    }
+
+    public boolean isReadOnly() {
+        return role == ReplicationRole.REPLICA;
+    }
+
+    /**
+     * Turns down a read on a replica that may have fallen too far behind.
+     */
+    public void checkFresh() {
+        final ReplicationFollower current = follower;
+        if(role != ReplicationRole.REPLICA || current == null) {
+            return;
+        }
+        final long stalenessMillis = current.stalenessMillis();
+        if(stalenessMillis > serviceConfig.getReplicationMaxStalenessMillis()) {
+            throw new ReplicationLagException(stalenessMillis == Long.MAX_VALUE
+                    ? "Replica has not caught up with the primary"
+                    : String.format("Replica is %s ms behind the primary, more than the %s ms allowed",
+                                    stalenessMillis, serviceConfig.getReplicationMaxStalenessMillis()));
+        }
+    }
+
+    /**
+     * Waits until enough replicas have applied every change published so far, including the
+     * caller's.
+     */
+    public void awaitReplication() {
+        final ReplicationPrimary current = primary;
+        if(current == null || serviceConfig.getReplicationAcks() <= 0) {
+            return;
+        }
+        if(!current.awaitAcks(current.getLastLsn(), serviceConfig.getReplicationAcks(), serviceConfig.getReplicationAckTimeoutMillis())) {
+            throw new ReplicationTimeoutException(String.format("Change was applied on the primary but fewer than %s replicas confirmed it within %s ms",
+                                                                serviceConfig.getReplicationAcks(), serviceConfig.getReplicationAckTimeoutMillis()));
+        }
+    }
+
+    public synchronized ReplicationStatus promote() {
+        if(role != ReplicationRole.REPLICA) {
+            throw new InvalidRequestException(String.format("Only a replica can be promoted, this node is %s", role));
+        }
+        follower.close();
+        startPrimary(follower.getHistoryId(), follower.getAppliedLsn());
+        role = ReplicationRole.PRIMARY;
+        logger.info("Promoted to primary at lsn {}", follower.getAppliedLsn());
+        return status();
+    }
+
+    public ReplicationStatus status() {
+        final ReplicationPrimary currentPrimary = primary;
+        final ReplicationFollower currentFollower = follower;
+        if(currentPrimary != null) {
+            return ReplicationStatus.builder()
+                                    .role(role)
+                                    .lsn(currentPrimary.getLastLsn())
+                                    .replicaLsns(currentPrimary.ackedLsns())
+                                    .build();
+        }
+        return ReplicationStatus.builder()
+                                .role(role)
+                                .lsn(currentFollower == null ? 0 : currentFollower.getAppliedLsn())
+                                .replicaLsns(Collections.emptyList())
+                                .stalenessMillis(currentFollower == null ? null : currentFollower.stalenessMillis())
+                                .build();
+    }
+
+    @Override
+    public synchronized void close() {
+        if(follower != null) {
+            follower.close();
+        }
+        if(primary != null) {
+            primary.close();
+        }
+    }
+
+    private void startPrimary(final long previousHistoryId, final long forkLsn) {
+        try {
+            final ReplicationPrimary started = new ReplicationPrimary(serviceConfig.getReplicationPort(), serviceConfig.getReplicationBacklog(),
+                                                                      HEARTBEAT_MILLIS, repository::snapshot, previousHistoryId, forkLsn);
+            repository.attach(started);
+            started.start();
+            primary = started;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(String.format("Could not listen for replicas on port %s", serviceConfig.getReplicationPort()), ex);
+        }
+    }
+}
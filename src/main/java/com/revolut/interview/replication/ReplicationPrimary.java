@@ -0,0 +1,391 @@
+package com.revolut.interview.replication;
+
+import com.revolut.interview.journal.JournalCodec;
+import com.revolut.interview.journal.JournalEntry;
+import com.revolut.interview.journal.JournalRecord;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Ships published changes to the replicas connected over TCP. Each change takes the next LSN and
+ * is encoded once, as a {@link JournalCodec} frame, before the lock is taken; under the lock the
+ * frame only joins a ring of the latest frames, in LSN order, and a frame that overtook the one
+ * before it waits aside until that one arrives. Every replica has a sender thread that writes
+ * all frames it has not been sent in one flush, up to {@link #MAX_BATCH}, and ends each flush
+ * with a heartbeat: a frame without records that carries the newest LSN. A second thread per
+ * replica reads back the LSNs it has applied.
+ *
+ * <p>The LSNs belong to a history, named by a random id. A replica that follows this history
+ * and whose next frame is still in the ring picks up from there; any other replica is sent a
+ * snapshot of every account first. A promoted replica starts a new history that forks from the
+ * old one at the LSN it had applied, so the other replicas of the old primary can continue
+ * from that point without a snapshot.
+ *
+ * <p>Protocol, after a replica connects:
+ * <pre>
+ * replica: long historyId | long appliedLsn
+ * primary: byte mode | long historyId [| long snapshotLsn | int chunks | chunk frames, if SNAPSHOT]
+ * then frames and heartbeats from the primary, and a long appliedLsn from the replica after each batch
+ * </pre>
+ */
+public class ReplicationPrimary implements Closeable {
+
+    static final byte INCREMENTAL = 0;
+    static final byte SNAPSHOT    = 1;
+
+    static final int MAX_BATCH      = 1024;
+    static final int SNAPSHOT_CHUNK = 10_000;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ServerSocket             serverSocket;
+    private final Supplier<JournalEntry>   snapshotSource;
+    private final long                     heartbeatMillis;
+    private final long                     historyId;
+    private final long                     previousHistoryId;
+    private final long                     forkLsn;
+    private final ByteBuffer[]             frames;
+    private final List<Replica>            replicas = new CopyOnWriteArrayList<>();
+    private final Lock                     lock = new ReentrantLock();
+    private final Condition                published = lock.newCondition();
+    private final Condition                acknowledged = lock.newCondition();
+    private final Map<Long, ByteBuffer>    overtaking = new HashMap<>();
+    private final AtomicLong               nextLsn;
+    private final Thread                   acceptor;
+
+    private long lastLsn;
+    private volatile boolean closed;
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationPrimary.class);
+
+    /**
+     * Starts a new history.
+     */
+    public ReplicationPrimary(final int port, final int backlogSize, final long heartbeatMillis,
+                              final Supplier<JournalEntry> snapshotSource) throws IOException {
+        this(port, backlogSize, heartbeatMillis, snapshotSource, 0, 0);
+    }
+
+    /**
+     * Continues the history {@code previousHistoryId} from {@code forkLsn}, for a promoted
+     * replica.
+     */
+    public ReplicationPrimary(final int port, final int backlogSize, final long heartbeatMillis,
+                              final Supplier<JournalEntry> snapshotSource, final long previousHistoryId,
+                              final long forkLsn) throws IOException {
+        this.snapshotSource = snapshotSource;
+        this.heartbeatMillis = heartbeatMillis;
+        this.historyId = ThreadLocalRandom.current().nextLong();
+        this.previousHistoryId = previousHistoryId;
+        this.forkLsn = forkLsn;
+        this.frames = new ByteBuffer[backlogSize];
+        this.lastLsn = forkLsn;
+        this.nextLsn = new AtomicLong(forkLsn);
+        this.serverSocket = new ServerSocket();
+        this.serverSocket.setReuseAddress(true);
+        this.serverSocket.bind(new InetSocketAddress(port));
+        this.acceptor = new Thread(this::acceptReplicas, "replication-primary");
+        this.acceptor.setDaemon(true);
+    }
+
+    /**
+     * Starts accepting replicas; the snapshot source must be ready to answer by then.
+     */
+    public void start() {
+        acceptor.start();
+        logger.info("Replication primary listening on port {}, history {} from lsn {}", getPort(), historyId, forkLsn);
+    }
+
+    /**
+     * Queues records for every replica. Returns their LSN.
+     */
+    public long publish(final List<JournalRecord> records) {
+        // Encoding can fail, so it happens before an LSN is taken that would then never be filled
+        final byte[] payload = JournalCodec.encodePayload(records);
+        final long lsn = nextLsn.incrementAndGet();
+        final ByteBuffer frame = JournalCodec.frame(lsn, payload);
+        lock.lock();
+        try {
+            if(lsn != lastLsn + 1) {
+                overtaking.put(lsn, frame);
+                return lsn;
+            }
+            frames[index(lsn)] = frame;
+            lastLsn = lsn;
+            ByteBuffer next;
+            while((next = overtaking.remove(lastLsn + 1)) != null) {
+                frames[index(++lastLsn)] = next;
+            }
+            published.signalAll();
+            return lsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until {@code required} replicas have applied {@code lsn}. Returns {@code false} if
+     * they have not within the timeout.
+     */
+    public boolean awaitAcks(final long lsn, final int required, final long timeoutMillis) {
+        if(required <= 0) {
+            return true;
+        }
+        lock.lock();
+        try {
+            long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            while(countAcked(lsn) < required) {
+                if(remaining <= 0) {
+                    return false;
+                }
+                remaining = acknowledged.awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getLastLsn() {
+        lock.lock();
+        try {
+            return lastLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHistoryId() {
+        return historyId;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int replicaCount() {
+        return replicas.size();
+    }
+
+    /**
+     * LSN applied by each connected replica, -1 until it first reports one.
+     */
+    public List<Long> ackedLsns() {
+        lock.lock();
+        try {
+            final List<Long> ackedLsns = new ArrayList<>(replicas.size());
+            replicas.forEach(replica -> ackedLsns.add(replica.ackedLsn));
+            return ackedLsns;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException ex) {
+            logger.warn("Could not close the replication port", ex);
+        }
+        replicas.forEach(Replica::close);
+        lock.lock();
+        try {
+            published.signalAll();
+            acknowledged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void acceptReplicas() {
+        while(!closed) {
+            try {
+                final Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                final Replica replica = new Replica(socket);
+                final Thread sender = new Thread(replica::send, "replication-sender-" + socket.getRemoteSocketAddress());
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException ex) {
+                if(!closed) {
+                    logger.error("Could not accept a replica", ex);
+                }
+            }
+        }
+    }
+
+    private int countAcked(final long lsn) {
+        int acked = 0;
+        for(final Replica replica : replicas) {
+            if(replica.ackedLsn >= lsn) {
+                acked++;
+            }
+        }
+        return acked;
+    }
+
+    private int index(final long lsn) {
+        return (int) Math.floorMod(lsn, (long) frames.length);
+    }
+
+    private final class Replica {
+
+        private final Socket socket;
+
+        // guarded by lock
+        private long ackedLsn = -1;
+
+        private Replica(final Socket socket) {
+            this.socket = socket;
+        }
+
+        private void send() {
+            try {
+                final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+                final long sent = handshake(in.readLong(), in.readLong(), out);
+                replicas.add(this);
+                final Thread reader = new Thread(() -> readAcks(in), "replication-acks-" + socket.getRemoteSocketAddress());
+                reader.setDaemon(true);
+                reader.start();
+                stream(sent, out);
+            } catch (IOException ex) {
+                if(!closed) {
+                    logger.info("Replica {} disconnected: {}", socket.getRemoteSocketAddress(), ex.getMessage());
+                }
+            } catch (RuntimeException ex) {
+                logger.error("Replication to {} failed", socket.getRemoteSocketAddress(), ex);
+            } finally {
+                replicas.remove(this);
+                close();
+            }
+        }
+
+        /**
+         * Tells the replica where it continues from and returns the last LSN it has been sent.
+         */
+        private long handshake(final long replicaHistoryId, final long appliedLsn, final DataOutputStream out) throws IOException {
+            final boolean sameHistory = replicaHistoryId == historyId
+                                        || (replicaHistoryId == previousHistoryId && previousHistoryId != 0 && appliedLsn <= forkLsn);
+            lock.lock();
+            final boolean inBacklog;
+            try {
+                inBacklog = appliedLsn >= Math.max(forkLsn, lastLsn - frames.length) && appliedLsn <= lastLsn;
+            } finally {
+                lock.unlock();
+            }
+            if(sameHistory && inBacklog) {
+                out.writeByte(INCREMENTAL);
+                out.writeLong(historyId);
+                logger.info("Replica {} continues from lsn {}", socket.getRemoteSocketAddress(), appliedLsn);
+                return appliedLsn;
+            }
+
+            final JournalEntry snapshot = snapshotSource.get();
+            final List<JournalRecord> records = snapshot.getRecords();
+            final int chunks = (records.size() + SNAPSHOT_CHUNK - 1) / SNAPSHOT_CHUNK;
+            out.writeByte(SNAPSHOT);
+            out.writeLong(historyId);
+            out.writeLong(snapshot.getLsn());
+            out.writeInt(chunks);
+            for(int from = 0; from < records.size(); from += SNAPSHOT_CHUNK) {
+                write(out, JournalCodec.encode(snapshot.getLsn(), records.subList(from, Math.min(records.size(), from + SNAPSHOT_CHUNK))));
+            }
+            logger.info("Sent replica {} a snapshot of {} accounts at lsn {}", socket.getRemoteSocketAddress(), records.size(), snapshot.getLsn());
+            return snapshot.getLsn();
+        }
+
+        private void stream(final long firstLsn, final DataOutputStream out) throws IOException {
+            final List<ByteBuffer> batch = new ArrayList<>();
+            long sent = firstLsn;
+            while(!closed) {
+                final long latest;
+                lock.lock();
+                try {
+                    if(lastLsn == sent) {
+                        published.await(heartbeatMillis, TimeUnit.MILLISECONDS);
+                    }
+                    if(sent < lastLsn - frames.length) {
+                        throw new IOException(String.format("Replica fell out of the backlog of %s entries", frames.length));
+                    }
+                    final long upTo = Math.min(lastLsn, sent + MAX_BATCH);
+                    for(long lsn = sent + 1; lsn <= upTo; lsn++) {
+                        batch.add(frames[index(lsn)].duplicate());
+                    }
+                    latest = lastLsn;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } finally {
+                    lock.unlock();
+                }
+                for(final ByteBuffer frame : batch) {
+                    write(out, frame);
+                }
+                sent += batch.size();
+                batch.clear();
+                write(out, JournalCodec.encode(latest, Collections.emptyList()));
+                out.flush();
+            }
+        }
+
+        private void readAcks(final DataInputStream in) {
+            try {
+                while(!closed) {
+                    final long appliedLsn = in.readLong();
+                    lock.lock();
+                    try {
+                        ackedLsn = appliedLsn;
+                        acknowledged.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            } catch (IOException ex) {
+                close();
+            }
+        }
+
+        private void write(final DataOutputStream out, final ByteBuffer frame) throws IOException {
+            out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                logger.debug("Could not close replica socket", ex);
+            }
+        }
+    }
+}
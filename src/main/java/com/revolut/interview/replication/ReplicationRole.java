@@ -0,0 +1,7 @@
+package com.revolut.interview.replication;
+
+public enum ReplicationRole {
+    NONE,
+    PRIMARY,
+    REPLICA
+}
@@ -3,14 +3,18 @@ package com.revolut.interview.repository;
 import com.revolut.interview.model.Account;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 public interface AccountRepository {
 
     void save(final Account account);
     void saveAll(final Collection<Account> accounts);
+    boolean saveIfUserAbsent(final Account account);
     Account getAccountById(final UUID accountId);
+    Account getAccountByUserId(final String userId);
     Collection<Account> getAllAccounts();
+    List<Account> getAccountsAfter(final UUID afterAccountId, final int limit);
     void deleteAccount(final UUID accountId);
     void deleteAllAccounts();
     boolean isAccountExist(final String userId);
@@ -1,28 +1,57 @@
 package com.revolut.interview.repository;
 
 import com.revolut.interview.model.Account;
+import com.revolut.interview.uuid.UuidMap;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 public class AccountRepositoryImpl implements AccountRepository {
 
-    private final Map<UUID, Account> accountsStorage;
+    private final UuidMap<Account>   accountsStorage;
+    private final Map<String, UUID>  accountsByUser;
+    private final NavigableSet<UUID> accountIds;
 
     public AccountRepositoryImpl(){
-        this.accountsStorage = new ConcurrentHashMap<>();
+        this.accountsStorage = new UuidMap<>();
+        this.accountsByUser = new ConcurrentHashMap<>();
+        this.accountIds = new ConcurrentSkipListSet<>();
     }
 
     @Override
     public void save(final Account account) {
-        accountsStorage.put(account.getId(), account);
+        final Account previous = accountsStorage.put(account.getId(), account);
+        if(previous == null) {
+            accountIds.add(account.getId());
+        }
+        if(previous == null || !previous.getUserId().equals(account.getUserId())) {
+            if(previous != null) {
+                accountsByUser.remove(previous.getUserId(), account.getId());
+            }
+            accountsByUser.put(account.getUserId(), account.getId());
+        }
     }
 
     @Override
     public void saveAll(Collection<Account> accounts) {
-        accounts.forEach(account -> accountsStorage.put(account.getId(), account));
+        accounts.forEach(this::save);
+    }
+
+    @Override
+    public boolean saveIfUserAbsent(final Account account) {
+        // The index entry is claimed first, so two concurrent creations for one userId cannot both win
+        if(accountsByUser.putIfAbsent(account.getUserId(), account.getId()) != null) {
+            return false;
+        }
+        accountsStorage.put(account.getId(), account);
+        accountIds.add(account.getId());
+        return true;
     }
 
     @Override
@@ -30,23 +59,54 @@ public class AccountRepositoryImpl implements AccountRepository {
         return accountsStorage.get(id);
     }
 
+    @Override
+    public Account getAccountByUserId(final String userId) {
+        final UUID accountId = accountsByUser.get(userId);
+        return accountId == null ? null : accountsStorage.get(accountId);
+    }
+
     @Override
     public Collection<Account> getAllAccounts() {
         return accountsStorage.values();
     }
 
+    /**
+     * Keyset page in account id order, starting after {@code afterAccountId} (or at the first
+     * account when it is {@code null}). Pages are not a point-in-time view of the book.
+     */
+    @Override
+    public List<Account> getAccountsAfter(final UUID afterAccountId, final int limit) {
+        final List<Account> page = new ArrayList<>(Math.min(limit, 1024));
+        final NavigableSet<UUID> remaining = afterAccountId == null ? accountIds : accountIds.tailSet(afterAccountId, false);
+        for(final UUID accountId : remaining) {
+            if(page.size() == limit) {
+                break;
+            }
+            final Account account = accountsStorage.get(accountId);
+            if(account != null) {
+                page.add(account);
+            }
+        }
+        return page;
+    }
+
     @Override
     public void deleteAccount(final UUID accountId) {
-        accountsStorage.remove(accountId);
+        final Account removed = accountsStorage.remove(accountId);
+        if(removed != null) {
+            accountIds.remove(accountId);
+            accountsByUser.remove(removed.getUserId(), accountId);
+        }
     }
 
     @Override
     public void deleteAllAccounts() {
-        accountsStorage.clear();
+        // Removing account by account keeps index entries of creations still in flight
+        accountsStorage.forEach(account -> deleteAccount(account.getId()));
     }
 
     @Override
     public boolean isAccountExist(final String userId) {
-        return accountsStorage.values().stream().anyMatch(account -> account.getUserId().equals(userId));
+        return accountsByUser.containsKey(userId);
     }
 }
@@ -0,0 +1,196 @@
+package com.revolut.interview.repository;
+
+import com.revolut.interview.journal.JournalRecord;
+import com.revolut.interview.journal.SnapshotStore;
+import com.revolut.interview.journal.WriteAheadJournal;
+import com.revolut.interview.model.Account;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Makes another repository durable. Every change is appended to a {@link WriteAheadJournal}
+ * and synced before it is applied. On construction the newest snapshot is loaded and only
+ * the journal after it is replayed into the wrapped repository. {@link #saveAll} is written as
+ * a single journal entry, so a transfer's two accounts are recovered together or not at all.
+ *
+ * <p>Stored accounts are never modified in place: lookups hand out copies and the repository
+ * stores its own copy of what is saved. {@link #snapshot} can therefore copy the accounts
+ * while transfers continue; it only holds them back while the journal switches to a new
+ * segment, so the snapshot's LSN separates changes that are already applied from those that
+ * the journal replays on top of it.
+ *
+ * <p>Like the wrapped repository, it relies on the caller's account locks to order concurrent
+ * changes to the same account.
+ */
+public class JournaledAccountRepository implements AccountRepository {
+
+    private final AccountRepository delegate;
+    private final WriteAheadJournal journal;
+    private final SnapshotStore     snapshotStore;
+    private final ReadWriteLock     commitGate = new ReentrantReadWriteLock();
+
+    private static final Logger logger = LoggerFactory.getLogger(JournaledAccountRepository.class);
+
+    public JournaledAccountRepository(final AccountRepository delegate, final WriteAheadJournal journal,
+                                      final SnapshotStore snapshotStore) {
+        this.delegate = delegate;
+        this.journal = journal;
+        this.snapshotStore = snapshotStore;
+        final long snapshotLsn = snapshotStore.loadLatest(delegate::save);
+        journal.replay(snapshotLsn, entry -> apply(entry.getRecords()));
+    }
+
+    @Override
+    public void save(final Account account) {
+        commit(Collections.singletonList(JournalRecord.put(account)));
+    }
+
+    @Override
+    public void saveAll(final Collection<Account> accounts) {
+        if(accounts.isEmpty()) {
+            return;
+        }
+        commit(accounts.stream().map(JournalRecord::put).collect(Collectors.toList()));
+    }
+
+    @Override
+    public boolean saveIfUserAbsent(final Account account) {
+        final Lock lock = commitGate.readLock();
+        lock.lock();
+        try {
+            final JournalRecord record = JournalRecord.put(account);
+            if(!delegate.saveIfUserAbsent(record.getAccount())) {
+                return false;
+            }
+            try {
+                journal.append(Collections.singletonList(record));
+            } catch (RuntimeException ex) {
+                delegate.deleteAccount(account.getId());
+                throw ex;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Account getAccountById(final UUID accountId) {
+        return copyOf(delegate.getAccountById(accountId));
+    }
+
+    @Override
+    public Account getAccountByUserId(final String userId) {
+        return copyOf(delegate.getAccountByUserId(userId));
+    }
+
+    @Override
+    public Collection<Account> getAllAccounts() {
+        return Collections.unmodifiableCollection(delegate.getAllAccounts());
+    }
+
+    @Override
+    public List<Account> getAccountsAfter(final UUID afterAccountId, final int limit) {
+        return Collections.unmodifiableList(delegate.getAccountsAfter(afterAccountId, limit));
+    }
+
+    @Override
+    public void deleteAccount(final UUID accountId) {
+        if(delegate.getAccountById(accountId) == null) {
+            return;
+        }
+        commit(Collections.singletonList(JournalRecord.delete(accountId)));
+    }
+
+    @Override
+    public void deleteAllAccounts() {
+        final List<UUID> accountIds = delegate.getAllAccounts().stream()
+                                              .map(Account::getId)
+                                              .collect(Collectors.toList());
+        if(accountIds.isEmpty()) {
+            return;
+        }
+        commit(accountIds.stream().map(JournalRecord::delete).collect(Collectors.toList()));
+    }
+
+    @Override
+    public boolean isAccountExist(final String userId) {
+        return delegate.isAccountExist(userId);
+    }
+
+    /**
+     * Writes a snapshot of every account, then deletes the journal segments and snapshots it
+     * makes redundant. Returns the snapshot's LSN.
+     */
+    public synchronized long snapshot() {
+        final long lsn;
+        final Lock lock = commitGate.writeLock();
+        lock.lock();
+        try {
+            lsn = journal.roll();
+        } finally {
+            lock.unlock();
+        }
+        snapshotStore.write(lsn, delegate.getAllAccounts());
+        final int deletedSegments = journal.deleteSegmentsUpTo(lsn);
+        snapshotStore.deleteOlderThan(lsn);
+        logger.info("Snapshot at lsn {} made {} journal segments redundant", lsn, deletedSegments);
+        return lsn;
+    }
+
+    /**
+     * Takes a snapshot every {@code intervalSeconds} on a background thread.
+     */
+    public void scheduleSnapshots(final long intervalSeconds) {
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "account-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (RuntimeException ex) {
+                logger.error("Snapshot failed, the journal keeps growing until one succeeds", ex);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    private void commit(final List<JournalRecord> records) {
+        final Lock lock = commitGate.readLock();
+        lock.lock();
+        try {
+            journal.append(records);
+            apply(records);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void apply(final List<JournalRecord> records) {
+        for(final JournalRecord record : records) {
+            if(record.getType() == JournalRecord.Type.PUT) {
+                delegate.save(record.getAccount());
+            } else {
+                delegate.deleteAccount(record.getAccountId());
+            }
+        }
+    }
+
+    private static Account copyOf(final Account account) {
+        return account == null ? null : account.toBuilder().build();
+    }
+}
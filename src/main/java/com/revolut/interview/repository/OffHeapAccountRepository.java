@@ -0,0 +1,622 @@
+package com.revolut.interview.repository;
+
+import com.revolut.interview.model.Account;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps accounts outside the Java heap as fixed-width records in direct {@link ByteBuffer}
+ * segments, so the garbage collector sees a few large buffers and primitive arrays instead of
+ * several objects per account. A record is
+ * <pre>
+ * long idMsb | long idLsb | long unscaled balance | byte state | byte scale |
+ * 3 bytes currency code | byte userId length | int userId hash | 30 bytes UTF-8 userId
+ * </pre>
+ * Balances or user ids that do not fit are kept on the heap beside the record.
+ *
+ * <p>Ids and user ids are found through open-addressing tables of primitives that map to a
+ * slot. Saving an existing account rewrites its record in place; {@link Account} objects are
+ * only built when an account is read, and each read returns a new copy.
+ *
+ * <p>Inserts and deletes hold the table lock exclusively; lookups and in-place updates share
+ * it and guard the record itself with one of {@link #RECORD_LOCKS} striped monitors. As with
+ * the other repositories, callers order concurrent changes to one account with account locks.
+ * Paging in id order scans every record, as there is no sorted index to keep up to date.
+ */
+public class OffHeapAccountRepository implements AccountRepository {
+
+    static final int RECORD_SIZE = 64;
+
+    private static final int  SEGMENT_BITS      = 14;
+    private static final int  SEGMENT_RECORDS   = 1 << SEGMENT_BITS;
+    private static final int  RECORD_LOCKS      = 256;
+    private static final int  INLINE_USER_ID    = 30;
+    private static final byte FREE              = 0;
+    private static final byte USED              = 1;
+    private static final byte OVERSIZED_BALANCE = Byte.MIN_VALUE;
+    private static final byte NO_BALANCE        = Byte.MIN_VALUE + 1;
+    private static final byte OVERSIZED_USER_ID = -1;
+
+    private static final int ID_MSB         = 0;
+    private static final int ID_LSB         = 8;
+    private static final int BALANCE        = 16;
+    private static final int STATE          = 24;
+    private static final int SCALE          = 25;
+    private static final int CURRENCY       = 26;
+    private static final int USER_ID_LENGTH = 29;
+    private static final int USER_ID_HASH   = 30;
+    private static final int USER_ID        = 34;
+
+    private final ReadWriteLock tableLock   = new ReentrantReadWriteLock();
+    private final Object[]      recordLocks = new Object[RECORD_LOCKS];
+
+    private final Map<Integer, BigDecimal> oversizedBalances = new ConcurrentHashMap<>();
+    private final Map<Integer, String>     oversizedUserIds  = new ConcurrentHashMap<>();
+
+    private ByteBuffer[] segments = new ByteBuffer[0];
+    private int          highWater;
+    private int[]        freeSlots = new int[16];
+    private int          freeCount;
+    private volatile int size;
+
+    // Open addressing with linear probing; a slot is stored plus one so that zero means empty
+    private long[] idMsbs;
+    private long[] idLsbs;
+    private int[]  idSlots;
+    private int[]  userHashes;
+    private int[]  userSlots;
+
+    public OffHeapAccountRepository() {
+        this(1024);
+    }
+
+    public OffHeapAccountRepository(final int expectedAccounts) {
+        for(int i = 0; i < RECORD_LOCKS; i++) {
+            recordLocks[i] = new Object();
+        }
+        allocateTables(tableSizeFor(expectedAccounts));
+    }
+
+    @Override
+    public void save(final Account account) {
+        final Lock readLock = tableLock.readLock();
+        readLock.lock();
+        try {
+            final int slot = slotOf(account.getId());
+            if(slot >= 0) {
+                synchronized (recordLockOf(slot)) {
+                    if(userIdEquals(slot, account.getUserId())) {
+                        writeBalance(slot, account);
+                        return;
+                    }
+                }
+            }
+        } finally {
+            readLock.unlock();
+        }
+        final Lock writeLock = tableLock.writeLock();
+        writeLock.lock();
+        try {
+            final int slot = slotOf(account.getId());
+            if(slot >= 0) {
+                removeUser(slot);
+                writeRecord(slot, account);
+                putUser(slot, account.getUserId().hashCode());
+            } else {
+                insert(account);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void saveAll(final Collection<Account> accounts) {
+        accounts.forEach(this::save);
+    }
+
+    @Override
+    public boolean saveIfUserAbsent(final Account account) {
+        final Lock writeLock = tableLock.writeLock();
+        writeLock.lock();
+        try {
+            if(userSlotOf(account.getUserId()) >= 0) {
+                return false;
+            }
+            final int slot = slotOf(account.getId());
+            if(slot >= 0) {
+                removeUser(slot);
+                writeRecord(slot, account);
+                putUser(slot, account.getUserId().hashCode());
+            } else {
+                insert(account);
+            }
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Account getAccountById(final UUID accountId) {
+        final Lock readLock = tableLock.readLock();
+        readLock.lock();
+        try {
+            final int slot = slotOf(accountId);
+            return slot < 0 ? null : materialize(slot);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public Account getAccountByUserId(final String userId) {
+        final Lock readLock = tableLock.readLock();
+        readLock.lock();
+        try {
+            final int slot = userSlotOf(userId);
+            return slot < 0 ? null : materialize(slot);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * A live view that reads each account as it is iterated, like the values of a concurrent
+     * map: accounts added or removed during the iteration may or may not be seen.
+     */
+    @Override
+    public Collection<Account> getAllAccounts() {
+        return new AbstractCollection<Account>() {
+            @Override
+            public Iterator<Account> iterator() {
+                return new RecordIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public List<Account> getAccountsAfter(final UUID afterAccountId, final int limit) {
+        if(limit <= 0) {
+            return Collections.emptyList();
+        }
+        final PriorityQueue<UUID> smallest = new PriorityQueue<>(Math.min(limit, 1024), Comparator.reverseOrder());
+        final Lock readLock = tableLock.readLock();
+        readLock.lock();
+        try {
+            for(int slot = 0; slot < highWater; slot++) {
+                final ByteBuffer segment = segments[slot >>> SEGMENT_BITS];
+                final int offset = offsetOf(slot);
+                if(segment.get(offset + STATE) != USED) {
+                    continue;
+                }
+                final UUID accountId = new UUID(segment.getLong(offset + ID_MSB), segment.getLong(offset + ID_LSB));
+                if(afterAccountId != null && accountId.compareTo(afterAccountId) <= 0) {
+                    continue;
+                }
+                if(smallest.size() < limit) {
+                    smallest.add(accountId);
+                } else if(accountId.compareTo(smallest.peek()) < 0) {
+                    smallest.poll();
+                    smallest.add(accountId);
+                }
+            }
+        } finally {
+            readLock.unlock();
+        }
+        final List<UUID> accountIds = new ArrayList<>(smallest);
+        Collections.sort(accountIds);
+        final List<Account> page = new ArrayList<>(accountIds.size());
+        for(final UUID accountId : accountIds) {
+            final Account account = getAccountById(accountId);
+            if(account != null) {
+                page.add(account);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public void deleteAccount(final UUID accountId) {
+        final Lock writeLock = tableLock.writeLock();
+        writeLock.lock();
+        try {
+            final int slot = slotOf(accountId);
+            if(slot >= 0) {
+                remove(slot);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteAllAccounts() {
+        final Lock writeLock = tableLock.writeLock();
+        writeLock.lock();
+        try {
+            for(int slot = 0; slot < highWater; slot++) {
+                if(segments[slot >>> SEGMENT_BITS].get(offsetOf(slot) + STATE) == USED) {
+                    remove(slot);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isAccountExist(final String userId) {
+        final Lock readLock = tableLock.readLock();
+        readLock.lock();
+        try {
+            return userSlotOf(userId) >= 0;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private void insert(final Account account) {
+        if((size + 1) * 2 > idSlots.length) {
+            rehash(idSlots.length * 2);
+        }
+        final int slot = allocateSlot();
+        writeRecord(slot, account);
+        putId(slot, account.getId().getMostSignificantBits(), account.getId().getLeastSignificantBits());
+        putUser(slot, account.getUserId().hashCode());
+        size = size + 1;
+    }
+
+    private void remove(final int slot) {
+        final ByteBuffer segment = segments[slot >>> SEGMENT_BITS];
+        final int offset = offsetOf(slot);
+        removeId(segment.getLong(offset + ID_MSB), segment.getLong(offset + ID_LSB));
+        removeUser(slot);
+        synchronized (recordLockOf(slot)) {
+            segment.put(offset + STATE, FREE);
+        }
+        oversizedBalances.remove(slot);
+        oversizedUserIds.remove(slot);
+        if(freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        size = size - 1;
+    }
+
+    private int allocateSlot() {
+        if(freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if(highWater >>> SEGMENT_BITS == segments.length) {
+            segments = Arrays.copyOf(segments, segments.length + 1);
+            segments[segments.length - 1] = ByteBuffer.allocateDirect(SEGMENT_RECORDS * RECORD_SIZE);
+        }
+        return highWater++;
+    }
+
+    private void writeRecord(final int slot, final Account account) {
+        final ByteBuffer segment = segments[slot >>> SEGMENT_BITS];
+        final int offset = offsetOf(slot);
+        final String userId = account.getUserId();
+        final byte[] userIdBytes = userId.getBytes(StandardCharsets.UTF_8);
+        synchronized (recordLockOf(slot)) {
+            segment.putLong(offset + ID_MSB, account.getId().getMostSignificantBits());
+            segment.putLong(offset + ID_LSB, account.getId().getLeastSignificantBits());
+            segment.putInt(offset + USER_ID_HASH, userId.hashCode());
+            if(userIdBytes.length <= INLINE_USER_ID) {
+                segment.put(offset + USER_ID_LENGTH, (byte) userIdBytes.length);
+                for(int i = 0; i < userIdBytes.length; i++) {
+                    segment.put(offset + USER_ID + i, userIdBytes[i]);
+                }
+                oversizedUserIds.remove(slot);
+            } else {
+                segment.put(offset + USER_ID_LENGTH, OVERSIZED_USER_ID);
+                oversizedUserIds.put(slot, userId);
+            }
+            writeBalance(slot, account);
+            segment.put(offset + STATE, USED);
+        }
+    }
+
+    /**
+     * Rewrites the balance and currency of the record; the caller holds the record lock.
+     */
+    private void writeBalance(final int slot, final Account account) {
+        final ByteBuffer segment = segments[slot >>> SEGMENT_BITS];
+        final int offset = offsetOf(slot);
+        final BigDecimal balance = account.getBalance();
+        if(balance == null) {
+            segment.put(offset + SCALE, NO_BALANCE);
+            oversizedBalances.remove(slot);
+        } else if(balance.scale() == (byte) balance.scale() && balance.scale() > NO_BALANCE
+                  && balance.unscaledValue().bitLength() < Long.SIZE) {
+            segment.putLong(offset + BALANCE, balance.unscaledValue().longValue());
+            segment.put(offset + SCALE, (byte) balance.scale());
+            oversizedBalances.remove(slot);
+        } else {
+            segment.put(offset + SCALE, OVERSIZED_BALANCE);
+            oversizedBalances.put(slot, balance);
+        }
+        final String currencyCode = account.getCurrencyCode() == null ? null : account.getCurrencyCode().getCurrencyCode();
+        for(int i = 0; i < 3; i++) {
+            segment.put(offset + CURRENCY + i, currencyCode == null ? 0 : (byte) currencyCode.charAt(i));
+        }
+    }
+
+    private Account materialize(final int slot) {
+        final ByteBuffer segment = segments[slot >>> SEGMENT_BITS];
+        final int offset = offsetOf(slot);
+        synchronized (recordLockOf(slot)) {
+            if(segment.get(offset + STATE) != USED) {
+                return null;
+            }
+            final byte scale = segment.get(offset + SCALE);
+            final char[] currencyCode = {(char) segment.get(offset + CURRENCY),
+                                         (char) segment.get(offset + CURRENCY + 1),
+                                         (char) segment.get(offset + CURRENCY + 2)};
+            return Account.builder()
+                          .id(new UUID(segment.getLong(offset + ID_MSB), segment.getLong(offset + ID_LSB)))
+                          .userId(readUserId(slot, segment, offset))
+                          .balance(balanceOf(slot, scale, segment.getLong(offset + BALANCE)))
+                          .currencyCode(currencyCode[0] == 0 ? null : Currency.getInstance(new String(currencyCode)))
+                          .build();
+        }
+    }
+
+    private BigDecimal balanceOf(final int slot, final byte scale, final long unscaled) {
+        if(scale == NO_BALANCE) {
+            return null;
+        }
+        return scale == OVERSIZED_BALANCE ? oversizedBalances.get(slot) : BigDecimal.valueOf(unscaled, scale);
+    }
+
+    private String readUserId(final int slot, final ByteBuffer segment, final int offset) {
+        final byte length = segment.get(offset + USER_ID_LENGTH);
+        if(length == OVERSIZED_USER_ID) {
+            return oversizedUserIds.get(slot);
+        }
+        final byte[] bytes = new byte[length];
+        for(int i = 0; i < length; i++) {
+            bytes[i] = segment.get(offset + USER_ID + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares without decoding the stored user id when both are plain ASCII, which keeps the
+     * common in-place balance update free of allocation.
+     */
+    private boolean userIdEquals(final int slot, final String userId) {
+        final ByteBuffer segment = segments[slot >>> SEGMENT_BITS];
+        final int offset = offsetOf(slot);
+        if(segment.get(offset + STATE) != USED || segment.getInt(offset + USER_ID_HASH) != userId.hashCode()) {
+            return false;
+        }
+        final byte length = segment.get(offset + USER_ID_LENGTH);
+        if(length == OVERSIZED_USER_ID) {
+            return userId.equals(oversizedUserIds.get(slot));
+        }
+        if(userId.length() == length) {
+            boolean ascii = true;
+            for(int i = 0; i < length && ascii; i++) {
+                final char expected = userId.charAt(i);
+                if(expected >= 0x80) {
+                    ascii = false;
+                } else if(segment.get(offset + USER_ID + i) != expected) {
+                    return false;
+                }
+            }
+            if(ascii) {
+                return true;
+            }
+        }
+        return userId.equals(readUserId(slot, segment, offset));
+    }
+
+    private int slotOf(final UUID accountId) {
+        final long msb = accountId.getMostSignificantBits();
+        final long lsb = accountId.getLeastSignificantBits();
+        final int mask = idSlots.length - 1;
+        for(int index = mix(msb ^ lsb) & mask; idSlots[index] != 0; index = (index + 1) & mask) {
+            if(idMsbs[index] == msb && idLsbs[index] == lsb) {
+                return idSlots[index] - 1;
+            }
+        }
+        return -1;
+    }
+
+    private int userSlotOf(final String userId) {
+        final int hash = userId.hashCode();
+        final int mask = userSlots.length - 1;
+        for(int index = mix(hash) & mask; userSlots[index] != 0; index = (index + 1) & mask) {
+            if(userHashes[index] == hash) {
+                final int slot = userSlots[index] - 1;
+                synchronized (recordLockOf(slot)) {
+                    if(userIdEquals(slot, userId)) {
+                        return slot;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void putId(final int slot, final long msb, final long lsb) {
+        final int mask = idSlots.length - 1;
+        int index = mix(msb ^ lsb) & mask;
+        while(idSlots[index] != 0) {
+            index = (index + 1) & mask;
+        }
+        idMsbs[index] = msb;
+        idLsbs[index] = lsb;
+        idSlots[index] = slot + 1;
+    }
+
+    private void putUser(final int slot, final int hash) {
+        final int mask = userSlots.length - 1;
+        int index = mix(hash) & mask;
+        while(userSlots[index] != 0) {
+            index = (index + 1) & mask;
+        }
+        userHashes[index] = hash;
+        userSlots[index] = slot + 1;
+    }
+
+    /**
+     * Removes the entry and shifts later entries of the same probe run back, so lookups never
+     * need tombstones.
+     */
+    private void removeId(final long msb, final long lsb) {
+        final int mask = idSlots.length - 1;
+        int index = mix(msb ^ lsb) & mask;
+        while(idMsbs[index] != msb || idLsbs[index] != lsb) {
+            index = (index + 1) & mask;
+        }
+        int next = index;
+        while(true) {
+            idSlots[index] = 0;
+            int home;
+            do {
+                next = (next + 1) & mask;
+                if(idSlots[next] == 0) {
+                    return;
+                }
+                home = mix(idMsbs[next] ^ idLsbs[next]) & mask;
+            } while(index <= next ? index < home && home <= next : index < home || home <= next);
+            idMsbs[index] = idMsbs[next];
+            idLsbs[index] = idLsbs[next];
+            idSlots[index] = idSlots[next];
+            index = next;
+        }
+    }
+
+    private void removeUser(final int slot) {
+        final int mask = userSlots.length - 1;
+        int index = mix(segments[slot >>> SEGMENT_BITS].getInt(offsetOf(slot) + USER_ID_HASH)) & mask;
+        while(userSlots[index] != slot + 1) {
+            if(userSlots[index] == 0) {
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        int next = index;
+        while(true) {
+            userSlots[index] = 0;
+            int home;
+            do {
+                next = (next + 1) & mask;
+                if(userSlots[next] == 0) {
+                    return;
+                }
+                home = mix(userHashes[next]) & mask;
+            } while(index <= next ? index < home && home <= next : index < home || home <= next);
+            userHashes[index] = userHashes[next];
+            userSlots[index] = userSlots[next];
+            index = next;
+        }
+    }
+
+    private void rehash(final int tableSize) {
+        final long[] oldMsbs = idMsbs;
+        final long[] oldLsbs = idLsbs;
+        final int[] oldSlots = idSlots;
+        final int[] oldUserHashes = userHashes;
+        final int[] oldUserSlots = userSlots;
+        allocateTables(tableSize);
+        for(int i = 0; i < oldSlots.length; i++) {
+            if(oldSlots[i] != 0) {
+                putId(oldSlots[i] - 1, oldMsbs[i], oldLsbs[i]);
+            }
+            if(oldUserSlots[i] != 0) {
+                putUser(oldUserSlots[i] - 1, oldUserHashes[i]);
+            }
+        }
+    }
+
+    private void allocateTables(final int tableSize) {
+        idMsbs = new long[tableSize];
+        idLsbs = new long[tableSize];
+        idSlots = new int[tableSize];
+        userHashes = new int[tableSize];
+        userSlots = new int[tableSize];
+    }
+
+    private Object recordLockOf(final int slot) {
+        return recordLocks[slot & (RECORD_LOCKS - 1)];
+    }
+
+    private static int offsetOf(final int slot) {
+        return (slot & (SEGMENT_RECORDS - 1)) * RECORD_SIZE;
+    }
+
+    private static int tableSizeFor(final int expectedAccounts) {
+        final int wanted = Math.max(16, expectedAccounts) * 2;
+        return Integer.highestOneBit(wanted - 1) << 1;
+    }
+
+    private static int mix(final long value) {
+        final long mixed = value * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    /**
+     * Walks the slots in order, reading one account at a time under the shared table lock.
+     */
+    private final class RecordIterator implements Iterator<Account> {
+
+        private int     slot;
+        private Account next;
+
+        @Override
+        public boolean hasNext() {
+            while(next == null) {
+                final Lock readLock = tableLock.readLock();
+                readLock.lock();
+                try {
+                    if(slot >= highWater) {
+                        return false;
+                    }
+                    next = materialize(slot++);
+                } finally {
+                    readLock.unlock();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Account next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Account account = next;
+            next = null;
+            return account;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.revolut.interview.repository;
+
+import com.revolut.interview.journal.JournalEntry;
+import com.revolut.interview.journal.JournalRecord;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.replication.ReplicationPrimary;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes every change of another repository to a {@link ReplicationPrimary} once it is
+ * applied. Changes are described with the journal's {@link JournalRecord}s and a
+ * {@link #saveAll} is published as one entry, so a replica applies a transfer's two accounts
+ * together. Until a primary is attached (on a replica, before it is promoted) nothing is
+ * published and the replica's changes arrive through {@link #applyReplicated}.
+ *
+ * <p>As with {@link JournaledAccountRepository}, stored accounts are never modified in place,
+ * so {@link #snapshot} only holds changes back while it collects the accounts and the LSN they
+ * are current at.
+ */
+public class ReplicatedAccountRepository implements AccountRepository {
+
+    private final AccountRepository delegate;
+    private final ReadWriteLock     commitGate = new ReentrantReadWriteLock();
+
+    private volatile ReplicationPrimary primary;
+
+    public ReplicatedAccountRepository(final AccountRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Starts publishing changes to {@code primary}; its LSNs continue from what this repository
+     * holds.
+     */
+    public void attach(final ReplicationPrimary primary) {
+        final Lock lock = commitGate.writeLock();
+        lock.lock();
+        try {
+            this.primary = primary;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void save(final Account account) {
+        commit(Collections.singletonList(JournalRecord.put(account)));
+    }
+
+    @Override
+    public void saveAll(final Collection<Account> accounts) {
+        if(accounts.isEmpty()) {
+            return;
+        }
+        commit(accounts.stream().map(JournalRecord::put).collect(Collectors.toList()));
+    }
+
+    @Override
+    public boolean saveIfUserAbsent(final Account account) {
+        final Lock lock = commitGate.readLock();
+        lock.lock();
+        try {
+            final JournalRecord record = JournalRecord.put(account);
+            if(!delegate.saveIfUserAbsent(record.getAccount())) {
+                return false;
+            }
+            publish(Collections.singletonList(record));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Account getAccountById(final UUID accountId) {
+        return copyOf(delegate.getAccountById(accountId));
+    }
+
+    @Override
+    public Account getAccountByUserId(final String userId) {
+        return copyOf(delegate.getAccountByUserId(userId));
+    }
+
+    @Override
+    public Collection<Account> getAllAccounts() {
+        return Collections.unmodifiableCollection(delegate.getAllAccounts());
+    }
+
+    @Override
+    public List<Account> getAccountsAfter(final UUID afterAccountId, final int limit) {
+        return Collections.unmodifiableList(delegate.getAccountsAfter(afterAccountId, limit));
+    }
+
+    @Override
+    public void deleteAccount(final UUID accountId) {
+        if(delegate.getAccountById(accountId) == null) {
+            return;
+        }
+        commit(Collections.singletonList(JournalRecord.delete(accountId)));
+    }
+
+    @Override
+    public void deleteAllAccounts() {
+        final List<UUID> accountIds = delegate.getAllAccounts().stream()
+                                              .map(Account::getId)
+                                              .collect(Collectors.toList());
+        if(accountIds.isEmpty()) {
+            return;
+        }
+        commit(accountIds.stream().map(JournalRecord::delete).collect(Collectors.toList()));
+    }
+
+    @Override
+    public boolean isAccountExist(final String userId) {
+        return delegate.isAccountExist(userId);
+    }
+
+    /**
+     * Applies records received from the primary, without publishing them.
+     */
+    public void applyReplicated(final List<JournalRecord> records) {
+        final Lock lock = commitGate.readLock();
+        lock.lock();
+        try {
+            apply(records);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every account ahead of installing a snapshot from the primary.
+     */
+    public void clearReplicated() {
+        final Lock lock = commitGate.writeLock();
+        lock.lock();
+        try {
+            delegate.deleteAllAccounts();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Every account as of the attached primary's latest LSN, as one entry of puts.
+     */
+    public JournalEntry snapshot() {
+        final List<Account> accounts;
+        final long lsn;
+        final Lock lock = commitGate.writeLock();
+        lock.lock();
+        try {
+            accounts = new ArrayList<>(delegate.getAllAccounts());
+            lsn = primary == null ? 0 : primary.getLastLsn();
+        } finally {
+            lock.unlock();
+        }
+        return JournalEntry.builder()
+                           .lsn(lsn)
+                           .records(accounts.stream().map(JournalRecord::put).collect(Collectors.toList()))
+                           .build();
+    }
+
+    private void commit(final List<JournalRecord> records) {
+        final Lock lock = commitGate.readLock();
+        lock.lock();
+        try {
+            apply(records);
+            publish(records);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void publish(final List<JournalRecord> records) {
+        final ReplicationPrimary current = primary;
+        if(current != null) {
+            current.publish(records);
+        }
+    }
+
+    private void apply(final List<JournalRecord> records) {
+        for(final JournalRecord record : records) {
+            if(record.getType() == JournalRecord.Type.PUT) {
+                delegate.save(record.getAccount());
+            } else {
+                delegate.deleteAccount(record.getAccountId());
+            }
+        }
+    }
+
+    private static Account copyOf(final Account account) {
+        return account == null ? null : account.toBuilder().build();
+    }
+}
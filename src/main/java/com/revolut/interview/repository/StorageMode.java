@@ -0,0 +1,6 @@
+package com.revolut.interview.repository;
+
+public enum StorageMode {
+    HEAP,
+    OFF_HEAP
+}
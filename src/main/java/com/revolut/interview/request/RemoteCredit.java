@@ -0,0 +1,30 @@
+package com.revolut.interview.request;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.UUID;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Second half of a transfer between nodes, sent by the node that debited the source account.
+ * The amount is in the source currency; the receiving node converts it with its own FX rates.
+ */
+@Builder
+@Data
+@EqualsAndHashCode
+@ToString
+@JsonSerialize
+public class RemoteCredit {
+
+    private UUID       transferId;
+    private UUID       fromAccount;
+    private UUID       toAccount;
+    private BigDecimal amount;
+    private Currency   currency;
+}
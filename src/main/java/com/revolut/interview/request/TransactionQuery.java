@@ -0,0 +1,28 @@
+package com.revolut.interview.request;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.util.UUID;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Statement of one account: entries with timestamps in {@code [fromMillis, toMillis)} and
+ * entry ids below {@code beforeEntryId}, newest first.
+ */
+@Builder
+@Data
+@EqualsAndHashCode
+@ToString
+@JsonSerialize
+public class TransactionQuery {
+
+    private UUID accountId;
+    private long fromMillis;
+    private long toMillis;
+    private long beforeEntryId;
+    private int  limit;
+}
@@ -0,0 +1,21 @@
+package com.revolut.interview.request;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+@Builder
+@Data
+@EqualsAndHashCode
+@ToString
+@JsonSerialize
+public class TransferBatch {
+
+    private List<TransferMoney> transfers;
+    private boolean             allowPartial;
+}
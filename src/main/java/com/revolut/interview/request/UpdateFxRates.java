@@ -0,0 +1,23 @@
+package com.revolut.interview.request;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Map;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+@Builder
+@Data
+@EqualsAndHashCode
+@ToString
+@JsonSerialize
+public class UpdateFxRates {
+
+    private Currency                  base;
+    private Map<Currency, BigDecimal> rates; // Units of each currency per one unit of base
+}
@@ -0,0 +1,33 @@
+package com.revolut.interview.response;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.util.List;
+import java.util.UUID;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * One page of accounts ordered by account id. {@code nextCursor} is passed back as
+ * {@code after} to fetch the next page and is {@code null} on the last page.
+ */
+@Builder
+@Data
+@EqualsAndHashCode
+@ToString
+@JsonSerialize
+public class AccountPage {
+
+    private List<AccountResponse> accounts;
+    private UUID                  nextCursor;
+
+    public static AccountPage of(final List<AccountResponse> accounts, final int limit) {
+        return AccountPage.builder()
+                          .accounts(accounts)
+                          .nextCursor(accounts.size() < limit ? null : accounts.get(accounts.size() - 1).getAccountId())
+                          .build();
+    }
+}
@@ -21,5 +21,7 @@ public class AccountResponse {
     private UUID       accountId;
     private String     userId;
     private BigDecimal balance;
+    private BigDecimal heldAmount;
+    private BigDecimal availableBalance;
     private Currency   currency;
 }
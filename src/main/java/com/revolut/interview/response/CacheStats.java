@@ -0,0 +1,21 @@
+package com.revolut.interview.response;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+@Builder
+@Data
+@EqualsAndHashCode
+@ToString
+@JsonSerialize
+public class CacheStats {
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long size;
+}
@@ -0,0 +1,24 @@
+package com.revolut.interview.response;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import com.revolut.interview.cluster.ClusterNode;
+
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+@Builder
+@Data
+@EqualsAndHashCode
+@ToString
+@JsonSerialize
+public class ClusterStatus {
+
+    private String            self;
+    private List<ClusterNode> nodes;
+    private int               pendingTransfers;
+}
@@ -0,0 +1,34 @@
+package com.revolut.interview.response;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import com.revolut.interview.fx.FxRates;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Map;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+@Builder
+@Data
+@EqualsAndHashCode
+@ToString
+@JsonSerialize
+public class FxRatesResponse {
+
+    private long                      version;
+    private Currency                  base;
+    private Map<Currency, BigDecimal> rates;
+
+    public static FxRatesResponse of(final FxRates fxRates) {
+        return FxRatesResponse.builder()
+                              .version(fxRates.getVersion())
+                              .base(fxRates.getBase())
+                              .rates(fxRates.getRatesPerBase())
+                              .build();
+    }
+}
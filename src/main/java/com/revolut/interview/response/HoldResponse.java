@@ -0,0 +1,25 @@
+package com.revolut.interview.response;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+@Builder
+@Data
+@EqualsAndHashCode
+@ToString
+@JsonSerialize
+public class HoldResponse {
+
+    private UUID       holdId;
+    private UUID       accountId;
+    private BigDecimal amount;
+    private long       createdAt;
+    private long       expiresAt;
+}
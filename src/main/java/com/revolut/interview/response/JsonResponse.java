@@ -1,7 +1,5 @@
 package com.revolut.interview.response;
 
-import com.google.gson.JsonElement;
-
 import lombok.Data;
 
 @Data
@@ -9,19 +7,19 @@ public class JsonResponse {
 
     private Status      status;
     private String      message;
-    private JsonElement data;
+    private Object      data;
 
     public JsonResponse(Status status, String message) {
         this.status = status;
         this.message = message;
     }
 
-    public JsonResponse(Status status, JsonElement data) {
+    public JsonResponse(Status status, Object data) {
         this.status = status;
         this.data = data;
     }
 
-    public JsonResponse(Status status, String message, JsonElement data) {
+    public JsonResponse(Status status, String message, Object data) {
         this.status = status;
         this.message = message;
         this.data = data;
@@ -0,0 +1,25 @@
+package com.revolut.interview.response;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import com.revolut.interview.replication.ReplicationRole;
+
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+@Builder
+@Data
+@EqualsAndHashCode
+@ToString
+@JsonSerialize
+public class ReplicationStatus {
+
+    private ReplicationRole role;
+    private long            lsn;
+    private List<Long>      replicaLsns;
+    private Long            stalenessMillis;
+}
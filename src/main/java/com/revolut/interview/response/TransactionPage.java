@@ -0,0 +1,32 @@
+package com.revolut.interview.response;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * One page of an account statement, newest first. {@code nextCursor} is passed back as
+ * {@code before} to fetch older entries and is {@code null} on the last page.
+ */
+@Builder
+@Data
+@EqualsAndHashCode
+@ToString
+@JsonSerialize
+public class TransactionPage {
+
+    private List<TransactionResponse> transactions;
+    private Long                      nextCursor;
+
+    public static TransactionPage of(final List<TransactionResponse> transactions, final int limit) {
+        return TransactionPage.builder()
+                              .transactions(transactions)
+                              .nextCursor(transactions.size() < limit ? null : transactions.get(transactions.size() - 1).getEntryId())
+                              .build();
+    }
+}
@@ -0,0 +1,29 @@
+package com.revolut.interview.response;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.revolut.interview.model.TransactionType;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+@Builder
+@Data
+@EqualsAndHashCode
+@ToString
+@JsonSerialize
+public class TransactionResponse {
+
+    private long            entryId;
+    private long            transactionId;
+    private long            timestamp;
+    private TransactionType type;
+    private UUID            accountId;
+    private UUID            counterpartyAccountId;
+    private BigDecimal      amount;
+    private BigDecimal      balance;
+}
@@ -0,0 +1,36 @@
+package com.revolut.interview.response;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+@Builder
+@Data
+@EqualsAndHashCode
+@ToString
+@JsonSerialize
+public class TransferResult {
+
+    private int    index;
+    private Status status;
+    private String message;
+
+    public static TransferResult applied(final int index) {
+        return TransferResult.builder().index(index).status(Status.SUCCESS).message("Money has been transferred successfully").build();
+    }
+
+    public static TransferResult rejected(final int index, final String message) {
+        return TransferResult.builder().index(index).status(Status.ERROR).message(message).build();
+    }
+
+    public static TransferResult rolledBack(final int index) {
+        return rejected(index, "Not applied because another transfer in the batch failed");
+    }
+
+    public boolean isApplied() {
+        return status == Status.SUCCESS;
+    }
+}
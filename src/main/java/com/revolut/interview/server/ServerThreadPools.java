@@ -0,0 +1,65 @@
+package com.revolut.interview.server;
+
+import com.revolut.interview.config.ServerConfig;
+
+import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Builds the thread pool the embedded Jetty server runs requests on.
+ *
+ * <p>The default is a {@link QueuedThreadPool} with a bounded job queue: once every thread is
+ * busy and the queue is full, Jetty refuses new work instead of queueing it without limit, so
+ * an overloaded server sheds load rather than letting latency grow until threads run out.
+ *
+ * <p>With {@code virtualThreads} every request runs on its own virtual thread. The build
+ * targets Java 8, so the virtual thread executor is looked up reflectively and the queued
+ * pool is used when the running JDK does not have one.
+ */
+public final class ServerThreadPools {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServerThreadPools.class);
+
+    private ServerThreadPools() {
+    }
+
+    public static ThreadPool create(final ServerConfig serverConfig) {
+        if(serverConfig.getMinThreads() <= 0 || serverConfig.getMaxThreads() < serverConfig.getMinThreads()) {
+            throw new IllegalArgumentException(String.format("Server threads must satisfy 0 < min <= max: %s", serverConfig));
+        }
+        if(serverConfig.getQueueCapacity() <= 0 || serverConfig.getIdleTimeoutMillis() <= 0) {
+            throw new IllegalArgumentException(String.format("Server queue capacity and idle timeout must be positive: %s", serverConfig));
+        }
+        if(serverConfig.isVirtualThreads()) {
+            final ExecutorService executor = newVirtualThreadPerTaskExecutor();
+            if(executor != null) {
+                return new VirtualThreadPool(executor);
+            }
+            logger.warn("Virtual threads are not available on Java {}, using a queued thread pool", System.getProperty("java.version"));
+        }
+        final QueuedThreadPool threadPool = new QueuedThreadPool(serverConfig.getMaxThreads(),
+                                                                 serverConfig.getMinThreads(),
+                                                                 serverConfig.getIdleTimeoutMillis(),
+                                                                 new BlockingArrayQueue<>(Math.min(serverConfig.getQueueCapacity(), 1024),
+                                                                                          1024,
+                                                                                          serverConfig.getQueueCapacity()));
+        threadPool.setName("http");
+        return threadPool;
+    }
+
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+}
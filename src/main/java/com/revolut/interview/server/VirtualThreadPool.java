@@ -0,0 +1,73 @@
+package com.revolut.interview.server;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Jetty {@link ThreadPool} that starts a new (virtual) thread for every job. There is nothing
+ * to size or queue: a job blocked on an account lock or on I/O parks its virtual thread and
+ * frees the carrier thread for other requests.
+ */
+class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+
+    private final ExecutorService executor;
+    private final AtomicInteger   running = new AtomicInteger();
+
+    VirtualThreadPool(final ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(final Runnable job) {
+        running.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    job.run();
+                } finally {
+                    running.decrementAndGet();
+                }
+            });
+        } catch (RuntimeException ex) {
+            running.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        while(!executor.awaitTermination(1, TimeUnit.DAYS)) {
+            // wait until the executor has stopped
+        }
+    }
+
+    @Override
+    public int getThreads() {
+        return running.get();
+    }
+
+    @Override
+    public int getIdleThreads() {
+        return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        executor.shutdown();
+        super.doStop();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("VirtualThreadPool{running=%s}", running.get());
+    }
+}
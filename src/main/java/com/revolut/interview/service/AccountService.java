@@ -4,22 +4,40 @@ import com.google.common.annotations.VisibleForTesting;
 
 import com.revolut.interview.request.CreateAccount;
 import com.revolut.interview.request.DepositMoney;
+import com.revolut.interview.request.PlaceHold;
+import com.revolut.interview.request.TransactionQuery;
+import com.revolut.interview.request.TransferBatch;
 import com.revolut.interview.request.TransferMoney;
 import com.revolut.interview.request.WithDrawMoney;
 import com.revolut.interview.response.AccountResponse;
+import com.revolut.interview.response.HoldResponse;
+import com.revolut.interview.response.TransactionResponse;
+import com.revolut.interview.response.TransferResult;
+import com.revolut.interview.view.AccountView;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface AccountService {
 
     UUID createAccount(final CreateAccount account);
     AccountResponse getAccount(final UUID accountID);
+    AccountView getAccountView(final UUID accountID);
     List<AccountResponse> getAllAccounts();
+    List<AccountResponse> getAccounts(final UUID afterAccountId, final int limit);
+    void forEachAccount(final Consumer<AccountResponse> consumer);
+    int countAccounts();
     void deleteAccount(final UUID accountID);
     void transferAmount(final TransferMoney transferMoney);
+    List<TransferResult> transferAll(final TransferBatch transferBatch);
     void withDrawMoney(final WithDrawMoney withDrawMoney);
     void depositMoney(final DepositMoney depositMoney);
+    List<TransactionResponse> getTransactions(final TransactionQuery transactionQuery);
+    HoldResponse placeHold(final PlaceHold placeHold);
+    HoldResponse captureHold(final UUID accountID, final UUID holdId);
+    HoldResponse releaseHold(final UUID accountID, final UUID holdId);
+    List<HoldResponse> getHolds(final UUID accountID);
     @VisibleForTesting
     void deleteAllAccounts();
 }
@@ -2,179 +2,458 @@ package com.revolut.interview.service;
 
 import com.google.inject.Inject;
 
+import com.revolut.interview.audit.AuditLog;
 import com.revolut.interview.execption.AccountAlreadyExistException;
 import com.revolut.interview.execption.AccountNotExistsException;
+import com.revolut.interview.execption.HoldNotExistsException;
 import com.revolut.interview.execption.InsufficientBalanceException;
+import com.revolut.interview.fx.FxRateTable;
+import com.revolut.interview.fx.FxRates;
+import com.revolut.interview.hold.HoldBook;
+import com.revolut.interview.ledger.TransactionLedger;
+import com.revolut.interview.lock.AccountLock;
 import com.revolut.interview.mapper.AccountMapper;
 import com.revolut.interview.model.Account;
+import com.revolut.interview.model.Hold;
 import com.revolut.interview.repository.AccountRepository;
 import com.revolut.interview.request.CreateAccount;
 import com.revolut.interview.request.DepositMoney;
+import com.revolut.interview.request.PlaceHold;
+import com.revolut.interview.request.TransactionQuery;
+import com.revolut.interview.request.TransferBatch;
 import com.revolut.interview.request.TransferMoney;
 import com.revolut.interview.request.WithDrawMoney;
 import com.revolut.interview.response.AccountResponse;
+import com.revolut.interview.response.HoldResponse;
+import com.revolut.interview.response.TransactionResponse;
+import com.revolut.interview.response.TransferResult;
+import com.revolut.interview.uuid.AccountIdGenerator;
+import com.revolut.interview.view.AccountView;
+import com.revolut.interview.view.AccountViews;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+/**
+ * Changes accounts under the {@link AccountLock}. Account lookups are answered from
+ * {@link AccountViews} that every change publishes before it lets go of its locks, so they do
+ * not wait for writers; only a lookup that finds no view loads the account under the read lock.
+ *
+ * <p>Holds from the {@link HoldBook} count against the balance a withdrawal or transfer may
+ * take. They are placed, captured, released and expired under the account's write lock too.
+ */
 public class AccountServiceImpl implements AccountService {
 
     private final AccountRepository accountRepository;
     private final AccountMapper accountMapper;
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AccountLock accountLock;
+    private final AuditLog auditLog;
+    private final TransactionLedger transactionLedger;
+    private final FxRateTable fxRateTable;
+    private final AccountIdGenerator accountIdGenerator;
+    private final AccountViews accountViews;
+    private final HoldBook holdBook;
 
     private static final Logger logger = LoggerFactory.getLogger(AccountServiceImpl.class);
 
+    public AccountServiceImpl(final AccountRepository accountRepository, final AccountMapper accountMapper,
+                              final AccountLock accountLock, final AuditLog auditLog) {
+        this(accountRepository, accountMapper, accountLock, auditLog, new TransactionLedger(), new FxRateTable(), AccountIdGenerator.RANDOM,
+             new AccountViews(), new HoldBook());
+    }
+
     @Inject
-    public AccountServiceImpl(final AccountRepository accountRepository, final AccountMapper accountMapper) {
+    public AccountServiceImpl(final AccountRepository accountRepository, final AccountMapper accountMapper,
+                              final AccountLock accountLock, final AuditLog auditLog,
+                              final TransactionLedger transactionLedger, final FxRateTable fxRateTable,
+                              final AccountIdGenerator accountIdGenerator, final AccountViews accountViews,
+                              final HoldBook holdBook) {
         this.accountRepository = accountRepository;
         this.accountMapper = accountMapper;
+        this.accountLock = accountLock;
+        this.auditLog = auditLog;
+        this.transactionLedger = transactionLedger;
+        this.fxRateTable = fxRateTable;
+        this.accountIdGenerator = accountIdGenerator;
+        this.accountViews = accountViews;
+        this.holdBook = holdBook;
     }
 
     public UUID createAccount(final CreateAccount createAccount) {
-        lock.writeLock().lock();
-        try {
-            logger.info(String.format("Request for creating account: %s", createAccount));
-            if(this.isAccountExist(createAccount.getUserId())) {
-                throw new AccountAlreadyExistException(String.format("Account already exists for userId: %s", createAccount.getUserId()));
-            }
-
-            final UUID accountId = UUID.randomUUID();
-            logger.info(String.format("New account number generated: %s", accountId));
-            final Account account = accountMapper.createFrom(createAccount, accountId);
+        logger.debug("Request for creating account: {}", createAccount);
+        final UUID accountId = accountIdGenerator.next();
+        final Account account = accountMapper.createFrom(createAccount, accountId);
 
-            this.accountRepository.save(account);
-            return accountId;
-        } finally {
-            lock.writeLock().unlock();
+        if(!this.accountRepository.saveIfUserAbsent(account)) {
+            throw new AccountAlreadyExistException(String.format("Account already exists for userId: %s", createAccount.getUserId()));
         }
+        auditLog.accountCreated(accountId, createAccount);
+        return accountId;
     }
 
     public AccountResponse getAccount(final UUID accountId) {
-        lock.readLock().lock();
+        return getAccountView(accountId).getAccount();
+    }
+
+    @Override
+    public AccountView getAccountView(final UUID accountId) {
+        logger.debug("Request for get account for account Id: {}", accountId);
+        final AccountView view = accountViews.get(accountId);
+        if(view != null) {
+            return view;
+        }
+        final Lock lock = accountLock.readLock(accountId);
+        lock.lock();
         try {
-            logger.info(String.format("Request for get account for account Id: %s", accountId));
+            final long stamp = accountViews.stamp();
             final Account account = getAccountFromRepository(accountId);
-            return accountMapper.createFrom(account);
+            return accountViews.fill(accountId, accountMapper.createFrom(account), stamp);
         } finally {
-            lock.readLock().unlock();
+            lock.unlock();
         }
     }
 
     @Override
     public List<AccountResponse> getAllAccounts() {
-        lock.readLock().lock();
+        logger.debug("Request for get all accounts in the system");
+        final Lock lock = accountLock.readAllLock();
+        lock.lock();
         try {
-            logger.info("Request for get all accounts in the system");
             final Collection<Account> accounts = accountRepository.getAllAccounts();
             return accounts.stream()
                     .map(accountMapper::createFrom)
                     .collect(Collectors.toList());
         } finally {
-            lock.readLock().unlock();
+            lock.unlock();
         }
     }
 
+    @Override
+    public List<AccountResponse> getAccounts(final UUID afterAccountId, final int limit) {
+        logger.debug("Request for {} accounts after account Id: {}", limit, afterAccountId);
+        return accountRepository.getAccountsAfter(afterAccountId, limit).stream()
+                                .map(accountMapper::createFrom)
+                                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void forEachAccount(final Consumer<AccountResponse> consumer) {
+        logger.debug("Request for streaming all accounts in the system");
+        // No read-all lock here: a stream over millions of accounts must not hold back writers
+        accountRepository.getAllAccounts().forEach(account -> consumer.accept(accountMapper.createFrom(account)));
+    }
+
+    @Override
+    public int countAccounts() {
+        return accountRepository.getAllAccounts().size();
+    }
+
     @Override
     public void deleteAccount(final UUID accountId) {
-        lock.writeLock().lock();
+        logger.debug("Request for deleting account for account Id: {}", accountId);
+        final Lock lock = accountLock.writeLock(accountId);
+        lock.lock();
         try {
-            logger.info(String.format("Request for deleting account for account Id: %s", accountId));
             final Account account = getAccountFromRepository(accountId);
             accountRepository.deleteAccount(account.getId());
+            accountViews.remove(account.getId());
+            holdBook.removeAll(account.getId());
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
+        auditLog.accountDeleted(accountId);
     }
 
     @Override
     public void deleteAllAccounts() {
-        lock.writeLock().lock();
+        logger.debug("Request for deleting all accounts");
+        final Lock lock = accountLock.writeAllLock();
+        lock.lock();
         try {
-            logger.info("Request for deleting all accounts");
             accountRepository.deleteAllAccounts();
+            accountViews.clear();
+            holdBook.clear();
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
     public void transferAmount(final TransferMoney transferMoney){
-        lock.writeLock().lock();
+        logger.debug("Request for transfer money for: {}", transferMoney);
+        final Lock lock = accountLock.writeLock(transferMoney.getFromAccount(), transferMoney.getToAccount());
+        lock.lock();
         try{
-            logger.info(String.format("Request for transfer money for: %s", transferMoney.toString()));
             final Account fromAccount = getAccountFromRepository(transferMoney.getFromAccount());
             final Account toAccount = getAccountFromRepository(transferMoney.getToAccount());
+            final BigDecimal creditAmount = fxRateTable.current().convert(transferMoney.getAmount(), fromAccount.getCurrencyCode(),
+                                                                          toAccount.getCurrencyCode());
 
-            if(fromAccount.getBalance().compareTo(transferMoney.getAmount()) < 0){
+            if(fromAccount.getAvailableBalance().compareTo(transferMoney.getAmount()) < 0){
                 throw new InsufficientBalanceException(String.format("Insufficient balance in account id: %s", transferMoney.getFromAccount()));
             }
 
-            fromAccount.setBalance(fromAccount.getBalance().subtract(transferMoney.getAmount()));
-            toAccount.setBalance(toAccount.getBalance().add(transferMoney.getAmount()));
+            // Repositories may hand out copies, so a transfer to the same account must not apply both sides
+            if(!transferMoney.getFromAccount().equals(transferMoney.getToAccount())) {
+                fromAccount.setBalance(fromAccount.getBalance().subtract(transferMoney.getAmount()));
+                toAccount.setBalance(toAccount.getBalance().add(creditAmount));
 
-            // This method call only needed in-case of change from in memory data store (ConcurrentMap) to other type of repository
-            accountRepository.saveAll(Arrays.asList(fromAccount, toAccount));
+                // This method call only needed in-case of change from in memory data store (ConcurrentMap) to other type of repository
+                accountRepository.saveAll(Arrays.asList(fromAccount, toAccount));
+                publish(fromAccount);
+                publish(toAccount);
+                transactionLedger.recordTransfer(transferMoney.getFromAccount(), transferMoney.getToAccount(), transferMoney.getAmount(),
+                                                 creditAmount, fromAccount.getBalance(), toAccount.getBalance());
+            }
+        } finally {
+            lock.unlock();
+        }
+        auditLog.moneyTransferred(transferMoney);
+    }
+
+    @Override
+    public List<TransferResult> transferAll(final TransferBatch transferBatch) {
+        final List<TransferMoney> transfers = transferBatch.getTransfers() == null
+                ? Collections.emptyList()
+                : transferBatch.getTransfers();
+        logger.debug("Request for batch of {} transfers, allowPartial: {}", transfers.size(), transferBatch.isAllowPartial());
+
+        final Set<UUID> accountIds = new HashSet<>();
+        transfers.stream().filter(BatchTransfers::isComplete).forEach(transfer -> {
+            accountIds.add(transfer.getFromAccount());
+            accountIds.add(transfer.getToAccount());
+        });
+
+        final List<TransferResult> results;
+        final Lock lock = accountLock.writeLock(accountIds);
+        lock.lock();
+        try {
+            final Map<UUID, Account> accounts = new HashMap<>();
+            final Map<UUID, BigDecimal> balances = new HashMap<>();
+            final Map<UUID, Currency> currencies = new HashMap<>();
+            final Map<UUID, BigDecimal> openingBalances = new HashMap<>();
+            for(final UUID accountId : accountIds) {
+                final Account account = accountRepository.getAccountById(accountId);
+                if(account != null) {
+                    account.setHeldAmount(holdBook.heldOn(accountId));
+                    accounts.put(accountId, account);
+                    // Transfers are checked against what is not held, and the held amount added back after
+                    balances.put(accountId, account.getAvailableBalance());
+                    openingBalances.put(accountId, account.getBalance());
+                    currencies.put(accountId, account.getCurrencyCode());
+                }
+            }
+
+            final FxRates fxRates = fxRateTable.current();
+            results = new ArrayList<>(transfers.size());
+            for(int i = 0; i < transfers.size(); i++) {
+                results.add(BatchTransfers.apply(i, transfers.get(i), balances, currencies, fxRates));
+            }
+            if(!transferBatch.isAllowPartial() && BatchTransfers.anyRejected(results)) {
+                return BatchTransfers.rollBack(results);
+            }
+
+            final List<Account> changed = new ArrayList<>();
+            balances.forEach((accountId, available) -> {
+                final Account account = accounts.get(accountId);
+                final BigDecimal balance = available.add(account.getHeldAmount());
+                if(account.getBalance().compareTo(balance) != 0) {
+                    account.setBalance(balance);
+                    changed.add(account);
+                }
+            });
+            accountRepository.saveAll(changed);
+            changed.forEach(this::publish);
+            BatchTransfers.record(transactionLedger, transfers, results, openingBalances, currencies, fxRates);
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
+        for(int i = 0; i < results.size(); i++) {
+            if(results.get(i).isApplied()) {
+                auditLog.moneyTransferred(transfers.get(i));
+            }
+        }
+        return results;
     }
 
     @Override
     public void withDrawMoney(final WithDrawMoney withDrawMoney) {
-        lock.writeLock().lock();
+        logger.debug("Request for withdraw money from account Id: {}", withDrawMoney.getAccountId());
+        final Lock lock = accountLock.writeLock(withDrawMoney.getAccountId());
+        lock.lock();
         try{
-            logger.info(String.format("Request for withdraw money from account Id: %s", withDrawMoney.getAccountId().toString()));
             final Account account = getAccountFromRepository(withDrawMoney.getAccountId());
 
-            if(account.getBalance().compareTo(withDrawMoney.getAmount()) < 0){
+            if(account.getAvailableBalance().compareTo(withDrawMoney.getAmount()) < 0){
                 throw new InsufficientBalanceException(String.format("Insufficient balance in account id: %s", withDrawMoney.getAccountId()));
             }
             account.setBalance(account.getBalance().subtract(withDrawMoney.getAmount()));
 
             accountRepository.save(account);
+            publish(account);
+            transactionLedger.recordWithdrawal(withDrawMoney.getAccountId(), withDrawMoney.getAmount(), account.getBalance());
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
+        auditLog.moneyWithdrawn(withDrawMoney);
     }
 
     @Override
     public void depositMoney(final DepositMoney depositMoney) {
-        lock.writeLock().lock();
+        logger.debug("Request for deposit money to account Id: {}", depositMoney.getAccountId());
+        final Lock lock = accountLock.writeLock(depositMoney.getAccountId());
+        lock.lock();
         try{
-            logger.info(String.format("Request for deposit money to account Id: %s", depositMoney.getAccountId()));
             final Account account = getAccountFromRepository(depositMoney.getAccountId());
             account.setBalance(account.getBalance().add(depositMoney.getAmount()));
 
             accountRepository.save(account);
+            publish(account);
+            transactionLedger.recordDeposit(depositMoney.getAccountId(), depositMoney.getAmount(), account.getBalance());
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
+        auditLog.moneyDeposited(depositMoney);
     }
 
-    private boolean isAccountExist(String userId) {
-        lock.readLock().lock();
+    @Override
+    public HoldResponse placeHold(final PlaceHold placeHold) {
+        logger.debug("Request for hold on account Id: {}", placeHold.getAccountId());
+        final Hold hold;
+        final Lock lock = accountLock.writeLock(placeHold.getAccountId());
+        lock.lock();
         try {
-            logger.info(String.format("Searching the account for userId: %s", userId));
-            return accountRepository.isAccountExist(userId);
+            final Account account = getAccountFromRepository(placeHold.getAccountId());
+            if(placeHold.getAmount() != null && account.getAvailableBalance().compareTo(placeHold.getAmount()) < 0) {
+                throw new InsufficientBalanceException(String.format("Insufficient balance in account id: %s", placeHold.getAccountId()));
+            }
+            hold = holdBook.place(account.getId(), placeHold.getAmount(), placeHold.getExpirySeconds(), this::expireHold);
+            account.setHeldAmount(account.getHeldAmount().add(hold.getAmount()));
+            publish(account);
         } finally {
-            lock.readLock().unlock();
+            lock.unlock();
+        }
+        auditLog.holdPlaced(hold);
+        return accountMapper.createFrom(hold);
+    }
+
+    @Override
+    public HoldResponse captureHold(final UUID accountId, final UUID holdId) {
+        logger.debug("Request for capturing hold {} on account Id: {}", holdId, accountId);
+        final Hold hold;
+        final Lock lock = accountLock.writeLock(accountId);
+        lock.lock();
+        try {
+            hold = removeHold(accountId, holdId);
+            final Account account = getAccountFromRepository(accountId);
+            account.setBalance(account.getBalance().subtract(hold.getAmount()));
+
+            accountRepository.save(account);
+            publish(account);
+            transactionLedger.recordWithdrawal(accountId, hold.getAmount(), account.getBalance());
+        } finally {
+            lock.unlock();
+        }
+        auditLog.holdCaptured(hold);
+        return accountMapper.createFrom(hold);
+    }
+
+    @Override
+    public HoldResponse releaseHold(final UUID accountId, final UUID holdId) {
+        logger.debug("Request for releasing hold {} on account Id: {}", holdId, accountId);
+        final Hold hold;
+        final Lock lock = accountLock.writeLock(accountId);
+        lock.lock();
+        try {
+            hold = removeHold(accountId, holdId);
+            publish(getAccountFromRepository(accountId));
+        } finally {
+            lock.unlock();
+        }
+        auditLog.holdReleased(hold, false);
+        return accountMapper.createFrom(hold);
+    }
+
+    @Override
+    public List<HoldResponse> getHolds(final UUID accountId) {
+        final Lock lock = accountLock.readLock(accountId);
+        lock.lock();
+        try {
+            getAccountFromRepository(accountId);
+            return holdBook.holdsOf(accountId).stream()
+                           .map(accountMapper::createFrom)
+                           .collect(Collectors.toList());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<TransactionResponse> getTransactions(final TransactionQuery transactionQuery) {
+        logger.debug("Request for transactions: {}", transactionQuery);
+        getAccountFromRepository(transactionQuery.getAccountId());
+        return transactionLedger.statement(transactionQuery.getAccountId(), transactionQuery.getFromMillis(),
+                                           transactionQuery.getToMillis(), transactionQuery.getBeforeEntryId(),
+                                           transactionQuery.getLimit())
+                                .stream()
+                                .map(accountMapper::createFrom)
+                                .collect(Collectors.toList());
+    }
+
+    private void publish(final Account account) {
+        accountViews.publish(account.getId(), accountMapper.createFrom(account));
+    }
+
+    /**
+     * Called by the hold book's timer once a hold runs out, unless it was captured or released.
+     */
+    private void expireHold(final Hold hold) {
+        final Lock lock = accountLock.writeLock(hold.getAccountId());
+        lock.lock();
+        try {
+            if(!holdBook.remove(hold)) {
+                return;
+            }
+            final Account account = accountRepository.getAccountById(hold.getAccountId());
+            if(account != null) {
+                account.setHeldAmount(holdBook.heldOn(hold.getAccountId()));
+                publish(account);
+            }
+        } finally {
+            lock.unlock();
+        }
+        auditLog.holdReleased(hold, true);
+    }
+
+    private Hold removeHold(final UUID accountId, final UUID holdId) {
+        final Hold hold = holdBook.get(holdId);
+        if(hold == null || !hold.getAccountId().equals(accountId) || !holdBook.remove(hold)) {
+            throw new HoldNotExistsException(String.format("Hold %s not exist for accountId: %s", holdId, accountId));
         }
+        return hold;
     }
 
     private Account getAccountFromRepository(final UUID accountId) {
-        logger.info(String.format("Getting account detail from store for accountId: %s", accountId));
         final Account account = accountRepository.getAccountById(accountId);
         if(account == null){
             throw new AccountNotExistsException(String.format("Account not exist for accountId: %s", accountId));
         }
+        account.setHeldAmount(holdBook.heldOn(accountId));
         return account;
     }
 }
@@ -0,0 +1,156 @@
+package com.revolut.interview.service;
+
+import com.revolut.interview.admission.AdaptiveConcurrencyLimit;
+import com.revolut.interview.execption.ServiceOverloadedException;
+import com.revolut.interview.request.CreateAccount;
+import com.revolut.interview.request.DepositMoney;
+import com.revolut.interview.request.PlaceHold;
+import com.revolut.interview.request.TransactionQuery;
+import com.revolut.interview.request.TransferBatch;
+import com.revolut.interview.request.TransferMoney;
+import com.revolut.interview.request.WithDrawMoney;
+import com.revolut.interview.response.AccountResponse;
+import com.revolut.interview.response.HoldResponse;
+import com.revolut.interview.response.TransactionResponse;
+import com.revolut.interview.response.TransferResult;
+import com.revolut.interview.view.AccountView;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Admits money movements to the wrapped engine only while its {@link AdaptiveConcurrencyLimit}
+ * has room; the rest fail fast with {@link ServiceOverloadedException} instead of queueing
+ * behind the engine's locks. Account creation, deletion and reads are passed through.
+ */
+public class AdmissionControlledAccountService implements AccountService {
+
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final AccountService           delegate;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControlledAccountService.class);
+
+    public AdmissionControlledAccountService(final AccountService delegate, final AdaptiveConcurrencyLimit concurrencyLimit) {
+        this.delegate = delegate;
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    @Override
+    public UUID createAccount(final CreateAccount account) {
+        return delegate.createAccount(account);
+    }
+
+    @Override
+    public AccountResponse getAccount(final UUID accountID) {
+        return delegate.getAccount(accountID);
+    }
+
+    @Override
+    public AccountView getAccountView(final UUID accountID) {
+        return delegate.getAccountView(accountID);
+    }
+
+    @Override
+    public List<AccountResponse> getAllAccounts() {
+        return delegate.getAllAccounts();
+    }
+
+    @Override
+    public List<AccountResponse> getAccounts(final UUID afterAccountId, final int limit) {
+        return delegate.getAccounts(afterAccountId, limit);
+    }
+
+    @Override
+    public void forEachAccount(final Consumer<AccountResponse> consumer) {
+        delegate.forEachAccount(consumer);
+    }
+
+    @Override
+    public int countAccounts() {
+        return delegate.countAccounts();
+    }
+
+    @Override
+    public void deleteAccount(final UUID accountID) {
+        delegate.deleteAccount(accountID);
+    }
+
+    @Override
+    public void transferAmount(final TransferMoney transferMoney) {
+        admit(() -> {
+            delegate.transferAmount(transferMoney);
+            return null;
+        });
+    }
+
+    @Override
+    public List<TransferResult> transferAll(final TransferBatch transferBatch) {
+        return admit(() -> delegate.transferAll(transferBatch));
+    }
+
+    @Override
+    public void withDrawMoney(final WithDrawMoney withDrawMoney) {
+        admit(() -> {
+            delegate.withDrawMoney(withDrawMoney);
+            return null;
+        });
+    }
+
+    @Override
+    public void depositMoney(final DepositMoney depositMoney) {
+        admit(() -> {
+            delegate.depositMoney(depositMoney);
+            return null;
+        });
+    }
+
+    @Override
+    public HoldResponse placeHold(final PlaceHold placeHold) {
+        return admit(() -> delegate.placeHold(placeHold));
+    }
+
+    @Override
+    public HoldResponse captureHold(final UUID accountID, final UUID holdId) {
+        return admit(() -> delegate.captureHold(accountID, holdId));
+    }
+
+    @Override
+    public HoldResponse releaseHold(final UUID accountID, final UUID holdId) {
+        return delegate.releaseHold(accountID, holdId);
+    }
+
+    @Override
+    public List<HoldResponse> getHolds(final UUID accountID) {
+        return delegate.getHolds(accountID);
+    }
+
+    @Override
+    public List<TransactionResponse> getTransactions(final TransactionQuery transactionQuery) {
+        return delegate.getTransactions(transactionQuery);
+    }
+
+    @Override
+    public void deleteAllAccounts() {
+        delegate.deleteAllAccounts();
+    }
+
+    private <T> T admit(final Supplier<T> operation) {
+        if(!concurrencyLimit.tryAcquire()) {
+            logger.debug("Rejected money movement, {} in flight at limit {}", concurrencyLimit.getInFlight(), concurrencyLimit.getLimit());
+            throw new ServiceOverloadedException("Too many money movements in progress, please retry", RETRY_AFTER_SECONDS);
+        }
+        final long start = System.nanoTime();
+        try {
+            return operation.get();
+        } finally {
+            concurrencyLimit.release(System.nanoTime() - start);
+        }
+    }
+}
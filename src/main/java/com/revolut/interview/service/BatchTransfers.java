@@ -0,0 +1,134 @@
+package com.revolut.interview.service;
+
+import com.revolut.interview.execption.InvalidAmountException;
+import com.revolut.interview.execption.UnsupportedCurrencyException;
+import com.revolut.interview.fx.FxRates;
+import com.revolut.interview.ledger.TransactionLedger;
+import com.revolut.interview.model.AccountSnapshot;
+import com.revolut.interview.model.MinorUnits;
+import com.revolut.interview.request.TransferMoney;
+import com.revolut.interview.response.TransferResult;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Validation and bookkeeping shared by the engines' batch transfer implementations. Transfers
+ * are applied in order against working balances, so a later transfer sees the effect of the
+ * earlier ones in the same batch. A batch converts every transfer with the one {@link FxRates}
+ * snapshot it was given.
+ */
+final class BatchTransfers {
+
+    private BatchTransfers() {
+    }
+
+    static boolean isComplete(final TransferMoney transfer) {
+        return transfer != null
+                && transfer.getFromAccount() != null
+                && transfer.getToAccount() != null
+                && transfer.getAmount() != null;
+    }
+
+    static TransferResult apply(final int index, final TransferMoney transfer, final Map<UUID, BigDecimal> balances,
+                                final Map<UUID, Currency> currencies, final FxRates fxRates) {
+        final TransferResult invalid = validate(index, transfer, balances);
+        if(invalid != null) {
+            return invalid;
+        }
+        try {
+            final BigDecimal creditAmount = creditAmount(transfer, currencies, fxRates);
+            final BigDecimal fromBalance = balances.get(transfer.getFromAccount());
+            if(fromBalance.compareTo(transfer.getAmount()) < 0) {
+                return insufficientBalance(index, transfer);
+            }
+            balances.put(transfer.getFromAccount(), fromBalance.subtract(transfer.getAmount()));
+            balances.put(transfer.getToAccount(), balances.get(transfer.getToAccount()).add(creditAmount));
+            return TransferResult.applied(index);
+        } catch (InvalidAmountException | UnsupportedCurrencyException ex) {
+            return TransferResult.rejected(index, ex.getMessage());
+        }
+    }
+
+    static TransferResult applyMinorUnits(final int index, final TransferMoney transfer, final Map<UUID, AccountSnapshot> snapshots,
+                                          final Map<UUID, Long> balances, final FxRates fxRates) {
+        final TransferResult invalid = validate(index, transfer, snapshots);
+        if(invalid != null) {
+            return invalid;
+        }
+        try {
+            final AccountSnapshot fromAccount = snapshots.get(transfer.getFromAccount());
+            final AccountSnapshot toAccount = snapshots.get(transfer.getToAccount());
+            final long debitAmount = MinorUnits.fromDecimal(transfer.getAmount(), fromAccount.getCurrencyCode());
+            final long creditAmount = MinorUnits.fromDecimal(fxRates.convert(transfer.getAmount(), fromAccount.getCurrencyCode(),
+                                                                             toAccount.getCurrencyCode()),
+                                                             toAccount.getCurrencyCode());
+            if(balances.get(fromAccount.getId()) < debitAmount) {
+                return insufficientBalance(index, transfer);
+            }
+            balances.put(fromAccount.getId(), MinorUnits.subtract(balances.get(fromAccount.getId()), debitAmount));
+            balances.put(toAccount.getId(), MinorUnits.add(balances.get(toAccount.getId()), creditAmount));
+            return TransferResult.applied(index);
+        } catch (InvalidAmountException | UnsupportedCurrencyException ex) {
+            return TransferResult.rejected(index, ex.getMessage());
+        }
+    }
+
+    static TransferResult validate(final int index, final TransferMoney transfer, final Map<UUID, ?> accounts) {
+        if(!isComplete(transfer)) {
+            return TransferResult.rejected(index, "Transfer must have fromAccount, toAccount and amount");
+        }
+        if(!accounts.containsKey(transfer.getFromAccount())) {
+            return TransferResult.rejected(index, String.format("Account not exist for accountId: %s", transfer.getFromAccount()));
+        }
+        if(!accounts.containsKey(transfer.getToAccount())) {
+            return TransferResult.rejected(index, String.format("Account not exist for accountId: %s", transfer.getToAccount()));
+        }
+        return null;
+    }
+
+    static TransferResult insufficientBalance(final int index, final TransferMoney transfer) {
+        return TransferResult.rejected(index, String.format("Insufficient balance in account id: %s", transfer.getFromAccount()));
+    }
+
+    /**
+     * Records the applied transfers of a committed batch in order, with the balances they left
+     * when replayed from {@code openingBalances}.
+     */
+    static void record(final TransactionLedger ledger, final List<TransferMoney> transfers, final List<TransferResult> results,
+                       final Map<UUID, BigDecimal> openingBalances, final Map<UUID, Currency> currencies, final FxRates fxRates) {
+        final Map<UUID, BigDecimal> balances = new HashMap<>(openingBalances);
+        for(int i = 0; i < results.size(); i++) {
+            final TransferMoney transfer = transfers.get(i);
+            if(!results.get(i).isApplied() || transfer.getFromAccount().equals(transfer.getToAccount())) {
+                continue;
+            }
+            final BigDecimal creditAmount = creditAmount(transfer, currencies, fxRates);
+            final BigDecimal fromBalance = balances.get(transfer.getFromAccount()).subtract(transfer.getAmount());
+            final BigDecimal toBalance = balances.get(transfer.getToAccount()).add(creditAmount);
+            balances.put(transfer.getFromAccount(), fromBalance);
+            balances.put(transfer.getToAccount(), toBalance);
+            ledger.recordTransfer(transfer.getFromAccount(), transfer.getToAccount(), transfer.getAmount(), creditAmount,
+                                  fromBalance, toBalance);
+        }
+    }
+
+    private static BigDecimal creditAmount(final TransferMoney transfer, final Map<UUID, Currency> currencies, final FxRates fxRates) {
+        return fxRates.convert(transfer.getAmount(), currencies.get(transfer.getFromAccount()), currencies.get(transfer.getToAccount()));
+    }
+
+    static boolean anyRejected(final List<TransferResult> results) {
+        return results.stream().anyMatch(result -> !result.isApplied());
+    }
+
+    static List<TransferResult> rollBack(final List<TransferResult> results) {
+        return results.stream()
+                      .map(result -> result.isApplied() ? TransferResult.rolledBack(result.getIndex()) : result)
+                      .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,171 @@
+package com.revolut.interview.service;
+
+import com.revolut.interview.cluster.ClusterMembership;
+import com.revolut.interview.cluster.ClusterTransfers;
+import com.revolut.interview.execption.AccountNotExistsException;
+import com.revolut.interview.execption.InsufficientBalanceException;
+import com.revolut.interview.execption.InvalidAmountException;
+import com.revolut.interview.execption.InvalidRequestException;
+import com.revolut.interview.execption.MisdirectedRequestException;
+import com.revolut.interview.execption.UnsupportedCurrencyException;
+import com.revolut.interview.request.CreateAccount;
+import com.revolut.interview.request.DepositMoney;
+import com.revolut.interview.request.PlaceHold;
+import com.revolut.interview.request.TransactionQuery;
+import com.revolut.interview.request.TransferBatch;
+import com.revolut.interview.request.TransferMoney;
+import com.revolut.interview.request.WithDrawMoney;
+import com.revolut.interview.response.AccountResponse;
+import com.revolut.interview.response.HoldResponse;
+import com.revolut.interview.response.TransactionResponse;
+import com.revolut.interview.response.TransferResult;
+import com.revolut.interview.view.AccountView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * This node's engine as one member of a cluster. Requests are routed to the node that owns
+ * their accounts before they get here, so everything but transfers to an account of another
+ * node is passed through; those go through {@link ClusterTransfers}. An all-or-nothing batch
+ * cannot span nodes and is rejected as a whole if it tries to; with {@code allowPartial} each of
+ * its transfers is made on its own.
+ */
+public class ClusteredAccountService implements AccountService {
+
+    private final AccountService    delegate;
+    private final ClusterMembership membership;
+    private final ClusterTransfers  clusterTransfers;
+
+    public ClusteredAccountService(final AccountService delegate, final ClusterMembership membership, final ClusterTransfers clusterTransfers) {
+        this.delegate = delegate;
+        this.membership = membership;
+        this.clusterTransfers = clusterTransfers;
+    }
+
+    @Override
+    public UUID createAccount(final CreateAccount account) {
+        return delegate.createAccount(account);
+    }
+
+    @Override
+    public AccountResponse getAccount(final UUID accountID) {
+        return delegate.getAccount(accountID);
+    }
+
+    @Override
+    public AccountView getAccountView(final UUID accountID) {
+        return delegate.getAccountView(accountID);
+    }
+
+    @Override
+    public List<AccountResponse> getAllAccounts() {
+        return delegate.getAllAccounts();
+    }
+
+    @Override
+    public List<AccountResponse> getAccounts(final UUID afterAccountId, final int limit) {
+        return delegate.getAccounts(afterAccountId, limit);
+    }
+
+    @Override
+    public void forEachAccount(final Consumer<AccountResponse> consumer) {
+        delegate.forEachAccount(consumer);
+    }
+
+    @Override
+    public int countAccounts() {
+        return delegate.countAccounts();
+    }
+
+    @Override
+    public void deleteAccount(final UUID accountID) {
+        delegate.deleteAccount(accountID);
+    }
+
+    @Override
+    public void deleteAllAccounts() {
+        delegate.deleteAllAccounts();
+    }
+
+    @Override
+    public void transferAmount(final TransferMoney transferMoney) {
+        if(transferMoney.getFromAccount() != null && !membership.isLocal(transferMoney.getFromAccount())) {
+            throw new MisdirectedRequestException(String.format("Account %s is owned by node %s", transferMoney.getFromAccount(),
+                                                                membership.ownerOf(transferMoney.getFromAccount()).getId()));
+        }
+        if(transferMoney.getToAccount() == null || membership.isLocal(transferMoney.getToAccount())) {
+            delegate.transferAmount(transferMoney);
+            return;
+        }
+        clusterTransfers.transfer(transferMoney);
+    }
+
+    @Override
+    public List<TransferResult> transferAll(final TransferBatch transferBatch) {
+        final List<TransferMoney> transfers = transferBatch.getTransfers() == null
+                ? Collections.emptyList()
+                : transferBatch.getTransfers();
+        if(transfers.stream().filter(BatchTransfers::isComplete)
+                     .allMatch(transfer -> membership.isLocal(transfer.getFromAccount()) && membership.isLocal(transfer.getToAccount()))) {
+            return delegate.transferAll(transferBatch);
+        }
+
+        final List<TransferResult> results = new ArrayList<>(transfers.size());
+        for(int i = 0; i < transfers.size(); i++) {
+            final TransferMoney transferMoney = transfers.get(i);
+            if(!transferBatch.isAllowPartial()) {
+                results.add(TransferResult.rejected(i, "Batch spans cluster nodes; send it with allowPartial or split it by node"));
+            } else if(!BatchTransfers.isComplete(transferMoney)) {
+                results.add(BatchTransfers.validate(i, transferMoney, Collections.emptyMap()));
+            } else {
+                try {
+                    transferAmount(transferMoney);
+                    results.add(TransferResult.applied(i));
+                } catch (AccountNotExistsException | InsufficientBalanceException | InvalidAmountException
+                         | UnsupportedCurrencyException | InvalidRequestException | MisdirectedRequestException ex) {
+                    results.add(TransferResult.rejected(i, ex.getMessage()));
+                }
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void withDrawMoney(final WithDrawMoney withDrawMoney) {
+        delegate.withDrawMoney(withDrawMoney);
+    }
+
+    @Override
+    public void depositMoney(final DepositMoney depositMoney) {
+        delegate.depositMoney(depositMoney);
+    }
+
+    @Override
+    public HoldResponse placeHold(final PlaceHold placeHold) {
+        return delegate.placeHold(placeHold);
+    }
+
+    @Override
+    public HoldResponse captureHold(final UUID accountID, final UUID holdId) {
+        return delegate.captureHold(accountID, holdId);
+    }
+
+    @Override
+    public HoldResponse releaseHold(final UUID accountID, final UUID holdId) {
+        return delegate.releaseHold(accountID, holdId);
+    }
+
+    @Override
+    public List<HoldResponse> getHolds(final UUID accountID) {
+        return delegate.getHolds(accountID);
+    }
+
+    @Override
+    public List<TransactionResponse> getTransactions(final TransactionQuery transactionQuery) {
+        return delegate.getTransactions(transactionQuery);
+    }
+}
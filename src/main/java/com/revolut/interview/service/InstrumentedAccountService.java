@@ -0,0 +1,310 @@
+package com.revolut.interview.service;
+
+import com.revolut.interview.execption.AccountNotExistsException;
+import com.revolut.interview.execption.InsufficientBalanceException;
+import com.revolut.interview.metrics.LatencyHistogram;
+import com.revolut.interview.metrics.MetricsRegistry;
+import com.revolut.interview.request.CreateAccount;
+import com.revolut.interview.request.DepositMoney;
+import com.revolut.interview.request.PlaceHold;
+import com.revolut.interview.request.TransactionQuery;
+import com.revolut.interview.request.TransferBatch;
+import com.revolut.interview.request.TransferMoney;
+import com.revolut.interview.request.WithDrawMoney;
+import com.revolut.interview.response.AccountResponse;
+import com.revolut.interview.response.HoldResponse;
+import com.revolut.interview.response.TransactionResponse;
+import com.revolut.interview.response.TransferResult;
+import com.revolut.interview.view.AccountView;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Records the latency of every call to the wrapped service, per method, and counts the
+ * insufficient-balance and missing-account failures. All histograms and counters are looked
+ * up once here, so recording a call allocates nothing.
+ */
+public class InstrumentedAccountService implements AccountService {
+
+    private static final String DURATION = "account_service_duration_seconds";
+    private static final String FAILURES = "account_service_failures_total";
+
+    private final AccountService   delegate;
+    private final LatencyHistogram createAccountLatency;
+    private final LatencyHistogram getAccountLatency;
+    private final LatencyHistogram getAccountViewLatency;
+    private final LatencyHistogram getAllAccountsLatency;
+    private final LatencyHistogram getAccountsLatency;
+    private final LatencyHistogram forEachAccountLatency;
+    private final LatencyHistogram countAccountsLatency;
+    private final LatencyHistogram deleteAccountLatency;
+    private final LatencyHistogram transferAmountLatency;
+    private final LatencyHistogram transferAllLatency;
+    private final LatencyHistogram withDrawMoneyLatency;
+    private final LatencyHistogram depositMoneyLatency;
+    private final LatencyHistogram getTransactionsLatency;
+    private final LatencyHistogram deleteAllAccountsLatency;
+    private final LatencyHistogram placeHoldLatency;
+    private final LatencyHistogram captureHoldLatency;
+    private final LatencyHistogram releaseHoldLatency;
+    private final LatencyHistogram getHoldsLatency;
+    private final LongAdder        insufficientBalance;
+    private final LongAdder        accountNotExists;
+
+    public InstrumentedAccountService(final AccountService delegate, final MetricsRegistry metricsRegistry) {
+        this.delegate = delegate;
+        this.createAccountLatency = timer(metricsRegistry, "createAccount");
+        this.getAccountLatency = timer(metricsRegistry, "getAccount");
+        this.getAccountViewLatency = timer(metricsRegistry, "getAccountView");
+        this.getAllAccountsLatency = timer(metricsRegistry, "getAllAccounts");
+        this.getAccountsLatency = timer(metricsRegistry, "getAccounts");
+        this.forEachAccountLatency = timer(metricsRegistry, "forEachAccount");
+        this.countAccountsLatency = timer(metricsRegistry, "countAccounts");
+        this.deleteAccountLatency = timer(metricsRegistry, "deleteAccount");
+        this.transferAmountLatency = timer(metricsRegistry, "transferAmount");
+        this.transferAllLatency = timer(metricsRegistry, "transferAll");
+        this.withDrawMoneyLatency = timer(metricsRegistry, "withDrawMoney");
+        this.depositMoneyLatency = timer(metricsRegistry, "depositMoney");
+        this.getTransactionsLatency = timer(metricsRegistry, "getTransactions");
+        this.deleteAllAccountsLatency = timer(metricsRegistry, "deleteAllAccounts");
+        this.placeHoldLatency = timer(metricsRegistry, "placeHold");
+        this.captureHoldLatency = timer(metricsRegistry, "captureHold");
+        this.releaseHoldLatency = timer(metricsRegistry, "releaseHold");
+        this.getHoldsLatency = timer(metricsRegistry, "getHolds");
+        this.insufficientBalance = metricsRegistry.counter(FAILURES, "Account service calls failed by type", "exception", InsufficientBalanceException.class.getSimpleName());
+        this.accountNotExists = metricsRegistry.counter(FAILURES, "Account service calls failed by type", "exception", AccountNotExistsException.class.getSimpleName());
+        metricsRegistry.gauge("accounts", "Number of accounts", delegate::countAccounts);
+    }
+
+    @Override
+    public UUID createAccount(final CreateAccount account) {
+        final long start = System.nanoTime();
+        try {
+            return delegate.createAccount(account);
+        } catch (RuntimeException ex) {
+            throw failed(ex);
+        } finally {
+            createAccountLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public AccountResponse getAccount(final UUID accountID) {
+        final long start = System.nanoTime();
+        try {
+            return delegate.getAccount(accountID);
+        } catch (RuntimeException ex) {
+            throw failed(ex);
+        } finally {
+            getAccountLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public AccountView getAccountView(final UUID accountID) {
+        final long start = System.nanoTime();
+        try {
+            return delegate.getAccountView(accountID);
+        } catch (RuntimeException ex) {
+            throw failed(ex);
+        } finally {
+            getAccountViewLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<AccountResponse> getAllAccounts() {
+        final long start = System.nanoTime();
+        try {
+            return delegate.getAllAccounts();
+        } catch (RuntimeException ex) {
+            throw failed(ex);
+        } finally {
+            getAllAccountsLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<AccountResponse> getAccounts(final UUID afterAccountId, final int limit) {
+        final long start = System.nanoTime();
+        try {
+            return delegate.getAccounts(afterAccountId, limit);
+        } catch (RuntimeException ex) {
+            throw failed(ex);
+        } finally {
+            getAccountsLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void forEachAccount(final Consumer<AccountResponse> consumer) {
+        final long start = System.nanoTime();
+        try {
+            delegate.forEachAccount(consumer);
+        } catch (RuntimeException ex) {
+            throw failed(ex);
+        } finally {
+            forEachAccountLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public int countAccounts() {
+        final long start = System.nanoTime();
+        try {
+            return delegate.countAccounts();
+        } catch (RuntimeException ex) {
+            throw failed(ex);
+        } finally {
+            countAccountsLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void deleteAccount(final UUID accountID) {
+        final long start = System.nanoTime();
+        try {
+            delegate.deleteAccount(accountID);
+        } catch (RuntimeException ex) {
+            throw failed(ex);
+        } finally {
+            deleteAccountLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void transferAmount(final TransferMoney transferMoney) {
+        final long start = System.nanoTime();
+        try {
+            delegate.transferAmount(transferMoney);
+        } catch (RuntimeException ex) {
+            throw failed(ex);
+        } finally {
+            transferAmountLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<TransferResult> transferAll(final TransferBatch transferBatch) {
+        final long start = System.nanoTime();
+        try {
+            return delegate.transferAll(transferBatch);
+        } catch (RuntimeException ex) {
+            throw failed(ex);
+        } finally {
+            transferAllLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void withDrawMoney(final WithDrawMoney withDrawMoney) {
+        final long start = System.nanoTime();
+        try {
+            delegate.withDrawMoney(withDrawMoney);
+        } catch (RuntimeException ex) {
+            throw failed(ex);
+        } finally {
+            withDrawMoneyLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void depositMoney(final DepositMoney depositMoney) {
+        final long start = System.nanoTime();
+        try {
+            delegate.depositMoney(depositMoney);
+        } catch (RuntimeException ex) {
+            throw failed(ex);
+        } finally {
+            depositMoneyLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public HoldResponse placeHold(final PlaceHold placeHold) {
+        final long start = System.nanoTime();
+        try {
+            return delegate.placeHold(placeHold);
+        } catch (RuntimeException ex) {
+            throw failed(ex);
+        } finally {
+            placeHoldLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public HoldResponse captureHold(final UUID accountID, final UUID holdId) {
+        final long start = System.nanoTime();
+        try {
+            return delegate.captureHold(accountID, holdId);
+        } catch (RuntimeException ex) {
+            throw failed(ex);
+        } finally {
+            captureHoldLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public HoldResponse releaseHold(final UUID accountID, final UUID holdId) {
+        final long start = System.nanoTime();
+        try {
+            return delegate.releaseHold(accountID, holdId);
+        } catch (RuntimeException ex) {
+            throw failed(ex);
+        } finally {
+            releaseHoldLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<HoldResponse> getHolds(final UUID accountID) {
+        final long start = System.nanoTime();
+        try {
+            return delegate.getHolds(accountID);
+        } catch (RuntimeException ex) {
+            throw failed(ex);
+        } finally {
+            getHoldsLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<TransactionResponse> getTransactions(final TransactionQuery transactionQuery) {
+        final long start = System.nanoTime();
+        try {
+            return delegate.getTransactions(transactionQuery);
+        } catch (RuntimeException ex) {
+            throw failed(ex);
+        } finally {
+            getTransactionsLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void deleteAllAccounts() {
+        final long start = System.nanoTime();
+        try {
+            delegate.deleteAllAccounts();
+        } catch (RuntimeException ex) {
+            throw failed(ex);
+        } finally {
+            deleteAllAccountsLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    private RuntimeException failed(final RuntimeException ex) {
+        if(ex instanceof InsufficientBalanceException) {
+            insufficientBalance.increment();
+        } else if(ex instanceof AccountNotExistsException) {
+            accountNotExists.increment();
+        }
+        return ex;
+    }
+
+    private static LatencyHistogram timer(final MetricsRegistry metricsRegistry, final String method) {
+        return metricsRegistry.histogram(DURATION, "Time spent in account service calls", "method", method);
+    }
+}
@@ -0,0 +1,569 @@
+package com.revolut.interview.service;
+
+import com.google.inject.Inject;
+
+import com.revolut.interview.audit.AuditLog;
+import com.revolut.interview.execption.AccountAlreadyExistException;
+import com.revolut.interview.execption.AccountNotExistsException;
+import com.revolut.interview.execption.InsufficientBalanceException;
+import com.revolut.interview.execption.InvalidAmountException;
+import com.revolut.interview.execption.OperationNotSupportedException;
+import com.revolut.interview.execption.UnsupportedCurrencyException;
+import com.revolut.interview.fx.FxRateTable;
+import com.revolut.interview.fx.FxRates;
+import com.revolut.interview.ledger.TransactionLedger;
+import com.revolut.interview.mapper.AccountMapper;
+import com.revolut.interview.model.AccountSnapshot;
+import com.revolut.interview.model.MinorUnits;
+import com.revolut.interview.model.PendingCommit;
+import com.revolut.interview.request.CreateAccount;
+import com.revolut.interview.request.DepositMoney;
+import com.revolut.interview.request.PlaceHold;
+import com.revolut.interview.request.TransactionQuery;
+import com.revolut.interview.request.TransferBatch;
+import com.revolut.interview.request.TransferMoney;
+import com.revolut.interview.request.WithDrawMoney;
+import com.revolut.interview.response.AccountResponse;
+import com.revolut.interview.response.HoldResponse;
+import com.revolut.interview.response.TransactionResponse;
+import com.revolut.interview.response.TransferResult;
+import com.revolut.interview.view.AccountView;
+import com.revolut.interview.uuid.AccountIdGenerator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Lock-free account engine. Each account is an {@link AtomicReference} to an immutable
+ * {@link AccountSnapshot}; withdrawals and deposits are compare-and-set retry loops and a
+ * deleted account is a cell holding {@code null}. Balances are {@link MinorUnits}, so the
+ * retry loops compare and update plain {@code long}s; request amounts are converted once,
+ * exactly, against the account currency. A transfer between currencies converts its amount
+ * with one {@link FxRates} snapshot into the credit it commits on the target.
+ *
+ * <p>A transfer commits on both accounts at once through a {@link PendingCommit}. The
+ * transfer installs it in the snapshot of each account in account id order, checking the
+ * balance it leaves behind, then decides it with one compare-and-set and replaces the
+ * snapshots with their resolved versions. Until the commit is decided readers look through it
+ * to the balances before the transfer, and once it is decided to the balances after it, so no
+ * account ever shows half a transfer. A writer that finds an account held by a commit does
+ * not wait for it: it resolves a decided commit itself and aborts an undecided one, whose
+ * transfer then starts over, so a stalled transfer never blocks the accounts it touches.
+ * Deleting an account resolves its commit the same way, so a deleted account fails the
+ * transfer before any money moves.
+ *
+ * <p>All-or-nothing batches commit the same way. They validate every transfer against the
+ * snapshots they read, then install one commit of the net change of every account they
+ * touch, which only holds an account still at the version it was validated against. If an
+ * account has changed or been deleted since, the commit is dropped before any money moves and
+ * the batch is validated again from fresh snapshots, so readers see all of a batch or none of
+ * it and no operation is ever refused on a balance the batch does not leave behind.
+ *
+ * <p>Each movement is recorded in the {@link TransactionLedger} after its compare-and-set with
+ * the balance that compare-and-set produced. Movements racing on the same account may be
+ * recorded in a different order than they were applied.
+ */
+public class OptimisticAccountServiceImpl implements AccountService {
+
+    private final Map<UUID, AtomicReference<AccountSnapshot>> accounts = new ConcurrentHashMap<>();
+    private final Map<String, UUID>                           accountsByUser = new ConcurrentHashMap<>();
+    private final NavigableSet<UUID>                          accountIds = new ConcurrentSkipListSet<>();
+    private final AccountMapper                               accountMapper;
+    private final AuditLog                                    auditLog;
+    private final TransactionLedger                           transactionLedger;
+    private final FxRateTable                                 fxRateTable;
+    private final AccountIdGenerator                          accountIdGenerator;
+
+    private static final Logger logger = LoggerFactory.getLogger(OptimisticAccountServiceImpl.class);
+
+    public OptimisticAccountServiceImpl(final AccountMapper accountMapper, final AuditLog auditLog) {
+        this(accountMapper, auditLog, new TransactionLedger(), new FxRateTable());
+    }
+
+    public OptimisticAccountServiceImpl(final AccountMapper accountMapper, final AuditLog auditLog,
+                                        final TransactionLedger transactionLedger, final FxRateTable fxRateTable) {
+        this(accountMapper, auditLog, transactionLedger, fxRateTable, AccountIdGenerator.RANDOM);
+    }
+
+    @Inject
+    public OptimisticAccountServiceImpl(final AccountMapper accountMapper, final AuditLog auditLog,
+                                        final TransactionLedger transactionLedger, final FxRateTable fxRateTable,
+                                        final AccountIdGenerator accountIdGenerator) {
+        this.accountMapper = accountMapper;
+        this.auditLog = auditLog;
+        this.transactionLedger = transactionLedger;
+        this.fxRateTable = fxRateTable;
+        this.accountIdGenerator = accountIdGenerator;
+    }
+
+    @Override
+    public UUID createAccount(final CreateAccount createAccount) {
+        logger.debug("Request for creating account: {}", createAccount);
+        final UUID accountId = accountIdGenerator.next();
+        if(accountsByUser.putIfAbsent(createAccount.getUserId(), accountId) != null) {
+            throw new AccountAlreadyExistException(String.format("Account already exists for userId: %s", createAccount.getUserId()));
+        }
+        accounts.put(accountId, new AtomicReference<>(accountMapper.createSnapshotFrom(createAccount, accountId)));
+        accountIds.add(accountId);
+        auditLog.accountCreated(accountId, createAccount);
+        return accountId;
+    }
+
+    @Override
+    public AccountResponse getAccount(final UUID accountId) {
+        logger.debug("Request for get account for account Id: {}", accountId);
+        return accountMapper.createFrom(currentSnapshot(accountId));
+    }
+
+    @Override
+    public AccountView getAccountView(final UUID accountId) {
+        return AccountView.of(getAccount(accountId));
+    }
+
+    @Override
+    public List<AccountResponse> getAllAccounts() {
+        logger.debug("Request for get all accounts in the system");
+        return accounts.values().stream()
+                       .map(AtomicReference::get)
+                       .filter(snapshot -> snapshot != null)
+                       .map(snapshot -> accountMapper.createFrom(snapshot.resolved()))
+                       .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<AccountResponse> getAccounts(final UUID afterAccountId, final int limit) {
+        logger.debug("Request for {} accounts after account Id: {}", limit, afterAccountId);
+        final List<AccountResponse> page = new ArrayList<>(Math.min(limit, 1024));
+        final NavigableSet<UUID> remaining = afterAccountId == null ? accountIds : accountIds.tailSet(afterAccountId, false);
+        for(final UUID accountId : remaining) {
+            if(page.size() == limit) {
+                break;
+            }
+            final AtomicReference<AccountSnapshot> cell = accounts.get(accountId);
+            final AccountSnapshot snapshot = cell == null ? null : cell.get();
+            if(snapshot != null) {
+                page.add(accountMapper.createFrom(snapshot.resolved()));
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public void forEachAccount(final Consumer<AccountResponse> consumer) {
+        logger.debug("Request for streaming all accounts in the system");
+        accounts.values().forEach(cell -> {
+            final AccountSnapshot snapshot = cell.get();
+            if(snapshot != null) {
+                consumer.accept(accountMapper.createFrom(snapshot.resolved()));
+            }
+        });
+    }
+
+    @Override
+    public int countAccounts() {
+        return accounts.size();
+    }
+
+    @Override
+    public void deleteAccount(final UUID accountId) {
+        logger.debug("Request for deleting account for account Id: {}", accountId);
+        final AtomicReference<AccountSnapshot> cell = accounts.get(accountId);
+        final AccountSnapshot deleted = cell == null ? null : delete(cell);
+        if(deleted == null) {
+            throw new AccountNotExistsException(String.format("Account not exist for accountId: %s", accountId));
+        }
+        accounts.remove(accountId, cell);
+        accountIds.remove(accountId);
+        accountsByUser.remove(deleted.getUserId(), accountId);
+        auditLog.accountDeleted(accountId);
+    }
+
+    @Override
+    public void deleteAllAccounts() {
+        logger.debug("Request for deleting all accounts");
+        accounts.forEach((accountId, cell) -> {
+            final AccountSnapshot deleted = delete(cell);
+            accounts.remove(accountId, cell);
+            accountIds.remove(accountId);
+            if(deleted != null) {
+                accountsByUser.remove(deleted.getUserId(), accountId);
+            }
+        });
+    }
+
+    @Override
+    public void transferAmount(final TransferMoney transferMoney) {
+        logger.debug("Request for transfer money for: {}", transferMoney);
+        transfer(transferMoney);
+        auditLog.moneyTransferred(transferMoney);
+    }
+
+    @Override
+    public List<TransferResult> transferAll(final TransferBatch transferBatch) {
+        final List<TransferMoney> transfers = transferBatch.getTransfers() == null
+                ? Collections.emptyList()
+                : transferBatch.getTransfers();
+        logger.debug("Request for batch of {} transfers, allowPartial: {}", transfers.size(), transferBatch.isAllowPartial());
+
+        final List<TransferResult> results = transferBatch.isAllowPartial()
+                ? transferEach(transfers)
+                : transferAtomically(transfers);
+        for(int i = 0; i < results.size(); i++) {
+            if(results.get(i).isApplied()) {
+                auditLog.moneyTransferred(transfers.get(i));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void withDrawMoney(final WithDrawMoney withDrawMoney) {
+        logger.debug("Request for withdraw money from account Id: {}", withDrawMoney.getAccountId());
+        final AtomicReference<AccountSnapshot> cell = getCell(withDrawMoney.getAccountId());
+        final AccountSnapshot account = debit(cell, withDrawMoney.getAccountId(), toMinorUnits(cell, withDrawMoney.getAccountId(), withDrawMoney.getAmount()));
+        transactionLedger.recordWithdrawal(account.getId(), withDrawMoney.getAmount(), balanceOf(account));
+        auditLog.moneyWithdrawn(withDrawMoney);
+    }
+
+    @Override
+    public void depositMoney(final DepositMoney depositMoney) {
+        logger.debug("Request for deposit money to account Id: {}", depositMoney.getAccountId());
+        final AtomicReference<AccountSnapshot> cell = getCell(depositMoney.getAccountId());
+        final AccountSnapshot account = credit(cell, depositMoney.getAccountId(), toMinorUnits(cell, depositMoney.getAccountId(), depositMoney.getAmount()));
+        transactionLedger.recordDeposit(account.getId(), depositMoney.getAmount(), balanceOf(account));
+        auditLog.moneyDeposited(depositMoney);
+    }
+
+    @Override
+    public HoldResponse placeHold(final PlaceHold placeHold) {
+        throw holdsNotSupported();
+    }
+
+    @Override
+    public HoldResponse captureHold(final UUID accountId, final UUID holdId) {
+        throw holdsNotSupported();
+    }
+
+    @Override
+    public HoldResponse releaseHold(final UUID accountId, final UUID holdId) {
+        throw holdsNotSupported();
+    }
+
+    @Override
+    public List<HoldResponse> getHolds(final UUID accountId) {
+        throw holdsNotSupported();
+    }
+
+    @Override
+    public List<TransactionResponse> getTransactions(final TransactionQuery transactionQuery) {
+        logger.debug("Request for transactions: {}", transactionQuery);
+        currentSnapshot(transactionQuery.getAccountId());
+        return transactionLedger.statement(transactionQuery.getAccountId(), transactionQuery.getFromMillis(),
+                                           transactionQuery.getToMillis(), transactionQuery.getBeforeEntryId(),
+                                           transactionQuery.getLimit())
+                                .stream()
+                                .map(accountMapper::createFrom)
+                                .collect(Collectors.toList());
+    }
+
+    private void transfer(final TransferMoney transferMoney) {
+        final AtomicReference<AccountSnapshot> fromCell = getCell(transferMoney.getFromAccount());
+        final AtomicReference<AccountSnapshot> toCell = getCell(transferMoney.getToAccount());
+        final Currency fromCurrency = currencyOf(fromCell, transferMoney.getFromAccount());
+        final Currency toCurrency = currencyOf(toCell, transferMoney.getToAccount());
+        final BigDecimal converted = fxRateTable.current().convert(transferMoney.getAmount(), fromCurrency, toCurrency);
+        final long debitAmount = MinorUnits.fromDecimal(transferMoney.getAmount(), fromCurrency);
+        final long creditAmount = MinorUnits.fromDecimal(converted, toCurrency);
+
+        if(fromCell == toCell) {
+            if(currentSnapshot(transferMoney.getFromAccount()).getBalance() < debitAmount) {
+                throw new InsufficientBalanceException(String.format("Insufficient balance in account id: %s", transferMoney.getFromAccount()));
+            }
+            return;
+        }
+
+        final Map<UUID, Long> changes = new TreeMap<>();
+        changes.put(transferMoney.getFromAccount(), -debitAmount);
+        changes.put(transferMoney.getToAccount(), creditAmount);
+        final Map<UUID, AccountSnapshot> committed = commit(changes);
+        final AccountSnapshot fromAccount = committed.get(transferMoney.getFromAccount());
+        final AccountSnapshot toAccount = committed.get(transferMoney.getToAccount());
+        transactionLedger.recordTransfer(fromAccount.getId(), toAccount.getId(), transferMoney.getAmount(), converted,
+                                         balanceOf(fromAccount), balanceOf(toAccount));
+    }
+
+    private List<TransferResult> transferEach(final List<TransferMoney> transfers) {
+        final List<TransferResult> results = new ArrayList<>(transfers.size());
+        for(int i = 0; i < transfers.size(); i++) {
+            final TransferMoney transferMoney = transfers.get(i);
+            if(!BatchTransfers.isComplete(transferMoney)) {
+                results.add(BatchTransfers.validate(i, transferMoney, Collections.emptyMap()));
+                continue;
+            }
+            try {
+                transfer(transferMoney);
+                results.add(TransferResult.applied(i));
+            } catch (AccountNotExistsException | InsufficientBalanceException | InvalidAmountException | UnsupportedCurrencyException ex) {
+                results.add(TransferResult.rejected(i, ex.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    private List<TransferResult> transferAtomically(final List<TransferMoney> transfers) {
+        while(true) {
+            final Map<UUID, AccountSnapshot> snapshots = new HashMap<>();
+            for(final TransferMoney transferMoney : transfers) {
+                if(BatchTransfers.isComplete(transferMoney)) {
+                    readSnapshot(transferMoney.getFromAccount(), snapshots);
+                    readSnapshot(transferMoney.getToAccount(), snapshots);
+                }
+            }
+
+            final FxRates fxRates = fxRateTable.current();
+            final Map<UUID, Long> balances = new LinkedHashMap<>();
+            snapshots.forEach((accountId, snapshot) -> balances.put(accountId, snapshot.getBalance()));
+            final List<TransferResult> results = new ArrayList<>(transfers.size());
+            for(int i = 0; i < transfers.size(); i++) {
+                results.add(BatchTransfers.applyMinorUnits(i, transfers.get(i), snapshots, balances, fxRates));
+            }
+            if(BatchTransfers.anyRejected(results)) {
+                return BatchTransfers.rollBack(results);
+            }
+            final Map<UUID, Long> changes = new TreeMap<>();
+            balances.forEach((accountId, balance) -> changes.put(accountId, balance - snapshots.get(accountId).getBalance()));
+            if(commitOrRevalidate(changes, snapshots)) {
+                final Map<UUID, BigDecimal> openingBalances = new HashMap<>();
+                final Map<UUID, Currency> currencies = new HashMap<>();
+                snapshots.forEach((accountId, snapshot) -> {
+                    openingBalances.put(accountId, balanceOf(snapshot));
+                    currencies.put(accountId, snapshot.getCurrencyCode());
+                });
+                BatchTransfers.record(transactionLedger, transfers, results, openingBalances, currencies, fxRates);
+                return results;
+            }
+        }
+    }
+
+    private void readSnapshot(final UUID accountId, final Map<UUID, AccountSnapshot> snapshots) {
+        final AtomicReference<AccountSnapshot> cell = accounts.get(accountId);
+        final AccountSnapshot snapshot = cell == null ? null : cell.get();
+        if(snapshot != null) {
+            snapshots.put(accountId, snapshot.resolved());
+        }
+    }
+
+    /**
+     * Commits the net changes of a batch on accounts still at the versions it was validated
+     * against. Returns false, having moved no money, if the batch must be validated again.
+     */
+    private boolean commitOrRevalidate(final Map<UUID, Long> changes, final Map<UUID, AccountSnapshot> validated) {
+        try {
+            return commit(changes, validated) != null;
+        } catch (AccountNotExistsException ex) {
+            return false;
+        }
+    }
+
+    private Map<UUID, AccountSnapshot> commit(final Map<UUID, Long> changes) {
+        return commit(changes, Collections.emptyMap());
+    }
+
+    /**
+     * Installs a {@link PendingCommit} of {@code changes} on every account, in the iteration
+     * order of {@code changes}, commits it and returns the snapshots it left behind. Starts over
+     * with a new commit if a writer aborts it first. An account with a snapshot in
+     * {@code expected} is only held at that snapshot's version; if it has moved on, the commit is
+     * dropped and {@code null} returned.
+     */
+    private Map<UUID, AccountSnapshot> commit(final Map<UUID, Long> changes, final Map<UUID, AccountSnapshot> expected) {
+        while(true) {
+            final PendingCommit pendingCommit = new PendingCommit(changes);
+            final Map<AtomicReference<AccountSnapshot>, AccountSnapshot> held = new LinkedHashMap<>();
+            try {
+                for(final Map.Entry<UUID, Long> change : changes.entrySet()) {
+                    if(pendingCommit.isAborted()) {
+                        break;
+                    }
+                    final AtomicReference<AccountSnapshot> cell = getCell(change.getKey());
+                    final AccountSnapshot snapshot = hold(cell, change.getKey(), change.getValue(), expected.get(change.getKey()), pendingCommit);
+                    if(snapshot == null) {
+                        pendingCommit.abort();
+                        release(held);
+                        return null;
+                    }
+                    held.put(cell, snapshot);
+                }
+            } catch (RuntimeException ex) {
+                pendingCommit.abort();
+                release(held);
+                throw ex;
+            }
+            final boolean committed = pendingCommit.commit();
+            final Map<UUID, AccountSnapshot> resolved = release(held);
+            if(committed) {
+                return resolved;
+            }
+        }
+    }
+
+    /**
+     * Installs {@code pendingCommit} on the account once the balance it leaves behind is
+     * checked, resolving any other commit found there first. Returns {@code null} if the
+     * account is no longer at the version of {@code expected}.
+     */
+    private static AccountSnapshot hold(final AtomicReference<AccountSnapshot> cell, final UUID accountId, final long change,
+                                        final AccountSnapshot expected, final PendingCommit pendingCommit) {
+        while(true) {
+            final AccountSnapshot current = cell.get();
+            if(current == null) {
+                throw new AccountNotExistsException(String.format("Account not exist for accountId: %s", accountId));
+            }
+            if(current.getPending() != null) {
+                settle(cell, current);
+                continue;
+            }
+            if(expected != null && current.getVersion() != expected.getVersion()) {
+                return null;
+            }
+            if(MinorUnits.add(current.getBalance(), change) < 0) {
+                throw new InsufficientBalanceException(String.format("Insufficient balance in account id: %s", accountId));
+            }
+            final AccountSnapshot held = current.withPending(pendingCommit);
+            if(cell.compareAndSet(current, held)) {
+                return held;
+            }
+        }
+    }
+
+    /**
+     * Replaces each held snapshot with its resolved version, unless a writer has done so
+     * already, and returns the resolved snapshots by account id.
+     */
+    private static Map<UUID, AccountSnapshot> release(final Map<AtomicReference<AccountSnapshot>, AccountSnapshot> held) {
+        final Map<UUID, AccountSnapshot> resolved = new HashMap<>();
+        held.forEach((cell, snapshot) -> {
+            final AccountSnapshot released = snapshot.resolved();
+            cell.compareAndSet(snapshot, released);
+            resolved.put(released.getId(), released);
+        });
+        return resolved;
+    }
+
+    /**
+     * Decides the commit found on the account, aborting it if it is still undecided, and
+     * replaces {@code current} with its resolved version.
+     */
+    private static void settle(final AtomicReference<AccountSnapshot> cell, final AccountSnapshot current) {
+        current.getPending().abort();
+        cell.compareAndSet(current, current.resolved());
+    }
+
+    private AccountSnapshot debit(final AtomicReference<AccountSnapshot> cell, final UUID accountId, final long amount) {
+        while(true) {
+            final AccountSnapshot current = cell.get();
+            if(current == null) {
+                throw new AccountNotExistsException(String.format("Account not exist for accountId: %s", accountId));
+            }
+            if(current.getPending() != null) {
+                settle(cell, current);
+                continue;
+            }
+            if(current.getBalance() < amount) {
+                throw new InsufficientBalanceException(String.format("Insufficient balance in account id: %s", accountId));
+            }
+            final AccountSnapshot debited = current.withBalance(MinorUnits.subtract(current.getBalance(), amount));
+            if(cell.compareAndSet(current, debited)) {
+                return debited;
+            }
+        }
+    }
+
+    private AccountSnapshot credit(final AtomicReference<AccountSnapshot> cell, final UUID accountId, final long amount) {
+        while(true) {
+            final AccountSnapshot current = cell.get();
+            if(current == null) {
+                throw new AccountNotExistsException(String.format("Account not exist for accountId: %s", accountId));
+            }
+            if(current.getPending() != null) {
+                settle(cell, current);
+                continue;
+            }
+            final AccountSnapshot credited = current.withBalance(MinorUnits.add(current.getBalance(), amount));
+            if(cell.compareAndSet(current, credited)) {
+                return credited;
+            }
+        }
+    }
+
+    /**
+     * Empties the cell and returns the deleted snapshot, or {@code null} if the account was
+     * already deleted. A commit found on the account is resolved first.
+     */
+    private static AccountSnapshot delete(final AtomicReference<AccountSnapshot> cell) {
+        while(true) {
+            final AccountSnapshot current = cell.get();
+            if(current == null) {
+                return null;
+            }
+            if(current.getPending() != null) {
+                settle(cell, current);
+            } else if(cell.compareAndSet(current, null)) {
+                return current;
+            }
+        }
+    }
+
+    private static BigDecimal balanceOf(final AccountSnapshot snapshot) {
+        return MinorUnits.toDecimal(snapshot.getBalance(), snapshot.getCurrencyCode());
+    }
+
+    private long toMinorUnits(final AtomicReference<AccountSnapshot> cell, final UUID accountId, final BigDecimal amount) {
+        return MinorUnits.fromDecimal(amount, currencyOf(cell, accountId));
+    }
+
+    private Currency currencyOf(final AtomicReference<AccountSnapshot> cell, final UUID accountId) {
+        final AccountSnapshot snapshot = cell.get();
+        if(snapshot == null) {
+            throw new AccountNotExistsException(String.format("Account not exist for accountId: %s", accountId));
+        }
+        return snapshot.getCurrencyCode();
+    }
+
+    private AccountSnapshot currentSnapshot(final UUID accountId) {
+        final AccountSnapshot snapshot = getCell(accountId).get();
+        if(snapshot == null) {
+            throw new AccountNotExistsException(String.format("Account not exist for accountId: %s", accountId));
+        }
+        return snapshot.resolved();
+    }
+
+    private AtomicReference<AccountSnapshot> getCell(final UUID accountId) {
+        final AtomicReference<AccountSnapshot> cell = accounts.get(accountId);
+        if(cell == null) {
+            throw new AccountNotExistsException(String.format("Account not exist for accountId: %s", accountId));
+        }
+        return cell;
+    }
+
+    private static OperationNotSupportedException holdsNotSupported() {
+        return new OperationNotSupportedException("Holds are not supported by the OPTIMISTIC engine; run the LOCKING engine");
+    }
+}
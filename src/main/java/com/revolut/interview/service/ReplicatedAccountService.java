@@ -0,0 +1,136 @@
+package com.revolut.interview.service;
+
+import com.revolut.interview.replication.ReplicationNode;
+import com.revolut.interview.request.CreateAccount;
+import com.revolut.interview.request.DepositMoney;
+import com.revolut.interview.request.PlaceHold;
+import com.revolut.interview.request.TransactionQuery;
+import com.revolut.interview.request.TransferBatch;
+import com.revolut.interview.request.TransferMoney;
+import com.revolut.interview.request.WithDrawMoney;
+import com.revolut.interview.response.AccountResponse;
+import com.revolut.interview.response.HoldResponse;
+import com.revolut.interview.response.TransactionResponse;
+import com.revolut.interview.response.TransferResult;
+import com.revolut.interview.view.AccountView;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Holds every change back from the caller until enough replicas have applied it. The wait
+ * starts after the wrapped engine returns, so it does not keep the accounts locked, and it
+ * covers everything published by then: concurrent changes share their replica round trips.
+ */
+public class ReplicatedAccountService implements AccountService {
+
+    private final AccountService  delegate;
+    private final ReplicationNode replicationNode;
+
+    public ReplicatedAccountService(final AccountService delegate, final ReplicationNode replicationNode) {
+        this.delegate = delegate;
+        this.replicationNode = replicationNode;
+    }
+
+    @Override
+    public UUID createAccount(final CreateAccount account) {
+        final UUID accountId = delegate.createAccount(account);
+        replicationNode.awaitReplication();
+        return accountId;
+    }
+
+    @Override
+    public AccountResponse getAccount(final UUID accountID) {
+        return delegate.getAccount(accountID);
+    }
+
+    @Override
+    public AccountView getAccountView(final UUID accountID) {
+        return delegate.getAccountView(accountID);
+    }
+
+    @Override
+    public List<AccountResponse> getAllAccounts() {
+        return delegate.getAllAccounts();
+    }
+
+    @Override
+    public List<AccountResponse> getAccounts(final UUID afterAccountId, final int limit) {
+        return delegate.getAccounts(afterAccountId, limit);
+    }
+
+    @Override
+    public void forEachAccount(final Consumer<AccountResponse> consumer) {
+        delegate.forEachAccount(consumer);
+    }
+
+    @Override
+    public int countAccounts() {
+        return delegate.countAccounts();
+    }
+
+    @Override
+    public void deleteAccount(final UUID accountID) {
+        delegate.deleteAccount(accountID);
+        replicationNode.awaitReplication();
+    }
+
+    @Override
+    public void deleteAllAccounts() {
+        delegate.deleteAllAccounts();
+        replicationNode.awaitReplication();
+    }
+
+    @Override
+    public void transferAmount(final TransferMoney transferMoney) {
+        delegate.transferAmount(transferMoney);
+        replicationNode.awaitReplication();
+    }
+
+    @Override
+    public List<TransferResult> transferAll(final TransferBatch transferBatch) {
+        final List<TransferResult> results = delegate.transferAll(transferBatch);
+        replicationNode.awaitReplication();
+        return results;
+    }
+
+    @Override
+    public void withDrawMoney(final WithDrawMoney withDrawMoney) {
+        delegate.withDrawMoney(withDrawMoney);
+        replicationNode.awaitReplication();
+    }
+
+    @Override
+    public void depositMoney(final DepositMoney depositMoney) {
+        delegate.depositMoney(depositMoney);
+        replicationNode.awaitReplication();
+    }
+
+    @Override
+    public HoldResponse placeHold(final PlaceHold placeHold) {
+        return delegate.placeHold(placeHold);
+    }
+
+    @Override
+    public HoldResponse captureHold(final UUID accountID, final UUID holdId) {
+        final HoldResponse hold = delegate.captureHold(accountID, holdId);
+        replicationNode.awaitReplication();
+        return hold;
+    }
+
+    @Override
+    public HoldResponse releaseHold(final UUID accountID, final UUID holdId) {
+        return delegate.releaseHold(accountID, holdId);
+    }
+
+    @Override
+    public List<HoldResponse> getHolds(final UUID accountID) {
+        return delegate.getHolds(accountID);
+    }
+
+    @Override
+    public List<TransactionResponse> getTransactions(final TransactionQuery transactionQuery) {
+        return delegate.getTransactions(transactionQuery);
+    }
+}
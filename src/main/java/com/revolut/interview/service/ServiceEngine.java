@@ -0,0 +1,8 @@
+package com.revolut.interview.service;
+
+public enum ServiceEngine {
+    LOCKING,
+    OPTIMISTIC,
+    SINGLE_WRITER,
+    SHARDED
+}
@@ -0,0 +1,655 @@
+package com.revolut.interview.service;
+
+import com.google.inject.Inject;
+
+import com.revolut.interview.audit.AuditLog;
+import com.revolut.interview.config.ServiceConfig;
+import com.revolut.interview.execption.AccountAlreadyExistException;
+import com.revolut.interview.execption.AccountNotExistsException;
+import com.revolut.interview.execption.InsufficientBalanceException;
+import com.revolut.interview.execption.InvalidAmountException;
+import com.revolut.interview.execption.OperationNotSupportedException;
+import com.revolut.interview.execption.UnsupportedCurrencyException;
+import com.revolut.interview.fx.FxRateTable;
+import com.revolut.interview.fx.FxRates;
+import com.revolut.interview.ledger.TransactionLedger;
+import com.revolut.interview.mapper.AccountMapper;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.repository.AccountRepository;
+import com.revolut.interview.repository.AccountRepositoryImpl;
+import com.revolut.interview.repository.OffHeapAccountRepository;
+import com.revolut.interview.repository.StorageMode;
+import com.revolut.interview.request.CreateAccount;
+import com.revolut.interview.request.DepositMoney;
+import com.revolut.interview.request.PlaceHold;
+import com.revolut.interview.request.TransactionQuery;
+import com.revolut.interview.request.TransferBatch;
+import com.revolut.interview.request.TransferMoney;
+import com.revolut.interview.request.WithDrawMoney;
+import com.revolut.interview.response.AccountResponse;
+import com.revolut.interview.response.HoldResponse;
+import com.revolut.interview.response.TransactionResponse;
+import com.revolut.interview.response.TransferResult;
+import com.revolut.interview.view.AccountView;
+import com.revolut.interview.uuid.AccountIdGenerator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Account engine split by account id into shards. Each shard owns a slice of the accounts in
+ * its own repository and one thread that applies every change to that slice, so deposits,
+ * withdrawals and transfers within a shard need no locks and never wait for another shard.
+ * Reads go straight to the repositories: a shard thread never changes an {@link Account} it has
+ * stored, it stores a changed copy.
+ *
+ * <p>A transfer between shards is a two-phase commit driven by the calling thread. First the
+ * target shard pins the target account. Prepare then runs on the source shard, checks the
+ * balance and moves the amount out of it into a reservation, which pins the source. The credit
+ * then runs on the target shard and releases its pin. Commit drops the reservation; if the
+ * credit failed, abort returns the reserved amount to the source balance instead. A pinned
+ * account is deleted only once its last pin is released, and cannot be pinned again meanwhile,
+ * so a deleted target fails the transfer before the debit and an abort always finds its
+ * source. Shard threads never wait for one another, so the protocol cannot deadlock. A reader
+ * may briefly see the debit before the credit, but money is never created or lost and no
+ * account is ever overdrawn.
+ *
+ * <p>All-or-nothing batches validate every transfer against the balances they read, then pin
+ * the accounts with a net credit, prepare the net debit of each account, apply the net credits
+ * and commit. If an account is gone or a debit no longer fits, the pins and reservations taken
+ * so far are released and the batch is validated again. As in
+ * {@link OptimisticAccountServiceImpl}, movements racing on one account may reach the ledger
+ * out of order.
+ */
+public class ShardedAccountServiceImpl implements AccountService {
+
+    private final Shard[]                 shards;
+    private final Map<String, UUID>       accountsByUser = new ConcurrentHashMap<>();
+    private final AtomicLong              reservationIds = new AtomicLong();
+    private final AccountMapper           accountMapper;
+    private final AuditLog                auditLog;
+    private final TransactionLedger       transactionLedger;
+    private final FxRateTable             fxRateTable;
+    private final AccountIdGenerator      accountIdGenerator;
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedAccountServiceImpl.class);
+
+    @Inject
+    public ShardedAccountServiceImpl(final AccountMapper accountMapper, final AuditLog auditLog, final ServiceConfig serviceConfig,
+                                     final TransactionLedger transactionLedger, final FxRateTable fxRateTable,
+                                     final AccountIdGenerator accountIdGenerator) {
+        this(accountMapper, auditLog,
+             serviceConfig.getShardCount() > 0 ? serviceConfig.getShardCount() : Runtime.getRuntime().availableProcessors(),
+             transactionLedger, fxRateTable, accountIdGenerator,
+             serviceConfig.getStorageMode() == StorageMode.OFF_HEAP ? OffHeapAccountRepository::new : AccountRepositoryImpl::new);
+    }
+
+    public ShardedAccountServiceImpl(final AccountMapper accountMapper, final AuditLog auditLog, final int shardCount) {
+        this(accountMapper, auditLog, shardCount, new TransactionLedger(), new FxRateTable(), AccountIdGenerator.RANDOM,
+             AccountRepositoryImpl::new);
+    }
+
+    public ShardedAccountServiceImpl(final AccountMapper accountMapper, final AuditLog auditLog, final int shardCount,
+                                     final TransactionLedger transactionLedger, final FxRateTable fxRateTable,
+                                     final AccountIdGenerator accountIdGenerator, final Supplier<AccountRepository> repositories) {
+        if(shardCount <= 0) {
+            throw new IllegalArgumentException(String.format("Shard count must be positive: %s", shardCount));
+        }
+        this.accountMapper = accountMapper;
+        this.auditLog = auditLog;
+        this.transactionLedger = transactionLedger;
+        this.fxRateTable = fxRateTable;
+        this.accountIdGenerator = accountIdGenerator;
+        this.shards = new Shard[shardCount];
+        for(int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, repositories.get());
+        }
+    }
+
+    @Override
+    public UUID createAccount(final CreateAccount createAccount) {
+        logger.debug("Request for creating account: {}", createAccount);
+        final UUID accountId = accountIdGenerator.next();
+        if(accountsByUser.putIfAbsent(createAccount.getUserId(), accountId) != null) {
+            throw new AccountAlreadyExistException(String.format("Account already exists for userId: %s", createAccount.getUserId()));
+        }
+        final Account account = accountMapper.createFrom(createAccount, accountId);
+        final Shard shard = shardOf(accountId);
+        shard.call(() -> {
+            shard.accountRepository.save(account);
+            return null;
+        });
+        auditLog.accountCreated(accountId, createAccount);
+        return accountId;
+    }
+
+    @Override
+    public AccountResponse getAccount(final UUID accountId) {
+        logger.debug("Request for get account for account Id: {}", accountId);
+        return accountMapper.createFrom(shardOf(accountId).account(accountId));
+    }
+
+    @Override
+    public AccountView getAccountView(final UUID accountId) {
+        return AccountView.of(getAccount(accountId));
+    }
+
+    @Override
+    public List<AccountResponse> getAllAccounts() {
+        logger.debug("Request for get all accounts in the system");
+        final List<AccountResponse> accounts = new ArrayList<>();
+        forEachAccount(accounts::add);
+        return accounts;
+    }
+
+    /**
+     * Merges the first {@code limit} accounts of every shard after the cursor.
+     */
+    @Override
+    public List<AccountResponse> getAccounts(final UUID afterAccountId, final int limit) {
+        logger.debug("Request for {} accounts after account Id: {}", limit, afterAccountId);
+        final List<Account> candidates = new ArrayList<>();
+        for(final Shard shard : shards) {
+            candidates.addAll(shard.accountRepository.getAccountsAfter(afterAccountId, limit));
+        }
+        return candidates.stream()
+                         .sorted(Comparator.comparing(Account::getId))
+                         .limit(limit)
+                         .map(accountMapper::createFrom)
+                         .collect(Collectors.toList());
+    }
+
+    @Override
+    public void forEachAccount(final Consumer<AccountResponse> consumer) {
+        logger.debug("Request for streaming all accounts in the system");
+        for(final Shard shard : shards) {
+            shard.accountRepository.getAllAccounts().forEach(account -> consumer.accept(accountMapper.createFrom(account)));
+        }
+    }
+
+    @Override
+    public int countAccounts() {
+        int count = 0;
+        for(final Shard shard : shards) {
+            count += shard.accountRepository.getAllAccounts().size();
+        }
+        return count;
+    }
+
+    @Override
+    public void deleteAccount(final UUID accountId) {
+        logger.debug("Request for deleting account for account Id: {}", accountId);
+        final Shard shard = shardOf(accountId);
+        final Account deleted = join(shard.call(() -> shard.delete(accountId)));
+        accountsByUser.remove(deleted.getUserId(), accountId);
+        auditLog.accountDeleted(accountId);
+    }
+
+    @Override
+    public void deleteAllAccounts() {
+        logger.debug("Request for deleting all accounts");
+        for(final Shard shard : shards) {
+            shard.call(shard::deleteAll)
+                 .forEach(deletion -> {
+                     final Account account = join(deletion);
+                     accountsByUser.remove(account.getUserId(), account.getId());
+                 });
+        }
+    }
+
+    @Override
+    public void transferAmount(final TransferMoney transferMoney) {
+        logger.debug("Request for transfer money for: {}", transferMoney);
+        transfer(transferMoney);
+        auditLog.moneyTransferred(transferMoney);
+    }
+
+    @Override
+    public List<TransferResult> transferAll(final TransferBatch transferBatch) {
+        final List<TransferMoney> transfers = transferBatch.getTransfers() == null
+                ? Collections.emptyList()
+                : transferBatch.getTransfers();
+        logger.debug("Request for batch of {} transfers, allowPartial: {}", transfers.size(), transferBatch.isAllowPartial());
+
+        final List<TransferResult> results = transferBatch.isAllowPartial()
+                ? transferEach(transfers)
+                : transferAtomically(transfers);
+        for(int i = 0; i < results.size(); i++) {
+            if(results.get(i).isApplied()) {
+                auditLog.moneyTransferred(transfers.get(i));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void withDrawMoney(final WithDrawMoney withDrawMoney) {
+        logger.debug("Request for withdraw money from account Id: {}", withDrawMoney.getAccountId());
+        final Shard shard = shardOf(withDrawMoney.getAccountId());
+        shard.call(() -> {
+            final Account account = shard.debit(withDrawMoney.getAccountId(), withDrawMoney.getAmount());
+            transactionLedger.recordWithdrawal(account.getId(), withDrawMoney.getAmount(), account.getBalance());
+            return null;
+        });
+        auditLog.moneyWithdrawn(withDrawMoney);
+    }
+
+    @Override
+    public void depositMoney(final DepositMoney depositMoney) {
+        logger.debug("Request for deposit money to account Id: {}", depositMoney.getAccountId());
+        final Shard shard = shardOf(depositMoney.getAccountId());
+        shard.call(() -> {
+            final Account account = shard.credit(depositMoney.getAccountId(), depositMoney.getAmount());
+            transactionLedger.recordDeposit(account.getId(), depositMoney.getAmount(), account.getBalance());
+            return null;
+        });
+        auditLog.moneyDeposited(depositMoney);
+    }
+
+    @Override
+    public HoldResponse placeHold(final PlaceHold placeHold) {
+        throw holdsNotSupported();
+    }
+
+    @Override
+    public HoldResponse captureHold(final UUID accountId, final UUID holdId) {
+        throw holdsNotSupported();
+    }
+
+    @Override
+    public HoldResponse releaseHold(final UUID accountId, final UUID holdId) {
+        throw holdsNotSupported();
+    }
+
+    @Override
+    public List<HoldResponse> getHolds(final UUID accountId) {
+        throw holdsNotSupported();
+    }
+
+    @Override
+    public List<TransactionResponse> getTransactions(final TransactionQuery transactionQuery) {
+        logger.debug("Request for transactions: {}", transactionQuery);
+        shardOf(transactionQuery.getAccountId()).account(transactionQuery.getAccountId());
+        return transactionLedger.statement(transactionQuery.getAccountId(), transactionQuery.getFromMillis(),
+                                           transactionQuery.getToMillis(), transactionQuery.getBeforeEntryId(),
+                                           transactionQuery.getLimit())
+                                .stream()
+                                .map(accountMapper::createFrom)
+                                .collect(Collectors.toList());
+    }
+
+    /**
+     * Stops the shard threads once the work already submitted to them is done.
+     */
+    public void shutdown() {
+        for(final Shard shard : shards) {
+            shard.executor.shutdown();
+        }
+    }
+
+    private void transfer(final TransferMoney transferMoney) {
+        final Shard fromShard = shardOf(transferMoney.getFromAccount());
+        final Shard toShard = shardOf(transferMoney.getToAccount());
+        final Account fromAccount = fromShard.account(transferMoney.getFromAccount());
+        final Account toAccount = toShard.account(transferMoney.getToAccount());
+        final BigDecimal creditAmount = fxRateTable.current().convert(transferMoney.getAmount(), fromAccount.getCurrencyCode(),
+                                                                      toAccount.getCurrencyCode());
+        if(fromShard == toShard) {
+            fromShard.call(() -> {
+                fromShard.transferWithin(transferMoney, creditAmount);
+                return null;
+            });
+            return;
+        }
+
+        toShard.call(() -> toShard.pin(transferMoney.getToAccount()));
+        final Reservation reservation;
+        try {
+            reservation = fromShard.call(() -> fromShard.prepare(transferMoney.getFromAccount(), transferMoney.getAmount()));
+        } catch (RuntimeException ex) {
+            toShard.call(() -> toShard.unpin(transferMoney.getToAccount()));
+            throw ex;
+        }
+        final Account credited;
+        try {
+            credited = toShard.call(() -> toShard.creditPinned(transferMoney.getToAccount(), creditAmount));
+        } catch (RuntimeException ex) {
+            fromShard.call(() -> fromShard.abort(reservation));
+            throw ex;
+        }
+        fromShard.commit(reservation);
+        transactionLedger.recordTransfer(transferMoney.getFromAccount(), transferMoney.getToAccount(), transferMoney.getAmount(),
+                                         creditAmount, reservation.balance, credited.getBalance());
+    }
+
+    private List<TransferResult> transferEach(final List<TransferMoney> transfers) {
+        final List<TransferResult> results = new ArrayList<>(transfers.size());
+        for(int i = 0; i < transfers.size(); i++) {
+            final TransferMoney transferMoney = transfers.get(i);
+            if(!BatchTransfers.isComplete(transferMoney)) {
+                results.add(BatchTransfers.validate(i, transferMoney, Collections.emptyMap()));
+                continue;
+            }
+            try {
+                transfer(transferMoney);
+                results.add(TransferResult.applied(i));
+            } catch (AccountNotExistsException | InsufficientBalanceException | InvalidAmountException | UnsupportedCurrencyException ex) {
+                results.add(TransferResult.rejected(i, ex.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    private List<TransferResult> transferAtomically(final List<TransferMoney> transfers) {
+        while(true) {
+            final Map<UUID, Account> accounts = new HashMap<>();
+            final Map<UUID, BigDecimal> balances = new LinkedHashMap<>();
+            final Map<UUID, Currency> currencies = new HashMap<>();
+            for(final TransferMoney transferMoney : transfers) {
+                if(BatchTransfers.isComplete(transferMoney)) {
+                    read(transferMoney.getFromAccount(), accounts, balances, currencies);
+                    read(transferMoney.getToAccount(), accounts, balances, currencies);
+                }
+            }
+
+            final FxRates fxRates = fxRateTable.current();
+            final Map<UUID, BigDecimal> openingBalances = new HashMap<>(balances);
+            final List<TransferResult> results = new ArrayList<>(transfers.size());
+            for(int i = 0; i < transfers.size(); i++) {
+                results.add(BatchTransfers.apply(i, transfers.get(i), balances, currencies, fxRates));
+            }
+            if(BatchTransfers.anyRejected(results)) {
+                return BatchTransfers.rollBack(results);
+            }
+            if(commitNetChanges(openingBalances, balances)) {
+                BatchTransfers.record(transactionLedger, transfers, results, openingBalances, currencies, fxRates);
+                return results;
+            }
+        }
+    }
+
+    private void read(final UUID accountId, final Map<UUID, Account> accounts, final Map<UUID, BigDecimal> balances,
+                      final Map<UUID, Currency> currencies) {
+        final Account account = shardOf(accountId).accountRepository.getAccountById(accountId);
+        if(account != null) {
+            accounts.put(accountId, account);
+            balances.put(accountId, account.getBalance());
+            currencies.put(accountId, account.getCurrencyCode());
+        }
+    }
+
+    /**
+     * Returns false, having moved no money, if the batch must be validated again.
+     */
+    private boolean commitNetChanges(final Map<UUID, BigDecimal> openingBalances, final Map<UUID, BigDecimal> balances) {
+        final Map<UUID, BigDecimal> credits = new LinkedHashMap<>();
+        final List<Reservation> reservations = new ArrayList<>();
+        try {
+            for(final Map.Entry<UUID, BigDecimal> entry : balances.entrySet()) {
+                final BigDecimal change = entry.getValue().subtract(openingBalances.get(entry.getKey()));
+                if(change.signum() > 0) {
+                    final Shard shard = shardOf(entry.getKey());
+                    shard.call(() -> shard.pin(entry.getKey()));
+                    credits.put(entry.getKey(), change);
+                }
+            }
+            for(final Map.Entry<UUID, BigDecimal> entry : balances.entrySet()) {
+                final BigDecimal change = entry.getValue().subtract(openingBalances.get(entry.getKey()));
+                if(change.signum() < 0) {
+                    final Shard shard = shardOf(entry.getKey());
+                    reservations.add(shard.call(() -> shard.prepare(entry.getKey(), change.negate())));
+                }
+            }
+        } catch (AccountNotExistsException | InsufficientBalanceException ex) {
+            reservations.forEach(reservation -> {
+                final Shard reserved = shardOf(reservation.accountId);
+                reserved.call(() -> reserved.abort(reservation));
+            });
+            credits.keySet().forEach(accountId -> {
+                final Shard pinned = shardOf(accountId);
+                pinned.call(() -> pinned.unpin(accountId));
+            });
+            return false;
+        }
+        credits.forEach((accountId, change) -> {
+            final Shard shard = shardOf(accountId);
+            shard.call(() -> shard.creditPinned(accountId, change));
+        });
+        reservations.forEach(reservation -> shardOf(reservation.accountId).commit(reservation));
+        return true;
+    }
+
+    private Shard shardOf(final UUID accountId) {
+        if(accountId == null) {
+            throw new AccountNotExistsException("Account not exist for accountId: null");
+        }
+        final int hash = accountId.hashCode();
+        return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+    }
+
+    private static <T> T join(final CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if(ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if(ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Amount taken out of an account by prepare and not yet committed or aborted, with the
+     * balance prepare left behind.
+     */
+    private static final class Reservation {
+
+        private final long       id;
+        private final UUID       accountId;
+        private final BigDecimal amount;
+        private final BigDecimal balance;
+
+        private Reservation(final long id, final UUID accountId, final BigDecimal amount, final BigDecimal balance) {
+            this.id = id;
+            this.accountId = accountId;
+            this.amount = amount;
+            this.balance = balance;
+        }
+    }
+
+    /**
+     * The methods that change accounts, reservations or pins run on the shard's thread only.
+     * An account is pinned while a transfer still has to move money on it; deleting it waits
+     * for the last pin to be released.
+     */
+    private final class Shard {
+
+        private final AccountRepository                    accountRepository;
+        private final Map<Long, Reservation>               reservations = new HashMap<>();
+        private final Map<UUID, Integer>                   pins = new HashMap<>();
+        private final Map<UUID, CompletableFuture<Account>> deletions = new HashMap<>();
+        private final ExecutorService                      executor;
+
+        private Shard(final int number, final AccountRepository accountRepository) {
+            this.accountRepository = accountRepository;
+            this.executor = Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "account-shard-" + number);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        private <T> T call(final Supplier<T> operation) {
+            return join(CompletableFuture.supplyAsync(operation, executor));
+        }
+
+        private Account account(final UUID accountId) {
+            final Account account = accountRepository.getAccountById(accountId);
+            if(account == null) {
+                throw new AccountNotExistsException(String.format("Account not exist for accountId: %s", accountId));
+            }
+            return account;
+        }
+
+        private Account debit(final UUID accountId, final BigDecimal amount) {
+            final Account account = account(accountId);
+            if(account.getBalance().compareTo(amount) < 0) {
+                throw new InsufficientBalanceException(String.format("Insufficient balance in account id: %s", accountId));
+            }
+            return store(account, account.getBalance().subtract(amount));
+        }
+
+        private Account credit(final UUID accountId, final BigDecimal amount) {
+            final Account account = account(accountId);
+            return store(account, account.getBalance().add(amount));
+        }
+
+        private void transferWithin(final TransferMoney transferMoney, final BigDecimal creditAmount) {
+            final Account fromAccount = account(transferMoney.getFromAccount());
+            account(transferMoney.getToAccount());
+            if(fromAccount.getBalance().compareTo(transferMoney.getAmount()) < 0) {
+                throw new InsufficientBalanceException(String.format("Insufficient balance in account id: %s", transferMoney.getFromAccount()));
+            }
+            if(transferMoney.getFromAccount().equals(transferMoney.getToAccount())) {
+                return;
+            }
+            final Account debited = debit(transferMoney.getFromAccount(), transferMoney.getAmount());
+            final Account credited = credit(transferMoney.getToAccount(), creditAmount);
+            transactionLedger.recordTransfer(debited.getId(), credited.getId(), transferMoney.getAmount(), creditAmount,
+                                             debited.getBalance(), credited.getBalance());
+        }
+
+        private Void pin(final UUID accountId) {
+            account(accountId);
+            if(deletions.containsKey(accountId)) {
+                throw new AccountNotExistsException(String.format("Account not exist for accountId: %s", accountId));
+            }
+            pins.merge(accountId, 1, Integer::sum);
+            return null;
+        }
+
+        private Void unpin(final UUID accountId) {
+            final int remaining = pins.merge(accountId, -1, Integer::sum);
+            if(remaining > 0) {
+                return null;
+            }
+            pins.remove(accountId);
+            final CompletableFuture<Account> deletion = deletions.remove(accountId);
+            if(deletion != null) {
+                deletion.complete(deleteNow(accountId));
+            }
+            return null;
+        }
+
+        private Account creditPinned(final UUID accountId, final BigDecimal amount) {
+            try {
+                return credit(accountId, amount);
+            } finally {
+                unpin(accountId);
+            }
+        }
+
+        /**
+         * Pins the account for as long as the reservation lasts.
+         */
+        private Reservation prepare(final UUID accountId, final BigDecimal amount) {
+            pin(accountId);
+            final Account debited;
+            try {
+                debited = debit(accountId, amount);
+            } catch (RuntimeException ex) {
+                unpin(accountId);
+                throw ex;
+            }
+            final Reservation reservation = new Reservation(reservationIds.incrementAndGet(), accountId, amount, debited.getBalance());
+            reservations.put(reservation.id, reservation);
+            return reservation;
+        }
+
+        /**
+         * Drops the reservation without waiting: the amount has already left the balance.
+         */
+        private void commit(final Reservation reservation) {
+            executor.execute(() -> {
+                reservations.remove(reservation.id);
+                unpin(reservation.accountId);
+            });
+        }
+
+        /**
+         * Returns the reserved amount; the reservation's pin keeps the account from being deleted.
+         */
+        private Void abort(final Reservation reservation) {
+            if(reservations.remove(reservation.id) == null) {
+                return null;
+            }
+            creditPinned(reservation.accountId, reservation.amount);
+            return null;
+        }
+
+        /**
+         * Deletes the account now, or once the transfers pinning it are done.
+         */
+        private CompletableFuture<Account> delete(final UUID accountId) {
+            account(accountId);
+            if(deletions.containsKey(accountId)) {
+                throw new AccountNotExistsException(String.format("Account not exist for accountId: %s", accountId));
+            }
+            if(!pins.containsKey(accountId)) {
+                return CompletableFuture.completedFuture(deleteNow(accountId));
+            }
+            final CompletableFuture<Account> deletion = new CompletableFuture<>();
+            deletions.put(accountId, deletion);
+            return deletion;
+        }
+
+        private List<CompletableFuture<Account>> deleteAll() {
+            final List<CompletableFuture<Account>> deleted = new ArrayList<>();
+            new ArrayList<>(accountRepository.getAllAccounts()).forEach(account -> {
+                if(!deletions.containsKey(account.getId())) {
+                    deleted.add(delete(account.getId()));
+                }
+            });
+            return deleted;
+        }
+
+        private Account deleteNow(final UUID accountId) {
+            final Account account = account(accountId);
+            accountRepository.deleteAccount(accountId);
+            return account;
+        }
+
+        private Account store(final Account account, final BigDecimal balance) {
+            final Account changed = account.toBuilder().balance(balance).build();
+            accountRepository.save(changed);
+            return changed;
+        }
+    }
+
+    private static OperationNotSupportedException holdsNotSupported() {
+        return new OperationNotSupportedException("Holds are not supported by the SHARDED engine; run the LOCKING engine");
+    }
+}
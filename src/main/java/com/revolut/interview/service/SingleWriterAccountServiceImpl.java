@@ -0,0 +1,508 @@
+package com.revolut.interview.service;
+
+import com.google.inject.Inject;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventTranslatorThreeArg;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.revolut.interview.audit.AuditLog;
+import com.revolut.interview.config.ServiceConfig;
+import com.revolut.interview.execption.AccountAlreadyExistException;
+import com.revolut.interview.execption.AccountNotExistsException;
+import com.revolut.interview.execption.InsufficientBalanceException;
+import com.revolut.interview.execption.InvalidAmountException;
+import com.revolut.interview.execption.OperationNotSupportedException;
+import com.revolut.interview.execption.UnsupportedCurrencyException;
+import com.revolut.interview.fx.FxRateTable;
+import com.revolut.interview.fx.FxRates;
+import com.revolut.interview.ledger.TransactionLedger;
+import com.revolut.interview.mapper.AccountMapper;
+import com.revolut.interview.model.AccountSnapshot;
+import com.revolut.interview.model.MinorUnits;
+import com.revolut.interview.request.CreateAccount;
+import com.revolut.interview.request.DepositMoney;
+import com.revolut.interview.request.PlaceHold;
+import com.revolut.interview.request.TransactionQuery;
+import com.revolut.interview.request.TransferBatch;
+import com.revolut.interview.request.TransferMoney;
+import com.revolut.interview.request.WithDrawMoney;
+import com.revolut.interview.response.AccountResponse;
+import com.revolut.interview.response.HoldResponse;
+import com.revolut.interview.response.TransactionResponse;
+import com.revolut.interview.response.TransferResult;
+import com.revolut.interview.view.AccountView;
+import com.revolut.interview.uuid.AccountIdGenerator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Single-writer account engine. Every mutation is published to a ring buffer (LMAX disruptor)
+ * and applied by one dedicated writer thread, which is the only thread that ever changes an
+ * account, so mutations need no locks and are applied in one deterministic order. Callers wait
+ * for the writer's reply on a {@link CompletableFuture}.
+ *
+ * <p>Reads never go through the ring: the writer publishes an immutable {@link AccountSnapshot}
+ * per account after every change and {@code getAccount}/{@code getAllAccounts} read those.
+ * Balances are {@link MinorUnits}, as in {@link OptimisticAccountServiceImpl}.
+ *
+ * <p>The writer also appends every movement to the {@link TransactionLedger}, so the ledger
+ * follows the exact order in which balances changed.
+ */
+public class SingleWriterAccountServiceImpl implements AccountService {
+
+    private static final int MAX_RING_SIZE = 1 << 24;
+
+    private static final EventTranslatorThreeArg<Command, Operation, Object, CompletableFuture<Object>> TRANSLATOR =
+            (command, sequence, operation, request, reply) -> command.set(operation, request, reply);
+
+    private final Map<UUID, AccountSnapshot> published = new ConcurrentHashMap<>();
+    private final NavigableSet<UUID>         accountIds = new ConcurrentSkipListSet<>();
+    private final AccountMapper              accountMapper;
+    private final AuditLog                   auditLog;
+    private final TransactionLedger          transactionLedger;
+    private final FxRateTable                fxRateTable;
+    private final AccountIdGenerator         accountIdGenerator;
+    private final Disruptor<Command>         disruptor;
+    private final RingBuffer<Command>        ringBuffer;
+
+    private static final Logger logger = LoggerFactory.getLogger(SingleWriterAccountServiceImpl.class);
+
+    @Inject
+    public SingleWriterAccountServiceImpl(final AccountMapper accountMapper, final AuditLog auditLog,
+                                          final ServiceConfig serviceConfig, final TransactionLedger transactionLedger,
+                                          final FxRateTable fxRateTable, final AccountIdGenerator accountIdGenerator) {
+        this(accountMapper, auditLog, serviceConfig.getRingBufferSize(), transactionLedger, fxRateTable, accountIdGenerator);
+    }
+
+    public SingleWriterAccountServiceImpl(final AccountMapper accountMapper, final AuditLog auditLog,
+                                          final int ringBufferSize) {
+        this(accountMapper, auditLog, ringBufferSize, new TransactionLedger(), new FxRateTable(), AccountIdGenerator.RANDOM);
+    }
+
+    public SingleWriterAccountServiceImpl(final AccountMapper accountMapper, final AuditLog auditLog,
+                                          final int ringBufferSize, final TransactionLedger transactionLedger,
+                                          final FxRateTable fxRateTable, final AccountIdGenerator accountIdGenerator) {
+        if(ringBufferSize <= 0 || ringBufferSize > MAX_RING_SIZE) {
+            throw new IllegalArgumentException(String.format("Ring buffer size must be between 1 and %s: %s", MAX_RING_SIZE, ringBufferSize));
+        }
+        this.accountMapper = accountMapper;
+        this.auditLog = auditLog;
+        this.transactionLedger = transactionLedger;
+        this.fxRateTable = fxRateTable;
+        this.accountIdGenerator = accountIdGenerator;
+        this.disruptor = new Disruptor<>(Command::new,
+                                         ringBufferSize == 1 ? 1 : Integer.highestOneBit(ringBufferSize - 1) << 1,
+                                         runnable -> {
+                                             final Thread thread = new Thread(runnable, "account-writer");
+                                             thread.setDaemon(true);
+                                             return thread;
+                                         },
+                                         ProducerType.MULTI,
+                                         new BlockingWaitStrategy());
+        this.disruptor.handleEventsWith(new Writer());
+        this.ringBuffer = disruptor.start();
+    }
+
+    @Override
+    public UUID createAccount(final CreateAccount createAccount) {
+        logger.debug("Request for creating account: {}", createAccount);
+        final UUID accountId = submit(Operation.CREATE, createAccount);
+        auditLog.accountCreated(accountId, createAccount);
+        return accountId;
+    }
+
+    @Override
+    public AccountResponse getAccount(final UUID accountId) {
+        logger.debug("Request for get account for account Id: {}", accountId);
+        final AccountSnapshot snapshot = published.get(accountId);
+        if(snapshot == null) {
+            throw new AccountNotExistsException(String.format("Account not exist for accountId: %s", accountId));
+        }
+        return accountMapper.createFrom(snapshot);
+    }
+
+    @Override
+    public AccountView getAccountView(final UUID accountId) {
+        return AccountView.of(getAccount(accountId));
+    }
+
+    @Override
+    public List<AccountResponse> getAllAccounts() {
+        logger.debug("Request for get all accounts in the system");
+        return published.values().stream()
+                        .map(accountMapper::createFrom)
+                        .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<AccountResponse> getAccounts(final UUID afterAccountId, final int limit) {
+        logger.debug("Request for {} accounts after account Id: {}", limit, afterAccountId);
+        final List<AccountResponse> page = new ArrayList<>(Math.min(limit, 1024));
+        final NavigableSet<UUID> remaining = afterAccountId == null ? accountIds : accountIds.tailSet(afterAccountId, false);
+        for(final UUID accountId : remaining) {
+            if(page.size() == limit) {
+                break;
+            }
+            final AccountSnapshot snapshot = published.get(accountId);
+            if(snapshot != null) {
+                page.add(accountMapper.createFrom(snapshot));
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public void forEachAccount(final Consumer<AccountResponse> consumer) {
+        logger.debug("Request for streaming all accounts in the system");
+        published.values().forEach(snapshot -> consumer.accept(accountMapper.createFrom(snapshot)));
+    }
+
+    @Override
+    public int countAccounts() {
+        return published.size();
+    }
+
+    @Override
+    public void deleteAccount(final UUID accountId) {
+        logger.debug("Request for deleting account for account Id: {}", accountId);
+        submit(Operation.DELETE, accountId);
+        auditLog.accountDeleted(accountId);
+    }
+
+    @Override
+    public void deleteAllAccounts() {
+        logger.debug("Request for deleting all accounts");
+        submit(Operation.DELETE_ALL, null);
+    }
+
+    @Override
+    public void transferAmount(final TransferMoney transferMoney) {
+        logger.debug("Request for transfer money for: {}", transferMoney);
+        submit(Operation.TRANSFER, transferMoney);
+        auditLog.moneyTransferred(transferMoney);
+    }
+
+    @Override
+    public List<TransferResult> transferAll(final TransferBatch transferBatch) {
+        logger.debug("Request for batch transfer, allowPartial: {}", transferBatch.isAllowPartial());
+        final List<TransferResult> results = submit(Operation.TRANSFER_ALL, transferBatch);
+        for(int i = 0; i < results.size(); i++) {
+            if(results.get(i).isApplied()) {
+                auditLog.moneyTransferred(transferBatch.getTransfers().get(i));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void withDrawMoney(final WithDrawMoney withDrawMoney) {
+        logger.debug("Request for withdraw money from account Id: {}", withDrawMoney.getAccountId());
+        submit(Operation.WITHDRAW, withDrawMoney);
+        auditLog.moneyWithdrawn(withDrawMoney);
+    }
+
+    @Override
+    public void depositMoney(final DepositMoney depositMoney) {
+        logger.debug("Request for deposit money to account Id: {}", depositMoney.getAccountId());
+        submit(Operation.DEPOSIT, depositMoney);
+        auditLog.moneyDeposited(depositMoney);
+    }
+
+    @Override
+    public HoldResponse placeHold(final PlaceHold placeHold) {
+        throw holdsNotSupported();
+    }
+
+    @Override
+    public HoldResponse captureHold(final UUID accountId, final UUID holdId) {
+        throw holdsNotSupported();
+    }
+
+    @Override
+    public HoldResponse releaseHold(final UUID accountId, final UUID holdId) {
+        throw holdsNotSupported();
+    }
+
+    @Override
+    public List<HoldResponse> getHolds(final UUID accountId) {
+        throw holdsNotSupported();
+    }
+
+    @Override
+    public List<TransactionResponse> getTransactions(final TransactionQuery transactionQuery) {
+        logger.debug("Request for transactions: {}", transactionQuery);
+        if(!published.containsKey(transactionQuery.getAccountId())) {
+            throw new AccountNotExistsException(String.format("Account not exist for accountId: %s", transactionQuery.getAccountId()));
+        }
+        return transactionLedger.statement(transactionQuery.getAccountId(), transactionQuery.getFromMillis(),
+                                           transactionQuery.getToMillis(), transactionQuery.getBeforeEntryId(),
+                                           transactionQuery.getLimit())
+                                .stream()
+                                .map(accountMapper::createFrom)
+                                .collect(Collectors.toList());
+    }
+
+    /**
+     * Stops the writer thread once every published command has been applied.
+     */
+    public void shutdown() {
+        disruptor.shutdown();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T submit(final Operation operation, final Object request) {
+        final CompletableFuture<Object> reply = new CompletableFuture<>();
+        ringBuffer.publishEvent(TRANSLATOR, operation, request, reply);
+        try {
+            return (T) reply.join();
+        } catch (CompletionException ex) {
+            if(ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if(ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private enum Operation {
+        CREATE,
+        DELETE,
+        DELETE_ALL,
+        DEPOSIT,
+        WITHDRAW,
+        TRANSFER,
+        TRANSFER_ALL
+    }
+
+    private static final class Command {
+
+        private Operation                 operation;
+        private Object                    request;
+        private CompletableFuture<Object> reply;
+
+        void set(final Operation operation, final Object request, final CompletableFuture<Object> reply) {
+            this.operation = operation;
+            this.request = request;
+            this.reply = reply;
+        }
+
+        void clear() {
+            set(null, null, null);
+        }
+    }
+
+    /**
+     * Runs on the writer thread only. The user index is private to it; account snapshots are
+     * written to {@code published} as soon as they change.
+     */
+    private final class Writer implements EventHandler<Command> {
+
+        private final Map<String, UUID> accountsByUser = new HashMap<>();
+
+        @Override
+        public void onEvent(final Command command, final long sequence, final boolean endOfBatch) {
+            final CompletableFuture<Object> reply = command.reply;
+            try {
+                reply.complete(apply(command.operation, command.request));
+            } catch (Throwable ex) {
+                reply.completeExceptionally(ex);
+            } finally {
+                command.clear();
+            }
+        }
+
+        private Object apply(final Operation operation, final Object request) {
+            switch (operation) {
+                case CREATE:
+                    return create((CreateAccount) request);
+                case DELETE:
+                    delete((UUID) request);
+                    return null;
+                case DELETE_ALL:
+                    published.clear();
+                    accountIds.clear();
+                    accountsByUser.clear();
+                    return null;
+                case DEPOSIT:
+                    deposit((DepositMoney) request);
+                    return null;
+                case WITHDRAW:
+                    withdraw((WithDrawMoney) request);
+                    return null;
+                case TRANSFER:
+                    transfer((TransferMoney) request);
+                    return null;
+                case TRANSFER_ALL:
+                    return transferAll((TransferBatch) request);
+                default:
+                    throw new IllegalStateException(String.format("Unknown operation: %s", operation));
+            }
+        }
+
+        private UUID create(final CreateAccount createAccount) {
+            if(accountsByUser.containsKey(createAccount.getUserId())) {
+                throw new AccountAlreadyExistException(String.format("Account already exists for userId: %s", createAccount.getUserId()));
+            }
+            final UUID accountId = accountIdGenerator.next();
+            published.put(accountId, accountMapper.createSnapshotFrom(createAccount, accountId));
+            accountIds.add(accountId);
+            accountsByUser.put(createAccount.getUserId(), accountId);
+            return accountId;
+        }
+
+        private void delete(final UUID accountId) {
+            final AccountSnapshot deleted = published.remove(accountId);
+            if(deleted == null) {
+                throw new AccountNotExistsException(String.format("Account not exist for accountId: %s", accountId));
+            }
+            accountIds.remove(accountId);
+            accountsByUser.remove(deleted.getUserId(), accountId);
+        }
+
+        private void deposit(final DepositMoney depositMoney) {
+            final AccountSnapshot account = account(depositMoney.getAccountId());
+            final long amount = MinorUnits.fromDecimal(depositMoney.getAmount(), account.getCurrencyCode());
+            final AccountSnapshot deposited = account.withBalance(MinorUnits.add(account.getBalance(), amount));
+            publish(deposited);
+            transactionLedger.recordDeposit(deposited.getId(), depositMoney.getAmount(), balanceOf(deposited));
+        }
+
+        private void withdraw(final WithDrawMoney withDrawMoney) {
+            final AccountSnapshot account = account(withDrawMoney.getAccountId());
+            final long amount = MinorUnits.fromDecimal(withDrawMoney.getAmount(), account.getCurrencyCode());
+            if(account.getBalance() < amount) {
+                throw new InsufficientBalanceException(String.format("Insufficient balance in account id: %s", withDrawMoney.getAccountId()));
+            }
+            final AccountSnapshot withdrawn = account.withBalance(MinorUnits.subtract(account.getBalance(), amount));
+            publish(withdrawn);
+            transactionLedger.recordWithdrawal(withdrawn.getId(), withDrawMoney.getAmount(), balanceOf(withdrawn));
+        }
+
+        private void transfer(final TransferMoney transferMoney) {
+            final AccountSnapshot fromAccount = account(transferMoney.getFromAccount());
+            final AccountSnapshot toAccount = account(transferMoney.getToAccount());
+            final BigDecimal converted = fxRateTable.current().convert(transferMoney.getAmount(), fromAccount.getCurrencyCode(),
+                                                                       toAccount.getCurrencyCode());
+            final long debitAmount = MinorUnits.fromDecimal(transferMoney.getAmount(), fromAccount.getCurrencyCode());
+            final long creditAmount = MinorUnits.fromDecimal(converted, toAccount.getCurrencyCode());
+            if(fromAccount.getBalance() < debitAmount) {
+                throw new InsufficientBalanceException(String.format("Insufficient balance in account id: %s", transferMoney.getFromAccount()));
+            }
+            if(fromAccount.getId().equals(toAccount.getId())) {
+                return;
+            }
+            final long fromBalance = MinorUnits.subtract(fromAccount.getBalance(), debitAmount);
+            final long toBalance = MinorUnits.add(toAccount.getBalance(), creditAmount);
+            publish(fromAccount.withBalance(fromBalance));
+            publish(toAccount.withBalance(toBalance));
+            transactionLedger.recordTransfer(fromAccount.getId(), toAccount.getId(), transferMoney.getAmount(), converted,
+                                             MinorUnits.toDecimal(fromBalance, fromAccount.getCurrencyCode()),
+                                             MinorUnits.toDecimal(toBalance, toAccount.getCurrencyCode()));
+        }
+
+        private List<TransferResult> transferAll(final TransferBatch transferBatch) {
+            final List<TransferMoney> transfers = transferBatch.getTransfers() == null
+                    ? Collections.emptyList()
+                    : transferBatch.getTransfers();
+            final List<TransferResult> results = new ArrayList<>(transfers.size());
+
+            if(transferBatch.isAllowPartial()) {
+                for(int i = 0; i < transfers.size(); i++) {
+                    final TransferMoney transferMoney = transfers.get(i);
+                    if(!BatchTransfers.isComplete(transferMoney)) {
+                        results.add(BatchTransfers.validate(i, transferMoney, Collections.emptyMap()));
+                        continue;
+                    }
+                    try {
+                        transfer(transferMoney);
+                        results.add(TransferResult.applied(i));
+                    } catch (AccountNotExistsException | InsufficientBalanceException | InvalidAmountException | UnsupportedCurrencyException ex) {
+                        results.add(TransferResult.rejected(i, ex.getMessage()));
+                    }
+                }
+                return results;
+            }
+
+            final Map<UUID, AccountSnapshot> snapshots = new HashMap<>();
+            final Map<UUID, Long> balances = new LinkedHashMap<>();
+            for(final TransferMoney transferMoney : transfers) {
+                if(BatchTransfers.isComplete(transferMoney)) {
+                    read(transferMoney.getFromAccount(), snapshots, balances);
+                    read(transferMoney.getToAccount(), snapshots, balances);
+                }
+            }
+            final FxRates fxRates = fxRateTable.current();
+            for(int i = 0; i < transfers.size(); i++) {
+                results.add(BatchTransfers.applyMinorUnits(i, transfers.get(i), snapshots, balances, fxRates));
+            }
+            if(BatchTransfers.anyRejected(results)) {
+                return BatchTransfers.rollBack(results);
+            }
+            balances.forEach((accountId, balance) -> {
+                final AccountSnapshot snapshot = snapshots.get(accountId);
+                if(snapshot.getBalance() != balance) {
+                    publish(snapshot.withBalance(balance));
+                }
+            });
+            final Map<UUID, BigDecimal> openingBalances = new HashMap<>();
+            final Map<UUID, Currency> currencies = new HashMap<>();
+            snapshots.forEach((accountId, snapshot) -> {
+                openingBalances.put(accountId, balanceOf(snapshot));
+                currencies.put(accountId, snapshot.getCurrencyCode());
+            });
+            BatchTransfers.record(transactionLedger, transfers, results, openingBalances, currencies, fxRates);
+            return results;
+        }
+
+        private void read(final UUID accountId, final Map<UUID, AccountSnapshot> snapshots, final Map<UUID, Long> balances) {
+            final AccountSnapshot snapshot = published.get(accountId);
+            if(snapshot != null) {
+                snapshots.put(accountId, snapshot);
+                balances.put(accountId, snapshot.getBalance());
+            }
+        }
+
+        private AccountSnapshot account(final UUID accountId) {
+            final AccountSnapshot snapshot = accountId == null ? null : published.get(accountId);
+            if(snapshot == null) {
+                throw new AccountNotExistsException(String.format("Account not exist for accountId: %s", accountId));
+            }
+            return snapshot;
+        }
+
+        private void publish(final AccountSnapshot snapshot) {
+            published.put(snapshot.getId(), snapshot);
+        }
+
+        private BigDecimal balanceOf(final AccountSnapshot snapshot) {
+            return MinorUnits.toDecimal(snapshot.getBalance(), snapshot.getCurrencyCode());
+        }
+    }
+
+    private static OperationNotSupportedException holdsNotSupported() {
+        return new OperationNotSupportedException("Holds are not supported by the SINGLE_WRITER engine; run the LOCKING engine");
+    }
+}
@@ -0,0 +1,14 @@
+package com.revolut.interview.uuid;
+
+import java.util.UUID;
+
+/**
+ * Source of the ids given to new accounts. Engines take one so that a cluster node only hands
+ * out ids that hash to itself.
+ */
+public interface AccountIdGenerator {
+
+    AccountIdGenerator RANDOM = UUID::randomUUID;
+
+    UUID next();
+}
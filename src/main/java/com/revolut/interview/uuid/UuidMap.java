@@ -0,0 +1,348 @@
+package com.revolut.interview.uuid;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Concurrent map keyed directly on a UUID's two {@code long}s. Keys live in primitive arrays
+ * and values in a parallel array of an open-addressing table with linear probing, so an
+ * entry costs about 21 bytes of table at full load (28 at the usual three quarters), against a
+ * node, a boxed UUID and a table slot, some 80 bytes, in a {@code ConcurrentHashMap}.
+ *
+ * <p>The map is split into segments, each with its own table and {@link StampedLock}. Reads
+ * are optimistic: they probe without locking and only retry under the read lock if a writer
+ * changed the segment meanwhile. Writers lock one segment, and a full segment doubles its
+ * table on its own, so growth only stalls the writers of that segment and never the whole map.
+ *
+ * <p>Null keys and values are not supported. Iteration is weakly consistent: each segment is
+ * copied under its read lock as the iteration reaches it.
+ */
+public class UuidMap<V> {
+
+    private static final int DEFAULT_SEGMENTS = 64;
+    private static final int MIN_CAPACITY     = 16;
+
+    private final Segment<V>[] segments;
+    private final int          segmentShift;
+
+    public UuidMap() {
+        this(DEFAULT_SEGMENTS, MIN_CAPACITY);
+    }
+
+    @SuppressWarnings("unchecked")
+    public UuidMap(final int segmentCount, final int initialCapacity) {
+        if(segmentCount <= 0 || Integer.bitCount(segmentCount) != 1) {
+            throw new IllegalArgumentException(String.format("Segment count must be a power of two: %s", segmentCount));
+        }
+        this.segments = new Segment[segmentCount];
+        this.segmentShift = Integer.SIZE - Integer.numberOfTrailingZeros(segmentCount);
+        final int perSegment = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, initialCapacity / segmentCount) * 2 - 1) * 2);
+        for(int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(perSegment);
+        }
+    }
+
+    public V get(final UUID key) {
+        return get(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    }
+
+    public V get(final long msb, final long lsb) {
+        final int hash = hash(msb, lsb);
+        return segmentFor(hash).get(msb, lsb, hash);
+    }
+
+    public boolean containsKey(final UUID key) {
+        return get(key) != null;
+    }
+
+    public V put(final UUID key, final V value) {
+        return update(key, value, false);
+    }
+
+    public V putIfAbsent(final UUID key, final V value) {
+        return update(key, value, true);
+    }
+
+    public V remove(final UUID key) {
+        final long msb = key.getMostSignificantBits();
+        final long lsb = key.getLeastSignificantBits();
+        final int hash = hash(msb, lsb);
+        return segmentFor(hash).remove(msb, lsb, hash, null);
+    }
+
+    /**
+     * Removes the entry only while it maps to this very value.
+     */
+    public boolean remove(final UUID key, final V value) {
+        final long msb = key.getMostSignificantBits();
+        final long lsb = key.getLeastSignificantBits();
+        final int hash = hash(msb, lsb);
+        return segmentFor(hash).remove(msb, lsb, hash, value) != null;
+    }
+
+    public int size() {
+        long size = 0;
+        for(final Segment<V> segment : segments) {
+            size += segment.size;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    public boolean isEmpty() {
+        for(final Segment<V> segment : segments) {
+            if(segment.size > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void forEach(final Consumer<? super V> consumer) {
+        for(final Segment<V> segment : segments) {
+            segment.copyValues().forEach(consumer);
+        }
+    }
+
+    /**
+     * A live view of the values; see the class comment for how iteration behaves.
+     */
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator();
+            }
+
+            @Override
+            public int size() {
+                return UuidMap.this.size();
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return UuidMap.this.isEmpty();
+            }
+        };
+    }
+
+    private V update(final UUID key, final V value, final boolean onlyIfAbsent) {
+        if(value == null) {
+            throw new NullPointerException("Value must not be null");
+        }
+        final long msb = key.getMostSignificantBits();
+        final long lsb = key.getLeastSignificantBits();
+        final int hash = hash(msb, lsb);
+        return segmentFor(hash).put(msb, lsb, hash, value, onlyIfAbsent);
+    }
+
+    private Segment<V> segmentFor(final int hash) {
+        return segments[segmentShift == Integer.SIZE ? 0 : hash >>> segmentShift];
+    }
+
+    private static int hash(final long msb, final long lsb) {
+        final long mixed = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    /**
+     * One table; replaced as a whole when the segment grows, so a reader always sees arrays of
+     * one capacity.
+     */
+    private static final class Table {
+
+        private final long[]   msbs;
+        private final long[]   lsbs;
+        private final Object[] values;
+        private final int      mask;
+
+        private Table(final int capacity) {
+            this.msbs = new long[capacity];
+            this.lsbs = new long[capacity];
+            this.values = new Object[capacity];
+            this.mask = capacity - 1;
+        }
+    }
+
+    private static final class Segment<V> {
+
+        private final StampedLock lock = new StampedLock();
+
+        private volatile Table table;
+        private volatile int   size;
+
+        private Segment(final int capacity) {
+            this.table = new Table(capacity);
+        }
+
+        private V get(final long msb, final long lsb, final int hash) {
+            final long stamp = lock.tryOptimisticRead();
+            if(stamp != 0) {
+                final V value = find(table, msb, lsb, hash);
+                if(lock.validate(stamp)) {
+                    return value;
+                }
+            }
+            final long readStamp = lock.readLock();
+            try {
+                return find(table, msb, lsb, hash);
+            } finally {
+                lock.unlockRead(readStamp);
+            }
+        }
+
+        private V put(final long msb, final long lsb, final int hash, final V value, final boolean onlyIfAbsent) {
+            final long stamp = lock.writeLock();
+            try {
+                Table current = table;
+                int index = indexOf(current, msb, lsb, hash);
+                @SuppressWarnings("unchecked")
+                final V previous = (V) current.values[index];
+                if(previous != null) {
+                    if(!onlyIfAbsent) {
+                        current.values[index] = value;
+                    }
+                    return previous;
+                }
+                if((size + 1) * 4 > (current.mask + 1) * 3) {
+                    current = grow(current);
+                    index = indexOf(current, msb, lsb, hash);
+                }
+                current.msbs[index] = msb;
+                current.lsbs[index] = lsb;
+                current.values[index] = value;
+                size = size + 1;
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Removes the entry, if it holds {@code expected} when that is given, and moves later
+         * entries of its probe run back into the gap, so no tombstones are needed.
+         */
+        private V remove(final long msb, final long lsb, final int hash, final V expected) {
+            final long stamp = lock.writeLock();
+            try {
+                final Table current = table;
+                int index = indexOf(current, msb, lsb, hash);
+                @SuppressWarnings("unchecked")
+                final V previous = (V) current.values[index];
+                if(previous == null || (expected != null && previous != expected)) {
+                    return null;
+                }
+                int next = index;
+                while(true) {
+                    current.values[index] = null;
+                    int home;
+                    do {
+                        next = (next + 1) & current.mask;
+                        if(current.values[next] == null) {
+                            size = size - 1;
+                            return previous;
+                        }
+                        home = hash(current.msbs[next], current.lsbs[next]) & current.mask;
+                    } while(index <= next ? index < home && home <= next : index < home || home <= next);
+                    current.msbs[index] = current.msbs[next];
+                    current.lsbs[index] = current.lsbs[next];
+                    current.values[index] = current.values[next];
+                    index = next;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private List<V> copyValues() {
+            final long stamp = lock.readLock();
+            try {
+                if(size == 0) {
+                    return Collections.emptyList();
+                }
+                final List<V> copy = new ArrayList<>(size);
+                for(final Object value : table.values) {
+                    if(value != null) {
+                        @SuppressWarnings("unchecked")
+                        final V typed = (V) value;
+                        copy.add(typed);
+                    }
+                }
+                return copy;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private Table grow(final Table current) {
+            final Table grown = new Table((current.mask + 1) * 2);
+            for(int i = 0; i <= current.mask; i++) {
+                if(current.values[i] != null) {
+                    final int index = indexOf(grown, current.msbs[i], current.lsbs[i], hash(current.msbs[i], current.lsbs[i]));
+                    grown.msbs[index] = current.msbs[i];
+                    grown.lsbs[index] = current.lsbs[i];
+                    grown.values[index] = current.values[i];
+                }
+            }
+            table = grown;
+            return grown;
+        }
+
+        /**
+         * Probes without the lock; a torn result is discarded by the caller's validation. The
+         * probe is bounded so that a table changing underneath cannot keep it spinning.
+         */
+        @SuppressWarnings("unchecked")
+        private static <V> V find(final Table table, final long msb, final long lsb, final int hash) {
+            int index = hash & table.mask;
+            for(int probes = 0; probes <= table.mask; probes++) {
+                final Object value = table.values[index];
+                if(value == null) {
+                    return null;
+                }
+                if(table.msbs[index] == msb && table.lsbs[index] == lsb) {
+                    return (V) value;
+                }
+                index = (index + 1) & table.mask;
+            }
+            return null;
+        }
+
+        /**
+         * Slot holding the key, or the empty slot where it belongs; the table is never full.
+         */
+        private static int indexOf(final Table table, final long msb, final long lsb, final int hash) {
+            int index = hash & table.mask;
+            while(table.values[index] != null && (table.msbs[index] != msb || table.lsbs[index] != lsb)) {
+                index = (index + 1) & table.mask;
+            }
+            return index;
+        }
+    }
+
+    private final class ValueIterator implements Iterator<V> {
+
+        private int         segment;
+        private Iterator<V> current = Collections.emptyIterator();
+
+        @Override
+        public boolean hasNext() {
+            while(!current.hasNext() && segment < segments.length) {
+                current = segments[segment++].copyValues().iterator();
+            }
+            return current.hasNext();
+        }
+
+        @Override
+        public V next() {
+            hasNext();
+            return current.next();
+        }
+    }
+}
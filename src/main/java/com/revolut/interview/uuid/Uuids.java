@@ -0,0 +1,69 @@
+package com.revolut.interview.uuid;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Parses the canonical 36 character form of a UUID straight from its characters. Unlike
+ * {@link UUID#fromString} on Java 8, which splits the string and parses each part as a new
+ * string, it allocates nothing but the result, and it only accepts the canonical form.
+ * {@link #mostSignificantBits} and {@link #leastSignificantBits} allocate nothing at all, for
+ * lookups in a {@link UuidMap}.
+ */
+public final class Uuids {
+
+    private static final int    LENGTH = 36;
+    private static final byte[] DIGITS = new byte[128];
+
+    static {
+        Arrays.fill(DIGITS, (byte) -1);
+        for(int i = 0; i < 10; i++) {
+            DIGITS['0' + i] = (byte) i;
+        }
+        for(int i = 0; i < 6; i++) {
+            DIGITS['a' + i] = (byte) (10 + i);
+            DIGITS['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private Uuids() {
+    }
+
+    public static UUID parse(final CharSequence value) {
+        return new UUID(mostSignificantBits(value), leastSignificantBits(value));
+    }
+
+    public static long mostSignificantBits(final CharSequence value) {
+        checkShape(value);
+        return hex(value, 0, 8) << 32 | hex(value, 9, 13) << 16 | hex(value, 14, 18);
+    }
+
+    public static long leastSignificantBits(final CharSequence value) {
+        checkShape(value);
+        return hex(value, 19, 23) << 48 | hex(value, 24, 36);
+    }
+
+    private static void checkShape(final CharSequence value) {
+        if(value == null || value.length() != LENGTH
+           || value.charAt(8) != '-' || value.charAt(13) != '-' || value.charAt(18) != '-' || value.charAt(23) != '-') {
+            throw invalid(value);
+        }
+    }
+
+    private static long hex(final CharSequence value, final int from, final int to) {
+        long bits = 0;
+        for(int i = from; i < to; i++) {
+            final char c = value.charAt(i);
+            final int digit = c < DIGITS.length ? DIGITS[c] : -1;
+            if(digit < 0) {
+                throw invalid(value);
+            }
+            bits = bits << 4 | digit;
+        }
+        return bits;
+    }
+
+    private static IllegalArgumentException invalid(final CharSequence value) {
+        return new IllegalArgumentException(String.format("Invalid UUID string: %s", value));
+    }
+}
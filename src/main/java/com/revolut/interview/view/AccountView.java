@@ -0,0 +1,54 @@
+package com.revolut.interview.view;
+
+import com.revolut.interview.json.JsonSupport;
+import com.revolut.interview.response.AccountResponse;
+import com.revolut.interview.response.JsonResponse;
+
+import static com.revolut.interview.response.Status.SUCCESS;
+
+/**
+ * One version of an account as readers see it. A view is never modified: a change to the
+ * account publishes a new view with a higher version. The body of
+ * {@code GET /account/:accountId} is rendered the first time it is asked for and kept with the
+ * view, so polls of an unchanged account send the same bytes again.
+ */
+public final class AccountView {
+
+    private final AccountResponse account;
+    private final long            version;
+
+    private volatile byte[] json;
+
+    public AccountView(final AccountResponse account, final long version) {
+        this.account = account;
+        this.version = version;
+    }
+
+    /**
+     * Unversioned view for engines that do not keep views; its body is rendered per request.
+     */
+    public static AccountView of(final AccountResponse account) {
+        return new AccountView(account, 0);
+    }
+
+    /**
+     * The account as of this version. It is shared by every reader and must not be modified.
+     */
+    public AccountResponse getAccount() {
+        return account;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public byte[] json() {
+        byte[] rendered = json;
+        if(rendered == null) {
+            // Readers racing here render the same bytes, so either copy may win
+            rendered = JsonSupport.toBytes(new JsonResponse(SUCCESS, account));
+            json = rendered;
+        }
+        return rendered;
+    }
+}
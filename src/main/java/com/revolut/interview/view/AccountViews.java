@@ -0,0 +1,81 @@
+package com.revolut.interview.view;
+
+import com.revolut.interview.response.AccountResponse;
+import com.revolut.interview.uuid.UuidMap;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latest {@link AccountView} of each account, looked up without locks. Writers publish a new
+ * view once a change is committed, while they still hold the account's write lock, so the
+ * views of an account replace each other in commit order. A view of each of a transfer's two
+ * accounts is published in turn, so reading both accounts may briefly show one side only.
+ *
+ * <p>A reader that finds no view loads the account under the engine's read lock and
+ * {@link #fill}s it in. Accounts changed without going through the engine, by replication, are
+ * {@link #invalidate}d afterwards; a view loaded while that happened is dropped again rather
+ * than left behind with the old state.
+ */
+public class AccountViews {
+
+    private final AtomicLong versions      = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private volatile UuidMap<AccountView> views = new UuidMap<>();
+
+    public AccountView get(final UUID accountId) {
+        return views.get(accountId);
+    }
+
+    public AccountView publish(final UUID accountId, final AccountResponse account) {
+        final AccountView view = new AccountView(account, versions.incrementAndGet());
+        views.put(accountId, view);
+        return view;
+    }
+
+    /**
+     * Marks the start of a load for {@link #fill}.
+     */
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Caches a view loaded by a reader that found none, unless a writer published one first.
+     * Returns the view the reader should use.
+     */
+    public AccountView fill(final UUID accountId, final AccountResponse account, final long stamp) {
+        final AccountView view = new AccountView(account, versions.incrementAndGet());
+        final UuidMap<AccountView> current = views;
+        final AccountView published = current.putIfAbsent(accountId, view);
+        if(published != null) {
+            return published;
+        }
+        if(invalidations.get() != stamp) {
+            current.remove(accountId, view);
+        }
+        return view;
+    }
+
+    public void remove(final UUID accountId) {
+        views.remove(accountId);
+    }
+
+    public void clear() {
+        views = new UuidMap<>();
+    }
+
+    /**
+     * Forgets the view of an account that has been changed behind the engine's back.
+     */
+    public void invalidate(final UUID accountId) {
+        invalidations.incrementAndGet();
+        views.remove(accountId);
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        views = new UuidMap<>();
+    }
+}
@@ -0,0 +1,54 @@
+package com.revolut.interview.admission;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveConcurrencyLimitTest {
+
+    private final AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(2, 4, 50);
+
+    @Test
+    public void test_callers_beyond_the_limit_are_rejected() {
+        assertTrue(concurrencyLimit.tryAcquire());
+        assertTrue(concurrencyLimit.tryAcquire());
+        assertFalse(concurrencyLimit.tryAcquire());
+
+        concurrencyLimit.release(TimeUnit.MILLISECONDS.toNanos(1));
+        assertTrue(concurrencyLimit.tryAcquire());
+    }
+
+    @Test
+    public void test_limit_grows_on_fast_completions_up_to_max() {
+        for(int i = 0; i < 10; i++) {
+            assertTrue(concurrencyLimit.tryAcquire());
+            assertTrue(concurrencyLimit.tryAcquire());
+            concurrencyLimit.release(TimeUnit.MILLISECONDS.toNanos(1));
+            concurrencyLimit.release(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        assertEquals(4, concurrencyLimit.getLimit());
+        assertEquals(0, concurrencyLimit.getInFlight());
+    }
+
+    @Test
+    public void test_limit_backs_off_on_slow_completions_down_to_min() throws InterruptedException {
+        for(int i = 0; i < 10; i++) {
+            assertTrue(concurrencyLimit.tryAcquire());
+            assertTrue(concurrencyLimit.tryAcquire());
+            concurrencyLimit.release(TimeUnit.MILLISECONDS.toNanos(1));
+            concurrencyLimit.release(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        TimeUnit.MILLISECONDS.sleep(60);
+        assertTrue(concurrencyLimit.tryAcquire());
+        concurrencyLimit.release(TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(3, concurrencyLimit.getLimit());
+
+        concurrencyLimit.tryAcquire();
+        concurrencyLimit.release(TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals("A second slow completion within the target latency is the same signal", 3, concurrencyLimit.getLimit());
+    }
+}
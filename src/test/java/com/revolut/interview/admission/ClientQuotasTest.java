@@ -0,0 +1,36 @@
+package com.revolut.interview.admission;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ClientQuotasTest {
+
+    @Test
+    public void test_client_is_throttled_after_its_burst() {
+        final ClientQuotas clientQuotas = new ClientQuotas(1, 2, 10);
+        assertEquals(0, clientQuotas.tryAcquire("client-1"));
+        assertEquals(0, clientQuotas.tryAcquire("client-1"));
+        assertTrue(clientQuotas.tryAcquire("client-1") > 0);
+        assertEquals("Quotas are per client", 0, clientQuotas.tryAcquire("client-2"));
+    }
+
+    @Test
+    public void test_new_clients_do_not_reset_a_busy_client() {
+        final ClientQuotas clientQuotas = new ClientQuotas(0.001, 1, 32);
+        assertEquals(0, clientQuotas.tryAcquire("client-1"));
+        for(int i = 0; i < 10_000; i++) {
+            assertEquals(0, clientQuotas.tryAcquire("rotated-" + i));
+            assertTrue("client-1 was reset after " + i + " new clients", clientQuotas.tryAcquire("client-1") > 0);
+        }
+    }
+
+    @Test
+    public void test_zero_rate_disables_quotas() {
+        final ClientQuotas clientQuotas = new ClientQuotas(0, 0, 10);
+        for(int i = 0; i < 100; i++) {
+            assertEquals(0, clientQuotas.tryAcquire("client-1"));
+        }
+    }
+}
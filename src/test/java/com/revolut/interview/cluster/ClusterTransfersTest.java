@@ -0,0 +1,364 @@
+package com.revolut.interview.cluster;
+
+import com.revolut.interview.audit.AuditLog;
+import com.revolut.interview.execption.AccountNotExistsException;
+import com.revolut.interview.execption.InvalidAmountException;
+import com.revolut.interview.execption.MisdirectedRequestException;
+import com.revolut.interview.execption.NodeUnavailableException;
+import com.revolut.interview.execption.ReplicationTimeoutException;
+import com.revolut.interview.fx.FxRateTable;
+import com.revolut.interview.ledger.TransactionLedger;
+import com.revolut.interview.mapper.AccountMapper;
+import com.revolut.interview.request.DepositMoney;
+import com.revolut.interview.request.RemoteCredit;
+import com.revolut.interview.service.AccountService;
+import com.revolut.interview.service.OptimisticAccountServiceImpl;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.revolut.interview.data.MoneyTransferData.getAccountInstance;
+import static com.revolut.interview.data.MoneyTransferData.getTransferMoneyInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ClusterTransfersTest {
+
+    private static final ClusterClient.Reply APPLIED  = new ClusterClient.Reply(200, "application/json", "{\"status\":\"SUCCESS\"}", null);
+    private static final ClusterClient.Reply NO_SUCH  = new ClusterClient.Reply(404, "application/json",
+                                                                                  "{\"status\":\"ERROR\",\"message\":\"Account not exist\"}", null);
+
+    private static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicLong now   = new AtomicLong(1_000);
+    private final Clock      clock = new Clock() {
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(now.get());
+        }
+    };
+
+    private final ClusterNode       nodeA = ClusterNode.builder().id("a").url("http://127.0.0.1:4567").build();
+    private final ClusterNode       nodeB = ClusterNode.builder().id("b").url("http://127.0.0.1:4568").build();
+    private final ClusterMembership membership = new ClusterMembership(nodeA, Arrays.asList(nodeA, nodeB), 16);
+    private final ClusterClient     clusterClient = mock(ClusterClient.class);
+    private final OptimisticAccountServiceImpl accountService = new OptimisticAccountServiceImpl(new AccountMapper(), new AuditLog(0),
+                                                                                                new TransactionLedger(), new FxRateTable(),
+                                                                                                membership.localAccountIds());
+
+    private final AtomicBoolean replicasLagging = new AtomicBoolean();
+
+    private ClusterTransfers clusterTransfers;
+
+    @After
+    public void after() {
+        if(clusterTransfers != null) {
+            clusterTransfers.close();
+        }
+    }
+
+    @Test
+    public void test_transfer_commits_when_target_applies_credit() throws IOException {
+        clusterTransfers = open(folder.newFile().toPath());
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        givenCreditReply(APPLIED);
+
+        clusterTransfers.transfer(getTransferMoneyInstance(accountId.toString(), remoteAccount().toString(), 20));
+
+        assertEquals(new BigDecimal("40.00"), accountService.getAccount(accountId).getBalance());
+        assertEquals(0, clusterTransfers.pendingCount());
+    }
+
+    @Test
+    public void test_rejected_credit_is_refunded() throws IOException {
+        clusterTransfers = open(folder.newFile().toPath());
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        givenCreditReply(NO_SUCH);
+
+        try {
+            clusterTransfers.transfer(getTransferMoneyInstance(accountId.toString(), remoteAccount().toString(), 20));
+            fail("Transfer to a missing account must fail");
+        } catch (AccountNotExistsException ex) {
+            assertEquals("Account not exist", ex.getMessage());
+        }
+        assertEquals(new BigDecimal("60.00"), accountService.getAccount(accountId).getBalance());
+        assertEquals(0, clusterTransfers.pendingCount());
+    }
+
+    @Test
+    public void test_refund_that_fails_is_retried_until_it_lands() throws IOException {
+        final AccountService engine = spy(accountService);
+        doThrow(new IllegalStateException("Engine is busy")).doCallRealMethod().when(engine).depositMoney(any(DepositMoney.class));
+        clusterTransfers = open(new TransferLog(folder.newFile().toPath()), engine);
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        givenCreditReply(NO_SUCH);
+
+        try {
+            clusterTransfers.transfer(getTransferMoneyInstance(accountId.toString(), remoteAccount().toString(), 20));
+            fail("Transfer to a missing account must fail");
+        } catch (AccountNotExistsException ex) {
+            assertEquals(new BigDecimal("40.00"), accountService.getAccount(accountId).getBalance());
+            assertEquals(1, clusterTransfers.pendingCount());
+        }
+
+        clusterTransfers.retryPending();
+        assertEquals(0, clusterTransfers.pendingCount());
+        assertEquals(new BigDecimal("60.00"), accountService.getAccount(accountId).getBalance());
+    }
+
+    @Test
+    public void test_unreachable_target_keeps_transfer_pending_across_restart() throws IOException {
+        final Path log = folder.newFile().toPath();
+        clusterTransfers = open(log);
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        given(clusterClient.send(eq(nodeB), eq("POST"), anyString(), anyMap(), any(byte[].class)))
+                .willThrow(new NodeUnavailableException("Node b is down", null));
+
+        clusterTransfers.transfer(getTransferMoneyInstance(accountId.toString(), remoteAccount().toString(), 20));
+        assertEquals(new BigDecimal("40.00"), accountService.getAccount(accountId).getBalance());
+        assertEquals(1, clusterTransfers.pendingCount());
+
+        clusterTransfers.close();
+        clusterTransfers = open(log);
+        assertEquals(1, clusterTransfers.pendingCount());
+        givenCreditReply(APPLIED);
+        clusterTransfers.retryPending();
+        assertEquals(0, clusterTransfers.pendingCount());
+
+        clusterTransfers.close();
+        clusterTransfers = open(log);
+        assertEquals(0, clusterTransfers.pendingCount());
+        assertEquals(new BigDecimal("40.00"), accountService.getAccount(accountId).getBalance());
+    }
+
+    @Test
+    public void test_credit_is_applied_once_per_transfer() throws IOException {
+        final Path log = folder.newFile().toPath();
+        clusterTransfers = open(log);
+        final UUID accountId = accountService.createAccount(getAccountInstance("Adnan", 20, "GBP"));
+        final RemoteCredit remoteCredit = RemoteCredit.builder()
+                                                      .transferId(UUID.randomUUID())
+                                                      .fromAccount(remoteAccount())
+                                                      .toAccount(accountId)
+                                                      .amount(new BigDecimal("15"))
+                                                      .currency(Currency.getInstance("GBP"))
+                                                      .build();
+
+        assertTrue(clusterTransfers.credit(remoteCredit));
+        assertFalse(clusterTransfers.credit(remoteCredit));
+        clusterTransfers.close();
+        clusterTransfers = open(log);
+        assertFalse(clusterTransfers.credit(remoteCredit));
+
+        assertEquals(new BigDecimal("35.00"), accountService.getAccount(accountId).getBalance());
+    }
+
+    @Test(expected = InvalidAmountException.class)
+    public void test_credit_must_be_positive() throws IOException {
+        clusterTransfers = open(folder.newFile().toPath());
+        clusterTransfers.credit(RemoteCredit.builder()
+                                            .transferId(UUID.randomUUID())
+                                            .toAccount(accountService.createAccount(getAccountInstance("Adnan", 20, "GBP")))
+                                            .amount(new BigDecimal("-15"))
+                                            .currency(Currency.getInstance("GBP"))
+                                            .build());
+    }
+
+    @Test(expected = MisdirectedRequestException.class)
+    public void test_credit_for_account_of_another_node_is_misdirected() throws IOException {
+        clusterTransfers = open(folder.newFile().toPath());
+        clusterTransfers.credit(RemoteCredit.builder()
+                                            .transferId(UUID.randomUUID())
+                                            .toAccount(remoteAccount())
+                                            .amount(BigDecimal.TEN)
+                                            .build());
+    }
+
+    @Test
+    public void test_credit_cut_short_by_a_crash_is_taken_as_applied() throws IOException {
+        final Path log = folder.newFile().toPath();
+        final UUID accountId = accountService.createAccount(getAccountInstance("Adnan", 20, "GBP"));
+        final RemoteCredit remoteCredit = remoteCredit(accountId);
+        final TransferLog crashed = new TransferLog(log);
+        crashed.replay();
+        crashed.append(TransferRecord.builder()
+                                     .type(TransferRecord.Type.CREDITING)
+                                     .transferId(remoteCredit.getTransferId())
+                                     .toAccount(accountId)
+                                     .amount(remoteCredit.getAmount())
+                                     .timestamp(now.get())
+                                     .build());
+        crashed.close();
+
+        clusterTransfers = open(log);
+        assertFalse(clusterTransfers.credit(remoteCredit));
+        assertEquals(new BigDecimal("20.00"), accountService.getAccount(accountId).getBalance());
+    }
+
+    @Test
+    public void test_log_drops_finished_transfers_and_old_credits() throws IOException {
+        final Path log = folder.newFile().toPath();
+        final TransferLog transferLog = new TransferLog(log, 1);
+        clusterTransfers = open(transferLog);
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        givenCreditReply(APPLIED);
+        for(int i = 0; i < 3; i++) {
+            clusterTransfers.transfer(getTransferMoneyInstance(accountId.toString(), remoteAccount().toString(), 5));
+        }
+        final RemoteCredit remoteCredit = remoteCredit(accountId);
+        assertTrue(clusterTransfers.credit(remoteCredit));
+        assertEquals(11, transferLog.size());
+
+        clusterTransfers.forgetOldCredits();
+        assertEquals(1, transferLog.size());
+        assertFalse(clusterTransfers.credit(remoteCredit));
+
+        now.addAndGet(RETENTION_MILLIS + 1);
+        clusterTransfers.forgetOldCredits();
+        clusterTransfers.close();
+        clusterTransfers = open(log);
+        assertEquals(0, clusterTransfers.pendingCount());
+        assertEquals(0, Files.size(log));
+    }
+
+    @Test
+    public void test_transfer_older_than_the_credit_retention_is_no_longer_resent() throws IOException {
+        clusterTransfers = open(folder.newFile().toPath());
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        given(clusterClient.send(eq(nodeB), eq("POST"), anyString(), anyMap(), any(byte[].class)))
+                .willThrow(new NodeUnavailableException("Node b is down", null));
+        clusterTransfers.transfer(getTransferMoneyInstance(accountId.toString(), remoteAccount().toString(), 20));
+
+        now.addAndGet(RETENTION_MILLIS + 1);
+        givenCreditReply(APPLIED);
+        clusterTransfers.retryPending();
+
+        verify(clusterClient, times(1)).send(eq(nodeB), eq("POST"), anyString(), anyMap(), any(byte[].class));
+        assertEquals(1, clusterTransfers.pendingCount());
+    }
+
+    @Test
+    public void test_debit_not_confirmed_by_replicas_stays_pending() throws IOException {
+        clusterTransfers = open(folder.newFile().toPath());
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        givenCreditReply(APPLIED);
+        replicasLagging.set(true);
+
+        try {
+            clusterTransfers.transfer(getTransferMoneyInstance(accountId.toString(), remoteAccount().toString(), 20));
+            fail("Debit not confirmed by replicas must time out");
+        } catch (ReplicationTimeoutException ex) {
+            assertEquals(new BigDecimal("40.00"), accountService.getAccount(accountId).getBalance());
+            assertEquals(1, clusterTransfers.pendingCount());
+        }
+
+        replicasLagging.set(false);
+        clusterTransfers.retryPending();
+        verify(clusterClient, times(1)).send(eq(nodeB), eq("POST"), anyString(), anyMap(), any(byte[].class));
+        assertEquals(0, clusterTransfers.pendingCount());
+        assertEquals(new BigDecimal("40.00"), accountService.getAccount(accountId).getBalance());
+    }
+
+    @Test
+    public void test_credit_not_confirmed_by_replicas_is_not_applied_again() throws IOException {
+        clusterTransfers = open(folder.newFile().toPath());
+        final UUID accountId = accountService.createAccount(getAccountInstance("Adnan", 20, "GBP"));
+        final RemoteCredit remoteCredit = remoteCredit(accountId);
+        replicasLagging.set(true);
+
+        try {
+            clusterTransfers.credit(remoteCredit);
+            fail("Credit not confirmed by replicas must time out");
+        } catch (ReplicationTimeoutException ex) {
+            assertEquals(new BigDecimal("35.00"), accountService.getAccount(accountId).getBalance());
+        }
+
+        replicasLagging.set(false);
+        assertFalse(clusterTransfers.credit(remoteCredit));
+        assertEquals(new BigDecimal("35.00"), accountService.getAccount(accountId).getBalance());
+    }
+
+    private ClusterTransfers open(final Path log) {
+        return open(new TransferLog(log));
+    }
+
+    private ClusterTransfers open(final TransferLog transferLog) {
+        return open(transferLog, accountService);
+    }
+
+    private ClusterTransfers open(final TransferLog transferLog, final AccountService engine) {
+        return new ClusterTransfers(engine, accountService, this::awaitReplication, membership, clusterClient, transferLog,
+                                    new FxRateTable(), TimeUnit.HOURS.toMillis(1), RETENTION_MILLIS, clock);
+    }
+
+    private void awaitReplication() {
+        if(replicasLagging.get()) {
+            throw new ReplicationTimeoutException("Replicas did not confirm in time");
+        }
+    }
+
+    private RemoteCredit remoteCredit(final UUID accountId) {
+        return RemoteCredit.builder()
+                           .transferId(UUID.randomUUID())
+                           .fromAccount(remoteAccount())
+                           .toAccount(accountId)
+                           .amount(new BigDecimal("15"))
+                           .currency(Currency.getInstance("GBP"))
+                           .build();
+    }
+
+    private void givenCreditReply(final ClusterClient.Reply reply) {
+        given(clusterClient.send(eq(nodeB), eq("POST"), anyString(), anyMap(), any(byte[].class))).willReturn(reply);
+    }
+
+    private UUID remoteAccount() {
+        UUID accountId;
+        do {
+            accountId = UUID.randomUUID();
+        } while(membership.isLocal(accountId));
+        return accountId;
+    }
+}
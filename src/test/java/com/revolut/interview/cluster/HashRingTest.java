@@ -0,0 +1,117 @@
+package com.revolut.interview.cluster;
+
+import com.revolut.interview.execption.ClusterAuthenticationException;
+import com.revolut.interview.uuid.AccountIdGenerator;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HashRingTest {
+
+    private static final int KEYS = 30_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_every_node_gets_a_fair_share() {
+        final List<ClusterNode> nodes = nodes("a", "b", "c");
+        final HashRing ring = new HashRing(nodes, 128);
+
+        final Map<ClusterNode, Integer> shares = new HashMap<>();
+        for(int i = 0; i < KEYS; i++) {
+            shares.merge(ring.ownerOf(UUID.randomUUID()), 1, Integer::sum);
+        }
+        assertEquals(3, shares.size());
+        shares.forEach((node, share) -> assertTrue(node + " owns " + share, share > KEYS / 4 && share < KEYS * 5 / 12));
+    }
+
+    @Test
+    public void test_adding_a_node_only_moves_keys_to_it() {
+        final HashRing before = new HashRing(nodes("a", "b", "c"), 128);
+        final HashRing after = new HashRing(nodes("a", "b", "c", "d"), 128);
+
+        int moved = 0;
+        for(int i = 0; i < KEYS; i++) {
+            final UUID accountId = UUID.randomUUID();
+            final ClusterNode owner = after.ownerOf(accountId);
+            if(!owner.equals(before.ownerOf(accountId))) {
+                assertEquals("d", owner.getId());
+                moved++;
+            }
+        }
+        assertTrue("moved " + moved, moved > KEYS / 6 && moved < KEYS / 3);
+    }
+
+    @Test
+    public void test_membership_is_loaded_and_hands_out_local_ids() throws IOException {
+        final Path file = folder.newFile("cluster.properties").toPath();
+        Files.write(file, Arrays.asList("node.a=http://127.0.0.1:4567", "node.b=http://127.0.0.1:4568", "virtual.nodes=64",
+                                  "secret=s3cret"),
+                    StandardCharsets.UTF_8);
+
+        final ClusterMembership membership = ClusterMembership.load(file, "b");
+        assertTrue(membership.isClustered());
+        assertEquals("http://127.0.0.1:4568", membership.getSelf().getUrl());
+        assertEquals(nodes("a", "b").size(), membership.getNodes().size());
+
+        final AccountIdGenerator accountIds = membership.localAccountIds();
+        for(int i = 0; i < 100; i++) {
+            assertEquals(membership.getSelf(), membership.ownerOf(accountIds.next()));
+        }
+        assertEquals(membership.ownerOfUser("Zulqarnain"), ClusterMembership.load(file, "a").ownerOfUser("Zulqarnain"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_cluster_membership_needs_a_secret() throws IOException {
+        final Path file = folder.newFile("cluster.properties").toPath();
+        Files.write(file, Arrays.asList("node.a=http://127.0.0.1:4567", "node.b=http://127.0.0.1:4568"), StandardCharsets.UTF_8);
+        ClusterMembership.load(file, "a");
+    }
+
+    @Test
+    public void test_only_other_members_with_the_secret_are_authenticated() {
+        final List<ClusterNode> nodes = nodes("a", "b");
+        final ClusterMembership membership = new ClusterMembership(nodes.get(0), nodes, 16, "s3cret");
+
+        assertEquals(nodes.get(1), membership.authenticate("b", "s3cret"));
+        for(final String[] caller : new String[][] {{"b", "guess"}, {"b", null}, {"a", "s3cret"}, {"c", "s3cret"}}) {
+            try {
+                membership.authenticate(caller[0], caller[1]);
+                fail(String.format("%s with %s must not be authenticated", caller[0], caller[1]));
+            } catch (ClusterAuthenticationException ex) {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_membership_must_name_this_node() throws IOException {
+        final Path file = folder.newFile("cluster.properties").toPath();
+        Files.write(file, Arrays.asList("node.a=http://127.0.0.1:4567"), StandardCharsets.UTF_8);
+        ClusterMembership.load(file, "b");
+    }
+
+    private static List<ClusterNode> nodes(final String... ids) {
+        final ClusterNode[] nodes = new ClusterNode[ids.length];
+        for(int i = 0; i < ids.length; i++) {
+            nodes[i] = ClusterNode.builder().id(ids[i]).url("http://127.0.0.1:" + (4567 + i)).build();
+        }
+        return Arrays.asList(nodes);
+    }
+}
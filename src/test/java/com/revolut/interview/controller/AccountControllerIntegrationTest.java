@@ -2,9 +2,12 @@ package com.revolut.interview.controller;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 
 import com.revolut.interview.MoneyTransferAPI;
+import com.revolut.interview.request.PlaceHold;
 import com.revolut.interview.response.AccountResponse;
+import com.revolut.interview.response.HoldResponse;
 import com.revolut.interview.util.CommonUtil;
 import com.revolut.interview.util.Response;
 
@@ -14,14 +17,19 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Map;
 import java.util.UUID;
 
 import static com.revolut.interview.data.MoneyTransferData.getAccountInstance;
 import static com.revolut.interview.data.MoneyTransferData.getDepositMoneyInstance;
+import static com.revolut.interview.data.MoneyTransferData.getTransferBatchInstance;
 import static com.revolut.interview.data.MoneyTransferData.getTransferMoneyInstance;
 import static com.revolut.interview.data.MoneyTransferData.getWithDrawMoneyInstance;
 import static java.lang.Thread.sleep;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class AccountControllerIntegrationTest {
 
@@ -88,6 +96,57 @@ public class AccountControllerIntegrationTest {
         assertEquals(2, json.getAsJsonObject().size());
     }
 
+    @Test
+    public void test_retrieve_accounts_page_by_page() {
+        for(final String userId : new String[] {"Zulqarnain", "Hafeez", "Adnan"}) {
+            final Response createAccountResponse = CommonUtil.request("POST", "account", gson.toJson(getAccountInstance(userId, 10, "GBP")));
+            assertEquals(HttpStatus.OK_200, createAccountResponse.getStatus());
+        }
+
+        final Response firstPage = CommonUtil.request("GET", "accounts?limit=2");
+        assertEquals(HttpStatus.OK_200, firstPage.getStatus());
+        assertEquals(2, firstPage.getData().getAsJsonObject().getAsJsonArray("accounts").size());
+        final String cursor = firstPage.getData().getAsJsonObject().get("nextCursor").getAsString();
+
+        final Response lastPage = CommonUtil.request("GET", "accounts?limit=2&after=" + cursor);
+        assertEquals(HttpStatus.OK_200, lastPage.getStatus());
+        assertEquals(1, lastPage.getData().getAsJsonObject().getAsJsonArray("accounts").size());
+        assertFalse(lastPage.getData().getAsJsonObject().has("nextCursor"));
+    }
+
+    @Test
+    public void test_retrieve_accounts_page_with_invalid_limit() {
+        final Response response = CommonUtil.request("GET", "accounts?limit=0");
+        assertEquals(HttpStatus.BAD_REQUEST_400, response.getStatus());
+    }
+
+    @Test
+    public void test_stream_all_accounts_as_ndjson() {
+        for(final String userId : new String[] {"Zulqarnain", "Hafeez"}) {
+            final Response createAccountResponse = CommonUtil.request("POST", "account", gson.toJson(getAccountInstance(userId, 10, "GBP")));
+            assertEquals(HttpStatus.OK_200, createAccountResponse.getStatus());
+        }
+
+        final Response response = CommonUtil.request("GET", "accounts?format=ndjson");
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        final String[] lines = response.getBody().split("\n");
+        assertEquals(2, lines.length);
+        for(final String line : lines) {
+            assertEquals(BigDecimal.TEN, gson.fromJson(line, AccountResponse.class).getBalance());
+        }
+    }
+
+    @Test
+    public void test_metrics_are_exposed_in_prometheus_format() {
+        assertEquals(HttpStatus.OK_200, CommonUtil.request("GET", "accounts").getStatus());
+
+        final Response response = CommonUtil.request("GET", "metrics");
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        assertTrue(response.getBody().contains("http_request_duration_seconds_count{method=\"GET\",route=\"/accounts\"}"));
+        assertTrue(response.getBody().contains("account_service_duration_seconds_count{method=\"getAllAccounts\"}"));
+        assertTrue(response.getBody().contains("account_lock_wait_seconds_count{mode=\"read\"}"));
+    }
+
     @Test
     public void test_account_deletion() {
         final String createAccountRequest = gson.toJson(getAccountInstance("Zulqarnain", 40, "GBP"));
@@ -236,6 +295,137 @@ public class AccountControllerIntegrationTest {
         assertEquals(HttpStatus.NOT_FOUND_404, transferMoneyResponse.getStatus());
     }
 
+    @Test
+    public void test_retried_transfer_with_idempotency_key_is_applied_once() {
+        final String fromAccountId = CommonUtil.request("POST", "account", gson.toJson(getAccountInstance("Zulqarnain", 100, "GBP"))).getData().getAsString();
+        final String toAccountId = CommonUtil.request("POST", "account", gson.toJson(getAccountInstance("Adnan", 0, "GBP"))).getData().getAsString();
+        final String transferMoneyRequest = gson.toJson(getTransferMoneyInstance(fromAccountId, toAccountId, 30));
+        final Map<String, String> headers = Collections.singletonMap("Idempotency-Key", UUID.randomUUID().toString());
+
+        assertEquals(HttpStatus.OK_200, CommonUtil.request("POST", "account/transfer", transferMoneyRequest, headers).getStatus());
+        assertEquals(HttpStatus.OK_200, CommonUtil.request("POST", "account/transfer", transferMoneyRequest, headers).getStatus());
+
+        final AccountResponse fromAccount = gson.fromJson(CommonUtil.request("GET", "account/" + fromAccountId).getData(), AccountResponse.class);
+        assertEquals(new BigDecimal(70), fromAccount.getBalance());
+    }
+
+    @Test
+    public void test_account_statement_pages_newest_first() {
+        final String fromAccountId = CommonUtil.request("POST", "account", gson.toJson(getAccountInstance("Zulqarnain", 100, "GBP"))).getData().getAsString();
+        final String toAccountId = CommonUtil.request("POST", "account", gson.toJson(getAccountInstance("Adnan", 0, "GBP"))).getData().getAsString();
+        CommonUtil.request("POST", "account/transfer", gson.toJson(getTransferMoneyInstance(fromAccountId, toAccountId, 30)));
+        CommonUtil.request("PUT", "account/deposit", gson.toJson(getDepositMoneyInstance(fromAccountId, 5)));
+
+        final JsonObject firstPage = CommonUtil.request("GET", "account/" + fromAccountId + "/transactions?limit=1").getData().getAsJsonObject();
+        final JsonObject deposit = firstPage.getAsJsonArray("transactions").get(0).getAsJsonObject();
+        assertEquals("DEPOSIT", deposit.get("type").getAsString());
+        assertEquals(new BigDecimal(75), deposit.get("balance").getAsBigDecimal());
+
+        final String cursor = firstPage.get("nextCursor").getAsString();
+        final JsonObject secondPage = CommonUtil.request("GET", "account/" + fromAccountId + "/transactions?limit=1&before=" + cursor).getData().getAsJsonObject();
+        final JsonObject transfer = secondPage.getAsJsonArray("transactions").get(0).getAsJsonObject();
+        assertEquals("TRANSFER_OUT", transfer.get("type").getAsString());
+        assertEquals(toAccountId, transfer.get("counterpartyAccountId").getAsString());
+        assertEquals(new BigDecimal(70), transfer.get("balance").getAsBigDecimal());
+
+        assertEquals(HttpStatus.BAD_REQUEST_400, CommonUtil.request("GET", "account/" + fromAccountId + "/transactions?from=yesterday").getStatus());
+        assertEquals(HttpStatus.NOT_FOUND_404, CommonUtil.request("GET", "account/" + UUID.randomUUID() + "/transactions").getStatus());
+    }
+
+    @Test
+    public void test_cross_currency_transfer_converts_with_fx_rates() {
+        final String fromAccountId = CommonUtil.request("POST", "account", gson.toJson(getAccountInstance("Zulqarnain", 100, "GBP"))).getData().getAsString();
+        final String toAccountId = CommonUtil.request("POST", "account", gson.toJson(getAccountInstance("Adnan", 0, "EUR"))).getData().getAsString();
+
+        final Response ratesResponse = CommonUtil.request("PUT", "fx/rates", "{\"base\":\"GBP\",\"rates\":{\"EUR\":1.15,\"USD\":1.27}}");
+        assertEquals(HttpStatus.OK_200, ratesResponse.getStatus());
+        assertEquals(new BigDecimal("1.15"), ratesResponse.getData().getAsJsonObject().getAsJsonObject("rates").get("EUR").getAsBigDecimal());
+        assertEquals(HttpStatus.BAD_REQUEST_400, CommonUtil.request("PUT", "fx/rates", "{\"base\":\"GBP\",\"rates\":{\"EUR\":0}}").getStatus());
+
+        assertEquals(HttpStatus.OK_200, CommonUtil.request("POST", "account/transfer", gson.toJson(getTransferMoneyInstance(fromAccountId, toAccountId, 10))).getStatus());
+        final AccountResponse toAccount = gson.fromJson(CommonUtil.request("GET", "account/" + toAccountId).getData(), AccountResponse.class);
+        assertEquals(new BigDecimal("11.50"), toAccount.getBalance());
+        final AccountResponse fromAccount = gson.fromJson(CommonUtil.request("GET", "account/" + fromAccountId).getData(), AccountResponse.class);
+        assertEquals(0, new BigDecimal(90).compareTo(fromAccount.getBalance()));
+
+        final String jpyAccountId = CommonUtil.request("POST", "account", gson.toJson(getAccountInstance("Hafeez", 0, "JPY"))).getData().getAsString();
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY_422,
+                     CommonUtil.request("POST", "account/transfer", gson.toJson(getTransferMoneyInstance(fromAccountId, jpyAccountId, 10))).getStatus());
+    }
+
+    @Test
+    public void test_batch_transfer_money() {
+        final String createAccountRequest_1 = gson.toJson(getAccountInstance("Zulqarnain", 70, "GBP"));
+        final Response createAccountResponse_1 = CommonUtil.request("POST", "account", createAccountRequest_1);
+        assertEquals(HttpStatus.OK_200, createAccountResponse_1.getStatus());
+
+        final String createAccountRequest_2 = gson.toJson(getAccountInstance("Adnan", 20, "GBP"));
+        final Response createAccountResponse_2 = CommonUtil.request("POST", "account", createAccountRequest_2);
+        assertEquals(HttpStatus.OK_200, createAccountResponse_2.getStatus());
+
+        final String fromAccount = createAccountResponse_1.getData().getAsString();
+        final String toAccount = createAccountResponse_2.getData().getAsString();
+
+        final String transferBatchRequest = gson.toJson(getTransferBatchInstance(false,
+                getTransferMoneyInstance(fromAccount, toAccount, 30),
+                getTransferMoneyInstance(toAccount, fromAccount, 10)));
+        final Response transferBatchResponse = CommonUtil.request("POST", "account/transfers", transferBatchRequest);
+        assertEquals(HttpStatus.OK_200, transferBatchResponse.getStatus());
+        assertEquals(2, transferBatchResponse.getData().getAsJsonArray().size());
+
+        final Response getFromAccountResponse = CommonUtil.request("GET", "account/"+fromAccount);
+        final AccountResponse fromAccountResponse = gson.fromJson(getFromAccountResponse.getData(), AccountResponse.class);
+        assertEquals(new BigDecimal(50), fromAccountResponse.getBalance());
+    }
+
+    @Test
+    public void test_batch_transfer_insufficient_money() {
+        final String createAccountRequest_1 = gson.toJson(getAccountInstance("Zulqarnain", 60, "GBP"));
+        final Response createAccountResponse_1 = CommonUtil.request("POST", "account", createAccountRequest_1);
+        assertEquals(HttpStatus.OK_200, createAccountResponse_1.getStatus());
+
+        final String createAccountRequest_2 = gson.toJson(getAccountInstance("Adnan", 30, "GBP"));
+        final Response createAccountResponse_2 = CommonUtil.request("POST", "account", createAccountRequest_2);
+        assertEquals(HttpStatus.OK_200, createAccountResponse_2.getStatus());
+
+        final String fromAccount = createAccountResponse_1.getData().getAsString();
+        final String toAccount = createAccountResponse_2.getData().getAsString();
+
+        final String transferBatchRequest = gson.toJson(getTransferBatchInstance(false,
+                getTransferMoneyInstance(fromAccount, toAccount, 30),
+                getTransferMoneyInstance(fromAccount, toAccount, 40)));
+        final Response transferBatchResponse = CommonUtil.request("POST", "account/transfers", transferBatchRequest);
+        assertEquals(HttpStatus.BAD_REQUEST_400, transferBatchResponse.getStatus());
+
+        final Response getFromAccountResponse = CommonUtil.request("GET", "account/"+fromAccount);
+        final AccountResponse fromAccountResponse = gson.fromJson(getFromAccountResponse.getData(), AccountResponse.class);
+        assertEquals(new BigDecimal(60), fromAccountResponse.getBalance());
+    }
+
+    @Test
+    public void test_hold_is_captured_once() {
+        final String accountId = CommonUtil.request("POST", "account", gson.toJson(getAccountInstance("Zulqarnain", 100, "GBP"))).getData().getAsString();
+        final String placeHoldRequest = gson.toJson(PlaceHold.builder().amount(new BigDecimal(70)).expirySeconds(60).build());
+        final Response placeHoldResponse = CommonUtil.request("POST", "account/" + accountId + "/holds", placeHoldRequest);
+        assertEquals(HttpStatus.OK_200, placeHoldResponse.getStatus());
+        final HoldResponse hold = gson.fromJson(placeHoldResponse.getData(), HoldResponse.class);
+
+        final AccountResponse heldAccount = gson.fromJson(CommonUtil.request("GET", "account/" + accountId).getData(), AccountResponse.class);
+        assertEquals(new BigDecimal(100), heldAccount.getBalance());
+        assertEquals(new BigDecimal(30), heldAccount.getAvailableBalance());
+        assertEquals(HttpStatus.BAD_REQUEST_400,
+                     CommonUtil.request("PUT", "account/withdraw", gson.toJson(getWithDrawMoneyInstance(accountId, 40))).getStatus());
+
+        final String capturePath = "account/" + accountId + "/holds/" + hold.getHoldId() + "/capture";
+        assertEquals(HttpStatus.OK_200, CommonUtil.request("POST", capturePath).getStatus());
+        assertEquals(HttpStatus.NOT_FOUND_404, CommonUtil.request("POST", capturePath).getStatus());
+        assertEquals(HttpStatus.NOT_FOUND_404, CommonUtil.request("DELETE", "account/" + accountId + "/holds/" + hold.getHoldId()).getStatus());
+
+        final AccountResponse capturedAccount = gson.fromJson(CommonUtil.request("GET", "account/" + accountId).getData(), AccountResponse.class);
+        assertEquals(new BigDecimal(30), capturedAccount.getBalance());
+        assertEquals(new BigDecimal(30), capturedAccount.getAvailableBalance());
+    }
+
     @After
     public void after() {
         CommonUtil.request("DELETE", "accounts");
@@ -3,11 +3,13 @@ package com.revolut.interview.data;
 import com.revolut.interview.model.Account;
 import com.revolut.interview.request.CreateAccount;
 import com.revolut.interview.request.DepositMoney;
+import com.revolut.interview.request.TransferBatch;
 import com.revolut.interview.request.TransferMoney;
 import com.revolut.interview.request.WithDrawMoney;
 import com.revolut.interview.response.AccountResponse;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Currency;
 import java.util.UUID;
 
@@ -41,6 +43,13 @@ public class MoneyTransferData {
                             .build();
     }
 
+    public static TransferBatch getTransferBatchInstance(final boolean allowPartial, final TransferMoney... transfers){
+        return TransferBatch.builder()
+                            .transfers(Arrays.asList(transfers))
+                            .allowPartial(allowPartial)
+                            .build();
+    }
+
     public static Account getAccountInstance(final UUID accountId, final String userId, final double amount){
         return Account.builder()
                               .id(accountId)
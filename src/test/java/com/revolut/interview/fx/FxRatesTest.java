@@ -0,0 +1,92 @@
+package com.revolut.interview.fx;
+
+import com.revolut.interview.execption.InvalidAmountException;
+import com.revolut.interview.execption.UnsupportedCurrencyException;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class FxRatesTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Currency GBP = Currency.getInstance("GBP");
+    private static final Currency JPY = Currency.getInstance("JPY");
+    private static final Currency USD = Currency.getInstance("USD");
+
+    @Test
+    public void test_cross_rates_are_computed_for_every_pair() {
+        final FxRates fxRates = FxRates.of(1, EUR, rates("GBP", "0.8", "USD", "1.2", "JPY", "160"));
+
+        assertEquals(0, new BigDecimal("1.25").compareTo(fxRates.rate(GBP, EUR)));
+        assertEquals(0, new BigDecimal("1.5").compareTo(fxRates.rate(GBP, USD)));
+        assertEquals(0, new BigDecimal("200").compareTo(fxRates.rate(GBP, JPY)));
+        assertEquals(BigDecimal.ONE, fxRates.rate(USD, USD));
+    }
+
+    @Test
+    public void test_convert_rounds_down_to_the_target_minor_unit() {
+        final FxRates fxRates = FxRates.of(1, EUR, rates("GBP", "0.8", "JPY", "163.37"));
+
+        assertEquals(new BigDecimal("13.32"), fxRates.convert(new BigDecimal("10.66"), GBP, EUR));
+        assertEquals(new BigDecimal("1633"), fxRates.convert(new BigDecimal("10.00"), EUR, JPY));
+        assertEquals(new BigDecimal("0.00"), fxRates.convert(new BigDecimal("1"), JPY, EUR));
+        final BigDecimal amount = new BigDecimal("10.5");
+        assertSame(amount, fxRates.convert(amount, GBP, GBP));
+        assertSame(amount, fxRates.convert(amount, null, null));
+    }
+
+    @Test(expected = UnsupportedCurrencyException.class)
+    public void test_account_without_currency_is_not_converted_to_one_with() {
+        FxRates.of(1, EUR, rates("GBP", "0.8")).convert(BigDecimal.TEN, null, GBP);
+    }
+
+    @Test(expected = InvalidAmountException.class)
+    public void test_amount_finer_than_source_minor_unit_is_rejected() {
+        FxRates.of(1, EUR, rates("GBP", "0.8")).convert(new BigDecimal("0.004"), GBP, EUR);
+    }
+
+    @Test(expected = UnsupportedCurrencyException.class)
+    public void test_currency_without_rate_is_rejected() {
+        FxRates.of(1, EUR, rates("GBP", "0.8")).convert(BigDecimal.TEN, GBP, USD);
+    }
+
+    @Test
+    public void test_table_swaps_in_new_versions_and_loads_files() throws IOException {
+        final FxRateTable fxRateTable = new FxRateTable();
+        assertEquals(0, fxRateTable.current().getVersion());
+
+        final FxRates inFlight = fxRateTable.update(EUR, rates("GBP", "0.8"));
+        final Path file = Files.createTempFile("fx-rates", ".properties");
+        try {
+            Files.write(file, Arrays.asList("base=GBP", "EUR=1.3", "USD=1.25"), StandardCharsets.UTF_8);
+            fxRateTable.load(file);
+        } finally {
+            Files.delete(file);
+        }
+
+        assertEquals(2, fxRateTable.current().getVersion());
+        assertEquals(GBP, fxRateTable.current().getBase());
+        assertEquals(new BigDecimal("12.50"), fxRateTable.current().convert(BigDecimal.TEN, GBP, USD));
+        assertEquals(new BigDecimal("12.50"), inFlight.convert(BigDecimal.TEN, GBP, EUR));
+    }
+
+    private static Map<Currency, BigDecimal> rates(final String... codesAndRates) {
+        final Map<Currency, BigDecimal> rates = new LinkedHashMap<>();
+        for(int i = 0; i < codesAndRates.length; i += 2) {
+            rates.put(Currency.getInstance(codesAndRates[i]), new BigDecimal(codesAndRates[i + 1]));
+        }
+        return rates;
+    }
+}
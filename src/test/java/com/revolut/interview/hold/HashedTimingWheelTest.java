@@ -0,0 +1,55 @@
+package com.revolut.interview.hold;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HashedTimingWheelTest {
+
+    private final HashedTimingWheel wheel = new HashedTimingWheel("test-wheel", 10, 8);
+
+    @After
+    public void after() {
+        wheel.close();
+    }
+
+    @Test
+    public void test_tasks_run_after_their_delay_including_later_turns_of_the_wheel() throws InterruptedException {
+        final CountDownLatch expired = new CountDownLatch(3);
+        final long start = System.nanoTime();
+        final long[] elapsedMillis = new long[3];
+        final long[] delays = {0, 50, 250};
+        for(int i = 0; i < delays.length; i++) {
+            final int task = i;
+            wheel.schedule(() -> {
+                elapsedMillis[task] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                expired.countDown();
+            }, delays[i]);
+        }
+
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+        for(int i = 0; i < delays.length; i++) {
+            assertTrue(String.format("Task due after %s ms ran after %s ms", delays[i], elapsedMillis[i]), elapsedMillis[i] >= delays[i]);
+        }
+    }
+
+    @Test
+    public void test_cancelled_task_does_not_run() throws InterruptedException {
+        final AtomicInteger runs = new AtomicInteger();
+        final HashedTimingWheel.Timeout cancelled = wheel.schedule(runs::incrementAndGet, 50);
+        final CountDownLatch later = new CountDownLatch(1);
+        wheel.schedule(later::countDown, 100);
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+    }
+}
@@ -0,0 +1,82 @@
+package com.revolut.interview.idempotency;
+
+import com.revolut.interview.execption.IdempotencyKeyReusedException;
+import com.revolut.interview.execption.InsufficientBalanceException;
+import com.revolut.interview.response.CacheStats;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IdempotencyCacheTest {
+
+    private final AtomicInteger    executions       = new AtomicInteger();
+    private final IdempotencyCache idempotencyCache = new IdempotencyCache(2, 4, 60, ex -> ex instanceof InsufficientBalanceException);
+
+    @Test
+    public void test_retry_returns_original_result_without_running_again() {
+        assertEquals(1, (int) idempotencyCache.execute("key-1", "request", executions::incrementAndGet));
+        assertEquals(1, (int) idempotencyCache.execute("key-1", "request", executions::incrementAndGet));
+        assertEquals(1, executions.get());
+
+        final CacheStats stats = idempotencyCache.stats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+    }
+
+    @Test(expected = IdempotencyKeyReusedException.class)
+    public void test_key_reused_for_different_request_is_rejected() {
+        idempotencyCache.execute("key-1", "request", executions::incrementAndGet);
+        idempotencyCache.execute("key-1", "another request", executions::incrementAndGet);
+    }
+
+    @Test
+    public void test_final_failure_is_replayed_and_other_failure_is_retried() {
+        for(int i = 0; i < 2; i++) {
+            try {
+                idempotencyCache.execute("key-1", "request", () -> {
+                    executions.incrementAndGet();
+                    throw new InsufficientBalanceException("Insufficient balance");
+                });
+                fail("Expected the original failure");
+            } catch (InsufficientBalanceException ex) {
+                assertEquals(1, executions.get());
+            }
+        }
+
+        try {
+            idempotencyCache.execute("key-2", "request", () -> {
+                throw new IllegalStateException("Transient failure");
+            });
+            fail("Expected the failure");
+        } catch (IllegalStateException ex) {
+            assertEquals(2, (int) idempotencyCache.execute("key-2", "request", executions::incrementAndGet));
+        }
+    }
+
+    @Test
+    public void test_least_recently_used_keys_are_evicted_beyond_capacity() {
+        for(int i = 0; i < 10; i++) {
+            idempotencyCache.execute("key-" + i, "request", executions::incrementAndGet);
+        }
+        final CacheStats stats = idempotencyCache.stats();
+        assertEquals(stats.getSize(), 10 - stats.getEvictions());
+        assertTrue(stats.getSize() <= 4);
+    }
+
+    @Test
+    public void test_keys_in_flight_are_not_evicted() {
+        final int outer = idempotencyCache.execute("key-in-flight", "request", () -> {
+            for(int i = 0; i < 10; i++) {
+                idempotencyCache.execute("key-" + i, "request", executions::incrementAndGet);
+            }
+            return executions.incrementAndGet();
+        });
+        assertEquals(outer, (int) idempotencyCache.execute("key-in-flight", "request", executions::incrementAndGet));
+        assertEquals(11, executions.get());
+    }
+}
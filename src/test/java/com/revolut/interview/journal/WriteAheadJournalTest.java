@@ -0,0 +1,269 @@
+package com.revolut.interview.journal;
+
+import com.revolut.interview.execption.JournalException;
+import com.revolut.interview.model.Account;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.revolut.interview.data.MoneyTransferData.getAccountInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WriteAheadJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_entries_are_replayed_in_order() throws IOException {
+        final Path directory = folder.newFolder().toPath();
+        final Account first = getAccountInstance(UUID.randomUUID(), "Zulqarnain", 20);
+        final Account second = getAccountInstance(UUID.randomUUID(), "Adnan", 30);
+
+        final WriteAheadJournal journal = new WriteAheadJournal(directory);
+        journal.replay(0, entry -> { });
+        journal.append(Arrays.asList(JournalRecord.put(first), JournalRecord.put(second)));
+        journal.append(Collections.singletonList(JournalRecord.delete(first.getId())));
+        journal.close();
+
+        final List<JournalEntry> entries = replay(directory);
+        assertEquals(2, entries.size());
+        assertEquals(1, entries.get(0).getLsn());
+        assertEquals(Arrays.asList(JournalRecord.put(first), JournalRecord.put(second)), entries.get(0).getRecords());
+        assertEquals(Collections.singletonList(JournalRecord.delete(first.getId())), entries.get(1).getRecords());
+    }
+
+    @Test
+    public void test_torn_tail_is_discarded() throws IOException {
+        final Path directory = folder.newFolder().toPath();
+        final WriteAheadJournal journal = new WriteAheadJournal(directory);
+        journal.replay(0, entry -> { });
+        journal.append(Collections.singletonList(JournalRecord.put(getAccountInstance(UUID.randomUUID(), "Zulqarnain", 20))));
+        journal.close();
+
+        try(FileChannel channel = FileChannel.open(directory.resolve("journal-00000000000000000001.log"), StandardOpenOption.APPEND)) {
+            final ByteBuffer frame = JournalCodec.encode(2, Collections.singletonList(JournalRecord.delete(UUID.randomUUID())));
+            frame.limit(frame.limit() - 3);
+            channel.write(frame);
+        }
+
+        final WriteAheadJournal reopened = new WriteAheadJournal(directory);
+        assertEquals(1, reopened.replay(0, entry -> { }));
+        assertEquals(2, reopened.append(Collections.singletonList(JournalRecord.delete(UUID.randomUUID()))));
+        reopened.close();
+        assertEquals(2, replay(directory).size());
+    }
+
+    @Test(timeout = 60000)
+    public void test_concurrent_appends_are_all_durable() throws Exception {
+        final Path directory = folder.newFolder().toPath();
+        final WriteAheadJournal journal = new WriteAheadJournal(directory);
+        journal.replay(0, entry -> { });
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for(int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for(int i = 0; i < 100; i++) {
+                        journal.append(Collections.singletonList(JournalRecord.delete(UUID.randomUUID())));
+                    }
+                }));
+            }
+            for(final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        journal.close();
+
+        final List<JournalEntry> entries = replay(directory);
+        assertEquals(800, entries.size());
+        for(int i = 0; i < entries.size(); i++) {
+            assertEquals(i + 1, entries.get(i).getLsn());
+        }
+    }
+
+    @Test
+    public void test_rolled_segments_can_be_deleted() throws IOException {
+        final Path directory = folder.newFolder().toPath();
+        final WriteAheadJournal journal = new WriteAheadJournal(directory);
+        journal.replay(0, entry -> { });
+        journal.append(Collections.singletonList(JournalRecord.delete(UUID.randomUUID())));
+        journal.append(Collections.singletonList(JournalRecord.delete(UUID.randomUUID())));
+        assertEquals(2, journal.roll());
+        journal.append(Collections.singletonList(JournalRecord.delete(UUID.randomUUID())));
+        assertEquals(1, journal.deleteSegmentsUpTo(2));
+        journal.close();
+
+        final WriteAheadJournal reopened = new WriteAheadJournal(directory);
+        final List<JournalEntry> entries = new ArrayList<>();
+        reopened.replay(2, entries::add);
+        reopened.close();
+        assertEquals(1, entries.size());
+        assertEquals(3, entries.get(0).getLsn());
+    }
+
+    @Test
+    public void test_failed_sync_stops_the_journal() throws IOException {
+        final Path directory = folder.newFolder().toPath();
+        final AtomicBoolean failSync = new AtomicBoolean();
+        final WriteAheadJournal journal = new WriteAheadJournal(directory, segment -> new FailingChannel(
+                FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE), failSync));
+        journal.replay(0, entry -> { });
+        journal.append(Collections.singletonList(JournalRecord.delete(UUID.randomUUID())));
+
+        failSync.set(true);
+        try {
+            journal.append(Collections.singletonList(JournalRecord.delete(UUID.randomUUID())));
+            fail("Append must fail when its sync fails");
+        } catch (JournalException ex) {
+            // expected
+        }
+        failSync.set(false);
+        try {
+            journal.append(Collections.singletonList(JournalRecord.delete(UUID.randomUUID())));
+            fail("Journal must refuse appends after a failed sync");
+        } catch (JournalException ex) {
+            // expected
+        }
+        journal.close();
+        // The entry whose sync failed may have reached the disk, the refused one did not
+        assertTrue(replay(directory).size() <= 2);
+    }
+
+    private static List<JournalEntry> replay(final Path directory) {
+        final WriteAheadJournal journal = new WriteAheadJournal(directory);
+        final List<JournalEntry> entries = new ArrayList<>();
+        journal.replay(0, entries::add);
+        journal.close();
+        return entries;
+    }
+
+    /**
+     * Passes everything through to a real channel, except that {@link #force} fails on demand.
+     */
+    private static final class FailingChannel extends FileChannel {
+
+        private final FileChannel   delegate;
+        private final AtomicBoolean failSync;
+
+        private FailingChannel(final FileChannel delegate, final AtomicBoolean failSync) {
+            this.delegate = delegate;
+            this.failSync = failSync;
+        }
+
+        @Override
+        public void force(final boolean metaData) throws IOException {
+            if(failSync.get()) {
+                throw new IOException("Disk is gone");
+            }
+            delegate.force(metaData);
+        }
+
+        @Override
+        public int read(final ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(final ByteBuffer[] dsts, final int offset, final int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public int write(final ByteBuffer src) throws IOException {
+            return delegate.write(src);
+        }
+
+        @Override
+        public long write(final ByteBuffer[] srcs, final int offset, final int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(final long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(final long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public long transferTo(final long position, final long count, final WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(final ReadableByteChannel src, final long position, final long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(final ByteBuffer dst, final long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(final ByteBuffer src, final long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(final MapMode mode, final long position, final long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(final long position, final long size, final boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(final long position, final long size, final boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
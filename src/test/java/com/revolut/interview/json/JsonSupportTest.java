@@ -0,0 +1,32 @@
+package com.revolut.interview.json;
+
+import com.revolut.interview.request.CreateAccount;
+import com.revolut.interview.response.AccountResponse;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.UUID;
+
+import static com.revolut.interview.data.MoneyTransferData.getAccountResponseInstance;
+import static org.junit.Assert.assertEquals;
+
+public class JsonSupportTest {
+
+    @Test
+    public void test_account_response_round_trip() {
+        final AccountResponse accountResponse = getAccountResponseInstance(UUID.randomUUID(), "Zulqarnain", 20.5);
+        final String json = JsonSupport.GSON.toJson(accountResponse);
+        assertEquals(accountResponse, JsonSupport.GSON.fromJson(json, AccountResponse.class));
+    }
+
+    @Test
+    public void test_amounts_and_currencies_accept_strings_and_numbers() {
+        final CreateAccount fromString = JsonSupport.GSON.fromJson("{\"userId\":\"foo\",\"balance\":\"2000.10\",\"currency\":\"GBP\"}", CreateAccount.class);
+        final CreateAccount fromNumber = JsonSupport.GSON.fromJson("{\"userId\":\"foo\",\"balance\":2000.10,\"currency\":\"GBP\"}", CreateAccount.class);
+        assertEquals(new BigDecimal("2000.10"), fromString.getBalance());
+        assertEquals(fromString, fromNumber);
+        assertEquals(Currency.getInstance("GBP"), fromNumber.getCurrency());
+    }
+}
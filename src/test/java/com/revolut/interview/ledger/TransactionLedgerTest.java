@@ -0,0 +1,99 @@
+package com.revolut.interview.ledger;
+
+import com.revolut.interview.model.LedgerEntry;
+import com.revolut.interview.model.TransactionType;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TransactionLedgerTest {
+
+    private final AtomicLong        now    = new AtomicLong(1_000);
+    private final TransactionLedger ledger = new TransactionLedger(4, true, new Clock() {
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(now.get());
+        }
+    });
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob   = UUID.randomUUID();
+
+    @Test
+    public void test_transfer_is_recorded_on_both_accounts_with_one_transaction_id() {
+        ledger.recordTransfer(alice, bob, new BigDecimal("30.50"), new BigDecimal("69.50"), new BigDecimal("30.50"));
+
+        final LedgerEntry debit = ledger.statement(alice, Long.MIN_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, 10).get(0);
+        final LedgerEntry credit = ledger.statement(bob, Long.MIN_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, 10).get(0);
+        assertEquals(TransactionType.TRANSFER_OUT, debit.getType());
+        assertEquals(TransactionType.TRANSFER_IN, credit.getType());
+        assertEquals(debit.getEntryId(), debit.getTransactionId());
+        assertEquals(debit.getTransactionId(), credit.getTransactionId());
+        assertEquals(bob, debit.getCounterpartyAccountId());
+        assertEquals(alice, credit.getCounterpartyAccountId());
+        assertEquals(new BigDecimal("69.50"), debit.getBalance());
+        assertEquals(new BigDecimal("30.50"), credit.getAmount());
+        assertEquals(2, ledger.size());
+    }
+
+    @Test
+    public void test_statement_pages_newest_first_within_time_range() {
+        for(int i = 1; i <= 10_000; i++) {
+            now.set(i);
+            ledger.recordDeposit(alice, BigDecimal.ONE, BigDecimal.valueOf(i));
+            ledger.recordDeposit(bob, BigDecimal.ONE, BigDecimal.valueOf(i));
+        }
+
+        final List<LedgerEntry> firstPage = ledger.statement(alice, 100, 5_000, Long.MAX_VALUE, 3);
+        assertEquals(3, firstPage.size());
+        assertEquals(new BigDecimal(4_999), firstPage.get(0).getBalance());
+        assertEquals(new BigDecimal(4_997), firstPage.get(2).getBalance());
+
+        final List<LedgerEntry> nextPage = ledger.statement(alice, 100, 5_000, firstPage.get(2).getEntryId(), 10_000);
+        assertEquals(4_996 - 100 + 1, nextPage.size());
+        assertEquals(new BigDecimal(4_996), nextPage.get(0).getBalance());
+        assertEquals(100, nextPage.get(nextPage.size() - 1).getTimestamp());
+        assertTrue(ledger.statement(UUID.randomUUID(), Long.MIN_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, 10).isEmpty());
+    }
+
+    @Test
+    public void test_amounts_beyond_long_range_are_kept_exactly() {
+        final BigDecimal huge = new BigDecimal("123456789012345678901234567890.12");
+        ledger.recordWithdrawal(alice, huge, BigDecimal.ZERO);
+
+        final LedgerEntry entry = ledger.statement(alice, Long.MIN_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, 1).get(0);
+        assertEquals(huge, entry.getAmount());
+        assertEquals(BigDecimal.ZERO, entry.getBalance());
+        assertNull(entry.getCounterpartyAccountId());
+    }
+
+    @Test
+    public void test_disabled_ledger_records_nothing() {
+        final TransactionLedger disabled = new TransactionLedger(4, false, Clock.systemUTC());
+        disabled.recordDeposit(alice, BigDecimal.ONE, BigDecimal.ONE);
+
+        assertEquals(0, disabled.size());
+        assertTrue(disabled.statement(alice, Long.MIN_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, 10).isEmpty());
+    }
+}
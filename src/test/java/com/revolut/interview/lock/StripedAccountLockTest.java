@@ -0,0 +1,113 @@
+package com.revolut.interview.lock;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StripedAccountLockTest {
+
+    private final StripedAccountLock accountLock = new StripedAccountLock(64);
+
+    @Test
+    public void test_stripe_count_rounded_to_power_of_two() {
+        assertEquals(1, new StripedAccountLock(1).getStripeCount());
+        assertEquals(4, new StripedAccountLock(3).getStripeCount());
+        assertEquals(64, accountLock.getStripeCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_invalid_stripe_count() {
+        new StripedAccountLock(0);
+    }
+
+    @Test
+    public void test_unrelated_accounts_lock_in_parallel() throws Exception {
+        final UUID[] accounts = accountsOnDistinctStripes(4);
+        final Lock first = accountLock.writeLock(accounts[0], accounts[1]);
+        first.lock();
+        try {
+            assertTrue(tryLockFromOtherThread(accountLock.writeLock(accounts[2], accounts[3])));
+        } finally {
+            first.unlock();
+        }
+    }
+
+    @Test
+    public void test_shared_account_is_exclusive() throws Exception {
+        final UUID[] accounts = accountsOnDistinctStripes(3);
+        final Lock first = accountLock.writeLock(accounts[0], accounts[1]);
+        first.lock();
+        try {
+            assertFalse(tryLockFromOtherThread(accountLock.writeLock(accounts[2], accounts[1])));
+            assertFalse(tryLockFromOtherThread(accountLock.readLock(accounts[0])));
+            assertFalse(tryLockFromOtherThread(accountLock.writeAllLock()));
+        } finally {
+            first.unlock();
+        }
+        assertTrue(tryLockFromOtherThread(accountLock.writeLock(accounts[2], accounts[1])));
+    }
+
+    @Test(timeout = 30000)
+    public void test_opposite_transfers_do_not_deadlock() throws Exception {
+        final UUID[] accounts = accountsOnDistinctStripes(2);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final Future<?>[] futures = new Future<?>[8];
+            for(int t = 0; t < futures.length; t++) {
+                final UUID from = accounts[t % 2];
+                final UUID to = accounts[(t + 1) % 2];
+                futures[t] = executor.submit(() -> {
+                    for(int i = 0; i < 100_000; i++) {
+                        final Lock lock = accountLock.writeLock(from, to);
+                        lock.lock();
+                        lock.unlock();
+                    }
+                });
+            }
+            for(final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private UUID[] accountsOnDistinctStripes(final int count) {
+        final Set<Integer> usedStripes = new HashSet<>();
+        final UUID[] accounts = new UUID[count];
+        int found = 0;
+        while(found < count) {
+            final UUID candidate = UUID.randomUUID();
+            if(usedStripes.add(accountLock.stripeOf(candidate))) {
+                accounts[found++] = candidate;
+            }
+        }
+        return accounts;
+    }
+
+    private static boolean tryLockFromOtherThread(final Lock lock) throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(() -> {
+                if(lock.tryLock(50, TimeUnit.MILLISECONDS)) {
+                    lock.unlock();
+                    return true;
+                }
+                return false;
+            }).get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.revolut.interview.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void test_percentiles_are_within_bucket_precision() {
+        for(long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+        assertEquals(100_000, histogram.getCount());
+        assertWithinPrecision(50_000_000, histogram.valueAtPercentile(50));
+        assertWithinPrecision(99_000_000, histogram.valueAtPercentile(99));
+        assertWithinPrecision(100_000_000, histogram.valueAtPercentile(100));
+    }
+
+    @Test
+    public void test_every_value_falls_in_a_bucket_that_bounds_it() {
+        for(long value = 0; value < 1 << 20; value += 7) {
+            final int index = LatencyHistogram.indexOf(value);
+            assertTrue(value <= LatencyHistogram.upperBoundOf(index));
+            assertTrue(index == 0 || value > LatencyHistogram.upperBoundOf(index - 1));
+        }
+    }
+
+    @Test
+    public void test_empty_histogram_reports_zero() {
+        assertEquals(0, histogram.valueAtPercentile(99));
+    }
+
+    private static void assertWithinPrecision(final long expected, final long actual) {
+        assertTrue(String.format("%s not within 3%% of %s", actual, expected), Math.abs(actual - expected) <= expected * 0.03);
+    }
+}
@@ -0,0 +1,37 @@
+package com.revolut.interview.metrics;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsRegistryTest {
+
+    private final MetricsRegistry metricsRegistry = new MetricsRegistry();
+
+    @Test
+    public void test_metrics_are_written_in_prometheus_text_format() throws IOException {
+        metricsRegistry.histogram("request_seconds", "Request latency", "route", "/account").record(2_000_000);
+        metricsRegistry.counter("failures_total", "Failures", "exception", "InsufficientBalanceException").add(3);
+        metricsRegistry.gauge("accounts", "Number of accounts", () -> 42);
+
+        final StringWriter writer = new StringWriter();
+        metricsRegistry.writeTo(writer);
+        final String text = writer.toString();
+
+        assertTrue(text.contains("# TYPE request_seconds summary\n"));
+        assertTrue(text.contains("request_seconds{route=\"/account\",quantile=\"0.99\"} 0.0020"));
+        assertTrue(text.contains("request_seconds_count{route=\"/account\"} 1\n"));
+        assertTrue(text.contains("failures_total{exception=\"InsufficientBalanceException\"} 3\n"));
+        assertTrue(text.contains("# TYPE accounts gauge\naccounts 42\n"));
+    }
+
+    @Test
+    public void test_same_name_and_labels_return_the_same_metric() {
+        assertSame(metricsRegistry.histogram("request_seconds", "Request latency", "route", "/account"),
+                   metricsRegistry.histogram("request_seconds", "Request latency", "route", "/account"));
+    }
+}
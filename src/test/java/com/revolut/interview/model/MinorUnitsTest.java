@@ -0,0 +1,50 @@
+package com.revolut.interview.model;
+
+import com.revolut.interview.execption.InvalidAmountException;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+import static org.junit.Assert.assertEquals;
+
+public class MinorUnitsTest {
+
+    private static final Currency GBP = Currency.getInstance("GBP");
+    private static final Currency JPY = Currency.getInstance("JPY");
+
+    @Test
+    public void test_conversion_round_trip() {
+        assertEquals(12345L, MinorUnits.fromDecimal(new BigDecimal("123.45"), GBP));
+        assertEquals(12000L, MinorUnits.fromDecimal(new BigDecimal(120), GBP));
+        assertEquals(120L, MinorUnits.fromDecimal(new BigDecimal(120), JPY));
+        assertEquals(new BigDecimal("123.45"), MinorUnits.toDecimal(12345L, GBP));
+        assertEquals(new BigDecimal("120"), MinorUnits.toDecimal(120L, JPY));
+    }
+
+    @Test
+    public void test_trailing_zeros_are_exact() {
+        assertEquals(150L, MinorUnits.fromDecimal(new BigDecimal("1.5000"), GBP));
+    }
+
+    @Test(expected = InvalidAmountException.class)
+    public void test_excess_fraction_digits_are_rejected() {
+        MinorUnits.fromDecimal(new BigDecimal("1.005"), GBP);
+    }
+
+    @Test(expected = InvalidAmountException.class)
+    public void test_out_of_range_amount_is_rejected() {
+        MinorUnits.fromDecimal(new BigDecimal(Long.MAX_VALUE), GBP);
+    }
+
+    @Test(expected = InvalidAmountException.class)
+    public void test_add_overflow_is_rejected() {
+        MinorUnits.add(Long.MAX_VALUE, 1);
+    }
+
+    @Test(expected = InvalidAmountException.class)
+    public void test_currency_without_minor_unit_is_rejected() {
+        MinorUnits.fractionDigits(Currency.getInstance("XAU"));
+    }
+}
@@ -0,0 +1,189 @@
+package com.revolut.interview.replication;
+
+import com.revolut.interview.audit.AuditLog;
+import com.revolut.interview.config.ServiceConfig;
+import com.revolut.interview.execption.ReplicationLagException;
+import com.revolut.interview.execption.ReplicationTimeoutException;
+import com.revolut.interview.lock.StripedAccountLock;
+import com.revolut.interview.mapper.AccountMapper;
+import com.revolut.interview.repository.AccountRepositoryImpl;
+import com.revolut.interview.repository.ReplicatedAccountRepository;
+import com.revolut.interview.service.AccountService;
+import com.revolut.interview.service.AccountServiceImpl;
+import com.revolut.interview.service.ReplicatedAccountService;
+import com.revolut.interview.service.ServiceEngine;
+import com.revolut.interview.view.AccountViews;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static com.revolut.interview.data.MoneyTransferData.getAccountInstance;
+import static com.revolut.interview.data.MoneyTransferData.getTransferMoneyInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReplicationTest {
+
+    private static final long MAX_STALENESS_MILLIS = 300;
+
+    private final List<ReplicationNode> nodes = new ArrayList<>();
+
+    @After
+    public void after() {
+        nodes.forEach(ReplicationNode::close);
+    }
+
+    @Test
+    public void test_replica_catches_up_from_snapshot_and_follows_changes() {
+        final ReplicatedAccountRepository primaryRepository = new ReplicatedAccountRepository(new AccountRepositoryImpl());
+        final ReplicationNode primary = start(primaryRepository, ReplicationRole.PRIMARY, null, 0);
+        final AccountService primaryService = accountService(primaryRepository);
+        final UUID firstAccountId = primaryService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        final UUID secondAccountId = primaryService.createAccount(getAccountInstance("Adnan", 20, "GBP"));
+
+        final ReplicatedAccountRepository replicaRepository = new ReplicatedAccountRepository(new AccountRepositoryImpl());
+        start(replicaRepository, ReplicationRole.REPLICA, primary, 0);
+        primaryService.transferAmount(getTransferMoneyInstance(firstAccountId.toString(), secondAccountId.toString(), 25));
+        primaryService.deleteAccount(firstAccountId);
+
+        awaitTrue(() -> replicaRepository.getAccountById(secondAccountId) != null && replicaRepository.getAccountById(firstAccountId) == null);
+        assertEquals(new BigDecimal(45), replicaRepository.getAccountById(secondAccountId).getBalance());
+        assertTrue(replicaRepository.isAccountExist("Adnan"));
+    }
+
+    @Test
+    public void test_change_waits_for_replica_acknowledgement() {
+        final ReplicatedAccountRepository primaryRepository = new ReplicatedAccountRepository(new AccountRepositoryImpl());
+        final ReplicationNode primary = start(primaryRepository, ReplicationRole.PRIMARY, null, 1);
+        final AccountService primaryService = new ReplicatedAccountService(accountService(primaryRepository), primary);
+
+        try {
+            primaryService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+            fail("Change without a replica to confirm it must time out");
+        } catch (ReplicationTimeoutException ex) {
+            assertTrue(primaryRepository.isAccountExist("Zulqarnain"));
+        }
+
+        final ReplicatedAccountRepository replicaRepository = new ReplicatedAccountRepository(new AccountRepositoryImpl());
+        start(replicaRepository, ReplicationRole.REPLICA, primary, 0);
+        awaitTrue(() -> primary.status().getReplicaLsns().stream().anyMatch(lsn -> lsn >= 1));
+        final UUID accountId = primaryService.createAccount(getAccountInstance("Adnan", 20, "GBP"));
+
+        // Acknowledged, so already applied without waiting
+        assertEquals(new BigDecimal(20), replicaRepository.getAccountById(accountId).getBalance());
+        assertTrue(replicaRepository.isAccountExist("Zulqarnain"));
+    }
+
+    @Test
+    public void test_stale_replica_refuses_reads_and_promoted_replica_takes_writes() throws InterruptedException {
+        final ReplicatedAccountRepository primaryRepository = new ReplicatedAccountRepository(new AccountRepositoryImpl());
+        final ReplicationNode primary = start(primaryRepository, ReplicationRole.PRIMARY, null, 0);
+        final UUID accountId = accountService(primaryRepository).createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+
+        final ReplicatedAccountRepository replicaRepository = new ReplicatedAccountRepository(new AccountRepositoryImpl());
+        final ReplicationNode replica = start(replicaRepository, ReplicationRole.REPLICA, primary, 0);
+        awaitTrue(() -> replica.status().getLsn() == primary.status().getLsn() && replica.status().getStalenessMillis() < MAX_STALENESS_MILLIS);
+        replica.checkFresh();
+        assertTrue(replica.isReadOnly());
+
+        primary.close();
+        Thread.sleep(2 * MAX_STALENESS_MILLIS);
+        try {
+            replica.checkFresh();
+            fail("Replica that lost its primary must not claim to be fresh");
+        } catch (ReplicationLagException ex) {
+            // expected
+        }
+
+        replica.promote();
+        assertFalse(replica.isReadOnly());
+        replica.checkFresh();
+        final AccountService promotedService = accountService(replicaRepository);
+        final UUID secondAccountId = promotedService.createAccount(getAccountInstance("Adnan", 20, "GBP"));
+        promotedService.transferAmount(getTransferMoneyInstance(accountId.toString(), secondAccountId.toString(), 10));
+
+        final ReplicatedAccountRepository nextReplicaRepository = new ReplicatedAccountRepository(new AccountRepositoryImpl());
+        start(nextReplicaRepository, ReplicationRole.REPLICA, replica, 0);
+        awaitTrue(() -> nextReplicaRepository.getAccountById(secondAccountId) != null);
+        assertEquals(new BigDecimal(50), nextReplicaRepository.getAccountById(accountId).getBalance());
+        assertEquals(new BigDecimal(30), nextReplicaRepository.getAccountById(secondAccountId).getBalance());
+        assertNull(nextReplicaRepository.getAccountById(UUID.randomUUID()));
+    }
+
+    @Test
+    public void test_replica_receives_every_change_published_concurrently() throws InterruptedException {
+        final ReplicatedAccountRepository primaryRepository = new ReplicatedAccountRepository(new AccountRepositoryImpl());
+        final ReplicationNode primary = start(primaryRepository, ReplicationRole.PRIMARY, null, 0);
+        final AccountService primaryService = accountService(primaryRepository);
+        final ReplicatedAccountRepository replicaRepository = new ReplicatedAccountRepository(new AccountRepositoryImpl());
+        start(replicaRepository, ReplicationRole.REPLICA, primary, 0);
+        awaitTrue(() -> !primary.status().getReplicaLsns().isEmpty());
+
+        final List<Thread> threads = new ArrayList<>();
+        for(int t = 0; t < 4; t++) {
+            final int thread = t;
+            threads.add(new Thread(() -> {
+                for(int i = 0; i < 100; i++) {
+                    primaryService.createAccount(getAccountInstance("user-" + thread + "-" + i, 10, "GBP"));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for(final Thread thread : threads) {
+            thread.join();
+        }
+
+        awaitTrue(() -> replicaRepository.getAllAccounts().size() == 400);
+        for(int t = 0; t < 4; t++) {
+            for(int i = 0; i < 100; i++) {
+                assertTrue(replicaRepository.isAccountExist("user-" + t + "-" + i));
+            }
+        }
+    }
+
+    private ReplicationNode start(final ReplicatedAccountRepository repository, final ReplicationRole role,
+                                  final ReplicationNode primary, final int acks) {
+        final ServiceConfig serviceConfig = ServiceConfig.builder()
+                                                         .engine(ServiceEngine.LOCKING)
+                                                         .replicationRole(role)
+                                                         .replicationPort(0)
+                                                         .replicationPrimary(primary == null ? null : "127.0.0.1:" + primary.primaryPort())
+                                                         .replicationAcks(acks)
+                                                         .replicationAckTimeoutMillis(200)
+                                                         .replicationMaxStalenessMillis(MAX_STALENESS_MILLIS)
+                                                         .replicationBacklog(1024)
+                                                         .build();
+        final ReplicationNode node = new ReplicationNode(repository, new AccountViews(), serviceConfig);
+        node.start();
+        nodes.add(node);
+        return node;
+    }
+
+    private static AccountService accountService(final ReplicatedAccountRepository repository) {
+        return new AccountServiceImpl(repository, new AccountMapper(), new StripedAccountLock(16), new AuditLog(0));
+    }
+
+    private static void awaitTrue(final BooleanSupplier condition) {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while(!condition.getAsBoolean()) {
+            if(System.currentTimeMillis() > deadline) {
+                fail("Replica did not catch up in time");
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
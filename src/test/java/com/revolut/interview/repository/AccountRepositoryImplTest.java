@@ -0,0 +1,107 @@
+package com.revolut.interview.repository;
+
+import com.revolut.interview.model.Account;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static com.revolut.interview.data.MoneyTransferData.getAccountInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AccountRepositoryImplTest {
+
+    private final AccountRepositoryImpl accountRepository = new AccountRepositoryImpl();
+
+    @Test
+    public void test_user_index_follows_save_and_delete() {
+        final Account account = getAccountInstance(UUID.randomUUID(), "Zulqarnain", 20);
+        accountRepository.save(account);
+        assertTrue(accountRepository.isAccountExist("Zulqarnain"));
+        assertEquals(account, accountRepository.getAccountByUserId("Zulqarnain"));
+
+        accountRepository.deleteAccount(account.getId());
+        assertFalse(accountRepository.isAccountExist("Zulqarnain"));
+        assertNull(accountRepository.getAccountByUserId("Zulqarnain"));
+    }
+
+    @Test
+    public void test_user_index_follows_save_all_and_delete_all() {
+        accountRepository.saveAll(Arrays.asList(getAccountInstance(UUID.randomUUID(), "Zulqarnain", 20),
+                                                getAccountInstance(UUID.randomUUID(), "Adnan", 30)));
+        assertTrue(accountRepository.isAccountExist("Zulqarnain"));
+        assertTrue(accountRepository.isAccountExist("Adnan"));
+
+        accountRepository.deleteAllAccounts();
+        assertFalse(accountRepository.isAccountExist("Zulqarnain"));
+        assertFalse(accountRepository.isAccountExist("Adnan"));
+        assertTrue(accountRepository.getAllAccounts().isEmpty());
+    }
+
+    @Test
+    public void test_save_if_user_absent_rejects_duplicate_user() {
+        assertTrue(accountRepository.saveIfUserAbsent(getAccountInstance(UUID.randomUUID(), "Zulqarnain", 20)));
+        assertFalse(accountRepository.saveIfUserAbsent(getAccountInstance(UUID.randomUUID(), "Zulqarnain", 40)));
+        assertEquals(1, accountRepository.getAllAccounts().size());
+    }
+
+    @Test
+    public void test_concurrent_creation_for_one_user_has_single_winner() throws Exception {
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        try {
+            final Callable<Boolean> create = () -> {
+                start.await();
+                return accountRepository.saveIfUserAbsent(getAccountInstance(UUID.randomUUID(), "Zulqarnain", 20));
+            };
+            final Future<?>[] futures = new Future<?>[threads];
+            for(int i = 0; i < threads; i++) {
+                futures[i] = executor.submit(create);
+            }
+            start.countDown();
+
+            int winners = 0;
+            for(final Future<?> future : futures) {
+                winners += Boolean.TRUE.equals(future.get()) ? 1 : 0;
+            }
+            assertEquals(1, winners);
+            assertEquals(1, accountRepository.getAllAccounts().size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_accounts_are_paged_in_account_id_order() {
+        final List<UUID> accountIds = new ArrayList<>();
+        for(int i = 0; i < 5; i++) {
+            final Account account = getAccountInstance(UUID.randomUUID(), "user-" + i, 10);
+            accountRepository.save(account);
+            accountIds.add(account.getId());
+        }
+        Collections.sort(accountIds);
+        accountRepository.deleteAccount(accountIds.get(1));
+
+        final List<Account> firstPage = accountRepository.getAccountsAfter(null, 2);
+        assertEquals(Arrays.asList(accountIds.get(0), accountIds.get(2)),
+                     firstPage.stream().map(Account::getId).collect(Collectors.toList()));
+
+        final List<Account> lastPage = accountRepository.getAccountsAfter(accountIds.get(2), 10);
+        assertEquals(Arrays.asList(accountIds.get(3), accountIds.get(4)),
+                     lastPage.stream().map(Account::getId).collect(Collectors.toList()));
+    }
+}
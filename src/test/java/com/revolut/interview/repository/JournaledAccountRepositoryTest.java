@@ -0,0 +1,131 @@
+package com.revolut.interview.repository;
+
+import com.revolut.interview.audit.AuditLog;
+import com.revolut.interview.journal.SnapshotStore;
+import com.revolut.interview.journal.WriteAheadJournal;
+import com.revolut.interview.lock.StripedAccountLock;
+import com.revolut.interview.mapper.AccountMapper;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.service.AccountService;
+import com.revolut.interview.service.AccountServiceImpl;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static com.revolut.interview.data.MoneyTransferData.getAccountInstance;
+import static com.revolut.interview.data.MoneyTransferData.getTransferMoneyInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JournaledAccountRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_balances_survive_restart() throws IOException {
+        final Path directory = folder.newFolder().toPath();
+        final Account first = getAccountInstance(UUID.randomUUID(), "Zulqarnain", 60);
+        final Account second = getAccountInstance(UUID.randomUUID(), "Adnan", 20);
+
+        final WriteAheadJournal journal = new WriteAheadJournal(directory);
+        final JournaledAccountRepository accountRepository = new JournaledAccountRepository(new AccountRepositoryImpl(), journal, new SnapshotStore(directory));
+        assertTrue(accountRepository.saveIfUserAbsent(first));
+        assertTrue(accountRepository.saveIfUserAbsent(second));
+        first.setBalance(new BigDecimal(30));
+        second.setBalance(new BigDecimal(50));
+        accountRepository.saveAll(Arrays.asList(first, second));
+        journal.close();
+
+        final WriteAheadJournal reopened = new WriteAheadJournal(directory);
+        final JournaledAccountRepository recovered = new JournaledAccountRepository(new AccountRepositoryImpl(), reopened, new SnapshotStore(directory));
+        assertEquals(first, recovered.getAccountById(first.getId()));
+        assertEquals(second, recovered.getAccountById(second.getId()));
+        assertTrue(recovered.isAccountExist("Adnan"));
+        reopened.close();
+    }
+
+    @Test
+    public void test_transfer_to_the_same_account_keeps_its_balance() throws IOException {
+        final Path directory = folder.newFolder().toPath();
+        final WriteAheadJournal journal = new WriteAheadJournal(directory);
+        final AccountService accountService = new AccountServiceImpl(new JournaledAccountRepository(new AccountRepositoryImpl(), journal,
+                                                                                                    new SnapshotStore(directory)),
+                                                                     new AccountMapper(), new StripedAccountLock(16), new AuditLog(0));
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+
+        accountService.transferAmount(getTransferMoneyInstance(accountId.toString(), accountId.toString(), 20));
+
+        assertEquals(0, new BigDecimal(60).compareTo(accountService.getAccount(accountId).getBalance()));
+        journal.close();
+    }
+
+    @Test
+    public void test_deletions_survive_restart() throws IOException {
+        final Path directory = folder.newFolder().toPath();
+        final Account first = getAccountInstance(UUID.randomUUID(), "Zulqarnain", 60);
+        final Account second = getAccountInstance(UUID.randomUUID(), "Adnan", 20);
+
+        final WriteAheadJournal journal = new WriteAheadJournal(directory);
+        final JournaledAccountRepository accountRepository = new JournaledAccountRepository(new AccountRepositoryImpl(), journal, new SnapshotStore(directory));
+        accountRepository.saveIfUserAbsent(first);
+        accountRepository.deleteAccount(first.getId());
+        accountRepository.saveIfUserAbsent(second);
+        accountRepository.deleteAllAccounts();
+        journal.close();
+
+        final WriteAheadJournal reopened = new WriteAheadJournal(directory);
+        final JournaledAccountRepository recovered = new JournaledAccountRepository(new AccountRepositoryImpl(), reopened, new SnapshotStore(directory));
+        assertNull(recovered.getAccountById(first.getId()));
+        assertFalse(recovered.isAccountExist("Adnan"));
+        assertTrue(recovered.getAllAccounts().isEmpty());
+        reopened.close();
+    }
+
+    @Test
+    public void test_restart_from_snapshot_and_journal_tail() throws IOException {
+        final Path directory = folder.newFolder().toPath();
+        final Account first = getAccountInstance(UUID.randomUUID(), "Zulqarnain", 60);
+        final Account second = getAccountInstance(UUID.randomUUID(), "Adnan", 20);
+
+        final WriteAheadJournal journal = new WriteAheadJournal(directory);
+        final JournaledAccountRepository accountRepository = new JournaledAccountRepository(new AccountRepositoryImpl(), journal, new SnapshotStore(directory));
+        accountRepository.saveIfUserAbsent(first);
+        accountRepository.saveIfUserAbsent(second);
+        assertEquals(2, accountRepository.snapshot());
+
+        first.setBalance(new BigDecimal(30));
+        second.setBalance(new BigDecimal(50));
+        accountRepository.saveAll(Arrays.asList(first, second));
+        journal.close();
+
+        final WriteAheadJournal reopened = new WriteAheadJournal(directory);
+        final JournaledAccountRepository recovered = new JournaledAccountRepository(new AccountRepositoryImpl(), reopened, new SnapshotStore(directory));
+        assertEquals(first, recovered.getAccountById(first.getId()));
+        assertEquals(second, recovered.getAccountById(second.getId()));
+        reopened.close();
+    }
+
+    @Test
+    public void test_accounts_are_not_modified_in_place() throws IOException {
+        final Path directory = folder.newFolder().toPath();
+        final WriteAheadJournal journal = new WriteAheadJournal(directory);
+        final JournaledAccountRepository accountRepository = new JournaledAccountRepository(new AccountRepositoryImpl(), journal, new SnapshotStore(directory));
+        final Account account = getAccountInstance(UUID.randomUUID(), "Zulqarnain", 60);
+        accountRepository.saveIfUserAbsent(account);
+
+        accountRepository.getAccountById(account.getId()).setBalance(new BigDecimal(10));
+        account.setBalance(new BigDecimal(20));
+        assertEquals(new BigDecimal(60), accountRepository.getAccountById(account.getId()).getBalance());
+        journal.close();
+    }
+}
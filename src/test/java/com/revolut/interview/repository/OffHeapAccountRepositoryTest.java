@@ -0,0 +1,107 @@
+package com.revolut.interview.repository;
+
+import com.revolut.interview.model.Account;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static com.revolut.interview.data.MoneyTransferData.getAccountInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapAccountRepositoryTest {
+
+    private final OffHeapAccountRepository accountRepository = new OffHeapAccountRepository(16);
+
+    @Test
+    public void test_balance_is_updated_in_place_and_reads_are_copies() {
+        final Account account = getAccountInstance(UUID.randomUUID(), "Zulqarnain", 20);
+        assertTrue(accountRepository.saveIfUserAbsent(account));
+
+        final Account read = accountRepository.getAccountById(account.getId());
+        assertEquals(account, read);
+        read.setBalance(new BigDecimal("12.34"));
+        assertEquals(new BigDecimal(20), accountRepository.getAccountById(account.getId()).getBalance());
+
+        accountRepository.save(read);
+        assertEquals(new BigDecimal("12.34"), accountRepository.getAccountByUserId("Zulqarnain").getBalance());
+        assertFalse(accountRepository.saveIfUserAbsent(getAccountInstance(UUID.randomUUID(), "Zulqarnain", 40)));
+    }
+
+    @Test
+    public void test_values_that_do_not_fit_a_record_are_kept_exactly() {
+        final String longUserId = "a user id that is longer than the thirty bytes kept in a record";
+        final Account account = getAccountInstance(UUID.randomUUID(), longUserId, 0).toBuilder()
+                                                                                     .balance(new BigDecimal("123456789012345678901234567890.12"))
+                                                                                     .build();
+        accountRepository.save(account);
+        assertEquals(account, accountRepository.getAccountByUserId(longUserId));
+
+        final Account renamed = account.toBuilder().userId("Zürich").build();
+        accountRepository.save(renamed);
+        assertFalse(accountRepository.isAccountExist(longUserId));
+        assertEquals(renamed, accountRepository.getAccountByUserId("Zürich"));
+    }
+
+    @Test
+    public void test_indexes_match_a_map_through_growth_and_deletes() {
+        final Random random = new Random(42);
+        final Map<UUID, Account> expected = new HashMap<>();
+        final List<UUID> accountIds = new ArrayList<>();
+        for(int i = 0; i < 20_000; i++) {
+            if(!accountIds.isEmpty() && random.nextInt(3) == 0) {
+                final UUID deleted = accountIds.remove(random.nextInt(accountIds.size()));
+                accountRepository.deleteAccount(deleted);
+                expected.remove(deleted);
+            } else {
+                final Account account = getAccountInstance(UUID.randomUUID(), "user-" + i, random.nextInt(1000));
+                accountRepository.save(account);
+                expected.put(account.getId(), account);
+                accountIds.add(account.getId());
+            }
+        }
+
+        assertEquals(expected.size(), accountRepository.getAllAccounts().size());
+        for(final Account account : expected.values()) {
+            assertEquals(account, accountRepository.getAccountById(account.getId()));
+            assertEquals(account, accountRepository.getAccountByUserId(account.getUserId()));
+        }
+        assertEquals(expected, accountRepository.getAllAccounts().stream()
+                                                .collect(Collectors.toMap(Account::getId, account -> account)));
+        assertNull(accountRepository.getAccountById(UUID.randomUUID()));
+    }
+
+    @Test
+    public void test_accounts_are_paged_in_account_id_order() {
+        final List<UUID> accountIds = new ArrayList<>();
+        for(int i = 0; i < 50; i++) {
+            final Account account = getAccountInstance(UUID.randomUUID(), "user-" + i, 10);
+            accountRepository.save(account);
+            accountIds.add(account.getId());
+        }
+        Collections.sort(accountIds);
+
+        final List<UUID> paged = new ArrayList<>();
+        List<Account> page = accountRepository.getAccountsAfter(null, 7);
+        while(!page.isEmpty()) {
+            page.forEach(account -> paged.add(account.getId()));
+            page = accountRepository.getAccountsAfter(paged.get(paged.size() - 1), 7);
+        }
+        assertEquals(accountIds, paged);
+
+        accountRepository.deleteAllAccounts();
+        assertTrue(accountRepository.getAllAccounts().isEmpty());
+        assertFalse(accountRepository.isAccountExist("user-0"));
+    }
+}
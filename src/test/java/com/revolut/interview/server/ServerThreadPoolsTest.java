@@ -0,0 +1,50 @@
+package com.revolut.interview.server;
+
+import com.revolut.interview.config.ServerConfig;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ServerThreadPoolsTest {
+
+    private final ServerConfig serverConfig = ServerConfig.builder()
+                                                          .port(4567)
+                                                          .minThreads(2)
+                                                          .maxThreads(4)
+                                                          .queueCapacity(16)
+                                                          .idleTimeoutMillis(1000)
+                                                          .build();
+
+    @Test
+    public void test_queued_pool_follows_config() {
+        final QueuedThreadPool threadPool = (QueuedThreadPool) ServerThreadPools.create(serverConfig);
+        assertEquals(2, threadPool.getMinThreads());
+        assertEquals(4, threadPool.getMaxThreads());
+        assertEquals(1000, threadPool.getIdleTimeout());
+    }
+
+    @Test
+    public void test_virtual_threads_fall_back_to_queued_pool_when_unavailable() throws Exception {
+        final ThreadPool threadPool = ServerThreadPools.create(serverConfig.toBuilder().virtualThreads(true).build());
+        if(ServerThreadPools.newVirtualThreadPerTaskExecutor() == null) {
+            assertTrue(threadPool instanceof QueuedThreadPool);
+            return;
+        }
+        assertTrue(threadPool instanceof VirtualThreadPool);
+        final CountDownLatch ran = new CountDownLatch(1);
+        threadPool.execute(ran::countDown);
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_max_threads_below_min_threads_is_rejected() {
+        ServerThreadPools.create(serverConfig.toBuilder().maxThreads(1).build());
+    }
+}
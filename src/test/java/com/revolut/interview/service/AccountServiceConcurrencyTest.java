@@ -0,0 +1,127 @@
+package com.revolut.interview.service;
+
+import com.revolut.interview.audit.AuditLog;
+import com.revolut.interview.execption.InsufficientBalanceException;
+import com.revolut.interview.lock.GlobalAccountLock;
+import com.revolut.interview.lock.StripedAccountLock;
+import com.revolut.interview.mapper.AccountMapper;
+import com.revolut.interview.repository.AccountRepositoryImpl;
+import com.revolut.interview.repository.OffHeapAccountRepository;
+import com.revolut.interview.response.AccountResponse;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import static com.revolut.interview.data.MoneyTransferData.getAccountInstance;
+import static com.revolut.interview.data.MoneyTransferData.getTransferMoneyInstance;
+import static org.junit.Assert.assertEquals;
+
+public class AccountServiceConcurrencyTest {
+
+    private static final int ACCOUNTS             = 1_000;
+    private static final int INITIAL_BALANCE      = 1_000;
+    private static final int TRANSFERS_PER_THREAD = 1_000;
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountServiceConcurrencyTest.class);
+
+    @Test(timeout = 120000)
+    public void test_global_lock_conserves_money() throws Exception {
+        final GlobalAccountLock accountLock = new GlobalAccountLock();
+        runWithIncreasingThreads("GLOBAL lock", () -> new AccountServiceImpl(new AccountRepositoryImpl(), new AccountMapper(), accountLock, new AuditLog(0)));
+    }
+
+    @Test(timeout = 120000)
+    public void test_striped_lock_conserves_money() throws Exception {
+        final StripedAccountLock accountLock = new StripedAccountLock(256);
+        runWithIncreasingThreads("STRIPED lock", () -> new AccountServiceImpl(new AccountRepositoryImpl(), new AccountMapper(), accountLock, new AuditLog(0)));
+    }
+
+    @Test(timeout = 120000)
+    public void test_striped_lock_over_off_heap_store_conserves_money() throws Exception {
+        final StripedAccountLock accountLock = new StripedAccountLock(256);
+        runWithIncreasingThreads("STRIPED lock, OFF_HEAP store", () -> new AccountServiceImpl(new OffHeapAccountRepository(), new AccountMapper(), accountLock, new AuditLog(0)));
+    }
+
+    @Test(timeout = 120000)
+    public void test_optimistic_engine_conserves_money() throws Exception {
+        runWithIncreasingThreads("OPTIMISTIC engine", () -> new OptimisticAccountServiceImpl(new AccountMapper(), new AuditLog(0)));
+    }
+
+    @Test(timeout = 120000)
+    public void test_single_writer_engine_conserves_money() throws Exception {
+        runWithIncreasingThreads("SINGLE_WRITER engine", () -> new SingleWriterAccountServiceImpl(new AccountMapper(), new AuditLog(0), 1024));
+    }
+
+    @Test(timeout = 120000)
+    public void test_sharded_engine_conserves_money() throws Exception {
+        runWithIncreasingThreads("SHARDED engine, 8 shards", () -> new ShardedAccountServiceImpl(new AccountMapper(), new AuditLog(0), 8));
+    }
+
+    private void runWithIncreasingThreads(final String mode, final Supplier<AccountService> engine) throws Exception {
+        for(int threads = 1; threads <= 8; threads *= 2) {
+            final AccountService accountService = engine.get();
+            final List<String> accountIds = createAccounts(accountService);
+
+            final long started = System.nanoTime();
+            runTransfers(accountService, accountIds, threads);
+            final long elapsedNanos = System.nanoTime() - started;
+
+            logger.info(String.format("%s, %d threads: %.0f transfers/s", mode, threads,
+                                      threads * TRANSFERS_PER_THREAD / (elapsedNanos / 1e9)));
+            assertEquals(0, new BigDecimal(ACCOUNTS * INITIAL_BALANCE).compareTo(totalBalance(accountService)));
+        }
+    }
+
+    private static List<String> createAccounts(final AccountService accountService) {
+        final List<String> accountIds = new ArrayList<>(ACCOUNTS);
+        for(int i = 0; i < ACCOUNTS; i++) {
+            final UUID accountId = accountService.createAccount(getAccountInstance("user-" + i, INITIAL_BALANCE, "GBP"));
+            accountIds.add(accountId.toString());
+        }
+        return accountIds;
+    }
+
+    private static void runTransfers(final AccountService accountService, final List<String> accountIds,
+                                     final int threads) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for(int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    final ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for(int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        final String from = accountIds.get(random.nextInt(ACCOUNTS));
+                        final String to = accountIds.get(random.nextInt(ACCOUNTS));
+                        try {
+                            accountService.transferAmount(getTransferMoneyInstance(from, to, random.nextInt(1, 50)));
+                        } catch (InsufficientBalanceException ignored) {
+                            // expected outcome of random transfers
+                        }
+                    }
+                }));
+            }
+            for(final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static BigDecimal totalBalance(final AccountService accountService) {
+        return accountService.getAllAccounts().stream()
+                             .map(AccountResponse::getBalance)
+                             .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
@@ -1,36 +1,57 @@
 package com.revolut.interview.service;
 
+import com.revolut.interview.audit.AuditLog;
 import com.revolut.interview.data.MoneyTransferData;
 import com.revolut.interview.execption.AccountAlreadyExistException;
 import com.revolut.interview.execption.AccountNotExistsException;
+import com.revolut.interview.execption.HoldNotExistsException;
 import com.revolut.interview.execption.InsufficientBalanceException;
+import com.revolut.interview.execption.OperationNotSupportedException;
+import com.revolut.interview.fx.FxRateTable;
+import com.revolut.interview.hold.HoldBook;
+import com.revolut.interview.ledger.TransactionLedger;
+import com.revolut.interview.lock.StripedAccountLock;
 import com.revolut.interview.mapper.AccountMapper;
 import com.revolut.interview.model.Account;
 import com.revolut.interview.repository.AccountRepository;
+import com.revolut.interview.repository.AccountRepositoryImpl;
 import com.revolut.interview.request.CreateAccount;
+import com.revolut.interview.request.PlaceHold;
 import com.revolut.interview.response.AccountResponse;
+import com.revolut.interview.response.HoldResponse;
+import com.revolut.interview.response.TransferResult;
+import com.revolut.interview.uuid.AccountIdGenerator;
+import com.revolut.interview.view.AccountView;
+import com.revolut.interview.view.AccountViews;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.MockitoAnnotations;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.math.BigDecimal;
+import java.time.Clock;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 import static com.revolut.interview.data.MoneyTransferData.getAccountInstance;
 import static com.revolut.interview.data.MoneyTransferData.getDepositMoneyInstance;
+import static com.revolut.interview.data.MoneyTransferData.getTransferBatchInstance;
 import static com.revolut.interview.data.MoneyTransferData.getTransferMoneyInstance;
 import static com.revolut.interview.data.MoneyTransferData.getWithDrawMoneyInstance;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -40,26 +61,27 @@ public class AccountServiceTest {
     private final AccountRepository accountRepository = mock(AccountRepository.class);
     private final AccountMapper accountMapper = mock(AccountMapper.class);
 
-    @InjectMocks
     private AccountServiceImpl accountServiceImpl;
 
     @Before
     public void init() {
         MockitoAnnotations.initMocks(this);
+        accountServiceImpl = new AccountServiceImpl(accountRepository, accountMapper, new StripedAccountLock(16), new AuditLog(0));
     }
 
     @Test
     public void test_new_account_creation() {
-        given(accountRepository.isAccountExist(anyString())).willReturn(false);
-        given(accountMapper.createFrom(any(CreateAccount.class), any(UUID.class))).willReturn(any(Account.class));
+        final Account account = getAccountInstance(UUID.randomUUID(), "Zulqarnain", 20);
+        given(accountMapper.createFrom(any(CreateAccount.class), any(UUID.class))).willReturn(account);
+        given(accountRepository.saveIfUserAbsent(account)).willReturn(true);
 
         accountServiceImpl.createAccount(getAccountInstance("Zulqarnain", 20, "GBP"));
-        verify(accountRepository, times(1)).save(any(Account.class));
+        verify(accountRepository, times(1)).saveIfUserAbsent(account);
     }
 
     @Test(expected = AccountAlreadyExistException.class)
     public void test_duplicate_account_creation() {
-        given(accountRepository.isAccountExist(anyString())).willReturn(true);
+        given(accountRepository.saveIfUserAbsent(any(Account.class))).willReturn(false);
         accountServiceImpl.createAccount(getAccountInstance("Zulqarnain", 120, "GBP"));
     }
 
@@ -206,4 +228,164 @@ public class AccountServiceTest {
 
         accountServiceImpl.transferAmount(getTransferMoneyInstance(fromAccountId.toString(), toAccountId.toString(), 80));
     }
+
+    @Test
+    public void test_batch_transfer_money() {
+        final UUID firstAccountId = UUID.randomUUID();
+        final Account firstAccount = getAccountInstance(firstAccountId, "Zulqarnain", 60);
+        given(accountRepository.getAccountById(firstAccountId)).willReturn(firstAccount);
+
+        final UUID secondAccountId = UUID.randomUUID();
+        final Account secondAccount = getAccountInstance(secondAccountId, "Adnan", 20);
+        given(accountRepository.getAccountById(secondAccountId)).willReturn(secondAccount);
+
+        final List<TransferResult> results = accountServiceImpl.transferAll(getTransferBatchInstance(false,
+                getTransferMoneyInstance(firstAccountId.toString(), secondAccountId.toString(), 50),
+                getTransferMoneyInstance(secondAccountId.toString(), firstAccountId.toString(), 70)));
+
+        assertTrue(results.stream().allMatch(TransferResult::isApplied));
+        assertEquals(new BigDecimal(80), firstAccount.getBalance());
+        assertEquals(new BigDecimal(0), secondAccount.getBalance());
+        verify(accountRepository, times(1)).saveAll(any(Collection.class));
+    }
+
+    @Test
+    public void test_batch_transfer_is_rolled_back_when_one_fails() {
+        final UUID firstAccountId = UUID.randomUUID();
+        final Account firstAccount = getAccountInstance(firstAccountId, "Zulqarnain", 60);
+        given(accountRepository.getAccountById(firstAccountId)).willReturn(firstAccount);
+
+        final UUID secondAccountId = UUID.randomUUID();
+        final Account secondAccount = getAccountInstance(secondAccountId, "Adnan", 20);
+        given(accountRepository.getAccountById(secondAccountId)).willReturn(secondAccount);
+
+        final List<TransferResult> results = accountServiceImpl.transferAll(getTransferBatchInstance(false,
+                getTransferMoneyInstance(firstAccountId.toString(), secondAccountId.toString(), 30),
+                getTransferMoneyInstance(secondAccountId.toString(), firstAccountId.toString(), 80)));
+
+        assertFalse(results.get(0).isApplied());
+        assertFalse(results.get(1).isApplied());
+        assertEquals(new BigDecimal(60), firstAccount.getBalance());
+        assertEquals(new BigDecimal(20), secondAccount.getBalance());
+        verify(accountRepository, never()).saveAll(any(Collection.class));
+    }
+
+    @Test
+    public void test_batch_transfer_applies_valid_transfers_when_partial_allowed() {
+        final UUID firstAccountId = UUID.randomUUID();
+        final Account firstAccount = getAccountInstance(firstAccountId, "Zulqarnain", 60);
+        given(accountRepository.getAccountById(firstAccountId)).willReturn(firstAccount);
+
+        final UUID secondAccountId = UUID.randomUUID();
+        final Account secondAccount = getAccountInstance(secondAccountId, "Adnan", 20);
+        given(accountRepository.getAccountById(secondAccountId)).willReturn(secondAccount);
+
+        final List<TransferResult> results = accountServiceImpl.transferAll(getTransferBatchInstance(true,
+                getTransferMoneyInstance(firstAccountId.toString(), secondAccountId.toString(), 30),
+                getTransferMoneyInstance(firstAccountId.toString(), UUID.randomUUID().toString(), 10)));
+
+        assertTrue(results.get(0).isApplied());
+        assertFalse(results.get(1).isApplied());
+        assertEquals(new BigDecimal(30), firstAccount.getBalance());
+        assertEquals(new BigDecimal(50), secondAccount.getBalance());
+    }
+
+    @Test
+    public void test_account_view_is_reused_until_account_changes() {
+        final AccountService accountService = new AccountServiceImpl(new AccountRepositoryImpl(), new AccountMapper(), new StripedAccountLock(16), new AuditLog(0));
+        final UUID firstAccountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        final UUID secondAccountId = accountService.createAccount(getAccountInstance("Adnan", 20, "GBP"));
+
+        final AccountView view = accountService.getAccountView(firstAccountId);
+        assertSame(view, accountService.getAccountView(firstAccountId));
+        assertSame(view.json(), accountService.getAccountView(firstAccountId).json());
+
+        accountService.transferAmount(getTransferMoneyInstance(firstAccountId.toString(), secondAccountId.toString(), 25));
+        final AccountView changed = accountService.getAccountView(firstAccountId);
+        assertNotSame(view, changed);
+        assertTrue(changed.getVersion() > view.getVersion());
+        assertEquals(new BigDecimal(60), view.getAccount().getBalance());
+        assertEquals(new BigDecimal(35), changed.getAccount().getBalance());
+        assertEquals(new BigDecimal(45), accountService.getAccount(secondAccountId).getBalance());
+
+        accountService.deleteAccount(firstAccountId);
+        try {
+            accountService.getAccountView(firstAccountId);
+            fail("Deleted account must not be served from its last view");
+        } catch (AccountNotExistsException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void test_hold_reduces_available_balance_until_captured_or_released() {
+        final AccountService accountService = new AccountServiceImpl(new AccountRepositoryImpl(), new AccountMapper(), new StripedAccountLock(16), new AuditLog(0));
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+
+        final HoldResponse captured = accountService.placeHold(placeHold(accountId, 40, 60));
+        final HoldResponse released = accountService.placeHold(placeHold(accountId, 15, 60));
+        assertEquals(new BigDecimal(60), accountService.getAccount(accountId).getBalance());
+        assertEquals(new BigDecimal(5), accountService.getAccount(accountId).getAvailableBalance());
+        try {
+            accountService.withDrawMoney(getWithDrawMoneyInstance(accountId.toString(), 10));
+            fail("Held money must not be withdrawn");
+        } catch (InsufficientBalanceException ex) {
+            // expected
+        }
+
+        accountService.captureHold(accountId, captured.getHoldId());
+        accountService.releaseHold(accountId, released.getHoldId());
+        final AccountResponse account = accountService.getAccount(accountId);
+        assertEquals(new BigDecimal(20), account.getBalance());
+        assertEquals(new BigDecimal(20), account.getAvailableBalance());
+        assertTrue(accountService.getHolds(accountId).isEmpty());
+        try {
+            accountService.captureHold(accountId, captured.getHoldId());
+            fail("Hold must only be captured once");
+        } catch (HoldNotExistsException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void test_hold_expires() throws InterruptedException {
+        final AccountService accountService = new AccountServiceImpl(new AccountRepositoryImpl(), new AccountMapper(), new StripedAccountLock(16), new AuditLog(0));
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        final HoldResponse hold = accountService.placeHold(placeHold(accountId, 40, 1));
+        assertEquals(new BigDecimal(20), accountService.getAccount(accountId).getAvailableBalance());
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while(!accountService.getHolds(accountId).isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(System.currentTimeMillis() >= hold.getExpiresAt());
+        assertTrue(accountService.getHolds(accountId).isEmpty());
+        assertEquals(new BigDecimal(60), accountService.getAccount(accountId).getAvailableBalance());
+    }
+
+    @Test
+    public void test_hold_is_refused_by_a_refusing_hold_book() {
+        final HoldBook holdBook = new HoldBook(HoldBook.DEFAULT_TICK_MILLIS, HoldBook.DEFAULT_WHEEL_SIZE, HoldBook.DEFAULT_MAX_EXPIRY_SECONDS,
+                                               Clock.systemUTC(), "Holds are not journaled");
+        final AccountService accountService = new AccountServiceImpl(new AccountRepositoryImpl(), new AccountMapper(), new StripedAccountLock(16), new AuditLog(0),
+                                                                     new TransactionLedger(), new FxRateTable(), AccountIdGenerator.RANDOM,
+                                                                     new AccountViews(), holdBook);
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        try {
+            accountService.placeHold(placeHold(accountId, 40, 60));
+            fail("Hold must be refused");
+        } catch (OperationNotSupportedException ex) {
+            assertEquals("Holds are not journaled", ex.getMessage());
+        }
+        assertEquals(new BigDecimal(60), accountService.getAccount(accountId).getAvailableBalance());
+        assertTrue(accountService.getHolds(accountId).isEmpty());
+    }
+
+    private static PlaceHold placeHold(final UUID accountId, final double amount, final long expirySeconds) {
+        return PlaceHold.builder()
+                        .accountId(accountId)
+                        .amount(new BigDecimal(amount))
+                        .expirySeconds(expirySeconds)
+                        .build();
+    }
 }
@@ -0,0 +1,265 @@
+package com.revolut.interview.service;
+
+import com.revolut.interview.audit.AuditLog;
+import com.revolut.interview.execption.AccountAlreadyExistException;
+import com.revolut.interview.execption.AccountNotExistsException;
+import com.revolut.interview.execption.InsufficientBalanceException;
+import com.revolut.interview.execption.InvalidAmountException;
+import com.revolut.interview.fx.FxRateTable;
+import com.revolut.interview.ledger.TransactionLedger;
+import com.revolut.interview.mapper.AccountMapper;
+import com.revolut.interview.request.TransferBatch;
+import com.revolut.interview.response.TransferResult;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.revolut.interview.data.MoneyTransferData.getAccountInstance;
+import static com.revolut.interview.data.MoneyTransferData.getDepositMoneyInstance;
+import static com.revolut.interview.data.MoneyTransferData.getTransferBatchInstance;
+import static com.revolut.interview.data.MoneyTransferData.getTransferMoneyInstance;
+import static com.revolut.interview.data.MoneyTransferData.getWithDrawMoneyInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OptimisticAccountServiceTest {
+
+    private final OptimisticAccountServiceImpl accountService = new OptimisticAccountServiceImpl(new AccountMapper(), new AuditLog(0));
+
+    @Test(expected = AccountAlreadyExistException.class)
+    public void test_duplicate_account_creation() {
+        accountService.createAccount(getAccountInstance("Zulqarnain", 20, "GBP"));
+        accountService.createAccount(getAccountInstance("Zulqarnain", 30, "GBP"));
+    }
+
+    @Test
+    public void test_deposit_and_withdraw_money() {
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        accountService.depositMoney(getDepositMoneyInstance(accountId.toString(), 20));
+        accountService.withDrawMoney(getWithDrawMoneyInstance(accountId.toString(), 50));
+        assertEquals(new BigDecimal("30.00"), accountService.getAccount(accountId).getBalance());
+    }
+
+    @Test(expected = InsufficientBalanceException.class)
+    public void test_withdraw_insufficient_money() {
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        accountService.withDrawMoney(getWithDrawMoneyInstance(accountId.toString(), 61));
+    }
+
+    @Test
+    public void test_transfer_money() {
+        final UUID fromAccountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        final UUID toAccountId = accountService.createAccount(getAccountInstance("Adnan", 20, "GBP"));
+
+        accountService.transferAmount(getTransferMoneyInstance(fromAccountId.toString(), toAccountId.toString(), 30));
+
+        assertEquals(new BigDecimal("30.00"), accountService.getAccount(fromAccountId).getBalance());
+        assertEquals(new BigDecimal("50.00"), accountService.getAccount(toAccountId).getBalance());
+    }
+
+    @Test
+    public void test_transfer_to_non_existing_account_keeps_balance() {
+        final UUID fromAccountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        try {
+            accountService.transferAmount(getTransferMoneyInstance(fromAccountId.toString(), UUID.randomUUID().toString(), 30));
+            fail("Transfer to a non existing account must fail");
+        } catch (AccountNotExistsException expected) {
+            // balance must be untouched
+        }
+        assertEquals(new BigDecimal("60.00"), accountService.getAccount(fromAccountId).getBalance());
+    }
+
+    @Test
+    public void test_cross_currency_batch_converts_each_transfer() {
+        final FxRateTable fxRateTable = new FxRateTable();
+        final OptimisticAccountServiceImpl fxAccountService = new OptimisticAccountServiceImpl(new AccountMapper(), new AuditLog(0),
+                                                                                               new TransactionLedger(), fxRateTable);
+        final UUID gbpAccountId = fxAccountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        final UUID jpyAccountId = fxAccountService.createAccount(getAccountInstance("Adnan", 0, "JPY"));
+
+        final List<TransferResult> rejected = fxAccountService.transferAll(getTransferBatchInstance(false,
+                getTransferMoneyInstance(gbpAccountId.toString(), jpyAccountId.toString(), 10)));
+        assertFalse(rejected.get(0).isApplied());
+
+        fxRateTable.update(Currency.getInstance("GBP"), Collections.singletonMap(Currency.getInstance("JPY"), new BigDecimal("191.456")));
+        final List<TransferResult> results = fxAccountService.transferAll(getTransferBatchInstance(false,
+                getTransferMoneyInstance(gbpAccountId.toString(), jpyAccountId.toString(), 10),
+                getTransferMoneyInstance(jpyAccountId.toString(), gbpAccountId.toString(), 1000)));
+
+        assertTrue(results.get(0).isApplied() && results.get(1).isApplied());
+        assertEquals(new BigDecimal("914"), fxAccountService.getAccount(jpyAccountId).getBalance());
+        assertEquals(new BigDecimal("55.22"), fxAccountService.getAccount(gbpAccountId).getBalance());
+    }
+
+    @Test(expected = InvalidAmountException.class)
+    public void test_amount_finer_than_minor_unit_is_rejected() {
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        accountService.depositMoney(getDepositMoneyInstance(accountId.toString(), 0.001));
+    }
+
+    @Test
+    public void test_balance_uses_currency_minor_unit() {
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "JPY"));
+        assertEquals(new BigDecimal(60), accountService.getAccount(accountId).getBalance());
+    }
+
+    @Test(expected = AccountNotExistsException.class)
+    public void test_account_deletion() {
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        accountService.deleteAccount(accountId);
+        accountService.getAccount(accountId);
+    }
+
+    @Test
+    public void test_user_can_recreate_account_after_deletion() {
+        accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        accountService.deleteAllAccounts();
+        assertTrue(accountService.getAllAccounts().isEmpty());
+        accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        assertEquals(1, accountService.getAllAccounts().size());
+    }
+
+    @Test
+    public void test_batch_transfer_money() {
+        final UUID firstAccountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        final UUID secondAccountId = accountService.createAccount(getAccountInstance("Adnan", 20, "GBP"));
+
+        final List<TransferResult> results = accountService.transferAll(getTransferBatchInstance(false,
+                getTransferMoneyInstance(firstAccountId.toString(), secondAccountId.toString(), 50),
+                getTransferMoneyInstance(secondAccountId.toString(), firstAccountId.toString(), 70)));
+
+        assertTrue(results.stream().allMatch(TransferResult::isApplied));
+        assertEquals(new BigDecimal("80.00"), accountService.getAccount(firstAccountId).getBalance());
+        assertEquals(new BigDecimal("0.00"), accountService.getAccount(secondAccountId).getBalance());
+    }
+
+    @Test
+    public void test_batch_transfer_is_rolled_back_when_one_fails() {
+        final UUID firstAccountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        final UUID secondAccountId = accountService.createAccount(getAccountInstance("Adnan", 20, "GBP"));
+
+        final List<TransferResult> results = accountService.transferAll(getTransferBatchInstance(false,
+                getTransferMoneyInstance(firstAccountId.toString(), secondAccountId.toString(), 30),
+                getTransferMoneyInstance(secondAccountId.toString(), UUID.randomUUID().toString(), 10)));
+
+        assertFalse(results.get(0).isApplied());
+        assertFalse(results.get(1).isApplied());
+        assertEquals(new BigDecimal("60.00"), accountService.getAccount(firstAccountId).getBalance());
+        assertEquals(new BigDecimal("20.00"), accountService.getAccount(secondAccountId).getBalance());
+    }
+
+    @Test
+    public void test_batch_transfer_applies_valid_transfers_when_partial_allowed() {
+        final UUID firstAccountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        final UUID secondAccountId = accountService.createAccount(getAccountInstance("Adnan", 20, "GBP"));
+
+        final List<TransferResult> results = accountService.transferAll(getTransferBatchInstance(true,
+                getTransferMoneyInstance(firstAccountId.toString(), secondAccountId.toString(), 30),
+                getTransferMoneyInstance(firstAccountId.toString(), secondAccountId.toString(), 40)));
+
+        assertTrue(results.get(0).isApplied());
+        assertFalse(results.get(1).isApplied());
+        assertEquals(new BigDecimal("30.00"), accountService.getAccount(firstAccountId).getBalance());
+        assertEquals(new BigDecimal("50.00"), accountService.getAccount(secondAccountId).getBalance());
+    }
+
+    @Test(timeout = 60000)
+    public void test_transfer_racing_withdrawal_is_applied_whole_or_not_at_all() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for(int i = 0; i < 500; i++) {
+                final UUID fromAccountId = accountService.createAccount(getAccountInstance("Zulqarnain-" + i, 100, "GBP"));
+                final UUID toAccountId = accountService.createAccount(getAccountInstance("Adnan-" + i, 0, "GBP"));
+
+                final boolean[] applied = race(executor,
+                        () -> accountService.transferAmount(getTransferMoneyInstance(fromAccountId.toString(), toAccountId.toString(), 100)),
+                        () -> accountService.withDrawMoney(getWithDrawMoneyInstance(fromAccountId.toString(), 100)));
+
+                assertTrue(applied[0] ^ applied[1]);
+                assertEquals(new BigDecimal("0.00"), accountService.getAccount(fromAccountId).getBalance());
+                assertEquals(applied[0] ? new BigDecimal("100.00") : new BigDecimal("0.00"), accountService.getAccount(toAccountId).getBalance());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void test_transfer_racing_deletion_of_target_moves_no_money_or_all_of_it() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for(int i = 0; i < 500; i++) {
+                final UUID fromAccountId = accountService.createAccount(getAccountInstance("Zulqarnain-" + i, 60, "GBP"));
+                final UUID toAccountId = accountService.createAccount(getAccountInstance("Adnan-" + i, 20, "GBP"));
+
+                final boolean[] applied = race(executor,
+                        () -> accountService.transferAmount(getTransferMoneyInstance(fromAccountId.toString(), toAccountId.toString(), 30)),
+                        () -> accountService.deleteAccount(toAccountId));
+
+                assertTrue(applied[1]);
+                assertEquals(applied[0] ? new BigDecimal("30.00") : new BigDecimal("60.00"), accountService.getAccount(fromAccountId).getBalance());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void test_atomic_batch_racing_withdrawal_is_applied_whole_or_not_at_all() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for(int i = 0; i < 500; i++) {
+                final UUID firstAccountId = accountService.createAccount(getAccountInstance("Zulqarnain-" + i, 100, "GBP"));
+                final UUID secondAccountId = accountService.createAccount(getAccountInstance("Adnan-" + i, 0, "GBP"));
+                final TransferBatch transferBatch = getTransferBatchInstance(false,
+                        getTransferMoneyInstance(firstAccountId.toString(), secondAccountId.toString(), 100),
+                        getTransferMoneyInstance(secondAccountId.toString(), firstAccountId.toString(), 40));
+
+                final boolean[] applied = race(executor,
+                        () -> {
+                            if(!accountService.transferAll(transferBatch).get(0).isApplied()) {
+                                throw new InsufficientBalanceException("Batch rejected");
+                            }
+                        },
+                        () -> accountService.withDrawMoney(getWithDrawMoneyInstance(firstAccountId.toString(), 100)));
+
+                assertTrue(applied[0] ^ applied[1]);
+                assertEquals(applied[0] ? new BigDecimal("40.00") : new BigDecimal("0.00"), accountService.getAccount(firstAccountId).getBalance());
+                assertEquals(applied[0] ? new BigDecimal("60.00") : new BigDecimal("0.00"), accountService.getAccount(secondAccountId).getBalance());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Starts both operations together and returns which of them went through.
+     */
+    private static boolean[] race(final ExecutorService executor, final Runnable first, final Runnable second) throws Exception {
+        final CyclicBarrier start = new CyclicBarrier(2);
+        final Future<Boolean> firstApplied = executor.submit(() -> attempt(start, first));
+        final Future<Boolean> secondApplied = executor.submit(() -> attempt(start, second));
+        return new boolean[] { firstApplied.get(), secondApplied.get() };
+    }
+
+    private static boolean attempt(final CyclicBarrier start, final Runnable operation) throws Exception {
+        start.await();
+        try {
+            operation.run();
+            return true;
+        } catch (AccountNotExistsException | InsufficientBalanceException ex) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.revolut.interview.service;
+
+import com.revolut.interview.audit.AuditLog;
+import com.revolut.interview.execption.AccountAlreadyExistException;
+import com.revolut.interview.execption.AccountNotExistsException;
+import com.revolut.interview.execption.InsufficientBalanceException;
+import com.revolut.interview.mapper.AccountMapper;
+import com.revolut.interview.request.TransferMoney;
+import com.revolut.interview.response.AccountResponse;
+import com.revolut.interview.response.TransferResult;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.revolut.interview.data.MoneyTransferData.getAccountInstance;
+import static com.revolut.interview.data.MoneyTransferData.getDepositMoneyInstance;
+import static com.revolut.interview.data.MoneyTransferData.getTransferBatchInstance;
+import static com.revolut.interview.data.MoneyTransferData.getTransferMoneyInstance;
+import static com.revolut.interview.data.MoneyTransferData.getWithDrawMoneyInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ShardedAccountServiceTest {
+
+    private static final int ACCOUNTS = 16;
+
+    private final ShardedAccountServiceImpl accountService = new ShardedAccountServiceImpl(new AccountMapper(), new AuditLog(0), 4);
+
+    @After
+    public void after() {
+        accountService.shutdown();
+    }
+
+    @Test(expected = AccountAlreadyExistException.class)
+    public void test_duplicate_account_creation() {
+        accountService.createAccount(getAccountInstance("Zulqarnain", 20, "GBP"));
+        accountService.createAccount(getAccountInstance("Zulqarnain", 30, "GBP"));
+    }
+
+    @Test
+    public void test_deposit_and_withdraw_money() {
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        accountService.depositMoney(getDepositMoneyInstance(accountId.toString(), 20));
+        accountService.withDrawMoney(getWithDrawMoneyInstance(accountId.toString(), 50));
+        assertEquals(new BigDecimal(30), accountService.getAccount(accountId).getBalance());
+    }
+
+    @Test(expected = InsufficientBalanceException.class)
+    public void test_withdraw_insufficient_money() {
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        accountService.withDrawMoney(getWithDrawMoneyInstance(accountId.toString(), 61));
+    }
+
+    @Test
+    public void test_accounts_are_paged_across_shards() {
+        final List<UUID> accountIds = createAccounts();
+        accountIds.sort(UUID::compareTo);
+
+        final List<AccountResponse> firstPage = accountService.getAccounts(null, 5);
+        assertEquals(5, firstPage.size());
+        for(int i = 0; i < 5; i++) {
+            assertEquals(accountIds.get(i), firstPage.get(i).getAccountId());
+        }
+        assertEquals(accountIds.get(5), accountService.getAccounts(accountIds.get(4), 1).get(0).getAccountId());
+        assertEquals(ACCOUNTS, accountService.countAccounts());
+    }
+
+    /**
+     * With sixteen accounts over four shards the ring takes both intra-shard and cross-shard
+     * paths.
+     */
+    @Test
+    public void test_transfers_around_a_ring_of_accounts() {
+        final List<UUID> accountIds = createAccounts();
+        for(int i = 0; i < ACCOUNTS; i++) {
+            accountService.transferAmount(getTransferMoneyInstance(accountIds.get(i).toString(),
+                                                                   accountIds.get((i + 1) % ACCOUNTS).toString(), 10));
+        }
+        accountIds.forEach(accountId -> assertEquals(new BigDecimal(10), accountService.getAccount(accountId).getBalance()));
+    }
+
+    @Test
+    public void test_failed_cross_shard_credit_returns_the_reservation() {
+        final List<UUID> accountIds = createAccounts();
+        for(final UUID accountId : accountIds) {
+            try {
+                accountService.transferAmount(getTransferMoneyInstance(accountId.toString(), UUID.randomUUID().toString(), 5));
+            } catch (AccountNotExistsException ex) {
+                // expected: the target is missing on whichever shard it maps to
+            }
+            assertEquals(new BigDecimal(10), accountService.getAccount(accountId).getBalance());
+        }
+    }
+
+    @Test
+    public void test_batch_transfer_is_rolled_back_when_one_fails() {
+        final UUID firstAccountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        final UUID secondAccountId = accountService.createAccount(getAccountInstance("Adnan", 20, "GBP"));
+
+        final List<TransferResult> results = accountService.transferAll(getTransferBatchInstance(false,
+                getTransferMoneyInstance(firstAccountId.toString(), secondAccountId.toString(), 30),
+                getTransferMoneyInstance(secondAccountId.toString(), firstAccountId.toString(), 60)));
+
+        assertFalse(results.get(0).isApplied());
+        assertFalse(results.get(1).isApplied());
+        assertEquals(new BigDecimal(60), accountService.getAccount(firstAccountId).getBalance());
+        assertEquals(new BigDecimal(20), accountService.getAccount(secondAccountId).getBalance());
+    }
+
+    @Test
+    public void test_batch_transfer_commits_net_changes_across_shards() {
+        final List<UUID> accountIds = createAccounts();
+        final List<TransferMoney> transfers = new ArrayList<>();
+        for(int i = 1; i < ACCOUNTS; i++) {
+            transfers.add(getTransferMoneyInstance(accountIds.get(i).toString(), accountIds.get(0).toString(), 10));
+        }
+        transfers.add(getTransferMoneyInstance(accountIds.get(0).toString(), accountIds.get(1).toString(), 150));
+
+        final List<TransferResult> results = accountService.transferAll(getTransferBatchInstance(false, transfers.toArray(new TransferMoney[0])));
+
+        results.forEach(result -> assertTrue(result.isApplied()));
+        assertEquals(new BigDecimal(10), accountService.getAccount(accountIds.get(0)).getBalance());
+        assertEquals(new BigDecimal(150), accountService.getAccount(accountIds.get(1)).getBalance());
+        assertEquals(new BigDecimal(0), accountService.getAccount(accountIds.get(2)).getBalance());
+    }
+
+    @Test
+    public void test_user_can_recreate_account_after_deletion() {
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        accountService.deleteAccount(accountId);
+        accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        accountService.deleteAllAccounts();
+        assertTrue(accountService.getAllAccounts().isEmpty());
+        accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+    }
+
+    private List<UUID> createAccounts() {
+        final List<UUID> accountIds = new ArrayList<>();
+        for(int i = 0; i < ACCOUNTS; i++) {
+            accountIds.add(accountService.createAccount(getAccountInstance("user-" + i, 10, "GBP")));
+        }
+        return accountIds;
+    }
+}
@@ -0,0 +1,112 @@
+package com.revolut.interview.service;
+
+import com.revolut.interview.audit.AuditLog;
+import com.revolut.interview.execption.AccountAlreadyExistException;
+import com.revolut.interview.execption.AccountNotExistsException;
+import com.revolut.interview.execption.InsufficientBalanceException;
+import com.revolut.interview.mapper.AccountMapper;
+import com.revolut.interview.response.AccountResponse;
+import com.revolut.interview.response.TransferResult;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static com.revolut.interview.data.MoneyTransferData.getAccountInstance;
+import static com.revolut.interview.data.MoneyTransferData.getDepositMoneyInstance;
+import static com.revolut.interview.data.MoneyTransferData.getTransferBatchInstance;
+import static com.revolut.interview.data.MoneyTransferData.getTransferMoneyInstance;
+import static com.revolut.interview.data.MoneyTransferData.getWithDrawMoneyInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SingleWriterAccountServiceTest {
+
+    private final SingleWriterAccountServiceImpl accountService = new SingleWriterAccountServiceImpl(new AccountMapper(), new AuditLog(0), 64);
+
+    @After
+    public void after() {
+        accountService.shutdown();
+    }
+
+    @Test(expected = AccountAlreadyExistException.class)
+    public void test_duplicate_account_creation() {
+        accountService.createAccount(getAccountInstance("Zulqarnain", 20, "GBP"));
+        accountService.createAccount(getAccountInstance("Zulqarnain", 30, "GBP"));
+    }
+
+    @Test
+    public void test_deposit_and_withdraw_money() {
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        accountService.depositMoney(getDepositMoneyInstance(accountId.toString(), 20));
+        accountService.withDrawMoney(getWithDrawMoneyInstance(accountId.toString(), 50));
+        assertEquals(new BigDecimal("30.00"), accountService.getAccount(accountId).getBalance());
+    }
+
+    @Test(expected = InsufficientBalanceException.class)
+    public void test_withdraw_insufficient_money() {
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        accountService.withDrawMoney(getWithDrawMoneyInstance(accountId.toString(), 61));
+    }
+
+    @Test
+    public void test_accounts_are_paged_after_cursor() {
+        final UUID firstAccountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        final UUID secondAccountId = accountService.createAccount(getAccountInstance("Adnan", 20, "GBP"));
+        final UUID lowest = firstAccountId.compareTo(secondAccountId) < 0 ? firstAccountId : secondAccountId;
+        final UUID highest = lowest == firstAccountId ? secondAccountId : firstAccountId;
+
+        final List<AccountResponse> firstPage = accountService.getAccounts(null, 1);
+        assertEquals(1, firstPage.size());
+        assertEquals(lowest, firstPage.get(0).getAccountId());
+        assertEquals(highest, accountService.getAccounts(lowest, 1).get(0).getAccountId());
+
+        accountService.deleteAccount(highest);
+        assertTrue(accountService.getAccounts(lowest, 1).isEmpty());
+    }
+
+    @Test
+    public void test_transfer_money() {
+        final UUID fromAccountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        final UUID toAccountId = accountService.createAccount(getAccountInstance("Adnan", 20, "GBP"));
+
+        accountService.transferAmount(getTransferMoneyInstance(fromAccountId.toString(), toAccountId.toString(), 30));
+
+        assertEquals(new BigDecimal("30.00"), accountService.getAccount(fromAccountId).getBalance());
+        assertEquals(new BigDecimal("50.00"), accountService.getAccount(toAccountId).getBalance());
+    }
+
+    @Test(expected = AccountNotExistsException.class)
+    public void test_transfer_money_in_non_existing_account() {
+        final UUID fromAccountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        accountService.transferAmount(getTransferMoneyInstance(fromAccountId.toString(), UUID.randomUUID().toString(), 30));
+    }
+
+    @Test
+    public void test_batch_transfer_is_rolled_back_when_one_fails() {
+        final UUID firstAccountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        final UUID secondAccountId = accountService.createAccount(getAccountInstance("Adnan", 20, "GBP"));
+
+        final List<TransferResult> results = accountService.transferAll(getTransferBatchInstance(false,
+                getTransferMoneyInstance(firstAccountId.toString(), secondAccountId.toString(), 30),
+                getTransferMoneyInstance(secondAccountId.toString(), firstAccountId.toString(), 60)));
+
+        assertFalse(results.get(0).isApplied());
+        assertFalse(results.get(1).isApplied());
+        assertEquals(new BigDecimal("60.00"), accountService.getAccount(firstAccountId).getBalance());
+        assertEquals(new BigDecimal("20.00"), accountService.getAccount(secondAccountId).getBalance());
+    }
+
+    @Test
+    public void test_user_can_recreate_account_after_deletion() {
+        final UUID accountId = accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        accountService.deleteAccount(accountId);
+        accountService.createAccount(getAccountInstance("Zulqarnain", 60, "GBP"));
+        accountService.deleteAllAccounts();
+        assertTrue(accountService.getAllAccounts().isEmpty());
+    }
+}
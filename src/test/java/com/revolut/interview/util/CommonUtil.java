@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
 
 import spark.utils.IOUtils;
 
@@ -18,11 +20,16 @@ public class CommonUtil {
     }
     
     public static Response request(final String method, final String path, final String jsonBody) {
+        return request(method, path, jsonBody, Collections.emptyMap());
+    }
+
+    public static Response request(final String method, final String path, final String jsonBody, final Map<String, String> headers) {
         HttpURLConnection conn = null;
         try {
             URL url = new URL( BASE_URL + path);
             conn = (HttpURLConnection) url.openConnection();
             conn.setRequestMethod(method);
+            headers.forEach(conn::setRequestProperty);
             if(jsonBody != null){
                 conn.setDoOutput(true);
                 conn.setRequestProperty("Content-Type","application/json");
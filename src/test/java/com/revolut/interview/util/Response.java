@@ -24,6 +24,10 @@ public class Response {
         return new JsonParser().parse(body).getAsJsonObject().get("data");
     }
 
+    public String getBody() {
+        return body;
+    }
+
     public int getStatus() {
         return status;
     }
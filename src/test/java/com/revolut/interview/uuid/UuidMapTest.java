@@ -0,0 +1,115 @@
+package com.revolut.interview.uuid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class UuidMapTest {
+
+    @Test
+    public void test_random_operations_agree_with_hash_map() {
+        final Random random = new Random(42);
+        final UuidMap<Integer> map = new UuidMap<>(4, 0);
+        final Map<UUID, Integer> expected = new HashMap<>();
+        final List<UUID> keys = new ArrayList<>();
+        for(int i = 0; i < 2_000; i++) {
+            // Shared most significant bits put many keys on colliding probe runs
+            keys.add(new UUID(random.nextInt(4), random.nextLong()));
+        }
+
+        for(int i = 0; i < 100_000; i++) {
+            final UUID key = keys.get(random.nextInt(keys.size()));
+            switch(random.nextInt(4)) {
+                case 0:
+                    assertEquals(expected.put(key, i), map.put(key, i));
+                    break;
+                case 1:
+                    assertEquals(expected.putIfAbsent(key, i), map.putIfAbsent(key, i));
+                    break;
+                case 2:
+                    assertEquals(expected.remove(key), map.remove(key));
+                    break;
+                default:
+                    assertEquals(expected.get(key), map.get(key));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for(final UUID key : keys) {
+            assertEquals(expected.get(key), map.get(key.getMostSignificantBits(), key.getLeastSignificantBits()));
+        }
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+    }
+
+    @Test
+    public void test_readers_see_every_entry_while_segments_grow() throws InterruptedException {
+        final UuidMap<UUID> map = new UuidMap<>(2, 0);
+        final UUID[] stable = new UUID[1_000];
+        for(int i = 0; i < stable.length; i++) {
+            stable[i] = UUID.randomUUID();
+            map.put(stable[i], stable[i]);
+        }
+
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final AtomicInteger misses = new AtomicInteger();
+        final List<Thread> readers = new ArrayList<>();
+        for(int r = 0; r < 4; r++) {
+            final Thread reader = new Thread(() -> {
+                int i = 0;
+                while(writing.get()) {
+                    final UUID key = stable[i++ % stable.length];
+                    if(!key.equals(map.get(key))) {
+                        misses.incrementAndGet();
+                    }
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        for(int i = 0; i < 200_000; i++) {
+            final UUID key = UUID.randomUUID();
+            map.put(key, key);
+            if(i % 2 == 0) {
+                map.remove(key);
+            }
+        }
+        writing.set(false);
+        for(final Thread reader : readers) {
+            reader.join();
+        }
+
+        assertEquals(0, misses.get());
+        assertEquals(stable.length + 100_000, map.size());
+    }
+
+    @Test
+    public void test_values_iterates_every_entry_once() {
+        final UuidMap<UUID> map = new UuidMap<>();
+        final List<UUID> keys = new ArrayList<>();
+        for(int i = 0; i < 500; i++) {
+            final UUID key = UUID.randomUUID();
+            keys.add(key);
+            map.put(key, key);
+        }
+        final List<UUID> values = new ArrayList<>(map.values());
+        assertEquals(keys.size(), values.size());
+        assertTrue(values.containsAll(keys));
+
+        keys.forEach(map::remove);
+        assertTrue(map.isEmpty());
+        assertNull(map.get(keys.get(0)));
+    }
+}
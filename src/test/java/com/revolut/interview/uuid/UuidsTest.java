@@ -0,0 +1,31 @@
+package com.revolut.interview.uuid;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+public class UuidsTest {
+
+    @Test
+    public void test_parse_agrees_with_uuid_from_string() {
+        for(int i = 0; i < 1_000; i++) {
+            final UUID expected = UUID.randomUUID();
+            assertEquals(expected, Uuids.parse(expected.toString()));
+            assertEquals(expected, Uuids.parse(expected.toString().toUpperCase()));
+        }
+        final UUID extreme = new UUID(-1L, Long.MIN_VALUE);
+        assertEquals(extreme, Uuids.parse(extreme.toString()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_parse_rejects_non_hex_digit() {
+        Uuids.parse("6f1c2a7e-0d4b-4e5a-9c3f-2b8e1d0a7g11");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_parse_rejects_non_canonical_form() {
+        Uuids.parse("1-2-3-4-5");
+    }
+}
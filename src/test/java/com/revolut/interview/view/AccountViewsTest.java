@@ -0,0 +1,42 @@
+package com.revolut.interview.view;
+
+import com.revolut.interview.response.AccountResponse;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static com.revolut.interview.data.MoneyTransferData.getAccountResponseInstance;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class AccountViewsTest {
+
+    private final AccountViews accountViews = new AccountViews();
+
+    @Test
+    public void test_fill_keeps_view_published_by_writer() {
+        final UUID accountId = UUID.randomUUID();
+        final long stamp = accountViews.stamp();
+        final AccountView published = accountViews.publish(accountId, getAccountResponseInstance(accountId, "Zulqarnain", 40));
+
+        assertSame(published, accountViews.fill(accountId, getAccountResponseInstance(accountId, "Zulqarnain", 60), stamp));
+        assertSame(published, accountViews.get(accountId));
+    }
+
+    @Test
+    public void test_fill_started_before_invalidation_is_not_cached() {
+        final UUID accountId = UUID.randomUUID();
+        final long stamp = accountViews.stamp();
+        accountViews.invalidate(accountId);
+
+        final AccountResponse loaded = getAccountResponseInstance(accountId, "Zulqarnain", 60);
+        assertSame(loaded, accountViews.fill(accountId, loaded, stamp).getAccount());
+        assertNull(accountViews.get(accountId));
+
+        final AccountView cached = accountViews.fill(accountId, loaded, accountViews.stamp());
+        assertSame(cached, accountViews.get(accountId));
+        accountViews.invalidateAll();
+        assertNull(accountViews.get(accountId));
+    }
+}